@@ -0,0 +1,136 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package es.ants.felixgm.trmsim_wsn;
+
+import es.ants.felixgm.trmsim_wsn.network.Sensor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>This class models the way the clients of a network request their services
+ * in every round of a simulation. Every client has to perform its request (i.e.,
+ * its {@link Sensor#run()} method) before the round is over</p>
+ * <p>These are the available modes:</p>
+ * <ul>
+ * <li>{@value #POOLED}: clients are run by a fixed work-stealing pool sized to the number of cores</li>
+ * <li>{@value #VIRTUAL_THREADS}: every client is run by its own virtual thread, or by its own
+ * platform thread if virtual threads are not supported by the Java runtime</li>
+ * <li>{@value #SEQUENTIAL}: clients are run one after another by the simulation thread,
+ * in the order they are stored in the network, so results are reproducible</li>
+ * </ul>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public abstract class ClientExecutor {
+    /** Clients are run by a fixed work-stealing pool sized to the number of cores */
+    public static final String POOLED = "pooled";
+    /** Every client is run by its own virtual thread (or platform thread if not supported) */
+    public static final String VIRTUAL_THREADS = "virtualThreads";
+    /** Clients are run one after another by the simulation thread */
+    public static final String SEQUENTIAL = "sequential";
+    /** Mode used unless any other is specified */
+    public static final String DEFAULT_MODE = POOLED;
+
+    /**
+     * This method creates a new client executor working in the given mode
+     * @param mode Mode of the new client executor: {@value #POOLED}, {@value #VIRTUAL_THREADS} or {@value #SEQUENTIAL}
+     * @return A new client executor working in the given mode
+     * @throws java.lang.Exception If the given mode is unknown
+     */
+    public static ClientExecutor newClientExecutor(String mode) throws Exception {
+        if (POOLED.equals(mode))
+            return new PooledClientExecutor();
+        else if (VIRTUAL_THREADS.equals(mode))
+            return new VirtualThreadClientExecutor();
+        else if (SEQUENTIAL.equals(mode))
+            return new SequentialClientExecutor();
+        throw new Exception("Unknown client execution mode '"+mode+"'");
+    }
+
+    /**
+     * This method makes every given client request its service, returning once all of them have finished
+     * @param clients Clients requesting their service
+     * @throws java.lang.InterruptedException If the simulation thread is interrupted while waiting for the clients
+     */
+    public abstract void runClients(Collection<Sensor> clients) throws InterruptedException;
+
+    /**
+     * This method releases the threads held by this client executor, if any.
+     * It can not be used any more afterwards
+     */
+    public void shutdown() { }
+
+    /**
+     * Returns the mode of this client executor
+     * @return The mode of this client executor
+     */
+    public abstract String get_mode();
+
+    /**
+     * This method makes every given client request its service by means of an executor service,
+     * returning once all of them have finished. Exceptions thrown by any client are printed,
+     * as they would be if it was run by its own thread
+     * @param executorService Executor service running the clients
+     * @param clients Clients requesting their service
+     * @throws java.lang.InterruptedException If the simulation thread is interrupted while waiting for the clients
+     */
+    protected static void runClients(ExecutorService executorService, Collection<Sensor> clients) throws InterruptedException {
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(clients.size());
+        for (Sensor client : clients)
+            tasks.add(Executors.callable(client));
+
+        for (Future<Object> result : executorService.invokeAll(tasks))
+            try {
+                result.get();
+            } catch (ExecutionException ex) {
+                ex.getCause().printStackTrace();
+            }
+    }
+}
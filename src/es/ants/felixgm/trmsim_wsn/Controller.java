@@ -42,7 +42,10 @@
 package es.ants.felixgm.trmsim_wsn;
 
 import es.ants.felixgm.trmsim_wsn.network.Network;
+import es.ants.felixgm.trmsim_wsn.network.NetworkSnapshot;
+import es.ants.felixgm.trmsim_wsn.network.RandomStreams;
 import es.ants.felixgm.trmsim_wsn.network.Service;
+import es.ants.felixgm.trmsim_wsn.network.SimulationContext;
 
 import es.ants.felixgm.trmsim_wsn.gui.parameterpanels.TRMParametersPanel;
 
@@ -56,8 +59,8 @@ import java.io.FileWriter;
 import java.io.InputStreamReader;
 import java.util.Observer;
 import java.util.Observable;
-import java.util.Collection;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedList;
 
 /**
@@ -83,6 +86,12 @@ public class Controller implements Observer {
     private Thread simulationThread;
     /** Current simulation */
     private Simulation simulation;
+    /** It determines if every generated network is repaired so that every client can reach a benevolent server */
+    private boolean guaranteedConnectivity;
+    /** Mode of the client executor running the clients of every round, as defined in {@link ClientExecutor} */
+    private String clientExecutionMode;
+    /** Context of the simulations run by this controller */
+    private final SimulationContext context;
     
     /**
      * Returns the current instance of this controller
@@ -96,12 +105,24 @@ public class Controller implements Observer {
     }
     
     /**
-     * Creates a new instance of Controller
+     * Creates a new instance of Controller, running its simulations within the default context
      * @throws Exception If there is any problem loading default Trust and Reputation Model parameters
      */
     private Controller() throws Exception {
+        this(SimulationContext.get_defaultContext());
+    }
+
+    /**
+     * Creates a new instance of Controller running its simulations within a given context,
+     * so that several controllers may run their simulations at the same time
+     * @param context Context of the simulations run by this controller
+     * @throws Exception If there is any problem loading default Trust and Reputation Model parameters
+     */
+    public Controller(SimulationContext context) throws Exception {
+        this.context = context;
         requiredService = new Service("My service");
         delay = 0;
+        clientExecutionMode = ClientExecutor.DEFAULT_MODE;
     }
     
     /**
@@ -122,35 +143,25 @@ public class Controller implements Observer {
                                 double probClients, double probRelay, double probMalicious,
                                 double radioRange, boolean dynamic, boolean oscillating, 
                                 boolean collusion) {
-        // We randomly calculate the number of sensors of the network.
-        int numSensors = (int)(minNumSensors + Math.random()*Math.abs(maxNumSensors-minNumSensors));
-        ArrayList<Double> probServices = new ArrayList<Double>();
-        ArrayList<Double> probGoodness = new ArrayList<Double>();
-        ArrayList<Service> services = new ArrayList<Service>();
-
-        services.add(new Service("Relay")); // Only two types of services: Relay or RequiredService.
-        services.add(requiredService);
-
-        probServices.add(1.0);
-        probGoodness.add(1.0);
-        probServices.add(1.0-probRelay);
-        probGoodness.add(1.0-probMalicious);
-
-        currentNetwork = trmodel_wsn.generateRandomNetwork(numSensors, probClients, radioRange, probServices, probGoodness, services);
-
-        currentNetwork.set_collusion(collusion);
-        currentNetwork.set_dynamic(dynamic);
-        return currentNetwork;
+        SimulationContext previousContext = SimulationContext.bind(context);
+        try {
+            currentNetwork = Simulation.generateRandomNetwork(trmodel_wsn, requiredService, minNumSensors, maxNumSensors,
+                    probClients, probRelay, probMalicious, radioRange, dynamic, collusion);
+            return currentNetwork;
+        } finally {
+            SimulationContext.bind(previousContext);
+        }
     }
     
     /**
-     * This method recalculates the neighborhood of every sensor composing the current network given a new range
+     * This method recalculates the neighborhood of every sensor composing the current network given a new range.
+     * Links between sensors remaining within range are kept, along with their state
      * @param newRange New wireless range applied to every sensor
      * @return The new current WSN
      */
     public Network setNewNeighborsNetwork(double newRange) {
         if (currentNetwork != null) {
-            currentNetwork.setNewNeighbors(newRange);
+            currentNetwork.setNewNeighborsIncrementally(newRange);
             return currentNetwork;
         }
         return null;
@@ -160,8 +171,14 @@ public class Controller implements Observer {
      * This method resets the current network to its initial state
      */
     public void resetCurrentNetwork() {
-        if (currentNetwork != null)
-            currentNetwork.reset();
+        if (currentNetwork != null) {
+            SimulationContext previousContext = SimulationContext.bind(currentNetwork.get_context());
+            try {
+                currentNetwork.reset();
+            } finally {
+                SimulationContext.bind(previousContext);
+            }
+        }
     }
 
     /**
@@ -201,10 +218,44 @@ public class Controller implements Observer {
                         probClients,probRelay,probMalicious,radioRange,
                         dynamic, oscillating, collusion, 
                         numNetworks,numExecutions);
+        simulation.set_controller(this);
+        simulation.set_guaranteedConnectivity(guaranteedConnectivity);
+        simulation.set_clientExecutionMode(clientExecutionMode);
         simulationThread = new Thread(simulation);
         simulationThread.start();
     }
     
+    /**
+     * This method establishes if every network generated by the simulations is repaired so that
+     * every client can reach a benevolent server, instead of discarding and generating again those
+     * where no client can
+     * @param guaranteedConnectivity Indicates if every generated network is repaired
+     */
+    public void set_guaranteedConnectivity(boolean guaranteedConnectivity) { this.guaranteedConnectivity = guaranteedConnectivity; }
+
+    /**
+     * This method fixes the seed of the random numbers of the next simulations, so they can be replayed
+     * @param randomSeed Seed of the next simulations, or null so that every simulation gets a new random seed
+     * @see RandomStreams
+     */
+    public void set_randomSeed(Long randomSeed) { context.set_fixedSeed(randomSeed); }
+
+    /**
+     * Returns the context of the simulations run by this controller
+     * @return The context of the simulations run by this controller
+     */
+    public SimulationContext get_context() { return context; }
+
+    /**
+     * This method establishes how the clients of every round of the simulations are run
+     * @param clientExecutionMode Mode of the client executor running the clients, as defined in {@link ClientExecutor}
+     * @throws java.lang.Exception If the given mode is unknown
+     */
+    public void set_clientExecutionMode(String clientExecutionMode) throws Exception {
+        ClientExecutor.newClientExecutor(clientExecutionMode).shutdown();
+        this.clientExecutionMode = clientExecutionMode;
+    }
+
     /**
      * This method stops the current simulation process
      */
@@ -229,17 +280,23 @@ public class Controller implements Observer {
         simulation = new Simulation(observers, requiredService, 
                         dynamic, oscillating, collusion, 
                         numExecutions, currentNetwork);
+        simulation.set_controller(this);
+        simulation.set_clientExecutionMode(clientExecutionMode);
         simulationThread = new Thread(simulation);
         simulationThread.start();
     }
     
     /**
-     * This method saves the current Wireless Sensor Network into a specified XML file 
+     * This method saves the current Wireless Sensor Network into a specified XML file,
+     * or into a binary snapshot if the name of the file ends with {@link NetworkSnapshot#FILE_EXTENSION}
      * @param fileName Path of the XML file where to write the current Network
      * @throws Exception If there is any problem when writing to the XML file
      */
     public void saveCurrentNetwork(String fileName) throws Exception {
-        currentNetwork.writeToXMLFile(fileName);
+        if (NetworkSnapshot.isSnapshotFile(fileName))
+            currentNetwork.writeToSnapshotFile(fileName);
+        else
+            currentNetwork.writeToXMLFile(fileName);
     }
     
     /**
@@ -250,8 +307,13 @@ public class Controller implements Observer {
      * there is any problem reading the file
      */
     public Network loadCurrentNetwork(String fileName) throws Exception {
-        currentNetwork = trmodel_wsn.loadCurrentNetwork(fileName);
-        return currentNetwork;
+        SimulationContext previousContext = SimulationContext.bind(context);
+        try {
+            currentNetwork = trmodel_wsn.loadCurrentNetwork(fileName);
+            return currentNetwork;
+        } finally {
+            SimulationContext.bind(previousContext);
+        }
     }
 
     /**
@@ -293,7 +355,7 @@ public class Controller implements Observer {
      * This method returns a boolean indicating whether there is currently a simulation running or not
      * @return Boolean indicating whether there is currently a simulation running or not
      */
-    public boolean isSimulationRunning() { return Sensor.isRunningSimulation(); }
+    public boolean isSimulationRunning() { return context.isRunningSimulation(); }
     
     /**
      * This method sets the parameters of current Trust and Reputation Model
@@ -303,7 +365,7 @@ public class Controller implements Observer {
      */
     public void set_TRMParameters(TRMParametersPanel trmParametersPanel) {
         trmodel_wsn.set_TRMParameters(trmParametersPanel.get_TRMParameters());
-        Sensor.set_TRModel_WSN(trmodel_wsn);
+        context.set_TRModel_WSN(trmodel_wsn);
     }
     
     /**
@@ -321,7 +383,7 @@ public class Controller implements Observer {
         } catch (Exception ex) {
             trmodel_wsn.set_TRMParameters((TRMParameters) Class.forName(trmodel_wsn.getClass().getName()+"_Parameters").newInstance());
         }
-        Sensor.set_TRModel_WSN(trmodel_wsn);
+        context.set_TRModel_WSN(trmodel_wsn);
 
         return trmodel_wsn.get_TRMParameters();
     }
@@ -349,7 +411,7 @@ public class Controller implements Observer {
         Object[] trmodel_wsnConstructorParametersValues = {trm_parameters};
         this.trmodel_wsn = (TRModel_WSN) Class.forName(packageName+trmodel_wsn).getConstructor(trmodel_wsnConstructorParametersTypes).newInstance(trmodel_wsnConstructorParametersValues);
 
-        Sensor.set_TRModel_WSN(this.trmodel_wsn);
+        context.set_TRModel_WSN(this.trmodel_wsn);
     }
 
     /**
@@ -420,19 +482,34 @@ public class Controller implements Observer {
      */
     public void set_parametersFile(String parametersFile) { this.parametersFile = parametersFile; }
 
-    
+
+    /**
+     * This method returns the sensor placed at a given coordinate, within a margin
+     * of two units along each axis. If such sensor does not exist, it returns null
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @return The sensor placed at the given coordinate. If such sensor does not exist, it returns null
+     */
     public Sensor getSensorAtCoordinate(double x, double y) {
         if (currentNetwork == null)
             return null;
         int error = 2;
-        for (Sensor sensor : currentNetwork.get_sensors()) {
-            if (((x <= (sensor.getX()+error)) && (x >= (sensor.getX()-error)))
-                    &&
-                ((y <= (sensor.getY()+error)) && (y >= (sensor.getY()-error))))
-                return sensor;
-        }
-        
-        return null;
+        return currentNetwork.getSensorAtCoordinate(x, y, error);
+    }
+
+    /**
+     * This method returns every sensor placed within a given rectangle of the current network
+     * @param x1 X coordinate of one corner of the rectangle
+     * @param y1 Y coordinate of one corner of the rectangle
+     * @param x2 X coordinate of the opposite corner of the rectangle
+     * @param y2 Y coordinate of the opposite corner of the rectangle
+     * @return Every sensor placed within the given rectangle, which is empty if there is no current network
+     */
+    public Collection<Sensor> getSensorsInArea(double x1, double y1, double x2, double y2) {
+        if (currentNetwork == null)
+            return new ArrayList<Sensor>();
+
+        return currentNetwork.getSensorsInArea(x1, y1, x2, y2);
     }
     
     /**
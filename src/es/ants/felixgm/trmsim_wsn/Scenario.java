@@ -0,0 +1,457 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package es.ants.felixgm.trmsim_wsn;
+
+import es.ants.felixgm.trmsim_wsn.gui.TRMSim_WSN;
+import es.ants.felixgm.trmsim_wsn.network.RandomStreams;
+import es.ants.felixgm.trmsim_wsn.network.Service;
+import es.ants.felixgm.trmsim_wsn.network.SimulationContext;
+import es.ants.felixgm.trmsim_wsn.network.SplitMixRandom;
+import es.ants.felixgm.trmsim_wsn.outcomes.Outcome;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * <p>This class models a scenario of a parameter sweep, read from a scenario file. Every
+ * combination of the values given for each parameter is a {@link Point} of the sweep, which
+ * is simulated once per repetition</p>
+ * <p>A scenario file has the following structure:</p>
+ * <pre>
+ *    ####################################
+ *    # TRMSim-WSN scenario file
+ *    ####################################
+ *    models=BTRM_WSN,LFTM
+ *    numSensors=100:500:100
+ *    probClients=0.15
+ *    probRelay=0.05
+ *    probMalicious=0.5:0.9:0.1
+ *    avgLinksPerSensor=5
+ *    dynamic=false
+ *    oscillating=false
+ *    collusion=false,true
+ *    guaranteedConnectivity=false
+ *    BTRM_WSN.numAnts=0.25,0.5
+ *    LFTM.U_MAX=0.8:1.0:0.1
+ *    numNetworks=100
+ *    numExecutions=100
+ *    repetitions=1
+ *    seed=42
+ *    threads=4
+ * </pre>
+ * <p>Every parameter but <code>models</code> is optional. Numeric parameters may be given
+ * as a comma separated list of values or as a range <code>first:last:step</code>, and
+ * boolean ones as a comma separated list. The radio range of every sensor can be given
+ * through <code>radioRange</code>; otherwise it is computed from the number of sensors
+ * so that every sensor has <code>avgLinksPerSensor</code> links on average.</p>
+ * <p>The parameters of a trust and reputation model are swept through parameters named
+ * <code>model.parameter</code>, whose values are given like those of any other parameter,
+ * or as a comma separated list of words. They take the place of those of the parameters file
+ * of the model, and only the points of that model are multiplied by their values.</p>
+ * <p>Repetitions are given either through <code>seeds</code>, a list with the seed of
+ * every repetition, or through <code>repetitions</code> and an optional base
+ * <code>seed</code> every repetition seed is derived from, which is random if it is not
+ * given. The sweep points are run by <code>threads</code> threads
+ * (as many as cores by default), while the clients of every point are run as given by
+ * <code>clientExecutionMode</code> ({@value ClientExecutor#SEQUENTIAL} by default)</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public class Scenario {
+    /** Names of the trust and reputation models to run */
+    private String[] models;
+    /** Service requested by every client of each WSN */
+    private Service requiredService;
+    /** Numbers of sensors composing every WSN */
+    private double[] numSensors;
+    /** Probabilities of a node to act as a client */
+    private double[] probClients;
+    /** Probabilities of a server to act just as a relay node */
+    private double[] probRelay;
+    /** Probabilities of a server offering the required service to act as a malicious server */
+    private double[] probMalicious;
+    /** Maximum wireless ranges of every sensor, or null if they are computed from avgLinksPerSensor */
+    private double[] radioRange;
+    /** Average number of links per sensor, used to compute the radio range if it is not given */
+    private double avgLinksPerSensor;
+    /** Values of the dynamic flag */
+    private boolean[] dynamic;
+    /** Values of the oscillating flag */
+    private boolean[] oscillating;
+    /** Values of the collusion flag */
+    private boolean[] collusion;
+    /** It determines if every generated WSN is repaired so that every client can reach a benevolent server */
+    private boolean guaranteedConnectivity;
+    /** Number of wireless sensor networks to test at every point */
+    private int numNetworks;
+    /** Number of service requests of every client composing each WSN */
+    private int numExecutions;
+    /** Seed of every repetition of each point */
+    private long[] seeds;
+    /** Number of threads running the sweep points */
+    private int numThreads;
+    /** Mode of the client executor running the clients of every point */
+    private String clientExecutionMode;
+    /** Values of the swept parameters of every trust and reputation model, sorted by parameter name */
+    private Map<String,Map<String,String[]>> trmParameters;
+
+    /**
+     * Creates a new scenario from a scenario file
+     * @param scenarioFile Path of the scenario file
+     * @throws java.lang.Exception If the file can not be read, or any parameter has a wrong value
+     */
+    public Scenario(String scenarioFile) throws Exception {
+        Properties parameters = new Properties();
+        InputStream in = new FileInputStream(scenarioFile);
+        try {
+            parameters.load(in);
+        } finally {
+            in.close();
+        }
+
+        String modelNames = parameters.getProperty("models");
+        if ((modelNames == null) || (modelNames.trim().length() == 0))
+            throw new Exception("Scenario file "+scenarioFile+" does not declare any model");
+        models = modelNames.trim().split("\\s*,\\s*");
+
+        trmParameters = new TreeMap<String,Map<String,String[]>>();
+        for (String model : models)
+            trmParameters.put(model, new TreeMap<String,String[]>());
+        for (String name : parameters.stringPropertyNames()) {
+            int dot = name.indexOf('.');
+            if (dot < 0)
+                continue;
+            Map<String,String[]> modelParameters = trmParameters.get(name.substring(0, dot));
+            if (modelParameters == null)
+                throw new Exception("Parameter "+name+" does not belong to any model of scenario file "+scenarioFile);
+            modelParameters.put(name.substring(dot+1), parseValues(parameters, name));
+        }
+
+        requiredService = new Service(parameters.getProperty("requiredService", "My Service").trim());
+        numSensors = parseDoubles(parameters, "numSensors", "100");
+        probClients = parseDoubles(parameters, "probClients", "0.15");
+        probRelay = parseDoubles(parameters, "probRelay", "0.05");
+        probMalicious = parseDoubles(parameters, "probMalicious", "0.5");
+        radioRange = (parameters.getProperty("radioRange") != null) ? parseDoubles(parameters, "radioRange", null) : null;
+        avgLinksPerSensor = parseDoubles(parameters, "avgLinksPerSensor", "5")[0];
+        dynamic = parseBooleans(parameters, "dynamic");
+        oscillating = parseBooleans(parameters, "oscillating");
+        collusion = parseBooleans(parameters, "collusion");
+        guaranteedConnectivity = parseBooleans(parameters, "guaranteedConnectivity")[0];
+        numNetworks = (int)parseDoubles(parameters, "numNetworks", "100")[0];
+        numExecutions = (int)parseDoubles(parameters, "numExecutions", "100")[0];
+        numThreads = (int)parseDoubles(parameters, "threads", String.valueOf(Runtime.getRuntime().availableProcessors()))[0];
+        clientExecutionMode = parameters.getProperty("clientExecutionMode", ClientExecutor.SEQUENTIAL).trim();
+        ClientExecutor.newClientExecutor(clientExecutionMode).shutdown();
+
+        if (parameters.getProperty("seeds") != null) {
+            String[] values = parameters.getProperty("seeds").trim().split("\\s*,\\s*");
+            seeds = new long[values.length];
+            for (int i = 0; i < values.length; i++)
+                seeds[i] = Long.parseLong(values[i]);
+        } else {
+            seeds = new long[(int)parseDoubles(parameters, "repetitions", "1")[0]];
+            long seed = (parameters.getProperty("seed") != null) ?
+                Long.parseLong(parameters.getProperty("seed").trim()) : RandomStreams.nextLong();
+            for (int i = 0; i < seeds.length; i++)
+                seeds[i] = (seeds.length == 1) ? seed : SplitMixRandom.streamSeed(seed, i);
+        }
+        if ((numThreads <= 0) || (numNetworks <= 0) || (numExecutions <= 0) || (seeds.length == 0))
+            throw new Exception("threads, numNetworks, numExecutions and repetitions must be positive");
+    }
+
+    /**
+     * This method parses a numeric parameter, given as a comma separated list of values or as
+     * a range first:last:step
+     * @param parameters Parameters of the scenario
+     * @param name Name of the parameter
+     * @param defaultValue Value of the parameter if it is not given
+     * @return The values of the parameter
+     * @throws java.lang.Exception If the parameter has a wrong value
+     */
+    private static double[] parseDoubles(Properties parameters, String name, String defaultValue) throws Exception {
+        String value = parameters.getProperty(name, defaultValue).trim();
+        try {
+            if (value.contains(":")) {
+                String[] range = value.split("\\s*:\\s*");
+                double first = Double.parseDouble(range[0]);
+                double last = Double.parseDouble(range[1]);
+                double step = (range.length > 2) ? Double.parseDouble(range[2]) : 1.0;
+                if ((step <= 0) || (last < first))
+                    throw new Exception("Wrong range");
+                // Values are computed from the index of each step, so that no rounding error is accumulated
+                int numValues = (int)Math.floor((last-first)/step+1e-9)+1;
+                double[] values = new double[numValues];
+                for (int i = 0; i < numValues; i++)
+                    values[i] = Math.round((first+i*step)*1e9)/1e9;
+                return values;
+            } else {
+                String[] list = value.split("\\s*,\\s*");
+                double[] values = new double[list.length];
+                for (int i = 0; i < list.length; i++)
+                    values[i] = Double.parseDouble(list[i]);
+                return values;
+            }
+        } catch (Exception ex) {
+            throw new Exception("Wrong value of parameter "+name+": "+value);
+        }
+    }
+
+    /**
+     * This method parses a trust and reputation model parameter, given as a numeric parameter
+     * if it is a range, or as a comma separated list of values otherwise
+     * @param parameters Parameters of the scenario
+     * @param name Name of the parameter
+     * @return The values of the parameter, as they are written in a parameters file
+     * @throws java.lang.Exception If the parameter has a wrong value
+     */
+    private static String[] parseValues(Properties parameters, String name) throws Exception {
+        String value = parameters.getProperty(name).trim();
+        if (!value.contains(":"))
+            return value.split("\\s*,\\s*");
+
+        // Integral values are written without decimals, so that integer parameters can be parsed
+        double[] range = parseDoubles(parameters, name, null);
+        String[] values = new String[range.length];
+        for (int i = 0; i < range.length; i++)
+            values[i] = (range[i] == Math.rint(range[i])) ? String.valueOf((long)range[i]) : String.valueOf(range[i]);
+        return values;
+    }
+
+    /**
+     * This method returns every combination of the values of the swept parameters of a trust
+     * and reputation model
+     * @param model Name of the trust and reputation model
+     * @return Every combination of the values of the swept parameters of the model, which is
+     * just one without any parameter if none of them is swept
+     */
+    private List<Properties> get_trmParametersCombinations(String model) {
+        List<Properties> combinations = new ArrayList<Properties>();
+        combinations.add(new Properties());
+        for (Map.Entry<String,String[]> parameter : trmParameters.get(model).entrySet()) {
+            List<Properties> extendedCombinations = new ArrayList<Properties>();
+            for (Properties combination : combinations)
+                for (String value : parameter.getValue()) {
+                    Properties extendedCombination = new Properties();
+                    extendedCombination.putAll(combination);
+                    extendedCombination.setProperty(parameter.getKey(), value);
+                    extendedCombinations.add(extendedCombination);
+                }
+            combinations = extendedCombinations;
+        }
+        return combinations;
+    }
+
+    /**
+     * This method parses a boolean parameter, given as a comma separated list of values
+     * @param parameters Parameters of the scenario
+     * @param name Name of the parameter
+     * @return The values of the parameter, false if it is not given
+     */
+    private static boolean[] parseBooleans(Properties parameters, String name) {
+        String[] list = parameters.getProperty(name, "false").trim().split("\\s*,\\s*");
+        boolean[] values = new boolean[list.length];
+        for (int i = 0; i < list.length; i++)
+            values[i] = Boolean.parseBoolean(list[i]);
+        return values;
+    }
+
+    /**
+     * This method returns every point of this sweep, i.e., every combination of the values
+     * given for each parameter, once per repetition
+     * @return Every point of this sweep
+     */
+    public List<Point> get_points() {
+        List<Point> points = new ArrayList<Point>();
+        for (String model : models)
+            for (Properties _trmParameters : get_trmParametersCombinations(model))
+                for (double _numSensors : numSensors) {
+                    double[] radioRanges = (radioRange != null) ? radioRange :
+                        new double[] {Math.sqrt(avgLinksPerSensor/(2.0*Math.PI*_numSensors))};
+                    for (double _radioRange : radioRanges)
+                        for (double _probClients : probClients)
+                            for (double _probRelay : probRelay)
+                                for (double _probMalicious : probMalicious)
+                                    for (boolean _dynamic : dynamic)
+                                        for (boolean _oscillating : oscillating)
+                                            for (boolean _collusion : collusion)
+                                                for (int repetition = 0; repetition < seeds.length; repetition++)
+                                                    points.add(new Point(model, _trmParameters, (int)_numSensors, _radioRange,
+                                                            _probClients, _probRelay, _probMalicious,
+                                                            _dynamic, _oscillating, _collusion,
+                                                            repetition, seeds[repetition]));
+                }
+        return points;
+    }
+
+    /**
+     * Returns the number of threads running the sweep points
+     * @return The number of threads running the sweep points
+     */
+    public int get_numThreads() { return numThreads; }
+
+    /**
+     * <p>This class models a point of a sweep, that is, a set of values of the parameters
+     * of a simulation, along with the repetition it belongs to</p>
+     */
+    public class Point {
+        /** Name of the trust and reputation model */
+        private final String model;
+        /** Parameters of the trust and reputation model overriding those of its parameters file */
+        private final Properties trmParameters;
+        /** Number of sensors composing every WSN */
+        private final int numSensors;
+        /** Maximum wireless range of every sensor */
+        private final double radioRange;
+        /** The probability of a node to act as a client */
+        private final double probClients;
+        /** The probability of a server to act just as a relay node */
+        private final double probRelay;
+        /** The probability of a server offering the required service to act as a malicious server */
+        private final double probMalicious;
+        /** It determines if the WSN will be dynamic */
+        private final boolean dynamic;
+        /** It determines if the goodness of the servers will change along the time */
+        private final boolean oscillating;
+        /** It determines if the malicious servers will form a collusion among them */
+        private final boolean collusion;
+        /** Repetition this point belongs to */
+        private final int repetition;
+        /** Seed of this point */
+        private final long seed;
+
+        /**
+         * Class Point constructor
+         * @param model Name of the trust and reputation model
+         * @param trmParameters Parameters of the trust and reputation model overriding those of its parameters file
+         * @param numSensors Number of sensors composing every WSN
+         * @param radioRange Maximum wireless range of every sensor
+         * @param probClients The probability of a node to act as a client
+         * @param probRelay The probability of a server to act just as a relay node
+         * @param probMalicious The probability of a server offering the required service to act as a malicious server
+         * @param dynamic It determines if the WSN will be dynamic
+         * @param oscillating It determines if the goodness of the servers will change along the time
+         * @param collusion It determines if the malicious servers will form a collusion among them
+         * @param repetition Repetition this point belongs to
+         * @param seed Seed of this point
+         */
+        private Point(String model, Properties trmParameters, int numSensors, double radioRange,
+                double probClients, double probRelay, double probMalicious,
+                boolean dynamic, boolean oscillating, boolean collusion,
+                int repetition, long seed) {
+            this.model = model;
+            this.trmParameters = trmParameters;
+            this.numSensors = numSensors;
+            this.radioRange = radioRange;
+            this.probClients = probClients;
+            this.probRelay = probRelay;
+            this.probMalicious = probMalicious;
+            this.dynamic = dynamic;
+            this.oscillating = oscillating;
+            this.collusion = collusion;
+            this.repetition = repetition;
+            this.seed = seed;
+        }
+
+        /**
+         * This method runs a simulation with the parameters of this point
+         * @return The outcome of the simulation
+         * @throws java.lang.Exception If the trust and reputation model name is not correct or any other error occurs
+         */
+        public Outcome run() throws Exception {
+            // The seed is taken by the context runTRMSim_WSN creates from the one bound to this thread
+            SimulationContext context = new SimulationContext();
+            context.set_fixedSeed(seed);
+            context.set_TRMParametersOverrides(trmParameters);
+            SimulationContext previousContext = SimulationContext.bind(context);
+            try {
+                return TRMSim_WSN.runTRMSim_WSN(model, requiredService, numNetworks, numExecutions,
+                        numSensors, numSensors, probClients, probRelay, probMalicious, radioRange,
+                        dynamic, oscillating, collusion, guaranteedConnectivity, clientExecutionMode);
+            } finally {
+                SimulationContext.bind(previousContext);
+            }
+        }
+
+        /**
+         * This method returns the key identifying this point in an outcomes file, which
+         * is made of the values of its parameters and its repetition, separated by tabs
+         * @return The key identifying this point in an outcomes file
+         */
+        public String get_key() {
+            return model+"\t"+get_trmParametersString()+"\t"+numSensors+"\t"+radioRange+"\t"+probClients+"\t"+probRelay+"\t"+probMalicious
+                    +"\t"+dynamic+"\t"+oscillating+"\t"+collusion+"\t"+repetition;
+        }
+
+        /**
+         * This method returns the parameters of the trust and reputation model overriding
+         * those of its parameters file, sorted by name and separated by semicolons
+         * @return The overridden parameters of the trust and reputation model, or "-" if there is none
+         */
+        public String get_trmParametersString() {
+            if (trmParameters.isEmpty())
+                return "-";
+            StringBuilder s = new StringBuilder();
+            for (String name : new TreeSet<String>(trmParameters.stringPropertyNames()))
+                s.append((s.length() > 0) ? ";" : "").append(name).append('=').append(trmParameters.getProperty(name));
+            return s.toString();
+        }
+
+        /**
+         * Returns the seed of this point
+         * @return The seed of this point
+         */
+        public long get_seed() { return seed; }
+
+        @Override
+        public String toString() {
+            return model+(trmParameters.isEmpty() ? "" : " ("+get_trmParametersString()+")")+"; Ns = "+numSensors+"; %Mal = "+probMalicious+"; repetition = "+repetition;
+        }
+    }
+}
@@ -42,10 +42,15 @@
 package es.ants.felixgm.trmsim_wsn;
 
 import es.ants.felixgm.trmsim_wsn.outcomes.Outcome;
+import es.ants.felixgm.trmsim_wsn.outcomes.OutcomeAccumulator;
 import es.ants.felixgm.trmsim_wsn.network.Network;
 import es.ants.felixgm.trmsim_wsn.network.Service;
 
+import es.ants.felixgm.trmsim_wsn.network.EventScheduler;
+import es.ants.felixgm.trmsim_wsn.network.RandomStreams;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
+import es.ants.felixgm.trmsim_wsn.network.SimulationContext;
+import es.ants.felixgm.trmsim_wsn.trm.TRModel_WSN;
 
 import java.util.Observable;
 import java.util.Observer;
@@ -94,6 +99,20 @@ public class Simulation extends Observable implements Runnable {
     private Collection<Outcome> globalOutcomes;
     /** It determines whether to stop and interrupt the current simulation */
     private boolean stop;
+    /** It determines if every generated WSN is repaired so that every client can reach a benevolent server */
+    private boolean guaranteedConnectivity;
+    /** Number of generated WSNs which would have been discarded if their connectivity had not been repaired */
+    private int avoidedRetries;
+    /** Amount of virtual time (in ms) every round of service requests lasts */
+    private long roundDuration = defaultRoundDuration;
+    /** Default amount of virtual time (in ms) every round of service requests lasts: {@value} */
+    public static final long defaultRoundDuration = 100;
+    /** Mode of the client executor running the clients of every round, as defined in {@link ClientExecutor} */
+    private String clientExecutionMode = ClientExecutor.DEFAULT_MODE;
+    /** Controller creating the WSNs of this simulation, or null if it is the one of the GUI */
+    private Controller controller;
+    /** Context this simulation runs within, bound to the thread running it */
+    private SimulationContext context = SimulationContext.current();
     
     /**
      * Creates a new Simulation
@@ -179,13 +198,26 @@ public class Simulation extends Observable implements Runnable {
      * Starts the simulations
      */
     public void run() {
-        Sensor.setRunningSimulation(true);
+        SimulationContext previousContext = SimulationContext.bind(context);
+        EventScheduler scheduler = context.get_scheduler();
+        scheduler.reset();
+        ClientExecutor clientExecutor = null;
+        long randomSeed = context.startRun();
+        context.set_runningSimulation(true);
         try {
+            clientExecutor = ClientExecutor.newClientExecutor(clientExecutionMode);
+            setChanged();
+            notifyObservers("Random seed of this simulation: "+randomSeed+"\n");
             for (int net = 0; (net < numNetworks) && !stop; net++) {
-                if ((network == null) || (numNetworks != 1)) 
-                    network = Controller.C().createNewNetwork(minNumSensors,maxNumSensors,
+                if ((network == null) || (numNetworks != 1)) {
+                    // Events of the sensors of the previous WSN are discarded
+                    scheduler.reset();
+                    network = ((controller != null) ? controller : Controller.C()).createNewNetwork(minNumSensors,maxNumSensors,
                             probClients,probRelay,probMalicious,radioRange,
                             dynamic, oscillating, collusion);
+                    if (guaranteedConnectivity && repairNetwork(network, requiredService))
+                        avoidedRetries++;
+                }
 
                 for (Sensor client : network.get_clients())
                     client.set_requiredService(requiredService);
@@ -195,19 +227,14 @@ public class Simulation extends Observable implements Runnable {
 
                 setChanged();
                 notifyObservers("Running selected TRM over WSN "+(net+1)+"...\n");
-                Collection<Outcome> outcomes = new ArrayList<Outcome>();
+                OutcomeAccumulator outcomes = new OutcomeAccumulator();
                 int Ne = 0;
                 for (; (Ne < numExecutions) && !stop; Ne++) {
-                    Thread[] clients = new Thread[network.get_numClients()];
-                    int j = 0;
-                    for (Sensor client : network.get_clients()) 
-                        clients[j++] = new Thread(client);
+                    context.get_TRModel_WSN().beginRound(network);
+                    clientExecutor.runClients(network.get_clients());
 
-                    for (int i = 0; i < clients.length; i++)
-                        clients[i].start();
-
-                    for (int i = 0; i < clients.length; i++)
-                        clients[i].join();
+                    // Sensors go to sleep or wake up as the virtual time of this round goes by
+                    scheduler.advance(roundDuration);
 
                     for (Sensor client : network.get_clients()) 
                         if (client.get_outcome() != null)
@@ -222,7 +249,7 @@ public class Simulation extends Observable implements Runnable {
                     }
 
                     if (numNetworks == 1) {
-                        Outcome outcome = Outcome.computeOutcomes(outcomes,network,requiredService,Ne);
+                        Outcome outcome = outcomes.get_outcome(network,requiredService,Ne);
                         if (outcome == null) {
                             setChanged();
                             notifyObservers("Any of the clients can reach any trustworthy server\n");
@@ -246,7 +273,7 @@ public class Simulation extends Observable implements Runnable {
                     notifyObservers(network);
                 }
                 
-                Outcome outcome = Outcome.computeOutcomes(outcomes,network,requiredService,Ne);
+                Outcome outcome = outcomes.get_outcome(network,requiredService,Ne);
                 if (outcome == null) {
                     setChanged();
                     notifyObservers("Any of the clients can reach any trustworthy server\n");
@@ -258,7 +285,11 @@ public class Simulation extends Observable implements Runnable {
                     notifyObservers(globalOutcomes);
                 }
             }
-            Sensor.setRunningSimulation(false);
+            context.set_runningSimulation(false);
+            if (guaranteedConnectivity) {
+                setChanged();
+                notifyObservers("Networks repaired instead of generated again: "+avoidedRetries+"\n");
+            }
             setChanged();
             notifyObservers("Finishing simulations at "+(new java.util.Date())+"...\n");
             // Cancel all timers - Added by Hamed Khiabani
@@ -274,15 +305,127 @@ public class Simulation extends Observable implements Runnable {
                 notifyObservers(globalOutcomes);
             }
         } catch (Exception ex) {
-            Sensor.setRunningSimulation(false);
+            context.set_runningSimulation(false);
             setChanged();
             notifyObservers(ex);
+        } finally {
+            if (clientExecutor != null)
+                clientExecutor.shutdown();
+            SimulationContext.bind(previousContext);
         }
     }
 
+    /**
+     * This method establishes the controller creating the WSNs of this simulation, whose
+     * context this simulation runs within
+     * @param controller Controller creating the WSNs of this simulation
+     */
+    public void set_controller(Controller controller) {
+        this.controller = controller;
+        this.context = controller.get_context();
+    }
+
     /**
      * This method returns the global outcomes achieved by this simulations
      * @return The global outcomes achieved by this simulations
      */
     public Collection<Outcome> get_globalOutcomes() { return globalOutcomes; }
+
+    /**
+     * This method establishes if every generated WSN is repaired so that every client can reach
+     * a benevolent server, instead of discarding and generating again those where no client can
+     * @param guaranteedConnectivity Indicates if every generated WSN is repaired
+     * @see Network#guaranteeConnectivity(Service)
+     */
+    public void set_guaranteedConnectivity(boolean guaranteedConnectivity) { this.guaranteedConnectivity = guaranteedConnectivity; }
+
+    /**
+     * This method returns the number of generated WSNs which would have been discarded
+     * (and generated again) if their connectivity had not been repaired
+     * @return The number of retries avoided by repairing the connectivity of the generated WSNs
+     */
+    public int get_avoidedRetries() { return avoidedRetries; }
+
+    /**
+     * This method generates a new random WSN using the specified parameters
+     * @param trmodel_wsn Trust and reputation model whose kind of WSN is generated
+     * @param requiredService Service requested by every client of the WSN
+     * @param minNumSensors Minimum number of sensors composing the WSN
+     * @param maxNumSensors Maximum number of sensors composing the WSN
+     * @param probClients The probability of a sensor to act as a client
+     * @param probRelay The probability of a server to act just as a relay sensor (not offering the required service)
+     * @param probMalicious The probability of a server offering the required service to act as a
+     * malicious server (not providing the offered service, or providing a worse or different one)
+     * @param radioRange Maximum wireless range of every sensor. It determines the neighborhood of every sensor
+     * @param dynamic It determines if the WSN will be dynamic (nodes sometimes switch off in order to save battery, breaking all their links)
+     * @param collusion It determines if the malicious servers belonging to the created WSN will form a collusion among them
+     * @return The generated random WSN
+     */
+    public static Network generateRandomNetwork(TRModel_WSN trmodel_wsn, Service requiredService,
+            int minNumSensors, int maxNumSensors,
+            double probClients, double probRelay, double probMalicious,
+            double radioRange, boolean dynamic, boolean collusion) {
+        // We randomly calculate the number of sensors of the network.
+        int numSensors = (int)(minNumSensors + RandomStreams.nextDouble()*Math.abs(maxNumSensors-minNumSensors));
+        ArrayList<Double> probServices = new ArrayList<Double>();
+        ArrayList<Double> probGoodness = new ArrayList<Double>();
+        ArrayList<Service> services = new ArrayList<Service>();
+
+        services.add(new Service("Relay")); // Only two types of services: Relay or RequiredService.
+        services.add(requiredService);
+
+        probServices.add(1.0);
+        probGoodness.add(1.0);
+        probServices.add(1.0-probRelay);
+        probGoodness.add(1.0-probMalicious);
+
+        Network network = trmodel_wsn.generateRandomNetwork(numSensors, probClients, radioRange, probServices, probGoodness, services);
+
+        network.set_collusion(collusion);
+        network.set_dynamic(dynamic);
+        return network;
+    }
+
+    /**
+     * This method repairs a newly generated WSN so that every client can reach a benevolent
+     * server offering the required service, as {@link Network#guaranteeConnectivity(Service)} does
+     * @param network Newly generated WSN
+     * @param requiredService Service requested by every client of the WSN
+     * @return true if the WSN would have been discarded and generated again, since none of its
+     * clients could reach such a server, and the repair has made some of them reach it; false otherwise
+     */
+    public static boolean repairNetwork(Network network, Service requiredService) {
+        int numClients = network.get_numClients();
+        int numIsolatedClients = network.countIsolatedClients(requiredService);
+        if (numIsolatedClients == 0)
+            return false;
+
+        int numReconnectedClients = network.guaranteeConnectivity(requiredService);
+        return (numClients > 0) && (numIsolatedClients == numClients) && (numReconnectedClients > 0);
+    }
+
+    /**
+     * This method establishes the amount of virtual time every round of service requests lasts,
+     * which determines how many rounds sensors of dynamic WSNs remain asleep
+     * @param roundDuration Amount of virtual time (in ms) every round of service requests lasts
+     */
+    public void set_roundDuration(long roundDuration) { this.roundDuration = roundDuration; }
+
+    /**
+     * This method returns the amount of virtual time every round of service requests lasts
+     * @return The amount of virtual time (in ms) every round of service requests lasts
+     */
+    public long get_roundDuration() { return roundDuration; }
+
+    /**
+     * This method establishes how the clients of every round of service requests are run
+     * @param clientExecutionMode Mode of the client executor running the clients, as defined in {@link ClientExecutor}
+     */
+    public void set_clientExecutionMode(String clientExecutionMode) { this.clientExecutionMode = clientExecutionMode; }
+
+    /**
+     * This method returns how the clients of every round of service requests are run
+     * @return Mode of the client executor running the clients, as defined in {@link ClientExecutor}
+     */
+    public String get_clientExecutionMode() { return clientExecutionMode; }
 }
\ No newline at end of file
@@ -0,0 +1,224 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package es.ants.felixgm.trmsim_wsn;
+
+import es.ants.felixgm.trmsim_wsn.outcomes.Outcome;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>This class runs every point of a {@link Scenario} without graphic user interface,
+ * spreading them over several threads</p>
+ * <p>The outcome of every point is appended to the outcomes file as soon as it finishes,
+ * in a line made of the key of the point, its seed and the outcome itself, separated by tabs.
+ * If the outcomes file already exists, the points it contains are not run again, so an
+ * interrupted sweep is resumed by running it again with the same outcomes file. Points
+ * whose simulation fails are not written, so they are retried when the sweep is resumed</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public class SweepRunner {
+    /** Header of every outcomes file */
+    protected static final String HEADER = "#model\ttrmParameters\tnumSensors\tradioRange\tprobClients\tprobRelay"
+            +"\tprobMalicious\tdynamic\toscillating\tcollusion\trepetition\tseed\toutcome";
+
+    /** Scenario whose points are run */
+    protected final Scenario scenario;
+    /** Path of the file where the outcomes are written */
+    protected final String outcomesFileName;
+
+    /**
+     * Class SweepRunner constructor
+     * @param scenario Scenario whose points are run
+     * @param outcomesFileName Path of the file where the outcomes are written
+     */
+    public SweepRunner(Scenario scenario, String outcomesFileName) {
+        this.scenario = scenario;
+        this.outcomesFileName = outcomesFileName;
+    }
+
+    /**
+     * This method runs every point of the scenario not found in the outcomes file yet
+     * @return Number of points whose simulation failed
+     * @throws java.lang.Exception If the outcomes file can not be read or written
+     */
+    public int run() throws Exception {
+        Set<String> completedKeys = readCompletedKeys();
+        List<Scenario.Point> pendingPoints = new ArrayList<Scenario.Point>();
+        for (Scenario.Point point : scenario.get_points())
+            if (!completedKeys.contains(point.get_key()))
+                pendingPoints.add(point);
+
+        System.out.println("Running "+pendingPoints.size()+" points ("+completedKeys.size()
+                +" already completed) with "+scenario.get_numThreads()+" threads");
+        if (pendingPoints.isEmpty())
+            return 0;
+
+        final Writer out = new FileWriter(outcomesFileName, true);
+        if (completedKeys.isEmpty() && (new File(outcomesFileName).length() == 0)) {
+            out.write(HEADER+"\n");
+            out.flush();
+        }
+
+        final AtomicInteger failedPoints = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(scenario.get_numThreads());
+        try {
+            for (final Scenario.Point point : pendingPoints)
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            Outcome outcome = point.run();
+                            synchronized (out) {
+                                out.write(point.get_key()+"\t"+point.get_seed()+"\t"+outcome.get_outcomesFileLine()+"\n");
+                                out.flush();
+                            }
+                            System.out.println("Completed point "+point);
+                        } catch (Throwable t) {
+                            failedPoints.incrementAndGet();
+                            System.err.println("Failed point "+point);
+                            t.printStackTrace();
+                        }
+                    }
+                });
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES));
+        } finally {
+            executor.shutdownNow();
+            out.close();
+        }
+
+        return failedPoints.get();
+    }
+
+    /**
+     * This method reads the keys of the points already written in the outcomes file. If the
+     * last line of the file was not completely written, it is removed from the file
+     * @return Keys of the points already written in the outcomes file
+     * @throws java.io.IOException If the outcomes file can not be read or written
+     */
+    protected Set<String> readCompletedKeys() throws IOException {
+        Set<String> completedKeys = new HashSet<String>();
+        File outcomesFile = new File(outcomesFileName);
+        if (!outcomesFile.exists())
+            return completedKeys;
+
+        truncateTornLine(outcomesFile);
+        BufferedReader in = new BufferedReader(new FileReader(outcomesFile));
+        try {
+            // Every key is made of the first fields of the line, up to the repetition
+            int keyFields = HEADER.split("\t").length-2;
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("#") || (line.trim().length() == 0))
+                    continue;
+                String[] fields = line.split("\t");
+                if (fields.length <= keyFields)
+                    continue;
+                StringBuilder key = new StringBuilder(fields[0]);
+                for (int i = 1; i < keyFields; i++)
+                    key.append('\t').append(fields[i]);
+                completedKeys.add(key.toString());
+            }
+        } finally {
+            in.close();
+        }
+        return completedKeys;
+    }
+
+    /**
+     * This method removes the last line of a file if it does not end with a line break,
+     * which happens when the writing of an outcome was interrupted
+     * @param file File whose last line is checked
+     * @throws java.io.IOException If the file can not be read or written
+     */
+    private static void truncateTornLine(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            long length = raf.length();
+            if (length == 0)
+                return;
+            raf.seek(length-1);
+            if (raf.read() == '\n')
+                return;
+
+            long end = length-1;
+            while (end > 0) {
+                raf.seek(end-1);
+                if (raf.read() == '\n')
+                    break;
+                end--;
+            }
+            raf.setLength(end);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * This method runs the sweep declared in a scenario file
+     * @param scenarioFile Path of the scenario file
+     * @param outcomesFileName Path of the file where the outcomes are written, or null to write
+     * them into a file named after the scenario file
+     * @return Number of points whose simulation failed
+     * @throws java.lang.Exception If the scenario file is not correct or any other error occurs
+     */
+    public static int runSweep(String scenarioFile, String outcomesFileName) throws Exception {
+        if (outcomesFileName == null)
+            outcomesFileName = scenarioFile.replaceFirst("\\.[^./\\\\]*$", "")+"_outcomes.txt";
+        return new SweepRunner(new Scenario(scenarioFile), outcomesFileName).run();
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package es.ants.felixgm.trmsim_wsn;
+
+import es.ants.felixgm.trmsim_wsn.network.Sensor;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <p>This class runs every client of every round of a simulation by its own virtual
+ * thread, which is much cheaper to create than a platform thread</p>
+ * <p>Virtual threads are looked up at runtime, since they are not available in every
+ * Java runtime. If they are not, every client is run by its own platform thread</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public class VirtualThreadClientExecutor extends ClientExecutor {
+    /** Executor service creating a new virtual thread per client, or null if virtual threads are not supported */
+    private final ExecutorService virtualThreadExecutor;
+
+    /**
+     * Class VirtualThreadClientExecutor constructor
+     */
+    public VirtualThreadClientExecutor() {
+        ExecutorService executorService = null;
+        try {
+            executorService = (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception ex) {
+            // Virtual threads are not supported by this Java runtime
+        }
+        virtualThreadExecutor = executorService;
+    }
+
+    @Override
+    public void runClients(Collection<Sensor> clients) throws InterruptedException {
+        if (virtualThreadExecutor != null) {
+            runClients(virtualThreadExecutor, clients);
+            return;
+        }
+
+        Thread[] threads = new Thread[clients.size()];
+        int j = 0;
+        for (Sensor client : clients)
+            threads[j++] = new Thread(client);
+
+        for (int i = 0; i < threads.length; i++)
+            threads[i].start();
+
+        for (int i = 0; i < threads.length; i++)
+            threads[i].join();
+    }
+
+    @Override
+    public void shutdown() {
+        if (virtualThreadExecutor != null)
+            virtualThreadExecutor.shutdown();
+    }
+
+    /**
+     * Indicates whether the clients are actually run by virtual threads
+     * @return true if virtual threads are supported by the Java runtime, false otherwise
+     */
+    public boolean usesVirtualThreads() { return (virtualThreadExecutor != null); }
+
+    @Override
+    public String get_mode() { return VIRTUAL_THREADS; }
+}
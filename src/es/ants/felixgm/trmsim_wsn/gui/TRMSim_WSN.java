@@ -41,7 +41,11 @@
 
 package es.ants.felixgm.trmsim_wsn.gui;
 
+import es.ants.felixgm.trmsim_wsn.ClientExecutor;
 import es.ants.felixgm.trmsim_wsn.Controller;
+import es.ants.felixgm.trmsim_wsn.Simulation;
+import es.ants.felixgm.trmsim_wsn.Scenario;
+import es.ants.felixgm.trmsim_wsn.SweepRunner;
 
 import es.ants.felixgm.trmsim_wsn.gui.legendpanels.EigenTrustLegendPanel;
 import es.ants.felixgm.trmsim_wsn.gui.legendpanels.LegendPanel;
@@ -54,11 +58,15 @@ import es.ants.felixgm.trmsim_wsn.gui.networkpanels.TRIPNetworkPanel;
 import es.ants.felixgm.trmsim_wsn.gui.outcomespanels.*;
 import es.ants.felixgm.trmsim_wsn.gui.parameterpanels.TRMParametersPanel;
 
+import es.ants.felixgm.trmsim_wsn.network.EventScheduler;
 import es.ants.felixgm.trmsim_wsn.network.Network;
+import es.ants.felixgm.trmsim_wsn.network.NetworkSnapshot;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
 import es.ants.felixgm.trmsim_wsn.network.Service;
+import es.ants.felixgm.trmsim_wsn.network.SimulationContext;
 
 import es.ants.felixgm.trmsim_wsn.outcomes.Outcome;
+import es.ants.felixgm.trmsim_wsn.outcomes.OutcomeAccumulator;
 
 import es.ants.felixgm.trmsim_wsn.trm.TRMParameters;
 import es.ants.felixgm.trmsim_wsn.trm.TRModel_WSN;
@@ -1550,8 +1558,8 @@ public class TRMSim_WSN extends javax.swing.JFrame implements Observer {
             JFileChooser fileChooser = new JFileChooser("./wsn");
             fileChooser.setDialogTitle("Load WSN");
             fileChooser.setFileFilter(new javax.swing.filechooser.FileFilter(){
-                   public boolean accept(java.io.File f) { return (f.isDirectory() || f.getName().toLowerCase().endsWith(".xml")); }
-                   public String getDescription() { return "XML Files"; }
+                   public boolean accept(java.io.File f) { return (f.isDirectory() || f.getName().toLowerCase().endsWith(".xml") || f.getName().toLowerCase().endsWith(".xml.gz") || f.getName().toLowerCase().endsWith(NetworkSnapshot.FILE_EXTENSION) || f.getName().toLowerCase().endsWith(".csv")); }
+                   public String getDescription() { return "XML Files, network snapshots and node CSV files"; }
             });
             fileChooser.showOpenDialog(this);
             
@@ -1580,8 +1588,8 @@ public class TRMSim_WSN extends javax.swing.JFrame implements Observer {
             JFileChooser fileChooser = new JFileChooser("./wsn");
             fileChooser.setDialogTitle("Save WSN");
             fileChooser.setFileFilter(new javax.swing.filechooser.FileFilter(){
-                   public boolean accept(java.io.File f) { return (f.isDirectory() || f.getName().toLowerCase().endsWith(".xml")); }
-                   public String getDescription() { return "XML Files"; }
+                   public boolean accept(java.io.File f) { return (f.isDirectory() || f.getName().toLowerCase().endsWith(".xml") || f.getName().toLowerCase().endsWith(".xml.gz") || f.getName().toLowerCase().endsWith(NetworkSnapshot.FILE_EXTENSION)); }
+                   public String getDescription() { return "XML Files and network snapshots"; }
             });
             fileChooser.showSaveDialog(this);
             if (fileChooser.getSelectedFile() != null){
@@ -2058,17 +2066,33 @@ public class TRMSim_WSN extends javax.swing.JFrame implements Observer {
     }
     
     /**
-     * Main method
+     * Main method. Option <code>-v</code> runs the predefined sweep without graphic user interface,
+     * while <code>-s scenarioFile [-o outcomesFile]</code> runs the sweep declared in a scenario file
+     * (see {@link Scenario})
      * @param args the command line arguments
      */
     public static void main(String args[]) {
         boolean verbose = false;
+        String scenarioFile = null;
+        String outcomesFile = null;
 
         for (int i = 0; i < args.length; i++)
             if (args[i].equals("-v"))
                 verbose = true;
-
-        if (verbose) {
+            else if (args[i].equals("-s") && (i+1 < args.length))
+                scenarioFile = args[++i];
+            else if (args[i].equals("-o") && (i+1 < args.length))
+                outcomesFile = args[++i];
+
+        if (scenarioFile != null) {
+            try {
+                int failedPoints = SweepRunner.runSweep(scenarioFile, outcomesFile);
+                System.exit(failedPoints == 0 ? 0 : 1);
+            } catch (Exception ex) {
+                ex.printStackTrace();
+                System.exit(1);
+            }
+        } else if (verbose) {
             String trustModelNames[] = {BTRM_WSN.get_name(), LFTM.get_name()};
             Service requiredService = new Service("My Service");
             int numNetworks = 100;
@@ -2190,11 +2214,78 @@ public class TRMSim_WSN extends javax.swing.JFrame implements Observer {
             double probClients, double probRelay, double probMalicious,
             double radioRange,
             boolean dynamic, boolean oscillating, boolean collusion) throws Exception {
+        return runTRMSim_WSN(trustModelName, requiredService, numNetworks, numExecutions, minNumSensors, maxNumSensors,
+                probClients, probRelay, probMalicious, radioRange, dynamic, oscillating, collusion, false);
+    }
+
+    /**
+     * This method executes the specified trust and reputation model using the given parameters
+     * @param trustModelName Trust and reputation model name
+     * @param requiredService Service requested by every client of each WSN
+     * @param numNetworks Number of wireless sensor networks to test
+     * @param numExecutions Number of service requests of every client composing each WSN
+     * @param minNumSensors Minimum number of sensors composing every WSN
+     * @param maxNumSensors Maximum number of sensors composing every WSN
+     * @param probClients The probability of a node to act as a client
+     * @param probRelay The probability of a server to act just as a relay node (not offering the required service)
+     * @param probMalicious The probability of a server offering the required service to act as a
+     * malicious server (not providing the offered service, or providing a worse or different one)
+     * @param radioRange Maximum wireless range of every sensor. It determines the neighborhood of every sensor
+     * @param dynamic It determines if the WSN will be dynamic (nodes sometimes switch off in order to save battery, breaking all their links)
+     * @param oscillating It determines if the goodness of the servers belonging to the created WSN will change along the time
+     * @param collusion It determines if the malicious servers belonging to the created WSN will form a collusion among them
+     * @param guaranteedConnectivity It determines if every generated WSN is repaired so that every client can reach a
+     * benevolent server, instead of discarding and generating again those where no client can
+     * @return The outcome of the executed trust and reputation model
+     * @throws Exception If the specified trust and reputation model name is not correct or any other error occurs
+     */
+    public static Outcome runTRMSim_WSN(String trustModelName, Service requiredService,
+            int numNetworks, int numExecutions,
+            int minNumSensors, int maxNumSensors,
+            double probClients, double probRelay, double probMalicious,
+            double radioRange,
+            boolean dynamic, boolean oscillating, boolean collusion,
+            boolean guaranteedConnectivity) throws Exception {
+        return runTRMSim_WSN(trustModelName, requiredService, numNetworks, numExecutions, minNumSensors, maxNumSensors,
+                probClients, probRelay, probMalicious, radioRange, dynamic, oscillating, collusion, guaranteedConnectivity,
+                ClientExecutor.DEFAULT_MODE);
+    }
+
+    /**
+     * This method executes the specified trust and reputation model using the given parameters
+     * @param trustModelName Trust and reputation model name
+     * @param requiredService Service requested by every client of each WSN
+     * @param numNetworks Number of wireless sensor networks to test
+     * @param numExecutions Number of service requests of every client composing each WSN
+     * @param minNumSensors Minimum number of sensors composing every WSN
+     * @param maxNumSensors Maximum number of sensors composing every WSN
+     * @param probClients The probability of a node to act as a client
+     * @param probRelay The probability of a server to act just as a relay node (not offering the required service)
+     * @param probMalicious The probability of a server offering the required service to act as a
+     * malicious server (not providing the offered service, or providing a worse or different one)
+     * @param radioRange Maximum wireless range of every sensor. It determines the neighborhood of every sensor
+     * @param dynamic It determines if the WSN will be dynamic (nodes sometimes switch off in order to save battery, breaking all their links)
+     * @param oscillating It determines if the goodness of the servers belonging to the created WSN will change along the time
+     * @param collusion It determines if the malicious servers belonging to the created WSN will form a collusion among them
+     * @param guaranteedConnectivity It determines if every generated WSN is repaired so that every client can reach a
+     * benevolent server, instead of discarding and generating again those where no client can
+     * @param clientExecutionMode It determines how the clients of every round are run, as defined in {@link ClientExecutor}
+     * @return The outcome of the executed trust and reputation model
+     * @throws Exception If the specified trust and reputation model name is not correct or any other error occurs
+     */
+    public static Outcome runTRMSim_WSN(String trustModelName, Service requiredService,
+            int numNetworks, int numExecutions,
+            int minNumSensors, int maxNumSensors,
+            double probClients, double probRelay, double probMalicious,
+            double radioRange,
+            boolean dynamic, boolean oscillating, boolean collusion,
+            boolean guaranteedConnectivity, String clientExecutionMode) throws Exception {
         TRMParameters trm_parameters = null;
         String parametersFile;
         TRModel_WSN trmodel_wsn;
         Network network = null;
         Collection<Outcome> globalOutcomes = new ArrayList<Outcome>();
+        int avoidedRetries = 0;
         String packageName = "es.ants.felixgm.trmsim_wsn.trm."+trustModelName.toLowerCase()+".";
 
         parametersFile = (String)Class.forName(packageName+trustModelName+"_Parameters").getDeclaredField("defaultParametersFileName").get(null);
@@ -2203,6 +2294,9 @@ public class TRMSim_WSN extends javax.swing.JFrame implements Observer {
         try {
             trm_parameters = (TRMParameters) Class.forName(packageName+trustModelName+"_Parameters").getConstructor(trmParametersConstructorParametersTypes).newInstance(trmParametersConstructorParametersValues);
         } catch (java.lang.reflect.InvocationTargetException ex) {
+            // Falling back to the default values would silently ignore the overridden parameters
+            if (!SimulationContext.current().get_TRMParametersOverrides().isEmpty())
+                throw new Exception(ex.getCause().getMessage(), ex.getCause());
             trm_parameters = (TRMParameters) Class.forName(packageName+trustModelName+"_Parameters").newInstance();
             ex.printStackTrace();
         }
@@ -2210,64 +2304,66 @@ public class TRMSim_WSN extends javax.swing.JFrame implements Observer {
         Object[] trmodel_wsnConstructorParametersValues = {trm_parameters};
         trmodel_wsn = (TRModel_WSN) Class.forName(packageName+trustModelName).getConstructor(trmodel_wsnConstructorParametersTypes).newInstance(trmodel_wsnConstructorParametersValues);
 
-        Sensor.set_TRModel_WSN(trmodel_wsn);
-
-        for (int net = 0; net < numNetworks; net++) {
-            if ((network == null) || (numNetworks != 1)) {
-                int numSensors = (int)(minNumSensors + Math.random()*Math.abs(maxNumSensors-minNumSensors));
-                ArrayList<Double> probServices = new ArrayList<Double>();
-                ArrayList<Double> probGoodness = new ArrayList<Double>();
-                ArrayList<Service> services = new ArrayList<Service>();
-
-                services.add(new Service("Relay")); // Only two types of services: Relay or RequiredService.
-                services.add(requiredService);
-
-                probServices.add(1.0);
-                probGoodness.add(1.0);
-                probServices.add(1.0-probRelay);
-                probGoodness.add(1.0-probMalicious);
-
-                network = trmodel_wsn.generateRandomNetwork(numSensors, probClients, radioRange, probServices, probGoodness, services);
-
-                network.set_collusion(collusion);
-                network.set_dynamic(dynamic);
-            }
+        // Every run gets its own context, keeping the seed fixed by the caller, if any
+        SimulationContext context = new SimulationContext();
+        context.set_fixedSeed(SimulationContext.current().get_fixedSeed());
+        context.set_TRMParametersOverrides(SimulationContext.current().get_TRMParametersOverrides());
+        context.set_TRModel_WSN(trmodel_wsn);
+        SimulationContext previousContext = SimulationContext.bind(context);
+        EventScheduler scheduler = context.get_scheduler();
+        System.out.println("\tRandom seed = "+context.startRun());
+        // Sensors of dynamic WSNs only go to sleep while a simulation is running
+        context.set_runningSimulation(true);
+        ClientExecutor clientExecutor = null;
 
-            for (Sensor client : network.get_clients())
-                client.set_requiredService(requiredService);
-
-            Collection<Outcome> outcomes = new ArrayList<Outcome>();
-            int Ne = 0;
-            if ((net % 5) == 0)
-                System.out.println("\tnet = "+net);System.out.flush();
-            for (; Ne < numExecutions; Ne++) {
-                //System.out.println("\tnet = "+net+"; Ne = "+Ne);System.out.flush();
-                Thread[] clients = new Thread[network.get_numClients()];
-                int j = 0;
-                for (Sensor client : network.get_clients())
-                    clients[j++] = new Thread(client);
-
-                for (int i = 0; i < clients.length; i++)
-                    clients[i].start();
-
-                for (int i = 0; i < clients.length; i++)
-                    clients[i].join();
+        try {
+            clientExecutor = ClientExecutor.newClientExecutor(clientExecutionMode);
+            for (int net = 0; net < numNetworks; net++) {
+                if ((network == null) || (numNetworks != 1)) {
+                    scheduler.reset();
+                    network = Simulation.generateRandomNetwork(trmodel_wsn, requiredService, minNumSensors, maxNumSensors,
+                            probClients, probRelay, probMalicious, radioRange, dynamic, collusion);
+                    if (guaranteedConnectivity && Simulation.repairNetwork(network, requiredService))
+                        avoidedRetries++;
+                }
 
                 for (Sensor client : network.get_clients())
-                    if (client.get_outcome() != null)
-                        outcomes.add(client.get_outcome());
-
-                if ((oscillating) && (Ne % 20 == 0))
-                    network.oscillate(requiredService);
+                    client.set_requiredService(requiredService);
+
+                OutcomeAccumulator outcomes = new OutcomeAccumulator();
+                int Ne = 0;
+                if ((net % 5) == 0)
+                    System.out.println("\tnet = "+net);System.out.flush();
+                for (; Ne < numExecutions; Ne++) {
+                    //System.out.println("\tnet = "+net+"; Ne = "+Ne);System.out.flush();
+                    trmodel_wsn.beginRound(network);
+                    clientExecutor.runClients(network.get_clients());
+                    // Sensors of dynamic WSNs put to sleep during the round wake up as the virtual clock advances
+                    scheduler.advance(Simulation.defaultRoundDuration);
+
+                    for (Sensor client : network.get_clients())
+                        if (client.get_outcome() != null)
+                            outcomes.add(client.get_outcome());
+
+                    if ((oscillating) && (Ne % 20 == 0))
+                        network.oscillate(requiredService);
 
+                }
+                Outcome outcome = outcomes.get_outcome(network,requiredService,Ne);
+                if (outcome == null) {
+                    if (net > 0)
+                        net--;
+                } else
+                    globalOutcomes.add(outcome);
             }
-            Outcome outcome = Outcome.computeOutcomes(outcomes,network,requiredService,Ne);
-            if (outcome == null) {
-                if (net > 0)
-                    net--;
-            } else
-                globalOutcomes.add(outcome);
+        } finally {
+            if (clientExecutor != null)
+                clientExecutor.shutdown();
+            context.set_runningSimulation(false);
+            SimulationContext.bind(previousContext);
         }
+        if (guaranteedConnectivity)
+            System.out.println("\tNetworks repaired instead of generated again: "+avoidedRetries);
 
         return Outcome.computeOutcomes(globalOutcomes);
     }
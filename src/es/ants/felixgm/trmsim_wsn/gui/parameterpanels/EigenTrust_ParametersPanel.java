@@ -51,6 +51,12 @@ import es.ants.felixgm.trmsim_wsn.trm.eigentrust.EigenTrust_Parameters;
  * @since 0.2
  */
 public class EigenTrust_ParametersPanel extends TRMParametersPanel {
+    /** Whether scores are centralized, which has no field in the panel but is kept from the parameters set */
+    private boolean centralizedScore = false;
+    /** Whether the shared global trust vector is updated incrementally, which has no field in the panel but is kept from the parameters set */
+    private boolean incrementalScore = false;
+    /** Solver of the global trust vector, which has no field in the panel but is kept from the parameters set */
+    private String solver = EigenTrust_Parameters.POWER_ITERATION;
     
     /** 
      * Creates new form EigenTrust_ParametersPanel
@@ -329,6 +335,9 @@ public class EigenTrust_ParametersPanel extends TRMParametersPanel {
         eigenTrustParameters.set_preTrustedPeersWeight(get_preTrustedPeersWeight());
         eigenTrustParameters.set_epsilon(get_epsilon());
         eigenTrustParameters.set_zeroTrustNodeSelectionProbability(get_zeroTrustNodeSelectionProbability());
+        eigenTrustParameters.set_centralizedScore(centralizedScore);
+        eigenTrustParameters.set_incrementalScore(incrementalScore);
+        eigenTrustParameters.set_solver(solver);
         
         return eigenTrustParameters;
     }
@@ -342,6 +351,9 @@ public class EigenTrust_ParametersPanel extends TRMParametersPanel {
         set_preTrustedPeersWeight(eigenTrustParameters.get_preTrustedPeersWeight());
         set_epsilon(eigenTrustParameters.get_epsilon());
         set_zeroTrustNodeSelectionProbability(eigenTrustParameters.get_zeroTrustNodeSelectionProbability());
+        centralizedScore = eigenTrustParameters.isCentralizedScore();
+        incrementalScore = eigenTrustParameters.isIncrementalScore();
+        solver = eigenTrustParameters.get_solver();
     }
 
     @Override
@@ -1317,9 +1317,9 @@ public class LFTM_ParametersPanel extends TRMParametersPanel {
         set_transitionThreshold(lftmParameters.get_transitionThreshold());
         set_pathLengthFactor(lftmParameters.get_pathLengthFactor());
         set_punishmentThreshold(lftmParameters.get_punishmentThreshold());
-        set_U_MIN(LFTM_Parameters.get_U_MIN());
-        set_U_MAX(LFTM_Parameters.get_U_MAX());
-        set_LinguisticTerms(LFTM_Parameters.get_linguisticTerms());
+        set_U_MIN(lftmParameters.get_U_MIN());
+        set_U_MAX(lftmParameters.get_U_MAX());
+        set_LinguisticTerms(lftmParameters.get_linguisticTerms());
     }
 
     @Override
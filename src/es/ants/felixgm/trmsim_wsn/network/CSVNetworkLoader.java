@@ -0,0 +1,437 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package es.ants.felixgm.trmsim_wsn.network;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+/**
+ * <p>This class imports a network from a node CSV file along with a plain edge list,
+ * so that graphs recorded from actual deployments can be loaded without converting
+ * them into the XML format first</p>
+ * <p>The node file (<code>name.csv</code>) has one sensor per line, with the
+ * following comma separated fields (any number of services may follow the role):</p>
+ * <pre>
+ *    id,x,y,role[,service,goodness]*
+ *
+ *    1,30.5,56.2,client
+ *    2,14.8,63.7,server,Relay,1.0
+ *    3,29.7,73.7,server,Relay,1.0,Service 1,0.05
+ * </pre>
+ * <p>where the role is either <code>client</code> or <code>server</code>. The edge
+ * list (<code>name.edges</code>, next to the node file) has one directed link per
+ * line, given by the identifiers of both ends separated by a comma or blanks:</p>
+ * <pre>
+ *    1 2
+ *    2 3
+ * </pre>
+ * <p>Symmetric links have to be listed in both directions. In both files, empty
+ * lines and lines starting with <code>#</code> are skipped, as well as a first line
+ * not starting with a number (i.e. a header). The edge list may be missing, in
+ * which case no sensor is linked</p>
+ * <p>Both files are mapped into memory and parsed in place, so no object is
+ * allocated per line</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+final class CSVNetworkLoader extends NetworkFileLoader {
+    /** Extension of the node files */
+    static final String NODES_EXTENSION = ".csv";
+    /** Extension of the edge lists */
+    static final String EDGES_EXTENSION = ".edges";
+    /** Exact powers of ten representable as a double */
+    private static final double[] powersOfTen = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    /** Role of the sensors requesting services */
+    private static final byte[] clientRole = {'c','l','i','e','n','t'};
+    /** Role of the sensors offering services */
+    private static final byte[] serverRole = {'s','e','r','v','e','r'};
+
+    /** Identifiers of the services found so far, encoded in UTF-8 */
+    private final ArrayList<byte[]> serviceIds = new ArrayList<byte[]>();
+    /** Services found so far, in the same order as serviceIds */
+    private final ArrayList<Service> foundServices = new ArrayList<Service>();
+
+    /** File being parsed */
+    private String fileName;
+    /** Contents of the file being parsed */
+    private MappedByteBuffer buffer;
+    /** Position of the next byte to parse */
+    private int position;
+    /** Number of the line being parsed, for error reporting */
+    private int line;
+    /** Whether the next line holding anything but a comment may be a header */
+    private boolean headerAllowed;
+
+    /**
+     * Creates a new loader filling the given network, whose collections of
+     * clients, servers, sensors and services have to be already created and empty
+     * @param network Network to load
+     */
+    private CSVNetworkLoader(Network network) {
+        super(network);
+    }
+
+    /**
+     * This method reads a node file and its edge list, and fills the given network
+     * with the sensors, services and links they describe. Sensors are created through
+     * {@link Network#newSensor(int, double, double)}, so the specific subclass of
+     * every model is obtained
+     * @param network Network to load, whose collections have to be already created and empty
+     * @param filePath Path of either the node file or the edge list
+     * @throws Exception If any of the files does not have the appropriate structure, or if
+     * a sensor links to an undefined sensor, or if a sensor links to itself
+     */
+    static void load(Network network, String filePath) throws Exception {
+        if (!isCSVFile(filePath))
+            throw new Exception("Only node CSV files and edge lists are accepted");
+        String baseName = filePath.substring(0, filePath.length() -
+                (filePath.endsWith(NODES_EXTENSION) ? NODES_EXTENSION.length() : EDGES_EXTENSION.length()));
+
+        CSVNetworkLoader loader = new CSVNetworkLoader(network);
+        loader.map(baseName + NODES_EXTENSION);
+        loader.readNodes();
+        if (new File(baseName + EDGES_EXTENSION).exists()) {
+            loader.map(baseName + EDGES_EXTENSION);
+            loader.readEdges();
+        }
+        loader.buffer = null;
+        loader.resolveLinks();
+    }
+
+    /**
+     * Checks whether a given path names a node file or an edge list
+     * @param filePath Path to check
+     * @return true if the path ends with {@link #NODES_EXTENSION} or {@link #EDGES_EXTENSION}, false otherwise
+     */
+    static boolean isCSVFile(String filePath) {
+        return filePath.endsWith(NODES_EXTENSION) || filePath.endsWith(EDGES_EXTENSION);
+    }
+
+    /**
+     * Maps a whole file into memory in order to parse it
+     * @param fileName Path of the file
+     * @throws Exception If the file cannot be read
+     */
+    private void map(String fileName) throws Exception {
+        RandomAccessFile file = new RandomAccessFile(new File(fileName), "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new Exception("File "+fileName+" is too large");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            file.close();
+        }
+        this.fileName = fileName;
+        position = 0;
+        line = 0;
+        headerAllowed = true;
+    }
+
+    /**
+     * Parses the node file, creating every sensor and adding its services
+     * @throws Exception If the file does not have the appropriate structure
+     */
+    private void readNodes() throws Exception {
+        while (nextLine()) {
+            int id = parseInt();
+            skipSeparator();
+            double x = parseDouble();
+            skipSeparator();
+            double y = parseDouble();
+            skipSeparator();
+
+            boolean isClient = matchesWord(clientRole);
+            if (!isClient && !matchesWord(serverRole))
+                throw error("role 'client' or 'server' expected");
+            Sensor sensor = network.newSensor(id, x, y);
+            if (isClient)
+                network.clients.add(sensor);
+            else
+                network.servers.add(sensor);
+            network.sensors.add(sensor);
+
+            skipBlanks();
+            while (!isEndOfLine()) {
+                if (isClient)
+                    throw error("client "+id+" cannot offer services");
+                skipSeparator();
+                Service service = parseService();
+                skipSeparator();
+                sensor.addService(service, parseDouble());
+                skipBlanks();
+            }
+        }
+    }
+
+    /**
+     * Parses the edge list, recording every link
+     * @throws Exception If the file does not have the appropriate structure, or if
+     * a sensor links to itself
+     */
+    private void readEdges() throws Exception {
+        while (nextLine()) {
+            int id = parseInt();
+            skipSeparator();
+            int linkedId = parseInt();
+            skipBlanks();
+            if (!isEndOfLine())
+                throw error("end of line expected");
+            if (id == linkedId)
+                throw error("sensor "+id+" has a link to itself");
+            addLink(id, linkedId);
+        }
+    }
+
+    /**
+     * Moves to the beginning of the next line holding data, skipping empty lines,
+     * comments and the header, if any
+     * @return true if there is such line, false if the end of the file was reached
+     */
+    private boolean nextLine() {
+        if (line > 0) {
+            while ((position < buffer.limit()) && (buffer.get(position) != '\n'))
+                position++;
+            position++;
+        }
+        while (position < buffer.limit()) {
+            line++;
+            skipBlanks();
+            byte b = peek();
+            if (!isEndOfLine() && (b != '#')) {
+                boolean isHeader = headerAllowed && (b != '-') && (b != '+') && ((b < '0') || (b > '9'));
+                headerAllowed = false;
+                if (!isHeader)
+                    return true;
+            }
+            while ((position < buffer.limit()) && (buffer.get(position) != '\n'))
+                position++;
+            position++;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the next byte to parse, without consuming it
+     * @return The next byte to parse, or '\n' at the end of the file
+     */
+    private byte peek() {
+        return (position < buffer.limit()) ? buffer.get(position) : (byte)'\n';
+    }
+
+    /**
+     * Checks whether the end of the current line has been reached
+     * @return true if the end of the current line (or of the file) has been reached, false otherwise
+     */
+    private boolean isEndOfLine() {
+        byte b = peek();
+        return (b == '\n') || (b == '\r');
+    }
+
+    /**
+     * Skips any space or tabulator
+     */
+    private void skipBlanks() {
+        while ((position < buffer.limit()) && ((buffer.get(position) == ' ') || (buffer.get(position) == '\t')))
+            position++;
+    }
+
+    /**
+     * Skips the separator between two fields, i.e., a comma or a semicolon
+     * surrounded by blanks, or just blanks
+     */
+    private void skipSeparator() {
+        skipBlanks();
+        if ((peek() == ',') || (peek() == ';')) {
+            position++;
+            skipBlanks();
+        }
+    }
+
+    /**
+     * Parses an integer
+     * @return The integer parsed
+     * @throws Exception If there is no integer at the current position
+     */
+    private int parseInt() throws Exception {
+        boolean negative = (peek() == '-');
+        if (negative || (peek() == '+'))
+            position++;
+        long value = 0;
+        int start = position;
+        while ((peek() >= '0') && (peek() <= '9') && (value <= Integer.MAX_VALUE))
+            value = value*10 + (buffer.get(position++) - '0');
+        if ((position == start) || (value > Integer.MAX_VALUE))
+            throw error("integer expected");
+        return (int)(negative ? -value : value);
+    }
+
+    /**
+     * Parses a real number. Numbers with up to 15 significant digits and a
+     * small exponent (like coordinates and goodness values) are converted
+     * exactly without allocating any object. Any other number is given to
+     * {@link Double#parseDouble(String)}
+     * @return The real number parsed
+     * @throws Exception If there is no real number at the current position
+     */
+    private double parseDouble() throws Exception {
+        int start = position;
+        boolean negative = (peek() == '-');
+        if (negative || (peek() == '+'))
+            position++;
+
+        long mantissa = 0;
+        int numDigits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        while ((peek() >= '0') && (peek() <= '9')) {
+            if ((mantissa != 0) || (peek() != '0'))
+                numDigits++;
+            if (numDigits <= 18)
+                mantissa = mantissa*10 + (buffer.get(position) - '0');
+            else
+                exponent++;
+            position++;
+            anyDigit = true;
+        }
+        if (peek() == '.') {
+            position++;
+            while ((peek() >= '0') && (peek() <= '9')) {
+                if ((mantissa != 0) || (peek() != '0'))
+                    numDigits++;
+                if (numDigits <= 18) {
+                    mantissa = mantissa*10 + (buffer.get(position) - '0');
+                    exponent--;
+                }
+                position++;
+                anyDigit = true;
+            }
+        }
+        if (!anyDigit)
+            throw error("number expected");
+        if ((peek() == 'e') || (peek() == 'E')) {
+            position++;
+            exponent += parseInt();
+        }
+
+        if ((numDigits <= 15) && (exponent >= -22) && (exponent <= 22)) {
+            // Both the mantissa and the power of ten are exact, so the result is correctly rounded
+            double value = (exponent < 0) ? mantissa/powersOfTen[-exponent] : mantissa*powersOfTen[exponent];
+            return negative ? -value : value;
+        }
+        byte[] number = new byte[position-start];
+        for (int i = 0; i < number.length; i++)
+            number[i] = buffer.get(start+i);
+        return Double.parseDouble(new String(number, "US-ASCII"));
+    }
+
+    /**
+     * Consumes a word if it is found at the current position, ignoring case
+     * @param word Word in lower case
+     * @return true if the word was found (and consumed), false otherwise
+     */
+    private boolean matchesWord(byte[] word) {
+        if (position + word.length > buffer.limit())
+            return false;
+        for (int i = 0; i < word.length; i++)
+            if (Character.toLowerCase((char)buffer.get(position+i)) != word[i])
+                return false;
+        if ((position + word.length < buffer.limit()) && Character.isLetterOrDigit((char)buffer.get(position+word.length)))
+            return false;
+        position += word.length;
+        return true;
+    }
+
+    /**
+     * Parses the identifier of a service, which lasts until the next comma or
+     * semicolon, and retrieves the corresponding service. Services are only
+     * created (and added to the network) the first time they are found
+     * @return The service whose identifier was parsed
+     * @throws Exception If there is no identifier at the current position
+     */
+    private Service parseService() throws Exception {
+        int start = position;
+        int end = position;
+        while (!isEndOfLine() && (peek() != ',') && (peek() != ';')) {
+            position++;
+            if ((buffer.get(position-1) != ' ') && (buffer.get(position-1) != '\t'))
+                end = position;
+        }
+        if (end == start)
+            throw error("service expected");
+
+        for (int s = 0; s < serviceIds.size(); s++) {
+            byte[] serviceId = serviceIds.get(s);
+            if (serviceId.length == end-start) {
+                int i = 0;
+                while ((i < serviceId.length) && (serviceId[i] == buffer.get(start+i)))
+                    i++;
+                if (i == serviceId.length)
+                    return foundServices.get(s);
+            }
+        }
+
+        byte[] serviceId = new byte[end-start];
+        for (int i = 0; i < serviceId.length; i++)
+            serviceId[i] = buffer.get(start+i);
+        Service service = new Service(new String(serviceId, "UTF-8"));
+        serviceIds.add(serviceId);
+        foundServices.add(service);
+        addService(service);
+        return service;
+    }
+
+    /**
+     * Builds the exception reporting a syntax error at the current line
+     * @param message Description of the error
+     * @return The exception to throw
+     */
+    private Exception error(String message) {
+        return new Exception("Line "+line+" of "+fileName+": "+message);
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package es.ants.felixgm.trmsim_wsn.network;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>This class keeps the distance transmitted by each kind of sensor of a network
+ * (clients, malicious, benevolent and relay servers, power nodes and pre-trusted peers),
+ * so that the energy consumption of each of them can be retrieved without scanning the
+ * whole network</p>
+ * <p>Only those sensors able to reach a client and a benevolent server are taken into account.
+ * The roles of every sensor and whether it reaches them are determined again only when the
+ * links, the active state or the roles of any sensor of the network change. Meanwhile,
+ * every distance charged to a sensor through {@link Sensor#addTransmittedDistance(double)}
+ * is added right away to the totals of the roles it plays</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public class EnergyLedger {
+    /** Role of the clients */
+    public static final int CLIENT = 0;
+    /** Role of the malicious servers offering the required service */
+    public static final int MALICIOUS_SERVER = 1;
+    /** Role of the benevolent servers offering the required service */
+    public static final int BENEVOLENT_SERVER = 2;
+    /** Role of the relay servers */
+    public static final int RELAY_SERVER = 3;
+    /** Role of the power nodes (PowerTrust) */
+    public static final int POWER_NODE = 4;
+    /** Role of the pre-trusted peers (EigenTrust) */
+    public static final int PRE_TRUSTED_PEER = 5;
+    /** Number of roles */
+    private static final int NUM_ROLES = 6;
+    /** Service offered by the relay servers */
+    public static final Service RELAY_SERVICE = new Service("Relay");
+
+    /** Network whose sensors transmitted distance is kept */
+    private final Network network;
+    /** Total distance transmitted by the qualified sensors playing each role */
+    private final AtomicLongArray transmittedDistance = new AtomicLongArray(NUM_ROLES);
+    /** Number of qualified sensors playing each role */
+    private final int[] numSensors = new int[NUM_ROLES];
+    /** Sensors of the network when the roles were determined, sorted by index */
+    private volatile Sensor[] sensors;
+    /** Qualified roles of every sensor, as a bit mask, indexed by sensor index */
+    private volatile int[] sensorRoles;
+    /** Service the roles were determined for */
+    private Service requiredService;
+    /** Links version of the network when the roles were determined */
+    private long linksVersion;
+    /** Activity epoch of the network when the roles were determined */
+    private long activityEpoch;
+    /** Roles version of the network when the roles were determined */
+    private long rolesVersion;
+
+    /**
+     * Class EnergyLedger constructor
+     * @param network Network whose sensors transmitted distance is kept
+     */
+    EnergyLedger(Network network) {
+        this.network = network;
+        sensors = null;
+        sensorRoles = null;
+    }
+
+    /**
+     * This method returns the bit mask of a given role
+     * @param role Role whose bit mask is returned
+     * @return The bit mask of the given role
+     */
+    public static int roleMask(int role) {
+        return 1 << role;
+    }
+
+    /**
+     * This method adds an amount of distance transmitted by a given sensor to the
+     * totals of the roles it plays
+     * @param sensor Sensor which transmitted the given distance
+     * @param distance Distance transmitted
+     */
+    void charge(Sensor sensor, long distance) {
+        Sensor[] _sensors = sensors;
+        int[] _sensorRoles = sensorRoles;
+        int index = sensor.index;
+        // Roles not determined yet (or out of date) are determined later on from scratch
+        if ((_sensorRoles == null) || (index < 0) || (index >= _sensorRoles.length) || (_sensors[index] != sensor))
+            return;
+
+        int roles = _sensorRoles[index];
+        for (int role = 0; roles != 0; role++, roles >>>= 1)
+            if ((roles & 1) != 0)
+                transmittedDistance.addAndGet(role, distance);
+    }
+
+    /**
+     * Average transmitted distance per qualified sensor playing a given role
+     * @param role Role of the sensors
+     * @param requiredService Service requested by the clients
+     * @return Average transmitted distance per qualified sensor playing the given role
+     */
+    public synchronized long get_avgTransmittedDistance(int role, Service requiredService) {
+        update(requiredService);
+        if (numSensors[role] != 0)
+            return transmittedDistance.get(role)/numSensors[role];
+        return 0;
+    }
+
+    /**
+     * This method determines again the roles of every sensor, and the totals of each role,
+     * if the network has changed since they were determined
+     * @param requiredService Service requested by the clients
+     */
+    private void update(Service requiredService) {
+        long _linksVersion = network.get_linksVersion();
+        long _activityEpoch = network.get_activityEpoch();
+        long _rolesVersion = network.get_rolesVersion();
+        if ((sensorRoles != null) && this.requiredService.equals(requiredService) &&
+            (linksVersion == _linksVersion) && (activityEpoch == _activityEpoch) && (rolesVersion == _rolesVersion))
+            return;
+
+        sensorRoles = null;
+        Sensor[] _sensors = network.get_topology().sensors;
+        int[] _sensorRoles = new int[_sensors.length];
+        long[] _transmittedDistance = new long[NUM_ROLES];
+        int relayMask = roleMask(RELAY_SERVER);
+        for (int i = 0; i < NUM_ROLES; i++)
+            numSensors[i] = 0;
+
+        for (int i = 0; i < _sensors.length; i++) {
+            Sensor sensor = _sensors[i];
+            int roles = network.get_energyRoles(sensor, requiredService);
+            // Relay servers have to reach a benevolent server offering the relay service instead
+            int qualifiedRoles = 0;
+            if (((roles & ~relayMask) != 0) && network.reachesQualifiedService(sensor, requiredService))
+                qualifiedRoles |= (roles & ~relayMask);
+            if (((roles & relayMask) != 0) && network.reachesQualifiedService(sensor, RELAY_SERVICE))
+                qualifiedRoles |= relayMask;
+
+            _sensorRoles[i] = qualifiedRoles;
+            for (int role = 0; role < NUM_ROLES; role++)
+                if ((qualifiedRoles & roleMask(role)) != 0) {
+                    _transmittedDistance[role] += sensor.get_transmittedDistance();
+                    numSensors[role]++;
+                }
+        }
+
+        for (int role = 0; role < NUM_ROLES; role++)
+            transmittedDistance.set(role, _transmittedDistance[role]);
+        this.requiredService = requiredService;
+        linksVersion = _linksVersion;
+        activityEpoch = _activityEpoch;
+        rolesVersion = _rolesVersion;
+        sensors = _sensors;
+        sensorRoles = _sensorRoles;
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+
+package es.ants.felixgm.trmsim_wsn.network;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * <p>This class models a discrete-event scheduler driven by a virtual clock. Events
+ * (like a sensor going to sleep or waking up) are kept in a priority queue sorted
+ * by the virtual time they are due, and they are only fired when the clock is
+ * explicitly advanced, so no thread is needed to wait for them</p>
+ * <p>Events due at the same time are fired in the same order they were scheduled,
+ * so that a simulation does not depend on the wall-clock time it takes</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public class EventScheduler {
+
+    /**
+     * <p>This class models an event scheduled to be fired at a certain virtual time</p>
+     */
+    public static class Event {
+        /** Virtual time (in ms) at which this event is due */
+        private final long time;
+        /** Sequence number of this event, used to fire simultaneous events in scheduling order */
+        private final long sequence;
+        /** Action performed when this event is fired */
+        private final Runnable action;
+        /** Indicates whether this event has been cancelled */
+        private volatile boolean cancelled;
+
+        /**
+         * Class Event constructor
+         * @param time Virtual time (in ms) at which this event is due
+         * @param sequence Sequence number of this event
+         * @param action Action performed when this event is fired
+         */
+        private Event(long time, long sequence, Runnable action) {
+            this.time = time;
+            this.sequence = sequence;
+            this.action = action;
+            cancelled = false;
+        }
+
+        /**
+         * This method cancels this event, so it will not be fired. Cancelling an
+         * event already fired has no effect
+         */
+        public void cancel() { cancelled = true; }
+
+        /**
+         * Indicates whether this event has been cancelled
+         * @return true if this event has been cancelled, false otherwise
+         */
+        public boolean isCancelled() { return cancelled; }
+
+        /**
+         * Returns the virtual time at which this event is due
+         * @return The virtual time (in ms) at which this event is due
+         */
+        public long get_time() { return time; }
+    }
+
+    /** Events sorted by their due time and, among simultaneous ones, by scheduling order */
+    private static final Comparator<Event> eventOrder = new Comparator<Event>() {
+        public int compare(Event event1, Event event2) {
+            if (event1.time != event2.time)
+                return (event1.time < event2.time) ? -1 : 1;
+            return (event1.sequence < event2.sequence) ? -1 : ((event1.sequence == event2.sequence) ? 0 : 1);
+        }
+    };
+
+    /** Pending events */
+    private final PriorityQueue<Event> events;
+    /** Current virtual time (in ms) */
+    private long currentTime;
+    /** Number of events scheduled so far */
+    private long numScheduledEvents;
+
+    /**
+     * Class EventScheduler constructor. The virtual clock starts at time 0
+     */
+    public EventScheduler() {
+        events = new PriorityQueue<Event>(64, eventOrder);
+        currentTime = 0;
+        numScheduledEvents = 0;
+    }
+
+    /**
+     * This method schedules an action to be performed after a certain amount of virtual time
+     * @param delay Amount of virtual time (in ms) from now after which the action is performed
+     * @param action Action to be performed
+     * @return The scheduled event, which can be cancelled
+     */
+    public synchronized Event schedule(long delay, Runnable action) {
+        Event event = new Event(currentTime+Math.max(0, delay), numScheduledEvents++, action);
+        events.add(event);
+        return event;
+    }
+
+    /**
+     * This method advances the virtual clock a certain amount of time, firing in
+     * order every event due meanwhile. Events scheduled by the fired ones are
+     * also fired if they are due before the new time
+     * @param elapsedTime Amount of virtual time (in ms) to advance
+     * @return The number of events fired
+     */
+    public synchronized int advance(long elapsedTime) {
+        long targetTime = currentTime+Math.max(0, elapsedTime);
+        int numFiredEvents = 0;
+        while (!events.isEmpty() && (events.peek().time <= targetTime)) {
+            Event event = events.poll();
+            if (event.cancelled)
+                continue;
+            currentTime = event.time;
+            event.action.run();
+            numFiredEvents++;
+        }
+        currentTime = targetTime;
+        return numFiredEvents;
+    }
+
+    /**
+     * This method discards every pending event and sets the virtual clock back to time 0
+     */
+    public synchronized void reset() {
+        events.clear();
+        currentTime = 0;
+        numScheduledEvents = 0;
+    }
+
+    /**
+     * Returns the current virtual time
+     * @return The current virtual time (in ms)
+     */
+    public synchronized long get_currentTime() { return currentTime; }
+
+    /**
+     * Returns the number of pending events, including those cancelled but not discarded yet
+     * @return The number of pending events
+     */
+    public synchronized int get_numPendingEvents() { return events.size(); }
+}
@@ -51,6 +51,8 @@ public class Link {
     protected Sensor source;
     /** Destination node of the link */
     protected Sensor destination;
+    /** Index of this link in the {@link Topology} of its network (-1 if it has not been built yet) */
+    protected int edge = -1;
     
     /**
      * Class Link constructor
@@ -74,4 +76,10 @@ public class Link {
      * @return The destination sensor of this link
      */
     public Sensor get_destination() { return destination; }
+
+    /**
+     * Retrieves the index of this link in the topology of its network
+     * @return The index of this link in the topology of its network, or -1 if it has not been built yet
+     */
+    public int get_edge() { return edge; }
 }
@@ -41,24 +41,27 @@
 
 package es.ants.felixgm.trmsim_wsn.network;
 
+import es.ants.felixgm.trmsim_wsn.network.generator.CompactNetwork;
+import es.ants.felixgm.trmsim_wsn.network.generator.NetworkGenerator;
 import es.ants.felixgm.trmsim_wsn.search.ISearchCondition;
 import es.ants.felixgm.trmsim_wsn.search.IsClientSearchCondition;
 import es.ants.felixgm.trmsim_wsn.search.IsServerSearchCondition;
 import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 
-import java.util.Iterator;
 import java.util.Collection;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 
-import java.util.Vector;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.NodeList;
+import java.lang.ref.SoftReference;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * <p>This class models a P2P, Ad-hoc or Wireless Sensor Network, or even a
@@ -120,6 +123,8 @@ import org.w3c.dom.NodeList;
 public abstract class Network {
     /** Maximum distance between two nodes in the network */
     protected static final double maxDistance = 100.0;
+    /** Context of the simulation this network was created in */
+    protected final SimulationContext context = SimulationContext.current();
     /** The clients requesting services */
     protected Collection<Sensor> clients;
     /** The servers offering services */
@@ -128,6 +133,44 @@ public abstract class Network {
     protected Collection<Sensor> sensors;
     /** All the services offered by the network */
     protected Collection<Service> services;
+    /** Current topology of the network, or null if it has to be rebuilt */
+    private volatile Topology topology;
+    /** Last topology built for this network */
+    private Topology lastTopology;
+    /** Number of times the active state of any sensor of this network has changed */
+    private final AtomicLong activityEpoch = new AtomicLong();
+    /** Number of times the links of any sensor of this network have changed */
+    private final AtomicLong linksVersion = new AtomicLong();
+    /** Number of times the roles of any sensor of this network have changed */
+    private final AtomicLong rolesVersion = new AtomicLong();
+    /** Energy ledger of this network, or null if nobody has asked for it yet */
+    volatile EnergyLedger energyLedger;
+    /** Reachability index of this network, or null if nobody has asked for it yet */
+    private volatile ReachabilityIndex reachabilityIndex;
+    /** Sensors each sensor may be linked to, sorted by link distance, indexed by sensor index */
+    private Sensor[][] linkCandidates;
+    /** Link distance to each of the link candidates of each sensor */
+    private double[][] linkCandidateDistances;
+    /** Range (exclusive) covered by the link candidates of every sensor */
+    private double linkCandidatesRange;
+    /** Value of linksVersion right after the last incremental re-linking, or -1 */
+    private long relinkedVersion = -1;
+    /** Sensors of this network indexed by their identifier (null where no sensor has such identifier) */
+    private volatile Sensor[] sensorsById;
+    /** Number of sensors this network had when {@link #sensorsById} was built */
+    private volatile int numSensorsById;
+    /** Spatial index of the sensors of this network, used to find them by their position */
+    private volatile SpatialGrid spatialIndex;
+    /** Snapshot this network was loaded from, until its roles and link specific state are restored */
+    private NetworkSnapshot snapshot;
+    /** Link candidates are looked for this much farther than requested, so increasing the range does not look for them again */
+    protected static final double linkCandidatesRangeMargin = 1.5;
+    /** Sorts sensors by their index within their network */
+    protected static final Comparator<Sensor> indexOrder = new Comparator<Sensor>() {
+        public int compare(Sensor sensor1, Sensor sensor2) {
+            return (sensor1.index < sensor2.index) ? -1 : ((sensor1.index == sensor2.index) ? 0 : 1);
+        }
+    };
     
     /**
      * This constructor creates a new Network from a given set of clients,
@@ -149,6 +192,7 @@ public abstract class Network {
                 sensors.add(server);
 
         this.services = services;
+        registerSensors();
     }
 
     /**
@@ -167,221 +211,377 @@ public abstract class Network {
             Collection<Double> probServices,
             Collection<Double> probGoodness,
             Collection<Service> services) {
+        this(new NetworkGenerator(numSensors, probClients, rangeFactor, probServices, probGoodness, services));
+    }
+
+    /**
+     * This constructor creates a new random Network by means of a given generator,
+     * which determines the number of sensors, their placement and their roles
+     * @param generator Generator of the new Network
+     */
+    public Network(NetworkGenerator generator) {
         clients = new ArrayList<Sensor>();
         servers = new ArrayList<Sensor>();
         sensors = new ArrayList<Sensor>();
         this.services = new ArrayList<Service>();
 
-        Sensor.resetId();
-        Sensor.setMaxDistance(maxDistance);
+        context.resetId();
+        context.set_maxDistance(maxDistance);
 
-        for (int i = 0; i < numSensors; i++) {
-            if (Math.random() <= probClients) {
-                Sensor client = newSensor();
-                clients.add(client);
-                sensors.add(client);
-            } else {
-                Sensor server = newSensor();
-                servers.add(server);
-                sensors.add(server);
-
-                Iterator<Double> itProbServices = probServices.iterator();
-                Iterator<Double> itProbGoodness = probGoodness.iterator();
-                for (Service service : services)
-                    if (Math.random() <= itProbServices.next().doubleValue()) {
-                        if (Math.random() <= itProbGoodness.next().doubleValue())
-                            server.addService(service, 1.0);
-                        else
-                            server.addService(service, 0.0);
+        CompactNetwork compactNetwork = generator.generate();
+        Sensor[] _sensors = new Sensor[compactNetwork.get_numSensors()];
+        for (int i = 0; i < _sensors.length; i++) {
+            _sensors[i] = newSensor(i+1, compactNetwork.get_x(i), compactNetwork.get_y(i));
+            sensors.add(_sensors[i]);
+            if (compactNetwork.isClient(i))
+                clients.add(_sensors[i]);
+            else {
+                servers.add(_sensors[i]);
+                for (int s = 0; s < compactNetwork.get_numServices(); s++)
+                    if (compactNetwork.offersService(i, s)) {
+                        Service service = compactNetwork.get_service(s);
+                        _sensors[i].addService(service, compactNetwork.get_goodness(i, s));
 
                         if (!this.services.contains(service))
                             this.services.add(service);
                     }
             }
         }
-
-        if (clients.size() == 0) {
-            Sensor client = newSensor();
-            clients.add(client);
-            sensors.add(client);
-        }
+        context.set_idCount(_sensors.length+1);
 
         // We are going to link the sensors in the network.
-        double rangeThreshold = rangeFactor*Math.sqrt(2.0)*maxDistance;
-        for (Sensor server : servers) {
-            for (Sensor client : clients)
-                if (server.distance(client) < rangeThreshold) {
-                    client.addLink(server);
-                    server.addLink(client);
-                }
-
-            for (Sensor server2 : servers)
-                if ((!server.equals(server2)) && (server.distance(server2) < rangeThreshold)) {
-                    server.addLink(server2);
-                    server2.addLink(server);
-                }
-        }
-
-        for (Sensor client1 : clients) {
-            for (Sensor client2 : clients)
-                if ((!client1.equals(client2)) && (client1.distance(client2) < rangeThreshold)) {
-                    client1.addLink(client2);
-                    client2.addLink(client1);
-                }
-
-            for (Sensor server : servers)
-                if (server.distance(client1) < rangeThreshold) {
-                    client1.addLink(server);
-                    server.addLink(client1);
-                }
+        for (int i = 0; i < _sensors.length; i++) {
+            ArrayList<Sensor> neighbors = new ArrayList<Sensor>(compactNetwork.get_degree(i));
+            for (int e = compactNetwork.get_firstNeighbor(i); e < compactNetwork.get_endNeighbor(i); e++)
+                neighbors.add(_sensors[compactNetwork.get_neighbor(e)]);
+            _sensors[i].setNeighbors(neighbors);
         }
+        registerSensors();
     }
 
     /**
      * <p>This method reads a Network from a XML file and builds its corresponding object</p>
-     * <p>The XML file given should have <a href="#xmlFileStructure">this structure</a></p>
+     * <p>The XML file given should have <a href="#xmlFileStructure">this structure</a>, and
+     * may be compressed with gzip if its name ends with <code>.xml.gz</code>. It is
+     * read in a single streaming pass, so it is never held in memory as a whole</p>
+     * <p>A binary snapshot (see {@link NetworkSnapshot}) is loaded instead if the name
+     * of the file ends with {@link NetworkSnapshot#FILE_EXTENSION}. Subclasses have
+     * to call {@link #restoreSnapshotState()} at the end of their constructors, and
+     * should skip any random setup while {@link #isRestoringSnapshot()}</p>
+     * <p>A node CSV file along with its edge list is imported instead if the name of
+     * the file ends with <code>.csv</code> or <code>.edges</code>. Such network is
+     * then set up just like one read from a XML file</p>
      * @param xmlFilePath Path of the XML file describing the Network to create
      * @throws java.lang.Exception If the XML file given does not have the structure shown before, or if
      * a node links to an undefined node, or if a node links to itself
      */
     public Network(String xmlFilePath) throws Exception {
-        if (!xmlFilePath.endsWith(".xml"))
-            throw new Exception("Only XML files are accepted");
-        DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder docBuilder = docBuilderFactory.newDocumentBuilder();
-        Document doc = docBuilder.parse(new File(xmlFilePath));
-        doc.getDocumentElement().normalize();
-        org.w3c.dom.Node root = doc.getDocumentElement();
-        NodeList nodes = root.getChildNodes();
-
         clients = new ArrayList<Sensor>();
         servers = new ArrayList<Sensor>();
         sensors = new ArrayList<Sensor>();
         services = new ArrayList<Service>();
-        Sensor.resetId();
+        context.resetId();
 
-        /*
-         * In the first parsing we create every client and server
-         * In the second one, all the links are eestablished
-         */
-        for (int i = 1; i < nodes.getLength(); i++) {
-            org.w3c.dom.Node node = nodes.item(i);
-            if (node.getNodeType() == org.w3c.dom.Node.ELEMENT_NODE) {
-                NamedNodeMap attributes = node.getAttributes();
-                int id = Integer.parseInt(attributes.getNamedItem("id").getNodeValue());
-                double x = Double.parseDouble(attributes.getNamedItem("x").getNodeValue());
-                double y = Double.parseDouble(attributes.getNamedItem("y").getNodeValue());
-                if (node.getNodeName().equals("client")) {
-                    Sensor client = newSensor(id, x, y);
-                    if (!clients.contains(client)) {
-                        clients.add(client);
-                        sensors.add(client);
-                    }
-                } else if ((node.getNodeName().equals("server")) && (attributes != null)) {
-                    Sensor server = newSensor(id,x,y);
+        if (NetworkSnapshot.isSnapshotFile(xmlFilePath))
+            snapshot = NetworkSnapshot.read(this, xmlFilePath);
+        else if (CSVNetworkLoader.isCSVFile(xmlFilePath))
+            CSVNetworkLoader.load(this, xmlFilePath);
+        else
+            XMLNetworkLoader.load(this, xmlFilePath);
+        registerSensors();
+    }
 
-                    if (!servers.contains(server)) {
-                        servers.add(server);
-                        sensors.add(server);
-                    }
+    /**
+     * Indicates whether this network has been loaded from a snapshot whose roles
+     * and link specific state have not been restored yet
+     * @return true if {@link #restoreSnapshotState()} is still to be called, false otherwise
+     */
+    protected boolean isRestoringSnapshot() { return snapshot != null; }
 
-                    NodeList nodeChildren = node.getChildNodes();
-                    for (int j = 0; j < nodeChildren.getLength(); j++)
-                        if (nodeChildren.item(j).getNodeType() == org.w3c.dom.Node.ELEMENT_NODE) {
-                            if (nodeChildren.item(j).getNodeName().equals("service")) {
-                                double goodness = Double.parseDouble(nodeChildren.item(j).
-                                        getAttributes().getNamedItem("goodness").getNodeValue());
-                                String idService = nodeChildren.item(j).
-                                        getAttributes().getNamedItem("id").getNodeValue();
-
-                                Service service = new Service(idService);
-                                if (!services.contains(service))
-                                    services.add(service);
-                                server.addService(service, goodness);
-                            } else if ((!nodeChildren.item(j).getNodeName().equals("server")) &&
-                                    (!nodeChildren.item(j).getNodeName().equals("client")))
-                                throw new Exception("Unexpected tag found '"+nodeChildren.item(j).getNodeName()+"' while looking for server "+id+" neighbors and services");
-                        }
-                } else
-                    throw new Exception("Unexpected tag found '"+node.getNodeName()+"' while looking for servers");
-            }
+    /**
+     * This method restores the roles and link specific state of the snapshot this
+     * network was loaded from, if any. It has to be called once the specific network
+     * has been completely built and reset, since resetting it may change them
+     * @return true if the state of a snapshot has been restored, false if this
+     * network was not loaded from a snapshot (or it was already restored)
+     * @throws Exception If the snapshot does not match this network
+     */
+    protected boolean restoreSnapshotState() throws Exception {
+        NetworkSnapshot _snapshot = snapshot;
+        if (_snapshot == null)
+            return false;
+        snapshot = null;
+        _snapshot.restoreState(this);
+        return true;
+    }
+
+    /**
+     * Returns the model specific role flags of a sensor to be kept in a snapshot
+     * of this network. Subclasses whose sensors play specific roles (like pre-trusted
+     * peers) should redefine it along with {@link #set_snapshotFlags(Sensor, int)}
+     * @param sensor Sensor of this network
+     * @return The role flags of the given sensor
+     */
+    protected int get_snapshotFlags(Sensor sensor) { return 0; }
+
+    /**
+     * Sets the model specific role flags of a sensor restored from a snapshot
+     * @param sensor Sensor of this network
+     * @param flags Role flags of the given sensor, as returned by {@link #get_snapshotFlags(Sensor)}
+     */
+    protected void set_snapshotFlags(Sensor sensor, int flags) { }
+
+    /**
+     * Returns the link specific state of this network to be kept in a snapshot,
+     * as several arrays indexed by edge of the current topology. Subclasses keeping
+     * such state (like pheromone traces) should redefine it along with
+     * {@link #set_snapshotEdgeState(double[][])}
+     * @return The link specific state of this network, or null if there is none
+     */
+    protected double[][] get_snapshotEdgeState() { return null; }
+
+    /**
+     * Sets the link specific state of this network restored from a snapshot
+     * @param edgeState Arrays indexed by edge of the current topology, as returned by
+     * {@link #get_snapshotEdgeState()}
+     */
+    protected void set_snapshotEdgeState(double[][] edgeState) { }
+
+    /**
+     * This method makes every sensor of this network belong to it, so that
+     * its topology is (lazily) rebuilt whenever any of their links changes
+     */
+    protected void registerSensors() {
+        for (Sensor sensor : sensors)
+            sensor.network = this;
+        indexSensorsById();
+        spatialIndex = null;
+        invalidateTopology();
+    }
+
+    /**
+     * This method rebuilds the dense array mapping every identifier to the sensor
+     * of this network having it. If several sensors share the same identifier,
+     * the first one in the collection of sensors prevails
+     * @return The sensors of this network indexed by their identifier
+     */
+    protected Sensor[] indexSensorsById() {
+        int maxId = 0;
+        for (Sensor sensor : sensors)
+            if (sensor.id() > maxId)
+                maxId = sensor.id();
+
+        Sensor[] _sensorsById = new Sensor[maxId+1];
+        for (Sensor sensor : sensors)
+            if ((sensor.id() > 0) && (_sensorsById[sensor.id()] == null))
+                _sensorsById[sensor.id()] = sensor;
+        numSensorsById = sensors.size();
+        sensorsById = _sensorsById;
+        return _sensorsById;
+    }
+
+    /**
+     * This method returns the spatial index of the sensors of this network, building
+     * it again if the collection of sensors changed its size since it was built
+     * @return The spatial index of the sensors of this network
+     */
+    protected SpatialGrid get_spatialIndex() {
+        SpatialGrid _spatialIndex = spatialIndex;
+        if ((_spatialIndex == null) || (_spatialIndex.sensors.length != sensors.size())) {
+            // Cells are made as small as possible, i.e., about two cells per sensor
+            _spatialIndex = new SpatialGrid(sensors, 0.0);
+            spatialIndex = _spatialIndex;
         }
+        return _spatialIndex;
+    }
 
-        for (int i = 1; i < nodes.getLength(); i++) {
-            org.w3c.dom.Node node = nodes.item(i);
-            if (node.getNodeType() == org.w3c.dom.Node.ELEMENT_NODE) {
-                NamedNodeMap attributes = node.getAttributes();
-                if ((node.getNodeName().equals("client")) && (attributes != null)) {
-                    int id = Integer.parseInt(attributes.getNamedItem("id").getNodeValue());
-                    Sensor client = null;
-                    for (Sensor client_aux : clients)
-                        if (client_aux.id() == id)
-                            client = client_aux;
-
-                    NodeList clientChildren = node.getChildNodes();
-                    for (int j = 0; j < clientChildren.getLength(); j++)
-                        if (clientChildren.item(j).getNodeType() == org.w3c.dom.Node.ELEMENT_NODE)
-                            if (clientChildren.item(j).getNodeName().equals("server")) {
-                                int idServer = Integer.parseInt(clientChildren.item(j).
-                                        getAttributes().getNamedItem("id").getNodeValue());
-
-                                Sensor server = null;
-                                for (Sensor server_aux : servers)
-                                    if (server_aux.id() == idServer)
-                                        server = server_aux;
-                                client.addLink(server);
-                            } else if (clientChildren.item(j).getNodeName().equals("client")) {
-                                int idClient = Integer.parseInt(clientChildren.item(j).
-                                        getAttributes().getNamedItem("id").getNodeValue());
-                                if (id == idClient)
-                                    throw new Exception("Client "+id+" has a link to itself");
-                                Sensor client_aux = null;
-                                for (Sensor client_aux2 : clients)
-                                    if (client_aux2.id() == idClient)
-                                        client_aux = client_aux2;
-                                client.addLink(client_aux);
-                            } else
-                                throw new Exception("Unexpected tag found '"+clientChildren.item(i).getNodeName()+"' while looking for client's neighbors");
-
-                } else if ((node.getNodeName().equals("server")) && (attributes != null)) {
-                    int id = Integer.parseInt(attributes.getNamedItem("id").getNodeValue());
-
-                    Sensor server = null;
-                    for (Sensor server_aux : servers)
-                        if (server_aux.id() == id)
-                            server = server_aux;
-
-                    NodeList nodeChildren = node.getChildNodes();
-                    for (int j = 0; j < nodeChildren.getLength(); j++)
-                        if (nodeChildren.item(j).getNodeType() == org.w3c.dom.Node.ELEMENT_NODE) {
-                            if (nodeChildren.item(j).getNodeName().equals("server")) {
-                                int idServer = Integer.parseInt(nodeChildren.item(j).
-                                        getAttributes().getNamedItem("id").getNodeValue());
-                                Sensor neighbour = null;
-                                for (Sensor server_aux : servers)
-                                    if (server_aux.id() == idServer)
-                                        neighbour = server_aux;
-                                if (id == idServer)
-                                    throw new Exception("Server "+id+" has a link to itself");
-
-                                server.addLink(neighbour);
-                            } else if (nodeChildren.item(j).getNodeName().equals("client")) {
-                                int idClient = Integer.parseInt(nodeChildren.item(j).
-                                        getAttributes().getNamedItem("id").getNodeValue());
-                                if (id == idClient)
-                                    throw new Exception("Client "+id+" has a link to itself");
-                                Sensor client = null;
-                                for (Sensor client_aux : clients)
-                                    if (client_aux.id() == idClient)
-                                        client = client_aux;
-                                server.addLink(client);
-                            } else if (!nodeChildren.item(j).getNodeName().equals("service"))
-                                throw new Exception("Unexpected tag found '"+nodeChildren.item(j).getNodeName()+"' while looking for server "+id+" neighbors and services");
-                        }
-                } else
-                    throw new Exception("Unexpected tag found '"+node.getNodeName()+"' while looking for servers");
-            }
+    /**
+     * This method returns the current topology of this network, as a compressed
+     * sparse row adjacency structure. It is rebuilt (and every sensor re-indexed)
+     * only after the links of any sensor have changed
+     * @return The current topology of this network
+     */
+    public Topology get_topology() {
+        Topology _topology = topology;
+        if (_topology == null)
+            _topology = buildTopology();
+        return _topology;
+    }
+
+    /**
+     * This method discards the current topology of this network, so that it is
+     * rebuilt the next time it is requested
+     */
+    public void invalidateTopology() {
+        topology = null;
+        linksVersion.incrementAndGet();
+    }
+
+    /**
+     * Builds the topology of this network from the links of its sensors
+     * @return The new topology of this network
+     */
+    private synchronized Topology buildTopology() {
+        if (topology == null) {
+            Sensor[] _sensors = indexSensors();
+            Topology newTopology = new Topology(_sensors);
+            topologyBuilt(lastTopology, newTopology);
+            newTopology.stampLinks();
+            lastTopology = newTopology;
+            topology = newTopology;
         }
+        return topology;
+    }
+
+    /**
+     * Assigns every sensor of this network its index, which is its position in the
+     * collection of sensors
+     * @return The sensors of this network, sorted by index
+     */
+    protected Sensor[] indexSensors() {
+        Sensor[] _sensors = sensors.toArray(new Sensor[sensors.size()]);
+        for (int i = 0; i < _sensors.length; i++) {
+            _sensors[i].network = this;
+            _sensors[i].index = i;
+        }
+        return _sensors;
+    }
+
+    /**
+     * This method is called every time a new topology of this network is built.
+     * Subclasses keeping link specific state in arrays indexed by edge should
+     * redefine it in order to rebuild them, keeping the state of the links present
+     * in both topologies. At this point every link still holds its old edge index,
+     * so {@link Topology#edgeOf(Link) oldTopology.edgeOf(link)} retrieves it
+     * @param oldTopology Previous topology of this network, or null if there was none
+     * @param newTopology New topology of this network
+     */
+    protected void topologyBuilt(Topology oldTopology, Topology newTopology) { }
+
+    /**
+     * This method returns the shortest paths tree rooted at a given sensor of this network.
+     * Trees are cached per source sensor within the current topology, so they are discarded
+     * along with it whenever the links of any sensor change (i.e. the topology epoch ends), and
+     * successive searches from the same sensor within a round do not run Dijkstra again.
+     * Trees do not depend on the active state of the sensors. They are softly referenced, so the garbage collector may discard them if memory runs low
+     * @param source Sensor the returned tree is rooted at
+     * @return The shortest paths tree rooted at the given sensor, or null if it does not belong to this network
+     */
+    public ShortestPathEngine get_shortestPathTree(Sensor source) {
+        Topology _topology = get_topology();
+        int index = _topology.indexOf(source);
+        if (index < 0)
+            return null;
+
+        SoftReference<ShortestPathEngine> reference = _topology.shortestPathTrees.get(index);
+        ShortestPathEngine tree = (reference == null) ? null : reference.get();
+        if (tree == null) {
+            tree = new ShortestPathEngine(_topology, index);
+            _topology.shortestPathTrees.set(index, new SoftReference<ShortestPathEngine>(tree));
+        }
+        return tree;
+    }
+
+    /**
+     * This method returns the current activity epoch of this network, which changes
+     * every time any of its sensors goes to sleep or wakes up
+     * @return The current activity epoch of this network
+     */
+    public long get_activityEpoch() { return activityEpoch.get(); }
+
+    /**
+     * This method notifies this network that the active state of any of its sensors
+     * has changed, so that cached information depending on it is discarded
+     */
+    public void activityChanged() { activityEpoch.incrementAndGet(); }
+
+    /**
+     * This method notifies this network that the active state of a given sensor has
+     * changed, so that cached information depending on it is discarded or updated
+     * @param sensor Sensor whose active state has changed
+     */
+    public void activityChanged(Sensor sensor) {
+        ReachabilityIndex _reachabilityIndex = reachabilityIndex;
+        if (_reachabilityIndex == null)
+            activityEpoch.incrementAndGet();
+        else
+            synchronized (_reachabilityIndex) {
+                _reachabilityIndex.activityChanged(sensor, activityEpoch.incrementAndGet());
+            }
+    }
+
+    /**
+     * This method returns the reachability index of this network, which tells whether
+     * a sensor can reach a client or a benevolent server through active sensors
+     * @return The reachability index of this network
+     */
+    public ReachabilityIndex get_reachabilityIndex() {
+        ReachabilityIndex _reachabilityIndex = reachabilityIndex;
+        if (_reachabilityIndex == null)
+            synchronized (this) {
+                if (reachabilityIndex == null)
+                    reachabilityIndex = new ReachabilityIndex(this);
+                _reachabilityIndex = reachabilityIndex;
+            }
+        return _reachabilityIndex;
+    }
+
+    /**
+     * This method returns the current version of the links of this network, which changes
+     * every time the links of any of its sensors change
+     * @return The current version of the links of this network
+     */
+    public long get_linksVersion() { return linksVersion.get(); }
+
+    /**
+     * This method returns the current version of the roles of the sensors of this network,
+     * which changes every time any sensor offers a new service, stops offering it or
+     * changes its goodness, among others
+     * @return The current version of the roles of the sensors of this network
+     */
+    public long get_rolesVersion() { return rolesVersion.get(); }
+
+    /**
+     * This method notifies this network that the roles of any of its sensors may have
+     * changed, so that cached information depending on them is discarded
+     */
+    public void rolesChanged() { rolesVersion.incrementAndGet(); }
+
+    /**
+     * This method returns the energy ledger of this network, which keeps the distance
+     * transmitted by each kind of sensor up to date as it is charged
+     * @return The energy ledger of this network
+     */
+    public EnergyLedger get_energyLedger() {
+        EnergyLedger _energyLedger = energyLedger;
+        if (_energyLedger == null)
+            synchronized (this) {
+                if (energyLedger == null)
+                    energyLedger = new EnergyLedger(this);
+                _energyLedger = energyLedger;
+            }
+        return _energyLedger;
+    }
+
+    /**
+     * This method returns the roles a given sensor plays in this network, as taken into
+     * account by its {@link EnergyLedger}. Subclasses with roles of their own (or redefining
+     * the existing ones) should redefine it
+     * @param sensor Sensor whose roles are returned
+     * @param requiredService Service requested by the clients
+     * @return The roles the given sensor plays, as a bit mask of {@link EnergyLedger} roles
+     */
+    protected int get_energyRoles(Sensor sensor, Service requiredService) {
+        int roles = 0;
+        if (new IsClientSearchCondition().sensorAcomplishesCondition(sensor))
+            roles |= EnergyLedger.roleMask(EnergyLedger.CLIENT);
+        if (new IsServerSearchCondition(requiredService,IsServerSearchCondition.MALICIOUS_SERVER).sensorAcomplishesCondition(sensor))
+            roles |= EnergyLedger.roleMask(EnergyLedger.MALICIOUS_SERVER);
+        if (new IsServerSearchCondition(requiredService,IsServerSearchCondition.BENEVOLENT_SERVER).sensorAcomplishesCondition(sensor))
+            roles |= EnergyLedger.roleMask(EnergyLedger.BENEVOLENT_SERVER);
+        if (new IsServerSearchCondition(EnergyLedger.RELAY_SERVICE,IsServerSearchCondition.RELAY_SERVER).sensorAcomplishesCondition(sensor))
+            roles |= EnergyLedger.roleMask(EnergyLedger.RELAY_SERVER);
+        return roles;
     }
 
     /**
@@ -403,7 +603,7 @@ public abstract class Network {
             double prob = ((double)numBenevolentServers/servers.size());
             while (numBenevolentServers > 0)
                 for (Sensor server : servers)
-                    if ((Math.random() < prob) && (server.offersService(service)) && (server.get_goodness(service)< 0.5)) {
+                    if ((RandomStreams.nextDouble() < prob) && (server.offersService(service)) && (server.get_goodness(service)< 0.5)) {
                         server.set_goodness(service,1.0);
                         numBenevolentServers--;
                         if (numBenevolentServers == 0)
@@ -437,6 +637,7 @@ public abstract class Network {
     public void reset() {
         for (Sensor sensor : sensors)
             sensor.reset();
+        indexSensorsById();
     }
 
     /**
@@ -445,19 +646,406 @@ public abstract class Network {
      * @param newRange New wireless range determining every sensor's neighbors
      */
     public void setNewNeighbors(double newRange) {
+        linkSensorsInRange(newRange*Math.sqrt(2.0)*maxDistance);
+    }
+
+    /**
+     * <p>This method establishes every sensor's new neighborhood according to
+     * a new wireless range, keeping the links (and therefore any link specific
+     * state, like pheromone traces) whose sensors remain within range</p>
+     * <p>The link candidates of every sensor are kept sorted by distance, and its
+     * links are always a prefix of them, so only the links in the annulus between
+     * the previous and the new range are added or dropped</p>
+     * @param newRange New wireless range determining every sensor's neighbors
+     */
+    public synchronized void setNewNeighborsIncrementally(double newRange) {
         double rangeThreshold = newRange*Math.sqrt(2.0)*maxDistance;
+        Sensor[] _sensors = indexSensors();
+
+        // Links are just truncated or extended only if nobody else modified them since last time
+        boolean incremental = (relinkedVersion == linksVersion.get());
+        if ((linkCandidates == null) || (linkCandidates.length != _sensors.length) || !(rangeThreshold < linkCandidatesRange)) {
+            findLinkCandidates(_sensors, rangeThreshold*linkCandidatesRangeMargin);
+            incremental = false;
+        }
 
-        for (Sensor sensor : sensors) {
-            sensor.removeAllNeighbors();
-            for (Sensor sensor2 : sensors)
-                if ((!sensor.equals(sensor2)) && (sensor.distance(sensor2) < rangeThreshold))
-                {
-                    sensor.addLink(sensor2);
-                    sensor2.addLink(sensor);
+        for (int i = 0; i < _sensors.length; i++) {
+            Sensor sensor = _sensors[i];
+            int numNeighbors = countLinkCandidates(linkCandidateDistances[i], rangeThreshold);
+            if (incremental && (sensor.links instanceof List)) {
+                List<Link> links = (List<Link>)sensor.links;
+                int numLinks = links.size();
+                if (numNeighbors < numLinks)
+                    links.subList(numNeighbors, numLinks).clear();
+                for (int k = numLinks; k < numNeighbors; k++)
+                    links.add(sensor.newLink(linkCandidates[i][k]));
+            } else {
+                HashMap<Sensor,Link> oldLinks = new HashMap<Sensor,Link>();
+                if (sensor.links != null)
+                    for (Link link : sensor.links)
+                        oldLinks.put(link.get_destination(), link);
+
+                ArrayList<Link> links = new ArrayList<Link>(numNeighbors);
+                for (int k = 0; k < numNeighbors; k++) {
+                    Link link = oldLinks.get(linkCandidates[i][k]);
+                    links.add((link != null) ? link : sensor.newLink(linkCandidates[i][k]));
                 }
+                sensor.links = links;
+            }
+        }
+
+        invalidateTopology();
+        relinkedVersion = linksVersion.get();
+    }
+
+    /**
+     * This method discards the link candidates of every sensor, so that they are looked
+     * for again the next time this network is re-linked incrementally. It has to be
+     * called whenever the link distance between any pair of sensors changes
+     */
+    protected synchronized void invalidateLinkCandidates() {
+        linkCandidates = null;
+        linkCandidateDistances = null;
+    }
+
+    /**
+     * Looks for the link candidates of every sensor, sorting them by link distance
+     * (and then by index) so that the links within any range are a prefix of them
+     * @param _sensors Sensors of this network, sorted by index
+     * @param candidatesRange Range (exclusive) within which link candidates are looked for
+     */
+    private void findLinkCandidates(Sensor[] _sensors, double candidatesRange) {
+        linkCandidates = new Sensor[_sensors.length][];
+        linkCandidateDistances = new double[_sensors.length][];
+        linkCandidatesRange = candidatesRange;
+
+        NeighborSearch search = newNeighborSearch(_sensors, candidatesRange);
+        ArrayList<Sensor> candidates = new ArrayList<Sensor>();
+        for (int i = 0; i < _sensors.length; i++) {
+            final Sensor sensor = _sensors[i];
+            candidates.clear();
+            search.findNeighbors(sensor, candidates);
+            final HashMap<Sensor,Double> distances = new HashMap<Sensor,Double>();
+            for (Sensor candidate : candidates)
+                distances.put(candidate, linkDistance(sensor, candidate));
+            Collections.sort(candidates, new Comparator<Sensor>() {
+                public int compare(Sensor sensor1, Sensor sensor2) {
+                    int comparison = distances.get(sensor1).compareTo(distances.get(sensor2));
+                    return (comparison != 0) ? comparison : indexOrder.compare(sensor1, sensor2);
+                }
+            });
+
+            linkCandidates[i] = candidates.toArray(new Sensor[candidates.size()]);
+            linkCandidateDistances[i] = new double[candidates.size()];
+            for (int k = 0; k < candidates.size(); k++)
+                linkCandidateDistances[i][k] = distances.get(candidates.get(k));
+        }
+    }
+
+    /**
+     * Returns the number of link candidates closer than a given range
+     * @param distances Link distances to the link candidates of a sensor, sorted in ascending order
+     * @param rangeThreshold Distance (exclusive) below which two sensors are linked
+     * @return The number of link candidates closer than the given range
+     */
+    private static int countLinkCandidates(double[] distances, double rangeThreshold) {
+        int low = 0, high = distances.length;
+        while (low < high) {
+            int middle = (low+high) >>> 1;
+            if (distances[middle] < rangeThreshold)
+                low = middle+1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * This method returns the distance used to determine whether two sensors of
+     * this network are linked: they are linked if it is below the range threshold.
+     * Subclasses where some sensors have a wider range should redefine it
+     * @param sensor1 First sensor
+     * @param sensor2 Second sensor
+     * @return The link distance between both sensors
+     */
+    protected double linkDistance(Sensor sensor1, Sensor sensor2) {
+        return sensor1.distance(sensor2);
+    }
+
+    /**
+     * This method links every pair of sensors of this network closer than a given
+     * range, replacing any previous link. Only the sensors in the adjacent cells of
+     * a {@link SpatialGrid} are compared, instead of every pair of sensors. The links
+     * of every sensor are sorted by the index of their destination
+     * @param rangeThreshold Distance (exclusive) below which two sensors are linked
+     */
+    protected void linkSensorsInRange(double rangeThreshold) {
+        Sensor[] _sensors = indexSensors();
+        NeighborSearch search = newNeighborSearch(_sensors, rangeThreshold);
+        ArrayList<Sensor> neighbors = new ArrayList<Sensor>();
+        for (Sensor sensor : _sensors) {
+            neighbors.clear();
+            search.findNeighbors(sensor, neighbors);
+            Collections.sort(neighbors, indexOrder);
+            sensor.setNeighbors(neighbors);
+        }
+    }
+
+    /**
+     * This method creates the object used to find the sensors whose link distance
+     * to any given one is below a range threshold. Subclasses redefining
+     * {@link #linkDistance(Sensor, Sensor)} should redefine it as well
+     * @param _sensors Sensors of this network, sorted by index
+     * @param rangeThreshold Link distance (exclusive) below which sensors are found
+     * @return A new neighbor search over the given sensors
+     */
+    protected NeighborSearch newNeighborSearch(Sensor[] _sensors, double rangeThreshold) {
+        return new NeighborSearch(_sensors, rangeThreshold);
+    }
+
+    /**
+     * <p>This class finds the sensors whose link distance to a given one is below a
+     * range threshold, by means of a {@link SpatialGrid} whose cells are as large as it</p>
+     */
+    protected static class NeighborSearch {
+        /** Grid containing every sensor of the network */
+        protected SpatialGrid grid;
+        /** Link distance (exclusive) below which sensors are found */
+        protected double rangeThreshold;
+
+        /**
+         * Class NeighborSearch constructor
+         * @param sensors Sensors of the network
+         * @param rangeThreshold Link distance (exclusive) below which sensors are found
+         */
+        protected NeighborSearch(Sensor[] sensors, double rangeThreshold) {
+            this.grid = new SpatialGrid(sensors, rangeThreshold);
+            this.rangeThreshold = rangeThreshold;
+        }
+
+        /**
+         * This method finds every sensor, other than the given one, whose link distance
+         * to it is below the range threshold
+         * @param sensor Sensor whose neighbors are to be found
+         * @param found Collection where the sensors found are added to
+         */
+        protected void findNeighbors(Sensor sensor, Collection<Sensor> found) {
+            grid.findSensorsInRange(sensor, rangeThreshold, found);
         }
     }
     
+    /**
+     * This method counts the clients of this network which cannot reach any benevolent
+     * server offering a given service (other than itself) through their links
+     * @param service Service to be offered by the benevolent servers to be reached
+     * @return The number of clients which cannot reach any benevolent server
+     */
+    public int countIsolatedClients(Service service) {
+        Topology _topology = get_topology();
+        int[] component = new int[_topology.get_numSensors()];
+        int[] numIsolatedClients = new int[labelComponents(_topology, component)];
+        countIsolatedClients(_topology, service, component, numIsolatedClients);
+
+        int numClients = 0;
+        for (int isolatedClients : numIsolatedClients)
+            numClients += isolatedClients;
+        return numClients;
+    }
+
+    /**
+     * <p>This method guarantees that every client of this network can reach at least one
+     * benevolent server offering a given service (other than itself), so that the network
+     * does not have to be discarded and generated again</p>
+     * <p>Every connected component where any client cannot reach such a server is linked,
+     * through its closest pair of sensors, to another component containing benevolent
+     * servers. Only one link (in both directions) is added per repaired component.
+     * Nothing can be repaired if the network has no benevolent server at all</p>
+     * @param service Service to be offered by the benevolent servers to be reached
+     * @return The number of clients which could not reach any benevolent server before the repair
+     * and can after it, i.e., 0 if no link has been added
+     */
+    public int guaranteeConnectivity(Service service) {
+        Topology _topology = get_topology();
+        int numSensors = _topology.get_numSensors();
+        int[] component = new int[numSensors];
+        int numComponents = labelComponents(_topology, component);
+        int[] numIsolatedClients = new int[numComponents];
+        int[] numBenevolentServers = countIsolatedClients(_topology, service, component, numIsolatedClients);
+
+        Collection<Sensor> targets = new ArrayList<Sensor>();
+        boolean anyIsolatedClient = false;
+        for (int s = 0; s < numSensors; s++) {
+            if (numBenevolentServers[component[s]] > 0)
+                targets.add(_topology.get_sensor(s));
+            if (numIsolatedClients[component[s]] > 0)
+                anyIsolatedClient = true;
+        }
+        if (!anyIsolatedClient || targets.isEmpty())
+            return 0;
+
+        // The closest pair of sensors between every component to be repaired and any
+        // other component with benevolent servers is found by growing the search range
+        SpatialGrid grid = new SpatialGrid(targets, 0.0);
+        double[] closestDistance = new double[numComponents];
+        Sensor[] closestSource = new Sensor[numComponents];
+        Sensor[] closestTarget = new Sensor[numComponents];
+        Arrays.fill(closestDistance, Double.POSITIVE_INFINITY);
+        ArrayList<Sensor> found = new ArrayList<Sensor>();
+        for (int s = 0; s < numSensors; s++) {
+            int c = component[s];
+            if (numIsolatedClients[c] == 0)
+                continue;
+            Sensor sensor = _topology.get_sensor(s);
+            double maxRange = 2.0*(Math.abs(sensor.getX()-grid.minX) + Math.abs(sensor.getY()-grid.minY) +
+                    (grid.numColumns+grid.numRows)*grid.cellSize);
+            for (double range = grid.cellSize; range <= 2.0*maxRange; range *= 2.0) {
+                found.clear();
+                grid.findSensorsInRange(sensor, range, found);
+                boolean foundTarget = false;
+                for (Sensor target : found)
+                    if (component[_topology.indexOf(target)] != c) {
+                        foundTarget = true;
+                        if (sensor.distance(target) < closestDistance[c]) {
+                            closestDistance[c] = sensor.distance(target);
+                            closestSource[c] = sensor;
+                            closestTarget[c] = target;
+                        }
+                    }
+                if (foundTarget)
+                    break;
+            }
+        }
+
+        int numReconnectedClients = 0;
+        for (int c = 0; c < numComponents; c++)
+            if (closestSource[c] != null) {
+                closestSource[c].addLink(closestTarget[c]);
+                closestTarget[c].addLink(closestSource[c]);
+                numReconnectedClients += numIsolatedClients[c];
+            }
+
+        return numReconnectedClients;
+    }
+
+    /**
+     * This method labels the connected components of a topology by means of breadth first searches
+     * @param _topology Topology whose connected components are labelled
+     * @param component Array where the connected component of every sensor is stored, by its index in the topology
+     * @return The number of connected components
+     */
+    private static int labelComponents(Topology _topology, int[] component) {
+        int numSensors = _topology.get_numSensors();
+        int[] queue = new int[numSensors];
+        Arrays.fill(component, -1);
+        int numComponents = 0;
+        for (int s = 0; s < numSensors; s++)
+            if (component[s] < 0) {
+                int head = 0, tail = 0;
+                queue[tail++] = s;
+                component[s] = numComponents;
+                while (head < tail) {
+                    int node = queue[head++];
+                    for (int e = _topology.get_firstEdge(node); e < _topology.get_endEdge(node); e++)
+                        if (component[_topology.get_target(e)] < 0) {
+                            component[_topology.get_target(e)] = numComponents;
+                            queue[tail++] = _topology.get_target(e);
+                        }
+                }
+                numComponents++;
+            }
+        return numComponents;
+    }
+
+    /**
+     * This method counts, for every connected component, its benevolent servers offering a given
+     * service and its clients which cannot reach any of them (other than itself)
+     * @param _topology Topology of this network
+     * @param service Service to be offered by the benevolent servers
+     * @param component Connected component of every sensor, by its index in the topology
+     * @param numIsolatedClients Array where the number of clients of every component which cannot reach any benevolent server is stored
+     * @return The number of benevolent servers of every component
+     */
+    private int[] countIsolatedClients(Topology _topology, Service service, int[] component, int[] numIsolatedClients) {
+        int numSensors = _topology.get_numSensors();
+        ISearchCondition benevolentServerCondition = new IsServerSearchCondition(service,IsServerSearchCondition.BENEVOLENT_SERVER);
+        boolean[] benevolentServer = new boolean[numSensors];
+        int[] numBenevolentServers = new int[numIsolatedClients.length];
+        for (int s = 0; s < numSensors; s++)
+            if (benevolentServerCondition.sensorAcomplishesCondition(_topology.get_sensor(s))) {
+                benevolentServer[s] = true;
+                numBenevolentServers[component[s]]++;
+            }
+
+        for (Sensor client : clients) {
+            int s = _topology.indexOf(client);
+            if ((s >= 0) && (numBenevolentServers[component[s]] - (benevolentServer[s] ? 1 : 0) == 0))
+                numIsolatedClients[component[s]]++;
+        }
+        return numBenevolentServers;
+    }
+
+    /**
+     * Opens a writer on a XML file, compressing it with gzip if its name ends
+     * with <code>.xml.gz</code>. The extension <code>.xml</code> is appended
+     * to any other name
+     * @param fileName Path of the XML file to write
+     * @return A buffered writer on the given file
+     * @throws Exception If the file cannot be created
+     */
+    protected static BufferedWriter newXMLFileWriter(String fileName) throws Exception {
+        if (!XMLNetworkLoader.isXMLFile(fileName))
+            fileName += ".xml";
+        OutputStream out = new FileOutputStream(fileName);
+        if (fileName.endsWith(".gz"))
+            out = new GZIPOutputStream(out, 1 << 16);
+        return new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+    }
+
+    /**
+     * Writes the element describing a sensor into a XML file following
+     * <a href="#xmlFileStructure">this structure</a>. Positions are written with
+     * full precision, and neighbors are taken from the topology of this network, so
+     * that writing does not add any transmitted distance to the sensor
+     * @param out Writer on the XML file
+     * @param _topology Current topology of this network
+     * @param sensor Sensor to write
+     * @param tag Tag of the element, either <code>client</code> or <code>server</code>
+     * @throws Exception If there is any problem when writing to the XML file
+     */
+    protected void writeXMLSensor(BufferedWriter out, Topology _topology, Sensor sensor, String tag) throws Exception {
+        out.write("\t<"); out.write(tag);
+        out.write(" id=\""); out.write(String.valueOf(sensor.id()));
+        out.write("\" x=\""); out.write(String.valueOf(sensor.getX()));
+        out.write("\" y=\""); out.write(String.valueOf(sensor.getY()));
+        out.write("\">\n");
+        if (tag.equals("server"))
+            for (Service service : sensor.get_services()) {
+                out.write("\t\t<service id=\""); out.write(service.id());
+                out.write("\" goodness=\""); out.write(String.valueOf(sensor.get_goodness(service)));
+                out.write("\"/>\n");
+            }
+        int index = _topology.indexOf(sensor);
+        if (index >= 0)
+            for (int e = _topology.get_firstEdge(index); e < _topology.get_endEdge(index); e++) {
+                Sensor neighbor = _topology.get_targetSensor(e);
+                out.write((neighbor.get_numServices() == 0) ? "\t\t<client id=\"" : "\t\t<server id=\"");
+                out.write(String.valueOf(neighbor.id()));
+                out.write("\"/>\n");
+            }
+        out.write("\t</"); out.write(tag); out.write(">\n");
+    }
+
+    /**
+     * This method writes the current Network into a binary snapshot, which keeps it
+     * exactly, along with the roles and link specific state of the model
+     * (see {@link NetworkSnapshot})
+     * @param fileName Path of the snapshot file where to write the current Network
+     * @throws Exception If there is any problem when writing to the snapshot file
+     */
+    public void writeToSnapshotFile(String fileName) throws Exception {
+        NetworkSnapshot.write(this, fileName);
+    }
+
     /**
      * This method writes the current Network into a XML file following 
      * <a href="#xmlFileStructure">this structure</a>
@@ -466,43 +1054,15 @@ public abstract class Network {
      */
     public void writeToXMLFile(String fileName) throws Exception {
         try {
-            if (!fileName.endsWith(".xml"))
-                fileName += ".xml";
-            BufferedWriter out = new BufferedWriter(new FileWriter(fileName));
+            BufferedWriter out = newXMLFileWriter(fileName);
             
             out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
             out.write("<wsn>\n");
-            for (Sensor client : clients) {
-                out.write("\t<client id=\""+client.id()
-                +"\" x=\""+(((int)(client.getX()*100))/100.0)
-                +"\" y=\""+(((int)(client.getY()*100))/100.0)
-                +"\">\n");
-                for (Sensor neighbor : client.getNeighbors())
-                    if (neighbor.get_numServices() == 0)
-                        out.write("\t\t<client id=\""+neighbor.id()+"\"/>\n");
-                    else
-                        out.write("\t\t<server id=\""+neighbor.id()+"\"/>\n");
-                out.write("\t</client>\n");
-            }
-            
-            for (Sensor server : servers) {
-                out.write("\t<server id=\""+server.id()
-                +"\" x=\""+(((int)(server.getX()*100))/100.0)
-                +"\" y=\""+(((int)(server.getY()*100))/100.0)
-                +"\">\n");
-                for (Service service : server.get_services())
-                    out.write("\t\t<service id=\""+service.id()+"\" "
-                        +"goodness=\""+server.get_goodness(service)+"\""
-                        +"/>\n");
-                for (Sensor neighbor : server.getNeighbors())
-                    if (neighbor.get_numServices() == 0)
-                        out.write("\t\t<client id=\""+neighbor.id()+"\"/>\n");
-                    else
-                        out.write("\t\t<server id=\""+neighbor.id()+"\"/>\n");
-                out.write("\t</server>\n");
-                
-            }
-            
+            Topology _topology = get_topology();
+            for (Sensor client : clients)
+                writeXMLSensor(out, _topology, client, "client");
+            for (Sensor server : servers)
+                writeXMLSensor(out, _topology, server, "server");
             out.write("</wsn>\n");
             out.flush();
             out.close();
@@ -526,30 +1086,9 @@ public abstract class Network {
     }
 
     /**
-     * Average transmitted distance per sensor of this network
-     * @param searchCondition Condition to be accomplished by the querying sensors
-     * @param requiredService Service requested by the clients
-     * @return Average transmitted distance per sensor of this network
-     */
-    public long get_sensorsTransmittedDistance(ISearchCondition searchCondition, Service requiredService) {
-        long sensorsTransmittedDistance = 0;
-        long numSensors = 0;
-
-        for (Sensor sensor : sensors)
-            if (searchCondition.sensorAcomplishesCondition(sensor) &&
-                reachesQualifiedService(sensor,requiredService)) {
-                sensorsTransmittedDistance += sensor.get_transmittedDistance();
-                numSensors++;
-            }
-
-        if (numSensors != 0)
-            return sensorsTransmittedDistance/numSensors;
-
-        return 0;
-    }
-
-    /**
-     * This method checks if a given sensor can reach any client and any benevolent server offering a given service
+     * This method checks if a given sensor can reach any client and any benevolent server offering a given service.
+     * A sensor is reachable whenever any path of active sensors leads to it, even if its shortest
+     * path goes through an inactive sensor. No sensor is charged with the transmissions of this check
      * @param sensor Sensor to find out whether it can reach a benevolent server or not
      * @param requiredService Service requested by the clients
      * @return true if the given sensor can reach any client and any benevolent server offering the given service, false otherwise
@@ -562,19 +1101,31 @@ public abstract class Network {
                 reachableClient = (sensor.get_numServices() == 0);
                 reachableBenevolentServer = ((sensor.get_numServices() > 1) && (sensor.get_goodness(requiredService) > 0.5));
 
-                if (!reachableClient) {
-                    Collection<Vector<Sensor>> pathsToClients = sensor.findSensors(new IsClientSearchCondition());
-                    reachableClient = ((pathsToClients != null) && (pathsToClients.size() > 0));
-                }
-                if (!reachableBenevolentServer) {
-                    Collection<Vector<Sensor>> pathsToServers = sensor.findSensors(new IsServerSearchCondition(requiredService,IsServerSearchCondition.BENEVOLENT_SERVER));
-                    reachableBenevolentServer = ((pathsToServers != null) && (pathsToServers.size() > 0));
-                }
+                if (!reachableClient)
+                    reachableClient = get_reachabilityIndex().reachesClient(sensor);
+                if (!reachableBenevolentServer)
+                    reachableBenevolentServer = get_reachabilityIndex().reachesBenevolentServer(sensor, requiredService);
             } catch (Exception ex) { ex.printStackTrace(); }
 
         return (reachableClient && reachableBenevolentServer);
     }
 
+    /**
+     * This method checks if a given sensor can reach any sensor satisfying a given condition.
+     * Unlike {@link Sensor#findSensors(ISearchCondition)}, it does not charge any sensor with
+     * the transmissions such a search would need, since it is not performed by the sensor itself
+     * but just observed by the simulator
+     * @param sensor Sensor to find out whether it can reach a sensor satisfying the given condition
+     * @param searchCondition Condition to be accomplished by the reached sensor
+     * @return true if the given sensor can reach any sensor satisfying the given condition, false otherwise
+     */
+    protected boolean reaches(Sensor sensor, ISearchCondition searchCondition) {
+        ShortestPathEngine shortestPathTree = get_shortestPathTree(sensor);
+        if (shortestPathTree == null)
+            shortestPathTree = new ShortestPathEngine(Topology.fromLinks(sensor), 0);
+        return shortestPathTree.reaches(searchCondition);
+    }
+
     /**
      * This method returns the sensor with identifier id. If such sensor does not exist, it returns null
      * @param id Identifier of the sensor to be retrieved
@@ -583,13 +1134,48 @@ public abstract class Network {
     public Sensor getSensor(int id) {
         if ((sensors == null) || (sensors.isEmpty()))
             return null;
-        
-        for (Sensor sensor : sensors) 
-            if (sensor.id() == id)
-                return sensor;
-        
+
+        // The collection of sensors may have been modified from outside this network
+        Sensor[] _sensorsById = sensorsById;
+        if ((_sensorsById == null) || (numSensorsById != sensors.size()))
+            _sensorsById = indexSensorsById();
+
+        if ((id > 0) && (id < _sensorsById.length))
+            return _sensorsById[id];
         return null;
     }
+
+    /**
+     * This method returns the first sensor, in the order of the collection of sensors,
+     * placed within a given distance of a point along both axes
+     * @param x X coordinate of the point
+     * @param y Y coordinate of the point
+     * @param error Maximum distance along each axis between the point and the sensor
+     * @return The first sensor placed around the given point. If there is no such sensor, it returns null
+     */
+    public Sensor getSensorAtCoordinate(double x, double y, double error) {
+        if ((sensors == null) || (sensors.isEmpty()))
+            return null;
+
+        return get_spatialIndex().findFirstSensorInRectangle(x-error, y-error, x+error, y+error);
+    }
+
+    /**
+     * This method returns every sensor placed within a given rectangle, borders included
+     * @param x1 X coordinate of one corner of the rectangle
+     * @param y1 Y coordinate of one corner of the rectangle
+     * @param x2 X coordinate of the opposite corner of the rectangle
+     * @param y2 Y coordinate of the opposite corner of the rectangle
+     * @return Every sensor placed within the given rectangle, sorted as in the collection of sensors
+     */
+    public Collection<Sensor> getSensorsInArea(double x1, double y1, double x2, double y2) {
+        ArrayList<Sensor> sensorsInArea = new ArrayList<Sensor>();
+        if ((sensors == null) || (sensors.isEmpty()))
+            return sensorsInArea;
+
+        get_spatialIndex().findSensorsInRectangle(x1, y1, x2, y2, sensorsInArea);
+        return sensorsInArea;
+    }
     
     /**
      * This method retrieves the set of clients belonging to this network
@@ -643,7 +1229,7 @@ public abstract class Network {
      * This method establishes if a collusion is to be formed or not in this network
      * @param collusion Indicates if a collusion is to be formed or not in this network
      */
-    public void set_collusion(boolean collusion) { Sensor.setCollusion(collusion); }
+    public void set_collusion(boolean collusion) { context.set_collusion(collusion); }
 
     /**
      * This method establishes if the topology of this network is dynamic, because
@@ -651,5 +1237,11 @@ public abstract class Network {
      * @param dynamic Indicates if the topology of this network is dynamic, because
      * sensors can sleep or not
      */
-    public void set_dynamic(boolean dynamic) { Sensor.setDynamic(dynamic); }
+    public void set_dynamic(boolean dynamic) { context.set_dynamic(dynamic); }
+
+    /**
+     * Returns the context of the simulation this network was created in
+     * @return The context of the simulation this network was created in
+     */
+    public SimulationContext get_context() { return context; }
 }
\ No newline at end of file
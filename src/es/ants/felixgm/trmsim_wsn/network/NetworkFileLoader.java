@@ -0,0 +1,147 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package es.ants.felixgm.trmsim_wsn.network;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * <p>This class is the base of the loaders filling a network from a file. Sensors
+ * are created as soon as they are found, while their links are kept as pairs of
+ * identifiers. Once the file has been read, every link is resolved through the
+ * dense index of the sensors by identifier, and the links of each sensor are set
+ * at once, so a network is linked in time linear in its number of links</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+abstract class NetworkFileLoader {
+    /** Network being loaded */
+    protected final Network network;
+    /** Services added to the network so far, indexed by their identifier */
+    private final HashMap<String,Service> services = new HashMap<String,Service>();
+    /** Identifiers of the sensors every link comes from and points to, as consecutive pairs */
+    private int[] links = new int[1024];
+    /** Number of identifiers stored in links */
+    private int numLinkIds = 0;
+
+    /**
+     * Creates a new loader filling the given network, whose collections of
+     * clients, servers, sensors and services have to be already created and empty
+     * @param network Network to load
+     */
+    protected NetworkFileLoader(Network network) {
+        this.network = network;
+    }
+
+    /**
+     * Adds a service to the services of the network, unless another one with
+     * the same identifier was already added. Services are compared by their
+     * identifier, since {@link Service} does not redefine <code>equals(Object)</code>
+     * @param service Service found in the file
+     */
+    protected void addService(Service service) {
+        if (!services.containsKey(service.id())) {
+            services.put(service.id(), service);
+            network.services.add(service);
+        }
+    }
+
+    /**
+     * Records a link to be resolved once every sensor has been created
+     * @param id Identifier of the sensor the link comes from
+     * @param linkedId Identifier of the sensor the link points to
+     */
+    protected void addLink(int id, int linkedId) {
+        if (numLinkIds + 2 > links.length)
+            links = Arrays.copyOf(links, links.length*2);
+        links[numLinkIds++] = id;
+        links[numLinkIds++] = linkedId;
+    }
+
+    /**
+     * Resolves every recorded link through the dense index of the sensors by
+     * identifier. Links are grouped by the sensor they come from keeping the order
+     * they were found in, and repeated links are dropped, as
+     * {@link Sensor#addLink(Sensor)} does. If several sensors share the same
+     * identifier, links are set to the first one, which is the one
+     * {@link Network#getSensor(int)} returns
+     * @throws Exception If a sensor links to an undefined sensor
+     */
+    protected void resolveLinks() throws Exception {
+        Sensor[] sensorsById = network.indexSensorsById();
+
+        // Counting sort of the links by the identifier they come from
+        int[] firstLink = new int[sensorsById.length+1];
+        for (int l = 0; l < numLinkIds; l += 2) {
+            if (links[l] <= 0)
+                throw new Exception("Sensor "+links[l]+" has an invalid identifier");
+            int linkedId = links[l+1];
+            if ((linkedId <= 0) || (linkedId >= sensorsById.length) || (sensorsById[linkedId] == null))
+                throw new Exception("Sensor "+links[l]+" has a link to undefined sensor "+linkedId);
+            firstLink[links[l]+1]++;
+        }
+        for (int i = 1; i < firstLink.length; i++)
+            firstLink[i] += firstLink[i-1];
+        int[] linkedIds = new int[numLinkIds/2];
+        int[] next = Arrays.copyOf(firstLink, sensorsById.length);
+        for (int l = 0; l < numLinkIds; l += 2)
+            linkedIds[next[links[l]]++] = links[l+1];
+        links = null;
+
+        // Last sensor (by identifier) each sensor was linked from, to drop repeated links
+        int[] linkedFrom = new int[sensorsById.length];
+        ArrayList<Sensor> neighbors = new ArrayList<Sensor>();
+        for (int id = 1; id < sensorsById.length; id++) {
+            if ((sensorsById[id] == null) || (firstLink[id] == firstLink[id+1]))
+                continue;
+            neighbors.clear();
+            for (int l = firstLink[id]; l < firstLink[id+1]; l++)
+                if (linkedFrom[linkedIds[l]] != id) {
+                    linkedFrom[linkedIds[l]] = id;
+                    neighbors.add(sensorsById[linkedIds[l]]);
+                }
+            sensorsById[id].setNeighbors(neighbors);
+        }
+    }
+}
@@ -0,0 +1,375 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package es.ants.felixgm.trmsim_wsn.network;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * <p>This class reads and writes binary snapshots of a network. A snapshot keeps
+ * exactly every position, link, service, goodness and role of the network, along
+ * with the link specific state of the model (like pheromone traces), so loading it
+ * gives back the very same network that was saved</p>
+ * <p>A snapshot is written sequentially, as a big-endian sequence of sections:</p>
+ * <ol>
+ *  <li>Header: magic number, version, number of sensors, edges, services, clients,
+ *      servers and offered services, and number of edge state arrays</li>
+ *  <li>Identifier, x and y coordinates of every sensor, sorted by index</li>
+ *  <li>Adjacency of the sensors, in compressed sparse row format
+ *      (see {@link Topology})</li>
+ *  <li>Identifiers of the services, as UTF-8 strings preceded by their length</li>
+ *  <li>Services offered by every sensor along with their goodness, in compressed
+ *      sparse row format</li>
+ *  <li>Indexes of the clients and of the servers, in the order of their collections</li>
+ *  <li>Role flags of every sensor, given by {@link Network#get_snapshotFlags(Sensor)}</li>
+ *  <li>Edge state arrays, given by {@link Network#get_snapshotEdgeState()}</li>
+ * </ol>
+ * <p>Snapshots are loaded by mapping the whole file into memory, so even large
+ * networks are read without any parsing</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public final class NetworkSnapshot {
+    /** Extension of the snapshot files */
+    public static final String FILE_EXTENSION = ".wsnb";
+    /** Magic number every snapshot starts with ("WSNB") */
+    private static final int MAGIC = 0x57534E42;
+    /** Version of the snapshot format written by this class */
+    public static final int VERSION = 1;
+
+    /** Role flags of every sensor read from the snapshot, sorted by index */
+    private final int[] flags;
+    /** Edge state arrays read from the snapshot */
+    private final double[][] edgeState;
+
+    /**
+     * Class NetworkSnapshot constructor
+     * @param flags Role flags of every sensor, sorted by index
+     * @param edgeState Edge state arrays
+     */
+    private NetworkSnapshot(int[] flags, double[][] edgeState) {
+        this.flags = flags;
+        this.edgeState = edgeState;
+    }
+
+    /**
+     * Checks whether a given path names a snapshot file
+     * @param filePath Path to check
+     * @return true if the path ends with {@link #FILE_EXTENSION}, false otherwise
+     */
+    public static boolean isSnapshotFile(String filePath) {
+        return filePath.endsWith(FILE_EXTENSION);
+    }
+
+    /**
+     * This method writes a snapshot of a given network
+     * @param network Network to write
+     * @param fileName Path of the snapshot file. The extension {@link #FILE_EXTENSION}
+     * is appended if it does not have it
+     * @throws Exception If there is any problem when writing the file
+     */
+    public static void write(Network network, String fileName) throws Exception {
+        if (!isSnapshotFile(fileName))
+            fileName += FILE_EXTENSION;
+
+        Topology topology = network.get_topology();
+        int numSensors = topology.get_numSensors();
+
+        // Services of the network, followed by any other service offered by its sensors
+        ArrayList<Service> services = new ArrayList<Service>();
+        HashMap<String,Integer> serviceIndexes = new HashMap<String,Integer>();
+        for (Service service : network.services)
+            addService(service, services, serviceIndexes);
+        int numOffers = 0;
+        for (int i = 0; i < numSensors; i++)
+            for (Service service : topology.get_sensor(i).get_services()) {
+                addService(service, services, serviceIndexes);
+                numOffers++;
+            }
+
+        double[][] edgeState = network.get_snapshotEdgeState();
+        if (edgeState == null)
+            edgeState = new double[0][];
+        for (double[] state : edgeState)
+            if (state.length != topology.get_numEdges())
+                throw new Exception("Edge state of "+state.length+" values found for "+topology.get_numEdges()+" edges");
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(numSensors);
+            out.writeInt(topology.get_numEdges());
+            out.writeInt(services.size());
+            out.writeInt(network.clients.size());
+            out.writeInt(network.servers.size());
+            out.writeInt(numOffers);
+            out.writeInt(edgeState.length);
+
+            for (int i = 0; i < numSensors; i++)
+                out.writeInt(topology.get_sensor(i).id());
+            for (int i = 0; i < numSensors; i++)
+                out.writeDouble(topology.get_sensor(i).getX());
+            for (int i = 0; i < numSensors; i++)
+                out.writeDouble(topology.get_sensor(i).getY());
+
+            for (int i = 0; i <= numSensors; i++)
+                out.writeInt((i < numSensors) ? topology.get_firstEdge(i) : topology.get_numEdges());
+            for (int e = 0; e < topology.get_numEdges(); e++)
+                out.writeInt(topology.get_target(e));
+
+            for (Service service : services) {
+                byte[] id = service.id().getBytes("UTF-8");
+                out.writeInt(id.length);
+                out.write(id);
+            }
+
+            int offer = 0;
+            for (int i = 0; i < numSensors; i++) {
+                out.writeInt(offer);
+                offer += topology.get_sensor(i).get_numServices();
+            }
+            out.writeInt(offer);
+            for (int i = 0; i < numSensors; i++)
+                for (Service service : topology.get_sensor(i).get_services())
+                    out.writeInt(serviceIndexes.get(service.id()).intValue());
+            for (int i = 0; i < numSensors; i++) {
+                Sensor sensor = topology.get_sensor(i);
+                for (Service service : sensor.get_services())
+                    out.writeDouble(sensor.get_goodness(service));
+            }
+
+            for (Sensor client : network.clients)
+                out.writeInt(indexOf(topology, client));
+            for (Sensor server : network.servers)
+                out.writeInt(indexOf(topology, server));
+
+            for (int i = 0; i < numSensors; i++)
+                out.writeInt(network.get_snapshotFlags(topology.get_sensor(i)));
+
+            for (double[] state : edgeState)
+                for (int e = 0; e < state.length; e++)
+                    out.writeDouble(state[e]);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Retrieves the index of a client or server of a network in its topology
+     * @param topology Topology of the network
+     * @param sensor Client or server of the network
+     * @return The index of the given sensor
+     * @throws Exception If the sensor is not one of the sensors of the network
+     */
+    private static int indexOf(Topology topology, Sensor sensor) throws Exception {
+        int index = topology.indexOf(sensor);
+        if (index < 0)
+            throw new Exception("Sensor "+sensor.id()+" does not belong to the network");
+        return index;
+    }
+
+    /**
+     * Adds a service to the table of services of a snapshot, unless another one
+     * with the same identifier was already added
+     * @param service Service to add
+     * @param services Services of the snapshot
+     * @param serviceIndexes Index of every service of the snapshot, by identifier
+     */
+    private static void addService(Service service, ArrayList<Service> services, HashMap<String,Integer> serviceIndexes) {
+        if (!serviceIndexes.containsKey(service.id())) {
+            serviceIndexes.put(service.id(), Integer.valueOf(services.size()));
+            services.add(service);
+        }
+    }
+
+    /**
+     * This method reads a snapshot and fills the given network with the sensors,
+     * services and links it describes. Sensors are created through
+     * {@link Network#newSensor(int, double, double)}, so the specific subclass of
+     * every model is obtained. Role flags and edge state can only be restored once
+     * the specific network has been built and reset, so they are returned to be
+     * restored later by means of {@link #restoreState(Network)}
+     * @param network Network to load, whose collections have to be already created and empty
+     * @param fileName Path of the snapshot file
+     * @return The role flags and edge state of the snapshot
+     * @throws Exception If the file is not a snapshot, or its version is not supported
+     */
+    static NetworkSnapshot read(Network network, String fileName) throws Exception {
+        RandomAccessFile file = new RandomAccessFile(new File(fileName), "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new Exception("Snapshot "+fileName+" is too large");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(network, buffer);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Reads a snapshot from a buffer, as described in {@link #read(Network, String)}
+     * @param network Network to load
+     * @param buffer Buffer holding the whole snapshot
+     * @return The role flags and edge state of the snapshot
+     * @throws Exception If the buffer does not hold a snapshot, or its version is not supported
+     */
+    private static NetworkSnapshot read(Network network, ByteBuffer buffer) throws Exception {
+        if ((buffer.remaining() < 8) || (buffer.getInt() != MAGIC))
+            throw new Exception("Not a network snapshot");
+        int version = buffer.getInt();
+        if ((version < 1) || (version > VERSION))
+            throw new Exception("Unsupported network snapshot version "+version);
+
+        int numSensors = buffer.getInt();
+        int numEdges = buffer.getInt();
+        int numServices = buffer.getInt();
+        int numClients = buffer.getInt();
+        int numServers = buffer.getInt();
+        int numOffers = buffer.getInt();
+        int numEdgeStates = buffer.getInt();
+
+        int[] ids = getInts(buffer, numSensors);
+        double[] xPositions = getDoubles(buffer, numSensors);
+        double[] yPositions = getDoubles(buffer, numSensors);
+        Sensor[] _sensors = new Sensor[numSensors];
+        int maxId = 0;
+        for (int i = 0; i < numSensors; i++) {
+            _sensors[i] = network.newSensor(ids[i], xPositions[i], yPositions[i]);
+            network.sensors.add(_sensors[i]);
+            maxId = Math.max(maxId, ids[i]);
+        }
+        network.context.set_idCount(maxId+1);
+
+        int[] offsets = getInts(buffer, numSensors+1);
+        int[] targets = getInts(buffer, numEdges);
+        ArrayList<Sensor> neighbors = new ArrayList<Sensor>();
+        for (int i = 0; i < numSensors; i++) {
+            neighbors.clear();
+            for (int e = offsets[i]; e < offsets[i+1]; e++)
+                neighbors.add(_sensors[targets[e]]);
+            _sensors[i].setNeighbors(neighbors);
+        }
+
+        Service[] services = new Service[numServices];
+        for (int s = 0; s < numServices; s++) {
+            byte[] id = new byte[buffer.getInt()];
+            buffer.get(id);
+            services[s] = new Service(new String(id, "UTF-8"));
+            network.services.add(services[s]);
+        }
+
+        int[] offerOffsets = getInts(buffer, numSensors+1);
+        int[] offeredServices = getInts(buffer, numOffers);
+        double[] goodness = getDoubles(buffer, numOffers);
+        for (int i = 0; i < numSensors; i++)
+            for (int o = offerOffsets[i]; o < offerOffsets[i+1]; o++)
+                _sensors[i].addService(services[offeredServices[o]], goodness[o]);
+
+        for (int client : getInts(buffer, numClients))
+            network.clients.add(_sensors[client]);
+        for (int server : getInts(buffer, numServers))
+            network.servers.add(_sensors[server]);
+
+        int[] flags = getInts(buffer, numSensors);
+        double[][] edgeState = new double[numEdgeStates][];
+        for (int s = 0; s < numEdgeStates; s++)
+            edgeState[s] = getDoubles(buffer, numEdges);
+        return new NetworkSnapshot(flags, edgeState);
+    }
+
+    /**
+     * Reads consecutive integers from a buffer
+     * @param buffer Buffer to read from
+     * @param length Number of integers to read
+     * @return The integers read
+     */
+    private static int[] getInts(ByteBuffer buffer, int length) {
+        int[] values = new int[length];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4*length);
+        return values;
+    }
+
+    /**
+     * Reads consecutive doubles from a buffer
+     * @param buffer Buffer to read from
+     * @param length Number of doubles to read
+     * @return The doubles read
+     */
+    private static double[] getDoubles(ByteBuffer buffer, int length) {
+        double[] values = new double[length];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + 8*length);
+        return values;
+    }
+
+    /**
+     * Restores the role flags and edge state of this snapshot into the network it
+     * was read into, once the specific network has been built and reset
+     * @param network Network this snapshot was read into
+     * @throws Exception If the network does not have as many sensors or edges as this snapshot
+     */
+    void restoreState(Network network) throws Exception {
+        Topology topology = network.get_topology();
+        if (topology.get_numSensors() != flags.length)
+            throw new Exception("Snapshot of "+flags.length+" sensors restored into a network of "+topology.get_numSensors());
+        for (int i = 0; i < flags.length; i++)
+            network.set_snapshotFlags(topology.get_sensor(i), flags[i]);
+
+        for (double[] state : edgeState)
+            if (state.length != topology.get_numEdges())
+                throw new Exception("Snapshot of "+state.length+" edges restored into a network of "+topology.get_numEdges());
+        if (edgeState.length > 0)
+            network.set_snapshotEdgeState(edgeState);
+    }
+}
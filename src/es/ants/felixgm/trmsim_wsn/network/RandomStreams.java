@@ -0,0 +1,146 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+
+package es.ants.felixgm.trmsim_wsn.network;
+
+/**
+ * <p>This class provides the random numbers used along a simulation, replacing
+ * Math.random(), which shares one single synchronized generator among every thread
+ * and can not be seeded</p>
+ * <p>Every run of a simulation has a seed. Every sensor gets its own stream of
+ * random numbers derived from that seed and its identifier, which is bound to the
+ * thread running the sensor while it requests a service, so client threads never
+ * contend for a generator. Any other thread (like the one creating the networks)
+ * shares a common stream, derived from the seed as well. Therefore, a run may be
+ * replayed from its seed, as long as its clients are run sequentially</p>
+ * <p>The seed, the number of the run and the shared stream belong to the
+ * {@link SimulationContext} of the current thread, so simulations running at the
+ * same time in different contexts do not disturb each other</p>
+ * @see SplitMixRandom
+ * @see SimulationContext
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public class RandomStreams {
+    /** Stream bound to every thread, if any */
+    private static final ThreadLocal<SplitMixRandom> boundStream = new ThreadLocal<SplitMixRandom>();
+
+    /**
+     * This class is not instantiable
+     */
+    private RandomStreams() { }
+
+    /**
+     * This method fixes the seed of the next runs, so they can be replayed
+     * @param seed Seed of the next runs, or null so that every run gets a new random seed
+     */
+    public static void set_seed(Long seed) { SimulationContext.current().set_fixedSeed(seed); }
+
+    /**
+     * This method starts a new run, reseeding every stream with the fixed seed, if any,
+     * or with a new random one otherwise
+     * @return The seed of the new run
+     */
+    public static long startRun() { return SimulationContext.current().startRun(); }
+
+    /**
+     * Returns the seed of the current run
+     * @return The seed of the current run
+     */
+    public static long get_runSeed() { return SimulationContext.current().get_runSeed(); }
+
+    /**
+     * Returns the number of the current run
+     * @return The number of the current run
+     */
+    public static long get_runNumber() { return SimulationContext.current().get_runNumber(); }
+
+    /**
+     * This method returns a new stream of random numbers of the current run
+     * @param stream Number of the stream, like the identifier of a sensor
+     * @return A new stream of random numbers, which is always the same for a given run seed and stream number
+     */
+    public static SplitMixRandom newStream(long stream) {
+        return SimulationContext.current().newStream(stream);
+    }
+
+    /**
+     * This method binds a stream of random numbers to the current thread, so that
+     * every random number requested by it is taken from that stream
+     * @param stream Stream to be bound to the current thread, or null to unbind it
+     * @return The stream previously bound to the current thread, or null if there was none
+     */
+    public static SplitMixRandom bind(SplitMixRandom stream) {
+        SplitMixRandom previousStream = boundStream.get();
+        if (stream == null)
+            boundStream.remove();
+        else
+            boundStream.set(stream);
+        return previousStream;
+    }
+
+    /**
+     * Returns a pseudorandom double value uniformly distributed in [0.0, 1.0), like
+     * Math.random(), taken from the stream bound to the current thread or, if there
+     * is none, from the shared one
+     * @return A pseudorandom double value uniformly distributed in [0.0, 1.0)
+     */
+    public static double nextDouble() {
+        SplitMixRandom stream = boundStream.get();
+        if (stream != null)
+            return stream.nextDouble();
+        return SimulationContext.current().nextSharedDouble();
+    }
+
+    /**
+     * Returns a pseudorandom long value, taken from the stream bound to the current
+     * thread or, if there is none, from the shared one
+     * @return A pseudorandom long value
+     */
+    public static long nextLong() {
+        SplitMixRandom stream = boundStream.get();
+        if (stream != null)
+            return stream.nextLong();
+        return SimulationContext.current().nextSharedLong();
+    }
+}
@@ -0,0 +1,344 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package es.ants.felixgm.trmsim_wsn.network;
+
+import es.ants.felixgm.trmsim_wsn.search.ISearchCondition;
+import es.ants.felixgm.trmsim_wsn.search.IsClientSearchCondition;
+import es.ants.felixgm.trmsim_wsn.search.IsServerSearchCondition;
+import java.util.HashMap;
+
+/**
+ * <p>This class answers whether a sensor of a network can reach a client, or a benevolent
+ * server offering a given service, through active sensors only. Active sensors are grouped
+ * into connected components by means of a union-find structure, and the number of clients
+ * and benevolent servers of every component is kept, so that each question is answered in
+ * (almost) constant time</p>
+ * <p>A sensor waking up is just merged with the components of its active neighbors, and a
+ * change in the roles of any sensor just makes the number of clients and benevolent servers
+ * be counted again. Components are only labelled again from scratch when the links of any
+ * sensor change, or when any sensor goes to sleep. Since components need links to work in
+ * both directions, networks having any one-way link are searched through their shortest
+ * paths instead</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public class ReachabilityIndex {
+    /** Network whose sensors reachability is kept */
+    private final Network network;
+    /** Topology the components were labelled over */
+    private Topology topology;
+    /** It determines if the components are up to date, as long as the versions of the network do not change */
+    private boolean labelled;
+    /** It determines if every link of the topology works in both directions */
+    private boolean symmetric;
+    /** Parent of every sensor in the union-find structure, indexed by sensor index */
+    private int[] parent;
+    /** Number of sensors of the component every root sensor represents */
+    private int[] size;
+    /** Whether every sensor is a client, or null if they have to be determined again */
+    private boolean[] client;
+    /** Number of active clients of the component every root sensor represents */
+    private int[] numClients;
+    /** Whether every sensor is a benevolent server, and number of them per component, for every service */
+    private HashMap<String,ServerCounts> benevolentServers;
+    /** Links version of the network when the components were labelled */
+    private long linksVersion;
+    /** Activity epoch of the network the components correspond to */
+    private long activityEpoch;
+    /** Roles version of the network the counts of clients and servers correspond to */
+    private long rolesVersion;
+
+    /**
+     * Class ReachabilityIndex constructor
+     * @param network Network whose sensors reachability is kept
+     */
+    ReachabilityIndex(Network network) {
+        this.network = network;
+        topology = null;
+        labelled = false;
+        benevolentServers = new HashMap<String,ServerCounts>();
+    }
+
+    /**
+     * This method checks if a given sensor can reach any other active client through active sensors
+     * @param sensor Sensor to find out whether it can reach a client or not
+     * @return true if the given sensor can reach any other active client, false otherwise
+     */
+    public synchronized boolean reachesClient(Sensor sensor) {
+        if (!update())
+            return network.reaches(sensor, new IsClientSearchCondition());
+        int s = indexOf(sensor);
+        if (s < 0)
+            return network.reaches(sensor, new IsClientSearchCondition());
+        if (!sensor.isActive())
+            return false;
+
+        if (client == null)
+            countClients();
+        return (numClients[find(s)] - (client[s] ? 1 : 0) > 0);
+    }
+
+    /**
+     * This method checks if a given sensor can reach any other active benevolent server
+     * offering a given service through active sensors
+     * @param sensor Sensor to find out whether it can reach a benevolent server or not
+     * @param service Service to be offered by the benevolent server
+     * @return true if the given sensor can reach any other active benevolent server offering
+     * the given service, false otherwise
+     */
+    public synchronized boolean reachesBenevolentServer(Sensor sensor, Service service) {
+        ISearchCondition benevolentServerCondition = new IsServerSearchCondition(service,IsServerSearchCondition.BENEVOLENT_SERVER);
+        if (!update())
+            return network.reaches(sensor, benevolentServerCondition);
+        int s = indexOf(sensor);
+        if (s < 0)
+            return network.reaches(sensor, benevolentServerCondition);
+        if (!sensor.isActive())
+            return false;
+
+        String serviceId = service.id().toLowerCase();
+        ServerCounts counts = benevolentServers.get(serviceId);
+        if (counts == null) {
+            counts = countServers(benevolentServerCondition);
+            benevolentServers.put(serviceId, counts);
+        }
+        return (counts.numServers[find(s)] - (counts.server[s] ? 1 : 0) > 0);
+    }
+
+    /**
+     * This method is called every time the active state of a sensor of the network changes.
+     * If the components are up to date, a sensor waking up is merged with them, while a
+     * sensor going to sleep makes them be labelled again the next time they are needed
+     * @param sensor Sensor whose active state has changed
+     * @param activityEpoch Activity epoch of the network right after the change
+     */
+    synchronized void activityChanged(Sensor sensor, long activityEpoch) {
+        int s = indexOf(sensor);
+        if (!labelled || (this.activityEpoch != activityEpoch-1) || (s < 0) || !sensor.isActive()) {
+            labelled = false;
+            return;
+        }
+
+        this.activityEpoch = activityEpoch;
+        // The sensor may have been already merged if it woke up while the components were labelled
+        if (!symmetric || (parent[s] != s) || (size[s] != 1))
+            return;
+        // The sensor was the only member of its component while asleep
+        if (client != null)
+            numClients[s] = client[s] ? 1 : 0;
+        for (ServerCounts counts : benevolentServers.values())
+            counts.numServers[s] = counts.server[s] ? 1 : 0;
+        for (int e = topology.get_firstEdge(s); e < topology.get_endEdge(s); e++)
+            if (topology.get_targetSensor(e).isActive())
+                union(s, topology.get_target(e));
+    }
+
+    /**
+     * This method labels the components again if the links or the active state of any
+     * sensor have changed, and discards the counts of clients and servers if the roles of
+     * any sensor have changed
+     * @return true if the components can be used, false if any link works in one direction only
+     */
+    private boolean update() {
+        long _linksVersion = network.get_linksVersion();
+        long _activityEpoch = network.get_activityEpoch();
+        long _rolesVersion = network.get_rolesVersion();
+        if (!labelled || (linksVersion != _linksVersion) || (activityEpoch != _activityEpoch)) {
+            Topology _topology = network.get_topology();
+            if (topology != _topology)
+                symmetric = isSymmetric(_topology);
+            topology = _topology;
+            labelled = true;
+            linksVersion = _linksVersion;
+            activityEpoch = _activityEpoch;
+            rolesVersion = _rolesVersion;
+            client = null;
+            benevolentServers.clear();
+            if (symmetric)
+                labelComponents();
+        } else if (rolesVersion != _rolesVersion) {
+            rolesVersion = _rolesVersion;
+            client = null;
+            benevolentServers.clear();
+        }
+        return symmetric;
+    }
+
+    /**
+     * This method checks if every link of a given topology works in both directions
+     * @param _topology Topology to be checked
+     * @return true if every link of the given topology works in both directions, false otherwise
+     */
+    private static boolean isSymmetric(Topology _topology) {
+        for (int s = 0; s < _topology.get_numSensors(); s++)
+            for (int e = _topology.get_firstEdge(s); e < _topology.get_endEdge(s); e++) {
+                int t = _topology.get_target(e);
+                boolean found = false;
+                for (int f = _topology.get_firstEdge(t); (f < _topology.get_endEdge(t)) && !found; f++)
+                    found = (_topology.get_target(f) == s);
+                if (!found)
+                    return false;
+            }
+        return true;
+    }
+
+    /**
+     * This method groups the active sensors into connected components from scratch
+     */
+    private void labelComponents() {
+        int numSensors = topology.get_numSensors();
+        parent = new int[numSensors];
+        size = new int[numSensors];
+        for (int s = 0; s < numSensors; s++) {
+            parent[s] = s;
+            size[s] = 1;
+        }
+        for (int s = 0; s < numSensors; s++)
+            if (topology.get_sensor(s).isActive())
+                for (int e = topology.get_firstEdge(s); e < topology.get_endEdge(s); e++) {
+                    int t = topology.get_target(e);
+                    if ((t > s) && topology.get_sensor(t).isActive())
+                        union(s, t);
+                }
+    }
+
+    /**
+     * This method determines which sensors are clients, and counts the active ones of every component
+     */
+    private void countClients() {
+        int numSensors = topology.get_numSensors();
+        ISearchCondition clientCondition = new IsClientSearchCondition();
+        client = new boolean[numSensors];
+        numClients = new int[numSensors];
+        for (int s = 0; s < numSensors; s++) {
+            Sensor sensor = topology.get_sensor(s);
+            client[s] = clientCondition.sensorAcomplishesCondition(sensor);
+            if (client[s] && sensor.isActive())
+                numClients[find(s)]++;
+        }
+    }
+
+    /**
+     * This method determines which sensors satisfy a given server condition, and counts the active ones of every component
+     * @param serverCondition Condition to be satisfied by the servers
+     * @return Which sensors satisfy the given condition, and the number of active ones of every component
+     */
+    private ServerCounts countServers(ISearchCondition serverCondition) {
+        int numSensors = topology.get_numSensors();
+        ServerCounts counts = new ServerCounts(numSensors);
+        for (int s = 0; s < numSensors; s++) {
+            Sensor sensor = topology.get_sensor(s);
+            counts.server[s] = serverCondition.sensorAcomplishesCondition(sensor);
+            if (counts.server[s] && sensor.isActive())
+                counts.numServers[find(s)]++;
+        }
+        return counts;
+    }
+
+    /**
+     * This method returns the index of a given sensor in the topology the components were labelled over
+     * @param sensor Sensor whose index is returned
+     * @return The index of the given sensor, or -1 if it does not belong to that topology
+     */
+    private int indexOf(Sensor sensor) {
+        if (topology == null)
+            return -1;
+        return topology.indexOf(sensor);
+    }
+
+    /**
+     * This method returns the root of the component a given sensor belongs to, halving the path to it
+     * @param s Index of the sensor
+     * @return Index of the root of the component the given sensor belongs to
+     */
+    private int find(int s) {
+        while (parent[s] != s) {
+            parent[s] = parent[parent[s]];
+            s = parent[s];
+        }
+        return s;
+    }
+
+    /**
+     * This method merges the components two given sensors belong to, along with their counts of clients and servers
+     * @param s Index of a sensor
+     * @param t Index of another sensor
+     */
+    private void union(int s, int t) {
+        int rootS = find(s);
+        int rootT = find(t);
+        if (rootS == rootT)
+            return;
+        if (size[rootS] < size[rootT]) {
+            int root = rootS;
+            rootS = rootT;
+            rootT = root;
+        }
+        parent[rootT] = rootS;
+        size[rootS] += size[rootT];
+        if (client != null)
+            numClients[rootS] += numClients[rootT];
+        for (ServerCounts counts : benevolentServers.values())
+            counts.numServers[rootS] += counts.numServers[rootT];
+    }
+
+    /**
+     * <p>This class keeps which sensors satisfy a server condition, and the number of active
+     * ones within every component</p>
+     */
+    private static class ServerCounts {
+        /** Whether every sensor satisfies the condition, indexed by sensor index */
+        private final boolean[] server;
+        /** Number of active sensors satisfying the condition of the component every root sensor represents */
+        private final int[] numServers;
+
+        /**
+         * Class ServerCounts constructor
+         * @param numSensors Number of sensors of the topology
+         */
+        private ServerCounts(int numSensors) {
+            server = new boolean[numSensors];
+            numServers = new int[numSensors];
+        }
+    }
+}
@@ -51,11 +51,7 @@ import es.ants.felixgm.trmsim_wsn.search.IsSensorSearchCondition;
 import java.util.Collection;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Hashtable;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.Vector;
 
 /**
@@ -69,18 +65,14 @@ import java.util.Vector;
  * @since 0.1
  */
 public abstract class Sensor implements Runnable {
-    /** Indicates whether a collusion among malicious sensors is built */
-    protected static boolean collusion = false;
-    /** Indicates whether some sensors will switch off sometimes in order to save energy */
-    protected static boolean dynamic = false;
-    /** Indicates whether a simulation is currently running or not */
-    protected static boolean runningSimulation = false;
-    /** Sensors' identifier counter  */
-    protected static int idCount = 1;
+    /** Context of the simulation this sensor was created in */
+    protected final SimulationContext context;
     /** Sensor's identifier */
     protected int id;
-    /** Maximum distance between two nodes in the network */
-    protected static double _maxDistance = 0;
+    /** Index of this sensor in the {@link Topology} of its network (-1 if it does not belong to any network yet) */
+    protected int index = -1;
+    /** Network this sensor belongs to */
+    protected Network network;
     /** X coordinate of this sensor */
     protected double xPosition;
     /** Y coordinate of this sensor */
@@ -97,25 +89,30 @@ public abstract class Sensor implements Runnable {
     protected int numRequests;
     /** Number of service requests provided by this sensor after which it goes to sleep */
     protected static final int numRequestsThreshold = 20;
-    /** Used to determine the amount of time (in ms) a sensor stays asleep */
+    /** Used to determine the amount of (virtual) time (in ms) a sensor stays asleep */
     private static final long sleepingTimeoutMilis = 1000;
-    /** Current Trust and Reputation model used by every Sensor */
-    protected static TRModel_WSN trmmodelWSN;
     /** Last outcome of a performed transaction */
     protected Outcome outcome;
-    /** Total distance traveled by the messages sent from this sensor */
+    /** Total distance traveled by the messages sent from this sensor. It must be increased
+        through {@link #addTransmittedDistance(double)}, so that the energy ledger of the network is kept up to date */
     protected long transmittedDistance;
-    /** Three timers that are used to set the timing for sleep/active state */
-    protected Timer numRequestsTimer;
-    protected Timer sleepTimer;
-    protected Timer sleepTimerAux;    
+    /** Three scheduled events that are used to set the timing for sleep/active state */
+    protected EventScheduler.Event numRequestsTimer;
+    protected EventScheduler.Event sleepTimer;
+    protected EventScheduler.Event sleepTimerAux;
+    /** Stream of random numbers used by this sensor while requesting a service */
+    private SplitMixRandom random;
+    /** Run of the simulation the stream of random numbers of this sensor belongs to */
+    private long randomRunNumber;
     
     /**
      * Class Sensor constructor.
      * Creates a new Sensor and locates it randomly
      */
     public Sensor() {
-        this(idCount++,Math.random()*_maxDistance,Math.random()*_maxDistance);
+        this(SimulationContext.current().nextSensorId(),
+                RandomStreams.nextDouble()*SimulationContext.current().get_maxDistance(),
+                RandomStreams.nextDouble()*SimulationContext.current().get_maxDistance());
     }
 
     /**
@@ -125,6 +122,7 @@ public abstract class Sensor implements Runnable {
      * @param y Y coordinate of this sensor
      */
     public Sensor(int id, double x, double y) {
+        context = SimulationContext.current();
         this.id = id;
         links = new ArrayList<Link>();
         xPosition = x;
@@ -138,7 +136,7 @@ public abstract class Sensor implements Runnable {
         numRequestsTimer = null;
         sleepTimer = null;
         sleepTimerAux = null;
-        sleepIfInactive(sleepingTimeoutMilis/2+((int)(Math.random()*(sleepingTimeoutMilis/2))));
+        sleepIfInactive(sleepingTimeoutMilis/2+((int)(RandomStreams.nextDouble()*(sleepingTimeoutMilis/2))));
     }
 
     /**
@@ -148,18 +146,41 @@ public abstract class Sensor implements Runnable {
        satisfaction with the received service</p>
      */
     public void run() {
-        if (reachesQualifiedService(requiredService)) {
-            GatheredInformation gi = trmmodelWSN.gatherInformation(this, requiredService);
-            Vector<Sensor> path = trmmodelWSN.scoreAndRanking(this,gi);
-            outcome = trmmodelWSN.performTransaction(path,requiredService);
-            if (outcome != null) {
-                if (outcome.get_satisfaction().isSatisfied())
-                    outcome = trmmodelWSN.reward(path,outcome);
-                else
-                    outcome = trmmodelWSN.punish(path,outcome);
-            }
-        } else
-            outcome = null;
+        SimulationContext previousContext = SimulationContext.bind(context);
+        SplitMixRandom previousRandom = RandomStreams.bind(get_random());
+        try {
+            TRModel_WSN trmmodelWSN = context.get_TRModel_WSN();
+            if (reachesQualifiedService(requiredService)) {
+                GatheredInformation gi = trmmodelWSN.gatherInformation(this, requiredService);
+                Vector<Sensor> path = trmmodelWSN.scoreAndRanking(this,gi);
+                outcome = trmmodelWSN.performTransaction(path,requiredService);
+                if (outcome != null) {
+                    if (outcome.get_satisfaction().isSatisfied())
+                        outcome = trmmodelWSN.reward(path,outcome);
+                    else
+                        outcome = trmmodelWSN.punish(path,outcome);
+                }
+            } else
+                outcome = null;
+        } finally {
+            RandomStreams.bind(previousRandom);
+            SimulationContext.bind(previousContext);
+        }
+    }
+
+    /**
+     * This method returns the stream of random numbers used by this sensor while requesting
+     * a service, which is derived from the seed of the current run of its context and the id of this sensor
+     * @return The stream of random numbers used by this sensor while requesting a service
+     * @see RandomStreams
+     */
+    public SplitMixRandom get_random() {
+        long runNumber = context.get_runNumber();
+        if ((random == null) || (randomRunNumber != runNumber)) {
+            random = context.newStream(id);
+            randomRunNumber = runNumber;
+        }
+        return random;
     }
 
     /**
@@ -183,21 +204,14 @@ public abstract class Sensor implements Runnable {
         }
 
         for (int i = 0; i < path.size()-1; i++)
-            transmittedDistance += path.get(i).distance(path.get(i+1));
+            addTransmittedDistance(path.get(i).distance(path.get(i+1)));
 
         numRequests++;
         if (numRequests == numRequestsThreshold) { // Edited by Hamed Khiabani
             numRequests = 0;
-            if (dynamic && runningSimulation) {
-                activeState = false;
-                numRequestsTimer = new Timer();
-                numRequestsTimer.schedule(new TimerTask(){
-                    @Override
-                    public void run() {
-                        activeState = true;
-                        numRequestsTimer.cancel();
-                    }
-                },sleepingTimeoutMilis);
+            if (context.isDynamic() && context.isRunningSimulation()) {
+                setActiveState(false);
+                numRequestsTimer = wakeUpAfter(sleepingTimeoutMilis);
             }
         }
         
@@ -205,13 +219,22 @@ public abstract class Sensor implements Runnable {
     }
 
     /**
-     * Indicates if this sensor can reach another sensor offering a given service with posiitve goodness
+     * Indicates if this sensor can reach another sensor offering a given service with posiitve goodness.
+     * A server is reachable whenever any path of active sensors leads to it, even if its
+     * shortest path goes through an inactive sensor
      * @param service The requested service
      * @return true if this sensor can reach another sensor offering a given service with posiitve goodness; false otherwise
      */
     private boolean reachesQualifiedService(Service service) {
-        Collection<Vector<Sensor>> pathsToServers = findSensors(new IsServerSearchCondition(service,IsServerSearchCondition.BENEVOLENT_SERVER));
-        return ((pathsToServers != null) && (pathsToServers.size() > 0));
+        if (network == null) {
+            Collection<Vector<Sensor>> pathsToServers = findSensors(new IsServerSearchCondition(service,IsServerSearchCondition.BENEVOLENT_SERVER));
+            return ((pathsToServers != null) && (pathsToServers.size() > 0));
+        }
+
+        // The answer comes from the reachability index, but this sensor still searches for
+        // the server, so the search is charged along its shortest paths tree as findSensors does
+        get_shortestPathTree().chargeTransmissions();
+        return network.get_reachabilityIndex().reachesBenevolentServer(this, service);
     }
 
     /**
@@ -221,6 +244,7 @@ public abstract class Sensor implements Runnable {
      */
     public void addService(Service service, double goodness) {
         servicesGoodness.put(service,new Double(goodness));
+        rolesChanged();
     }
 
     /**
@@ -231,6 +255,7 @@ public abstract class Sensor implements Runnable {
         servicesGoodness.remove(service);
         if (requiredService.equals(service))
             requiredService = null;
+        rolesChanged();
     }
 
     /**
@@ -256,6 +281,7 @@ public abstract class Sensor implements Runnable {
             throw new Exception("Server "+id+" doesn't offer service "+service.id());
 
         servicesGoodness.put(service, new Double(goodness));
+        rolesChanged();
     }
 
     /**
@@ -302,63 +328,20 @@ public abstract class Sensor implements Runnable {
      * @return Paths from this Sensor to any reachable sensor satisfying a given condition
      */
     public Collection<Vector<Sensor>> findSensors(ISearchCondition searchCondition) {
-        Collection<Vector<Sensor>> out = new LinkedList<Vector<Sensor>>();
-        Collection<Sensor> Q = new ArrayList<Sensor>(); // All nodes in the graph are unoptimized - thus are in Q
-        Collection<Sensor> visitedNodes = new ArrayList<Sensor>(); // Visited nodes
-        Hashtable<Sensor,Double> distanceFromSource = new Hashtable<Sensor,Double>(); // Distance from source
-        Hashtable<Sensor,Sensor> previousNode = new Hashtable<Sensor,Sensor>(); // Previous node in optimal path from source
-
-        distanceFromSource.put(this, 0.0); // Distance from source to source
-        previousNode.put(this, this);
-        Q.add(this);
-
-        while (!Q.isEmpty()) { // The main loop
-            double minD = Double.POSITIVE_INFINITY;
-            Sensor closestNode = null;
-            for (Sensor sensor : Q) //closestNode := vertex in Q with smallest dist[]
-                if (distanceFromSource.get(sensor) < minD) {
-                    minD = distanceFromSource.get(sensor);
-                    closestNode = sensor;
-                }
-
-            Q.remove(closestNode);
-            visitedNodes.add(closestNode);
-            for (Sensor sensor : closestNode.getNeighbors()) { // where sensor has not yet been removed from Q.
-                if ((!Q.contains(sensor)) && (!visitedNodes.contains(sensor))){
-                    distanceFromSource.put(sensor, Double.POSITIVE_INFINITY);
-                    Q.add(sensor);
-                }
-
-                double alternative = distanceFromSource.get(closestNode) + closestNode.distance(sensor);
-                if (alternative < distanceFromSource.get(sensor)) {
-                    distanceFromSource.put(sensor, alternative);
-                    previousNode.put(sensor, closestNode);
-                }
-            }
-        }
-
-        for (Sensor sensor : previousNode.keySet()) {
-            if ((sensor.id() != id) && sensor.isActive() && (searchCondition.sensorAcomplishesCondition(sensor))) {
-                boolean intermediateInactiveSensor = false;
-                LinkedList<Sensor> path1 = new LinkedList<Sensor>();
-                path1.addFirst(sensor);
-                Sensor prev = sensor;
-                while (prev != this){
-                    prev = previousNode.get(prev);
-                    if (!prev.isActive())
-                        intermediateInactiveSensor = true;
-                    path1.addFirst(prev);
-                }
-                Vector<Sensor> path2 = new Vector<Sensor>();
-                for (Sensor s1 : path1) 
-                    path2.add(s1);
-
-                if (!intermediateInactiveSensor) 
-                    out.add(path2);
-            }
-        }
+        ShortestPathEngine shortestPathTree = get_shortestPathTree();
+        shortestPathTree.chargeTransmissions();
+        return shortestPathTree.getPaths(searchCondition);
+    }
 
-        return out;
+    /**
+     * This method returns the shortest paths tree from this sensor, cached by its network if any
+     * @return The shortest paths tree from this sensor
+     */
+    private ShortestPathEngine get_shortestPathTree() {
+        ShortestPathEngine shortestPathTree = (network == null) ? null : network.get_shortestPathTree(this);
+        if (shortestPathTree == null)
+            shortestPathTree = new ShortestPathEngine(Topology.fromLinks(this), 0);
+        return shortestPathTree;
     }
 
     /**
@@ -386,20 +369,84 @@ public abstract class Sensor implements Runnable {
      * @return Neighbor sensors of this sensor
      */
     public Collection<Sensor> getNeighbors() {
-        Collection<Sensor> neighbors = new ArrayList<Sensor>();
+        Topology topology = get_networkTopology();
+        long previousTransmittedDistance = transmittedDistance;
+        if (topology == null) {
+            Collection<Sensor> neighbors = new ArrayList<Sensor>();
+            for (Link link : links) { // We add the destination of all the links
+                neighbors.add(link.get_destination());
+                transmittedDistance += distance(link.get_destination());
+            }
+            chargeEnergyLedger(transmittedDistance-previousTransmittedDistance);
+            return neighbors;
+        }
 
-        for (Link link : links) { // We add the destination of all the links
-            neighbors.add(link.get_destination());
-            transmittedDistance += distance(link.get_destination());
+        Collection<Sensor> neighbors = new ArrayList<Sensor>(topology.get_degree(index));
+        for (int e = topology.get_firstEdge(index); e < topology.get_endEdge(index); e++) {
+            neighbors.add(topology.get_targetSensor(e));
+            transmittedDistance += topology.get_length(e);
         }
+        chargeEnergyLedger(transmittedDistance-previousTransmittedDistance);
         return neighbors;
     }
-    
+
+    /**
+     * This method adds the distance traveled by a message sent from this sensor
+     * to each one of its neighbors, just like {@link #getNeighbors()} does, but
+     * without building the collection of neighbors. It is meant to be used along with
+     * the {@link Topology} of the network when traversing the neighbors by index
+     */
+    public void addNeighborsTransmittedDistance() {
+        Topology topology = get_networkTopology();
+        long previousTransmittedDistance = transmittedDistance;
+        if (topology == null) {
+            for (Link link : links)
+                transmittedDistance += distance(link.get_destination());
+        } else
+            for (int e = topology.get_firstEdge(index); e < topology.get_endEdge(index); e++)
+                transmittedDistance += topology.get_length(e);
+        chargeEnergyLedger(transmittedDistance-previousTransmittedDistance);
+    }
+
+    /**
+     * This method returns the topology of the network this sensor belongs to
+     * @return The topology of the network this sensor belongs to, or the topology
+     * of the sensors reachable from this one if it does not belong to any network
+     */
+    public Topology get_topology() {
+        if (network != null)
+            return network.get_topology();
+        return Topology.fromLinks(this);
+    }
+
+    /**
+     * This method returns the topology of the network this sensor belongs to, as long
+     * as this sensor is already indexed in it
+     * @return The topology of the network this sensor belongs to, or null if this sensor is not indexed in it
+     */
+    private Topology get_networkTopology() {
+        if (network == null)
+            return null;
+        Topology topology = network.get_topology();
+        if (topology.indexOf(this) < 0)
+            return null;
+        return topology;
+    }
+
+    /**
+     * This method notifies the network this sensor belongs to that its links have changed
+     */
+    protected void linksChanged() {
+        if (network != null)
+            network.invalidateTopology();
+    }
+
     /**
      * Deletes all the neighbors of this sensor
      */
     public void removeAllNeighbors() {
         links = new ArrayList<Link>();
+        linksChanged();
     }
 
     /**
@@ -425,11 +472,34 @@ public abstract class Sensor implements Runnable {
             if (links == null)
                 links = new ArrayList<Link>();
 
-            Link link = new Link(this,sensor);
-            links.add(link);
+            links.add(newLink(sensor));
+            linksChanged();
         }
     }
 
+    /**
+     * Replaces every link of this sensor by new links to the given sensors, in
+     * the same order. The given sensors are not checked to be distinct, so no
+     * duplicate sensor (nor this sensor itself) should be given
+     * @param neighbors Sensors to link to
+     */
+    public void setNeighbors(Collection<Sensor> neighbors) {
+        links = new ArrayList<Link>(neighbors.size());
+        for (Sensor sensor : neighbors)
+            links.add(newLink(sensor));
+        linksChanged();
+    }
+
+    /**
+     * Creates a new link from this sensor to a given one. Subclasses using
+     * specific links should redefine it
+     * @param sensor Sensor to link to
+     * @return A new link from this sensor to the given one
+     */
+    protected Link newLink(Sensor sensor) {
+        return new Link(this,sensor);
+    }
+
     /**
      * Removes the link with a given sensor
      * @param sensor Sensor to remove link with
@@ -442,6 +512,7 @@ public abstract class Sensor implements Runnable {
             if (link.get_destination().equals(sensor))
                 linkIt.remove();
         }
+        linksChanged();
     }
     
     /**
@@ -474,38 +545,68 @@ public abstract class Sensor implements Runnable {
     
     /**
      * Makes this sensor to go to sleep if it is inactive for a period of time
-     * @param time Amount of time this sensor remains asleep
+     * @param time Amount of (virtual) time after which this sensor checks its activity.
+     * If it is inactive, it remains asleep half of that time
      * Edited by Hamed Khiabani
      */
     private void sleepIfInactive(final long time) {
-        if (dynamic && runningSimulation) {
-            sleepTimer = new Timer();
-            sleepTimer.schedule(new TimerTask() {
-                @Override
+        if (context.isDynamic() && context.isRunningSimulation()) {
+            sleepTimer = context.get_scheduler().schedule(time, new Runnable() {
                 public void run() {
                     if (numRequests < numRequestsThreshold / 2) {
-                        activeState = false;
-                        sleepTimerAux = new Timer();
-                        sleepTimerAux.schedule(new TimerTask() {
-                            @Override
-                            public void run() {
-                                activeState = true;
-                                sleepTimerAux.cancel();
-                            }
-                        }, time /2);
+                        setActiveState(false);
+                        sleepTimerAux = wakeUpAfter(time/2);
                     }
-                    sleepTimer.cancel();
                 }
-            }, time, time);
+            });
         }
     }
 
+    /**
+     * Makes this sensor to wake up after a period of (virtual) time
+     * @param time Amount of (virtual) time (in ms) after which this sensor wakes up
+     * @return The scheduled event waking this sensor up
+     */
+    protected EventScheduler.Event wakeUpAfter(long time) {
+        return context.get_scheduler().schedule(time, new Runnable() {
+            public void run() {
+                setActiveState(true);
+            }
+        });
+    }
+
+    /**
+     * Returns the scheduler of the current simulation context, whose virtual clock determines
+     * when sensors go to sleep and wake up
+     * @return The scheduler whose virtual clock determines when sensors go to sleep and wake up
+     */
+    public static EventScheduler get_scheduler() { return SimulationContext.current().get_scheduler(); }
+
+    /**
+     * Returns the context of the simulation this sensor was created in
+     * @return The context of the simulation this sensor was created in
+     */
+    public SimulationContext get_context() { return context; }
+
 
     /**
      * Returns sensor's id.
      * @return Sensor's id
      */
     public int id() { return id; }
+
+    /**
+     * Returns the index of this sensor in the topology of its network
+     * @return The index of this sensor in the topology of its network, or -1
+     * if it does not belong to any network yet
+     */
+    public int get_index() { return index; }
+
+    /**
+     * Returns the network this sensor belongs to
+     * @return The network this sensor belongs to, or null if it does not belong to any network yet
+     */
+    public Network get_network() { return network; }
     
     /**
      * Returns the X coordinate
@@ -535,13 +636,13 @@ public abstract class Sensor implements Runnable {
      * This method returns a boolean indicating whether there is currently a simulation running or not
      * @return Boolean indicating whether there is currently a simulation running or not
      */
-    public static boolean isRunningSimulation() { return runningSimulation; }
+    public static boolean isRunningSimulation() { return SimulationContext.current().isRunningSimulation(); }
     
     /**
-     * Returns Current Trust and Reputation model used by every Sensor
-     * @return Current Trust and Reputation model used by every Sensor
+     * Returns Current Trust and Reputation model used by every Sensor of the current simulation context
+     * @return Current Trust and Reputation model used by every Sensor of the current simulation context
      */
-    public static TRModel_WSN get_TRModel_WSN() { return trmmodelWSN; }
+    public static TRModel_WSN get_TRModel_WSN() { return SimulationContext.current().get_TRModel_WSN(); }
 
 
     /**
@@ -554,32 +655,38 @@ public abstract class Sensor implements Runnable {
      * This method updates the state of this sensor
      * @param active_state New state of this sensor: true if the new state is active, and false otherwise
      */
-    public void setActiveState(boolean active_state) { this.activeState = active_state; }
+    public void setActiveState(boolean active_state) {
+        if (activeState != active_state) {
+            activeState = active_state;
+            if (network != null)
+                network.activityChanged(this);
+        }
+    }
 
 
     /**
      * Updates the collusion value.
      * @param coll New collusion value.
      */
-    public static void setCollusion(boolean coll) {collusion = coll; }
+    public static void setCollusion(boolean coll) { SimulationContext.current().set_collusion(coll); }
 
     /**
      * Updates the dynamic value.
      * @param dyn New dynamic value.
      */
-    public static void setDynamic(boolean dyn) { dynamic = dyn; }
+    public static void setDynamic(boolean dyn) { SimulationContext.current().set_dynamic(dyn); }
     
     /**
      * Updates the runningSimulation attribute.
      * @param _runningSimulation New runningSimulation value.
      */
-    public static void setRunningSimulation(boolean _runningSimulation) { runningSimulation = _runningSimulation; }
+    public static void setRunningSimulation(boolean _runningSimulation) { SimulationContext.current().set_runningSimulation(_runningSimulation); }
     
     /**
      * This method sets the maximum distance between two nodes in the network
      * @param maxDistance Maximum distance between two nodes in the network
      */
-    public static void setMaxDistance(double maxDistance) { _maxDistance = maxDistance; }
+    public static void setMaxDistance(double maxDistance) { SimulationContext.current().set_maxDistance(maxDistance); }
 
     /**
      * Updates the client required Service.
@@ -588,10 +695,10 @@ public abstract class Sensor implements Runnable {
     public void set_requiredService(Service requiredService) { this.requiredService = requiredService; }
 
     /**
-     * This method sets the current Trust and Reputation model used by every Sensor
-     * @param TRModel_WSN New Trust and Reputation model used by every Sensor
+     * This method sets the current Trust and Reputation model used by every Sensor of the current simulation context
+     * @param TRModel_WSN New Trust and Reputation model used by every Sensor of the current simulation context
      */
-    public static void set_TRModel_WSN(TRModel_WSN TRModel_WSN) { trmmodelWSN = TRModel_WSN; }
+    public static void set_TRModel_WSN(TRModel_WSN TRModel_WSN) { SimulationContext.current().set_TRModel_WSN(TRModel_WSN); }
 
     /**
      * Indicates if this sensor is active or not
@@ -603,12 +710,49 @@ public abstract class Sensor implements Runnable {
      * This method increases the total distance traveled by the messages sent from this sensor
      * @param distance Amount of distance to be added
      */
-    public void addTransmittedDistance(long distance) { transmittedDistance += distance; }
+    public void addTransmittedDistance(long distance) {
+        transmittedDistance += distance;
+        chargeEnergyLedger(distance);
+    }
 
     /**
-     * Resets the identifier counter to 1
+     * This method increases the total distance traveled by the messages sent from this sensor,
+     * truncating it just like adding it directly to a long would do
+     * @param distance Amount of distance to be added
      */
-    public static void resetId() { idCount = 1; }
+    public void addTransmittedDistance(double distance) {
+        long previousTransmittedDistance = transmittedDistance;
+        transmittedDistance += distance;
+        chargeEnergyLedger(transmittedDistance-previousTransmittedDistance);
+    }
+
+    /**
+     * This method charges the energy ledger of the network this sensor belongs to, if any,
+     * with an amount of distance already added to the distance transmitted by this sensor
+     * @param distance Amount of distance added
+     */
+    void chargeEnergyLedger(long distance) {
+        Network _network = network;
+        if (_network != null) {
+            EnergyLedger energyLedger = _network.energyLedger;
+            if (energyLedger != null)
+                energyLedger.charge(this, distance);
+        }
+    }
+
+    /**
+     * This method notifies the network this sensor belongs to that the roles of this sensor
+     * (client, benevolent or malicious server, etc.) may have changed
+     */
+    protected void rolesChanged() {
+        if (network != null)
+            network.rolesChanged();
+    }
+
+    /**
+     * Resets the identifier counter of the current simulation context to 1
+     */
+    public static void resetId() { SimulationContext.current().resetId(); }
 
     /**
      * It indicates if this sensor is equal to a certain one, according to their id
@@ -639,23 +783,23 @@ public abstract class Sensor implements Runnable {
     }
 
     /**
-     * This method cancels and purges the sensor timers
+     * This method cancels the pending sleep/wake up events of this sensor, waking it up
      * Added by Hamed Khiabani
      */
     public void cancelAllTimers() { 
-        activeState = true;
+        setActiveState(true);
 
         if(numRequestsTimer != null){
             numRequestsTimer.cancel();
-            numRequestsTimer.purge();
+            numRequestsTimer = null;
         } 
         if(sleepTimer != null){
             sleepTimer.cancel();
-            sleepTimer.purge();
+            sleepTimer = null;
         } 
         if(sleepTimerAux != null){
             sleepTimerAux.cancel();
-            sleepTimerAux.purge();
+            sleepTimerAux = null;
         }         
     }
 }
\ No newline at end of file
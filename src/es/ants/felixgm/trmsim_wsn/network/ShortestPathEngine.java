@@ -0,0 +1,381 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package es.ants.felixgm.trmsim_wsn.network;
+
+import es.ants.felixgm.trmsim_wsn.search.ISearchCondition;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.Vector;
+
+/**
+ * <p>This class computes the shortest paths tree rooted at a given sensor, by means
+ * of the Dijkstra algorithm over an indexed binary heap. Distances and predecessors
+ * are kept in primitive arrays indexed by the dense sensor indexes of a {@link Topology}</p>
+ * <p>Ties between sensors at the same distance from the source are broken by their
+ * discovery order, so the paths found are exactly the same as those found by the
+ * original list based implementation of {@link Sensor#findSensors(ISearchCondition)}</p>
+ * <p>The tree only depends on the topology, so it can be reused by every search from
+ * the same source while the topology does not change (see {@link Network#get_shortestPathTree(Sensor)}).
+ * The sensors reachable through active sensors only are determined once per activity
+ * epoch of the network, so filtering them by any condition is a single pass</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public class ShortestPathEngine {
+    /** Topology the shortest paths are computed over */
+    protected Topology topology;
+    /** Index of the source sensor of every path found by this engine */
+    protected int source;
+    /** Distance from the source to each sensor */
+    protected double[] distanceFromSource;
+    /** Index of the previous sensor in the optimal path from the source to each sensor (-1 if unreachable) */
+    protected int[] previousNode;
+    /** Reached sensors, sorted by the order they were settled */
+    protected int[] settledNodes;
+    /** Number of sensors reached from the source */
+    protected int numNodes;
+    /** Order in which each sensor was discovered, used to break ties */
+    private int[] discoveryOrder;
+    /** Binary heap of indexes of the sensors not settled yet */
+    private int[] heap;
+    /** Position of each sensor in the heap (-1 if it is not in the heap) */
+    private int[] heapPosition;
+    /** Number of elements currently in the heap */
+    private int heapSize;
+    /** Candidates to be returned by {@link #getPaths(ISearchCondition)}, for the last activity epoch seen */
+    private volatile ActiveSensors activeSensors;
+
+    /**
+     * Active sensors of the tree (other than the source) for a given activity epoch, along
+     * with whether the path leading to each of them traverses only active sensors
+     */
+    private static class ActiveSensors {
+        /** Activity epoch of the network these sensors were determined at */
+        final long activityEpoch;
+        /** Indexes of the active sensors, sorted by the order they were settled */
+        final int[] nodes;
+        /** Indicates, for each active sensor, whether its path does not traverse any inactive sensor */
+        final boolean[] reachable;
+
+        ActiveSensors(long activityEpoch, int[] nodes, boolean[] reachable) {
+            this.activityEpoch = activityEpoch;
+            this.nodes = nodes;
+            this.reachable = reachable;
+        }
+    }
+
+    /**
+     * Class ShortestPathEngine constructor. It computes the shortest paths tree
+     * rooted at the given source sensor. No sensor is charged for the search;
+     * see {@link #chargeTransmissions()}
+     * @param topology Topology the shortest paths are computed over
+     * @param source Index of the source sensor of every path to be found
+     */
+    public ShortestPathEngine(Topology topology, int source) {
+        this.topology = topology;
+        this.source = source;
+        int numSensors = topology.get_numSensors();
+        distanceFromSource = new double[numSensors];
+        previousNode = new int[numSensors];
+        settledNodes = new int[numSensors];
+        discoveryOrder = new int[numSensors];
+        heap = new int[numSensors];
+        heapPosition = new int[numSensors];
+        Arrays.fill(distanceFromSource, Double.POSITIVE_INFINITY);
+        Arrays.fill(previousNode, -1);
+        Arrays.fill(discoveryOrder, -1);
+        numNodes = 0;
+        heapSize = 0;
+
+        computeShortestPaths();
+
+        // Only the tree itself is kept, since it may be cached for a long time
+        settledNodes = Arrays.copyOf(settledNodes, numNodes);
+        discoveryOrder = null;
+        heap = null;
+        heapPosition = null;
+    }
+
+    /**
+     * This method returns the topology the shortest paths are computed over
+     * @return The topology the shortest paths are computed over
+     */
+    public Topology get_topology() { return topology; }
+
+    /**
+     * This method charges every sensor reached from the source with the transmission
+     * to its neighbors, exactly as a search from the source querying each of them through
+     * {@link Sensor#getNeighbors()} does. It has to be called once per search
+     */
+    public void chargeTransmissions() {
+        double[] lengths = topology.lengths;
+        int[] offsets = topology.offsets;
+        for (int i = 0; i < numNodes; i++) {
+            int node = settledNodes[i];
+            Sensor sensor = topology.sensors[node];
+            long transmittedDistance = sensor.transmittedDistance;
+            for (int e = offsets[node]; e < offsets[node+1]; e++)
+                sensor.transmittedDistance += lengths[e];
+            sensor.chargeEnergyLedger(sensor.transmittedDistance-transmittedDistance);
+        }
+    }
+
+    /**
+     * Runs the Dijkstra algorithm from the source sensor. Inactive sensors are also
+     * traversed here; paths through them are discarded afterwards
+     */
+    private void computeShortestPaths() {
+        int[] targets = topology.targets;
+        double[] lengths = topology.lengths;
+        int[] offsets = topology.offsets;
+
+        discover(source);
+        distanceFromSource[source] = 0.0;
+        previousNode[source] = source;
+
+        int numSettledNodes = 0;
+        while (heapSize > 0) {
+            int closestNode = pollMin();
+            settledNodes[numSettledNodes++] = closestNode;
+            for (int e = offsets[closestNode]; e < offsets[closestNode+1]; e++) {
+                int neighbor = targets[e];
+                if (discoveryOrder[neighbor] < 0)
+                    discover(neighbor);
+                else if (heapPosition[neighbor] < 0)
+                    continue; // Already settled
+
+                double alternative = distanceFromSource[closestNode] + lengths[e];
+                if (alternative < distanceFromSource[neighbor]) {
+                    distanceFromSource[neighbor] = alternative;
+                    previousNode[neighbor] = closestNode;
+                    siftUp(heapPosition[neighbor]);
+                }
+            }
+        }
+    }
+
+    /**
+     * This method returns the shortest paths from the source sensor to any reachable
+     * sensor satisfying a given condition (inactive or idle sensors are excluded from any path)
+     * @param searchCondition Condition to be accomplished by a sensor in order to consider it "reachable"
+     * @return Paths from the source sensor to any reachable sensor satisfying a given condition
+     */
+    public Collection<Vector<Sensor>> getPaths(ISearchCondition searchCondition) {
+        Collection<Vector<Sensor>> out = new LinkedList<Vector<Sensor>>();
+        ActiveSensors candidates = get_activeSensors();
+        for (int i = 0; i < candidates.nodes.length; i++) {
+            int node = candidates.nodes[i];
+            // The condition is evaluated even for sensors behind an inactive one,
+            // since conditions may perform searches on their own
+            if (searchCondition.sensorAcomplishesCondition(topology.sensors[node]) && candidates.reachable[i])
+                out.add(getPath(node));
+        }
+
+        return out;
+    }
+
+    /**
+     * This method checks if any sensor satisfying a given condition is reachable from the
+     * source sensor, without building the paths leading to them
+     * @param searchCondition Condition to be accomplished by a sensor in order to consider it "reachable"
+     * @return true if any sensor satisfying the given condition is reachable from the source sensor, false otherwise
+     */
+    public boolean reaches(ISearchCondition searchCondition) {
+        ActiveSensors candidates = get_activeSensors();
+        for (int i = 0; i < candidates.nodes.length; i++)
+            if (candidates.reachable[i] && searchCondition.sensorAcomplishesCondition(topology.sensors[candidates.nodes[i]]))
+                return true;
+        return false;
+    }
+
+    /**
+     * This method returns the active sensors of the tree (other than the source), determining
+     * them again only if the active state of any sensor of the network has changed since last time
+     * @return The active sensors of the tree and whether they are reachable through active sensors only
+     */
+    private ActiveSensors get_activeSensors() {
+        Network network = topology.sensors[source].get_network();
+        long activityEpoch = (network == null) ? 0 : network.get_activityEpoch();
+        ActiveSensors candidates = activeSensors;
+        if ((network != null) && (candidates != null) && (candidates.activityEpoch == activityEpoch))
+            return candidates;
+
+        // Predecessors are always settled before their successors, so a single pass
+        // in settlement order determines which paths traverse an inactive sensor
+        boolean[] inactiveSensorInPath = new boolean[topology.get_numSensors()];
+        int[] nodes = new int[numNodes];
+        boolean[] reachable = new boolean[numNodes];
+        int numCandidates = 0;
+        int sourceId = topology.sensors[source].id();
+        for (int i = 0; i < numNodes; i++) {
+            int node = settledNodes[i];
+            int prev = previousNode[node];
+            if (node != prev)
+                inactiveSensorInPath[node] = inactiveSensorInPath[prev] || !topology.sensors[prev].isActive();
+
+            Sensor sensor = topology.sensors[node];
+            if ((sensor.id() != sourceId) && sensor.isActive()) {
+                nodes[numCandidates] = node;
+                reachable[numCandidates] = !inactiveSensorInPath[node];
+                numCandidates++;
+            }
+        }
+
+        candidates = new ActiveSensors(activityEpoch, Arrays.copyOf(nodes, numCandidates),
+                Arrays.copyOf(reachable, numCandidates));
+        activeSensors = candidates;
+        return candidates;
+    }
+
+    /**
+     * This method returns the shortest path from the source sensor to the sensor with the given index
+     * @param node Index of the destination sensor
+     * @return The shortest path from the source sensor to the specified one
+     */
+    protected Vector<Sensor> getPath(int node) {
+        int pathLength = 1;
+        for (int prev = node; previousNode[prev] != prev; prev = previousNode[prev])
+            pathLength++;
+
+        Sensor[] path = new Sensor[pathLength];
+        int prev = node;
+        for (int i = pathLength-1; i >= 0; i--) {
+            path[i] = topology.sensors[prev];
+            prev = previousNode[prev];
+        }
+
+        Vector<Sensor> path2 = new Vector<Sensor>(pathLength);
+        for (Sensor s1 : path)
+            path2.add(s1);
+        return path2;
+    }
+
+    /**
+     * This method returns the number of sensors reached from the source sensor, including itself
+     * @return The number of sensors reached from the source sensor, including itself
+     */
+    public int get_numReachedSensors() { return numNodes; }
+
+    /**
+     * Inserts a sensor reached for the first time into the heap
+     * @param node Index of the sensor reached for the first time
+     */
+    private void discover(int node) {
+        discoveryOrder[node] = numNodes++;
+        heap[heapSize] = node;
+        heapPosition[node] = heapSize;
+        heapSize++;
+        siftUp(heapSize-1);
+    }
+
+    /**
+     * Removes and returns the index of the closest sensor to the source from the heap
+     * @return The index of the closest sensor to the source among those not settled yet
+     */
+    private int pollMin() {
+        int min = heap[0];
+        heapPosition[min] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapPosition[heap[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Indicates whether a sensor has to be settled before another one. Sensors at the
+     * same distance from the source are settled by discovery order
+     * @param a Index of the first sensor
+     * @param b Index of the second sensor
+     * @return true if the first sensor precedes the second one, false otherwise
+     */
+    private boolean precedes(int a, int b) {
+        if (distanceFromSource[a] != distanceFromSource[b])
+            return distanceFromSource[a] < distanceFromSource[b];
+        return discoveryOrder[a] < discoveryOrder[b];
+    }
+
+    /**
+     * Moves up the element at the given heap position until the heap property holds
+     * @param position Heap position of the element to be moved
+     */
+    private void siftUp(int position) {
+        int node = heap[position];
+        while (position > 0) {
+            int parent = (position-1) >>> 1;
+            if (!precedes(node, heap[parent]))
+                break;
+            heap[position] = heap[parent];
+            heapPosition[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = node;
+        heapPosition[node] = position;
+    }
+
+    /**
+     * Moves down the element at the given heap position until the heap property holds
+     * @param position Heap position of the element to be moved
+     */
+    private void siftDown(int position) {
+        int node = heap[position];
+        while (true) {
+            int child = 2*position+1;
+            if (child >= heapSize)
+                break;
+            if ((child+1 < heapSize) && precedes(heap[child+1], heap[child]))
+                child++;
+            if (!precedes(heap[child], node))
+                break;
+            heap[position] = heap[child];
+            heapPosition[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = node;
+        heapPosition[node] = position;
+    }
+}
@@ -0,0 +1,277 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+
+package es.ants.felixgm.trmsim_wsn.network;
+
+import es.ants.felixgm.trmsim_wsn.trm.TRModel_WSN;
+
+import java.util.Properties;
+
+/**
+ * <p>This class models the context of a simulation, that is, the state shared by every
+ * sensor taking part in it: the trust and reputation model being used, whether
+ * collusion and dynamic behaviour are enabled, the counter of sensors' identifiers,
+ * the scheduler driving the virtual clock, the seed of its random numbers, and the
+ * trust and reputation model parameters overriding those of the parameters file</p>
+ * <p>Every network and every sensor keeps the context it was created in. A context
+ * is bound to the current thread while a simulation is run, so several simulations,
+ * each one with its own context, may run at the same time in the same JVM. Threads
+ * not bound to any context (like the one of the graphical interface) share the
+ * default one</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public class SimulationContext {
+    /** Context shared by every thread not bound to any other context */
+    private static final SimulationContext defaultContext = new SimulationContext();
+    /** Context bound to every thread, if any */
+    private static final ThreadLocal<SimulationContext> boundContext = new ThreadLocal<SimulationContext>();
+
+    /** Current Trust and Reputation model used by every sensor */
+    private volatile TRModel_WSN trmodel_wsn;
+    /** Indicates whether a collusion among malicious sensors is built */
+    private volatile boolean collusion = false;
+    /** Indicates whether some sensors will switch off sometimes in order to save energy */
+    private volatile boolean dynamic = false;
+    /** Indicates whether a simulation is currently running or not */
+    private volatile boolean runningSimulation = false;
+    /** Sensors' identifier counter */
+    private int idCount = 1;
+    /** Maximum distance between two nodes in the network */
+    private volatile double maxDistance = 0;
+    /** Scheduler whose virtual clock determines when sensors go to sleep and wake up */
+    private final EventScheduler scheduler = new EventScheduler();
+    /** Seed fixed for the next runs, or null if every run gets a new random seed */
+    private Long fixedSeed = null;
+    /** Seed of the current run */
+    private volatile long runSeed = System.nanoTime();
+    /** Number of the current run, used to know when the streams of the sensors are outdated */
+    private volatile long runNumber = 0;
+    /** Trust and reputation model parameters overriding those read from the parameters file */
+    private volatile Properties trmParametersOverrides = new Properties();
+    /** Stream shared by every thread of this context not bound to any other stream */
+    private SplitMixRandom sharedStream = new SplitMixRandom(runSeed);
+
+    /**
+     * Returns the context bound to the current thread or, if there is none, the default one
+     * @return The context bound to the current thread or, if there is none, the default one
+     */
+    public static SimulationContext current() {
+        SimulationContext context = boundContext.get();
+        return (context != null) ? context : defaultContext;
+    }
+
+    /**
+     * Returns the context shared by every thread not bound to any other context
+     * @return The context shared by every thread not bound to any other context
+     */
+    public static SimulationContext get_defaultContext() { return defaultContext; }
+
+    /**
+     * This method binds a context to the current thread
+     * @param context Context to be bound to the current thread, or null to unbind it
+     * @return The context previously bound to the current thread, or null if there was none
+     */
+    public static SimulationContext bind(SimulationContext context) {
+        SimulationContext previousContext = boundContext.get();
+        if (context == null)
+            boundContext.remove();
+        else
+            boundContext.set(context);
+        return previousContext;
+    }
+
+    /**
+     * Returns the current Trust and Reputation model used by every sensor of this context
+     * @return The current Trust and Reputation model used by every sensor of this context
+     */
+    public TRModel_WSN get_TRModel_WSN() { return trmodel_wsn; }
+
+    /**
+     * This method sets the current Trust and Reputation model used by every sensor of this context
+     * @param trmodel_wsn New Trust and Reputation model used by every sensor of this context
+     */
+    public void set_TRModel_WSN(TRModel_WSN trmodel_wsn) { this.trmodel_wsn = trmodel_wsn; }
+
+    /**
+     * Indicates whether a collusion among malicious sensors is built
+     * @return true if a collusion among malicious sensors is built, false otherwise
+     */
+    public boolean isCollusion() { return collusion; }
+
+    /**
+     * This method establishes if a collusion among malicious sensors is built
+     * @param collusion Indicates if a collusion among malicious sensors is built
+     */
+    public void set_collusion(boolean collusion) { this.collusion = collusion; }
+
+    /**
+     * Indicates whether some sensors will switch off sometimes in order to save energy
+     * @return true if some sensors will switch off sometimes in order to save energy, false otherwise
+     */
+    public boolean isDynamic() { return dynamic; }
+
+    /**
+     * This method establishes if some sensors will switch off sometimes in order to save energy
+     * @param dynamic Indicates if some sensors will switch off sometimes in order to save energy
+     */
+    public void set_dynamic(boolean dynamic) { this.dynamic = dynamic; }
+
+    /**
+     * Indicates whether a simulation is currently running in this context or not
+     * @return true if a simulation is currently running in this context, false otherwise
+     */
+    public boolean isRunningSimulation() { return runningSimulation; }
+
+    /**
+     * This method establishes if a simulation is currently running in this context or not
+     * @param runningSimulation Indicates if a simulation is currently running in this context or not
+     */
+    public void set_runningSimulation(boolean runningSimulation) { this.runningSimulation = runningSimulation; }
+
+    /**
+     * Returns a new sensor's identifier, increasing the identifier counter
+     * @return A new sensor's identifier
+     */
+    public synchronized int nextSensorId() { return idCount++; }
+
+    /**
+     * This method sets the identifier to be given to the next sensor created randomly
+     * @param idCount Identifier to be given to the next sensor created randomly
+     */
+    public synchronized void set_idCount(int idCount) { this.idCount = idCount; }
+
+    /**
+     * Resets the identifier counter to 1
+     */
+    public synchronized void resetId() { idCount = 1; }
+
+    /**
+     * Returns the maximum distance between two nodes in the network
+     * @return The maximum distance between two nodes in the network
+     */
+    public double get_maxDistance() { return maxDistance; }
+
+    /**
+     * This method sets the maximum distance between two nodes in the network
+     * @param maxDistance Maximum distance between two nodes in the network
+     */
+    public void set_maxDistance(double maxDistance) { this.maxDistance = maxDistance; }
+
+    /**
+     * Returns the scheduler whose virtual clock determines when sensors go to sleep and wake up
+     * @return The scheduler whose virtual clock determines when sensors go to sleep and wake up
+     */
+    public EventScheduler get_scheduler() { return scheduler; }
+
+    /**
+     * Returns the trust and reputation model parameters overriding those read from the parameters file
+     * @return The trust and reputation model parameters overriding those read from the parameters file
+     */
+    public Properties get_TRMParametersOverrides() { return trmParametersOverrides; }
+
+    /**
+     * This method sets the trust and reputation model parameters overriding those read from the
+     * parameters file by every {@link es.ants.felixgm.trmsim_wsn.trm.TRMParameters} created while this context is bound
+     * @param trmParametersOverrides New trust and reputation model parameters overriding those read from the parameters file
+     */
+    public void set_TRMParametersOverrides(Properties trmParametersOverrides) { this.trmParametersOverrides = trmParametersOverrides; }
+
+    /**
+     * Returns the seed fixed for the next runs
+     * @return The seed fixed for the next runs, or null if every run gets a new random seed
+     */
+    public synchronized Long get_fixedSeed() { return fixedSeed; }
+
+    /**
+     * This method fixes the seed of the next runs, so they can be replayed
+     * @param seed Seed of the next runs, or null so that every run gets a new random seed
+     */
+    public synchronized void set_fixedSeed(Long seed) { fixedSeed = seed; }
+
+    /**
+     * This method starts a new run, reseeding every stream with the fixed seed, if any,
+     * or with a new random one otherwise
+     * @return The seed of the new run
+     */
+    public synchronized long startRun() {
+        runSeed = (fixedSeed != null) ? fixedSeed.longValue() : new SplitMixRandom(System.nanoTime() ^ runSeed).nextLong();
+        sharedStream = new SplitMixRandom(runSeed);
+        runNumber++;
+        return runSeed;
+    }
+
+    /**
+     * Returns the seed of the current run
+     * @return The seed of the current run
+     */
+    public long get_runSeed() { return runSeed; }
+
+    /**
+     * Returns the number of the current run
+     * @return The number of the current run
+     */
+    public long get_runNumber() { return runNumber; }
+
+    /**
+     * This method returns a new stream of random numbers of the current run
+     * @param stream Number of the stream, like the identifier of a sensor
+     * @return A new stream of random numbers, which is always the same for a given run seed and stream number
+     */
+    public SplitMixRandom newStream(long stream) {
+        return new SplitMixRandom(SplitMixRandom.streamSeed(runSeed, stream));
+    }
+
+    /**
+     * Returns a pseudorandom double value uniformly distributed in [0.0, 1.0), taken
+     * from the stream shared by every thread of this context
+     * @return A pseudorandom double value uniformly distributed in [0.0, 1.0)
+     */
+    public synchronized double nextSharedDouble() { return sharedStream.nextDouble(); }
+
+    /**
+     * Returns a pseudorandom long value, taken from the stream shared by every thread of this context
+     * @return A pseudorandom long value
+     */
+    public synchronized long nextSharedLong() { return sharedStream.nextLong(); }
+}
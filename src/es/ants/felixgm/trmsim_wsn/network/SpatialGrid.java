@@ -0,0 +1,347 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+
+package es.ants.felixgm.trmsim_wsn.network;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * <p>This class models a uniform grid spatial hash over the positions of a set of
+ * sensors (or just positions, before the sensors are created). The plane is split into square cells and every sensor is stored in the
+ * cell containing it, so finding the sensors within a given range of a point only
+ * examines the cells overlapping that range, instead of every sensor</p>
+ * <p>When the cells are as large as the wireless range, finding the neighbors of a
+ * sensor only examines its own cell and the eight adjacent ones, so linking a whole
+ * network takes linear time for a fixed density of sensors</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public class SpatialGrid {
+    /** Sensors stored in the grid, sorted by index, or null if only their positions are stored */
+    protected Sensor[] sensors;
+    /** X coordinate of each position stored in the grid */
+    protected double[] xPositions;
+    /** Y coordinate of each position stored in the grid */
+    protected double[] yPositions;
+    /** Indexes of the positions stored in the grid, sorted by cell */
+    protected int[] cellMembers;
+    /** First position in cellMembers of each cell. The members of the last cell end at cellStart[numCells] */
+    protected int[] cellStart;
+    /** Minimum X coordinate of the positions stored in the grid */
+    protected double minX;
+    /** Minimum Y coordinate of the positions stored in the grid */
+    protected double minY;
+    /** Width and height of every cell */
+    protected double cellSize;
+    /** Number of columns of the grid */
+    protected int numColumns;
+    /** Number of rows of the grid */
+    protected int numRows;
+
+    /**
+     * Class SpatialGrid constructor. The size of the cells is the given one, unless it
+     * would lead to many more cells than sensors, in which case cells are enlarged
+     * @param sensors Sensors to be stored in the grid
+     * @param cellSize Desired width and height of every cell, usually the wireless range
+     */
+    public SpatialGrid(Collection<Sensor> sensors, double cellSize) {
+        this(sensors.toArray(new Sensor[sensors.size()]), cellSize);
+    }
+
+    /**
+     * Class SpatialGrid constructor. The size of the cells is the given one, unless it
+     * would lead to many more cells than sensors, in which case cells are enlarged
+     * @param sensors Sensors to be stored in the grid
+     * @param cellSize Desired width and height of every cell, usually the wireless range
+     */
+    public SpatialGrid(Sensor[] sensors, double cellSize) {
+        this(xPositionsOf(sensors), yPositionsOf(sensors), sensors.length, cellSize);
+        this.sensors = sensors;
+    }
+
+    /**
+     * Class SpatialGrid constructor. It stores only positions, identified by their
+     * index, so it can be used before creating any sensor
+     * @param xPositions X coordinate of each position to be stored in the grid
+     * @param yPositions Y coordinate of each position to be stored in the grid
+     * @param numPositions Number of positions to be stored in the grid (the first ones of both arrays)
+     * @param cellSize Desired width and height of every cell, usually the wireless range
+     */
+    public SpatialGrid(double[] xPositions, double[] yPositions, int numPositions, double cellSize) {
+        this.xPositions = xPositions;
+        this.yPositions = yPositions;
+        minX = Double.POSITIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < numPositions; i++) {
+            minX = Math.min(minX, xPositions[i]);
+            minY = Math.min(minY, yPositions[i]);
+            maxX = Math.max(maxX, xPositions[i]);
+            maxY = Math.max(maxY, yPositions[i]);
+        }
+        if (numPositions == 0) {
+            minX = minY = maxX = maxY = 0.0;
+        }
+
+        // No more than about two cells per position are allocated, whatever the range is
+        double extent = Math.max(maxX-minX, maxY-minY);
+        double minCellSize = extent / Math.ceil(Math.sqrt(2.0*Math.max(numPositions,1)));
+        if (!(cellSize >= minCellSize))
+            cellSize = minCellSize;
+        if (!(cellSize > 0.0))
+            cellSize = 1.0;
+        this.cellSize = cellSize;
+        numColumns = (int)((maxX-minX)/cellSize)+1;
+        numRows = (int)((maxY-minY)/cellSize)+1;
+
+        // Counting sort of the positions by cell
+        int[] positionCell = new int[numPositions];
+        cellStart = new int[numColumns*numRows+1];
+        for (int i = 0; i < numPositions; i++) {
+            positionCell[i] = cell(column(xPositions[i]), row(yPositions[i]));
+            cellStart[positionCell[i]+1]++;
+        }
+        for (int c = 0; c < numColumns*numRows; c++)
+            cellStart[c+1] += cellStart[c];
+
+        cellMembers = new int[numPositions];
+        int[] nextPosition = new int[numColumns*numRows];
+        for (int i = 0; i < numPositions; i++) {
+            int c = positionCell[i];
+            cellMembers[cellStart[c]+nextPosition[c]] = i;
+            nextPosition[c]++;
+        }
+    }
+
+    /**
+     * This method finds every sensor of the grid, other than the given one, which is
+     * closer to it than a given range, as determined by {@link Sensor#distance(Sensor)}
+     * @param sensor Sensor whose surrounding sensors are to be found
+     * @param range Range (exclusive) within which sensors are found
+     * @param found Collection where the sensors found are added to, sorted by cell
+     */
+    public void findSensorsInRange(Sensor sensor, double range, Collection<Sensor> found) {
+        if (!(range > 0.0))
+            return;
+
+        int firstColumn = column(sensor.getX()-range);
+        int lastColumn = column(sensor.getX()+range);
+        int firstRow = row(sensor.getY()-range);
+        int lastRow = row(sensor.getY()+range);
+        for (int r = firstRow; r <= lastRow; r++)
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                int cell = cell(c, r);
+                for (int i = cellStart[cell]; i < cellStart[cell+1]; i++) {
+                    Sensor sensor2 = sensors[cellMembers[i]];
+                    if ((sensor2 != sensor) && (sensor.distance(sensor2) < range))
+                        found.add(sensor2);
+                }
+            }
+    }
+
+    /**
+     * This method finds every position of the grid, other than the given one, which is
+     * closer to it than a given range. Distances are computed exactly as
+     * {@link Sensor#distance(Sensor)} does
+     * @param index Index of the position whose surrounding positions are to be found
+     * @param range Range (exclusive) within which positions are found
+     * @param found Array where the indexes of the positions found are stored, or null to just count them
+     * @param offset First position of the array where the indexes found are stored
+     * @return The number of positions found
+     */
+    public int findPositionsInRange(int index, double range, int[] found, int offset) {
+        if (!(range > 0.0))
+            return 0;
+
+        double x = xPositions[index];
+        double y = yPositions[index];
+        int numFound = 0;
+        int firstColumn = column(x-range);
+        int lastColumn = column(x+range);
+        int firstRow = row(y-range);
+        int lastRow = row(y+range);
+        for (int r = firstRow; r <= lastRow; r++)
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                int cell = cell(c, r);
+                for (int i = cellStart[cell]; i < cellStart[cell+1]; i++) {
+                    int member = cellMembers[i];
+                    if ((member != index) &&
+                            (Math.sqrt(Math.pow(x-xPositions[member],2)+Math.pow(y-yPositions[member],2)) < range)) {
+                        if (found != null)
+                            found[offset+numFound] = member;
+                        numFound++;
+                    }
+                }
+            }
+        return numFound;
+    }
+
+    /**
+     * This method finds every sensor of the grid lying within a given rectangle,
+     * borders included
+     * @param x1 X coordinate of one corner of the rectangle
+     * @param y1 Y coordinate of one corner of the rectangle
+     * @param x2 X coordinate of the opposite corner of the rectangle
+     * @param y2 Y coordinate of the opposite corner of the rectangle
+     * @param found Collection where the sensors found are added to, in the order they were stored in the grid
+     */
+    public void findSensorsInRectangle(double x1, double y1, double x2, double y2, Collection<Sensor> found) {
+        double left = Math.min(x1, x2), right = Math.max(x1, x2);
+        double bottom = Math.min(y1, y2), top = Math.max(y1, y2);
+
+        int[] members = new int[16];
+        int numMembers = 0;
+        for (int r = row(bottom); r <= row(top); r++)
+            for (int c = column(left); c <= column(right); c++) {
+                int cell = cell(c, r);
+                for (int i = cellStart[cell]; i < cellStart[cell+1]; i++) {
+                    int member = cellMembers[i];
+                    if (isInRectangle(member, left, bottom, right, top)) {
+                        if (numMembers == members.length)
+                            members = Arrays.copyOf(members, 2*numMembers);
+                        members[numMembers++] = member;
+                    }
+                }
+            }
+
+        Arrays.sort(members, 0, numMembers);
+        for (int i = 0; i < numMembers; i++)
+            found.add(sensors[members[i]]);
+    }
+
+    /**
+     * This method finds the first sensor of the grid, i.e., the one stored first,
+     * lying within a given rectangle, borders included
+     * @param x1 X coordinate of one corner of the rectangle
+     * @param y1 Y coordinate of one corner of the rectangle
+     * @param x2 X coordinate of the opposite corner of the rectangle
+     * @param y2 Y coordinate of the opposite corner of the rectangle
+     * @return The first sensor of the grid lying within the given rectangle, or null if there is none
+     */
+    public Sensor findFirstSensorInRectangle(double x1, double y1, double x2, double y2) {
+        double left = Math.min(x1, x2), right = Math.max(x1, x2);
+        double bottom = Math.min(y1, y2), top = Math.max(y1, y2);
+
+        int first = Integer.MAX_VALUE;
+        for (int r = row(bottom); r <= row(top); r++)
+            for (int c = column(left); c <= column(right); c++) {
+                int cell = cell(c, r);
+                for (int i = cellStart[cell]; i < cellStart[cell+1]; i++) {
+                    int member = cellMembers[i];
+                    if ((member < first) && isInRectangle(member, left, bottom, right, top))
+                        first = member;
+                }
+            }
+        return (first == Integer.MAX_VALUE) ? null : sensors[first];
+    }
+
+    /**
+     * Indicates if a position of the grid lies within a given rectangle, borders included
+     * @param member Index of the position
+     * @param left Minimum X coordinate of the rectangle
+     * @param bottom Minimum Y coordinate of the rectangle
+     * @param right Maximum X coordinate of the rectangle
+     * @param top Maximum Y coordinate of the rectangle
+     * @return true if the position lies within the given rectangle, false otherwise
+     */
+    private boolean isInRectangle(int member, double left, double bottom, double right, double top) {
+        return (xPositions[member] >= left) && (xPositions[member] <= right) &&
+               (yPositions[member] >= bottom) && (yPositions[member] <= top);
+    }
+
+    /**
+     * Returns the X coordinates of the given sensors
+     * @param sensors Sensors whose X coordinates are requested
+     * @return The X coordinates of the given sensors
+     */
+    private static double[] xPositionsOf(Sensor[] sensors) {
+        double[] xPositions = new double[sensors.length];
+        for (int i = 0; i < sensors.length; i++)
+            xPositions[i] = sensors[i].getX();
+        return xPositions;
+    }
+
+    /**
+     * Returns the Y coordinates of the given sensors
+     * @param sensors Sensors whose Y coordinates are requested
+     * @return The Y coordinates of the given sensors
+     */
+    private static double[] yPositionsOf(Sensor[] sensors) {
+        double[] yPositions = new double[sensors.length];
+        for (int i = 0; i < sensors.length; i++)
+            yPositions[i] = sensors[i].getY();
+        return yPositions;
+    }
+
+    /**
+     * Returns the column of the grid containing a given X coordinate, clamped to the grid
+     * @param x X coordinate
+     * @return The column of the grid containing the given X coordinate
+     */
+    protected int column(double x) {
+        double column = Math.floor((x-minX)/cellSize);
+        return (int)Math.max(0, Math.min(numColumns-1, column));
+    }
+
+    /**
+     * Returns the row of the grid containing a given Y coordinate, clamped to the grid
+     * @param y Y coordinate
+     * @return The row of the grid containing the given Y coordinate
+     */
+    protected int row(double y) {
+        double row = Math.floor((y-minY)/cellSize);
+        return (int)Math.max(0, Math.min(numRows-1, row));
+    }
+
+    /**
+     * Returns the index of the cell at a given column and row
+     * @param column Column of the cell
+     * @param row Row of the cell
+     * @return The index of the cell at the given column and row
+     */
+    private int cell(int column, int row) {
+        return row*numColumns+column;
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+
+package es.ants.felixgm.trmsim_wsn.network;
+
+import java.util.Random;
+
+/**
+ * <p>This class models a splittable pseudorandom number generator based on the
+ * SplitMix64 algorithm (the same one behind java.util.SplittableRandom). Unlike
+ * java.util.Random, its state is not atomic, so every instance must be used by a
+ * single thread at a time, but generating numbers takes no synchronization at all</p>
+ * <p>New generators, statistically independent from this one, can be split off it,
+ * so that every thread or sensor may have its own stream of numbers</p>
+ * @see RandomStreams
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public class SplitMixRandom extends Random {
+    private static final long serialVersionUID = 1L;
+    /** Default gamma, i.e., odd increment of the state: the golden ratio scaled to 64 bits */
+    private static final long goldenGamma = 0x9E3779B97F4A7C15L;
+    /** Current state of this generator */
+    private long state;
+    /** Odd increment of the state of this generator */
+    private long gamma;
+
+    /**
+     * Class SplitMixRandom constructor
+     * @param seed Initial state of the generator
+     */
+    public SplitMixRandom(long seed) {
+        this(seed, goldenGamma);
+    }
+
+    /**
+     * Class SplitMixRandom constructor
+     * @param seed Initial state of the generator
+     * @param gamma Odd increment of the state
+     */
+    private SplitMixRandom(long seed, long gamma) {
+        super(0L);
+        this.state = seed;
+        this.gamma = gamma;
+    }
+
+    /**
+     * This method returns a new generator, statistically independent from this one,
+     * advancing the state of this one
+     * @return A new generator split off this one
+     */
+    public SplitMixRandom split() {
+        return new SplitMixRandom(nextLong(), mixGamma(nextState()));
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        state = seed;
+        gamma = goldenGamma;
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int)(mix64(nextState()) >>> (64-bits));
+    }
+
+    @Override
+    public int nextInt() {
+        return (int)(mix64(nextState()) >>> 32);
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(nextState());
+    }
+
+    @Override
+    public double nextDouble() {
+        return (mix64(nextState()) >>> 11) * 0x1.0p-53;
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return (mix64(nextState()) < 0);
+    }
+
+    /**
+     * Returns the seed of a given stream of random numbers, mixing a seed and the
+     * stream number, so that generators seeded with the seeds of different streams
+     * are statistically independent
+     * @param seed Seed shared by every stream
+     * @param stream Number of the stream
+     * @return The seed of the given stream of random numbers
+     */
+    public static long streamSeed(long seed, long stream) {
+        return mix64(seed + (stream+1)*goldenGamma);
+    }
+
+    /**
+     * Advances the state of this generator
+     * @return The new state of this generator
+     */
+    private long nextState() {
+        return (state += gamma);
+    }
+
+    /**
+     * SplitMix64 finalizer, which turns a state into a well distributed random number
+     * @param z State to be mixed
+     * @return The mixed state
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Computes the gamma of a new generator, which has to be odd and have enough bit transitions
+     * @param z State to be mixed
+     * @return The gamma of a new generator
+     */
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        return (Long.bitCount(z ^ (z >>> 1)) < 24) ? (z ^ 0xAAAAAAAAAAAAAAAAL) : z;
+    }
+}
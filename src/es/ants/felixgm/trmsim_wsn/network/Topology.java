@@ -0,0 +1,288 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package es.ants.felixgm.trmsim_wsn.network;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>This class models the topology of a network as an immutable compressed sparse
+ * row (CSR) adjacency structure. Every sensor is identified by a dense index, and
+ * the outgoing links of the sensor with index <code>i</code> are the edges
+ * <code>get_firstEdge(i) &lt;= e &lt; get_endEdge(i)</code>, in the same order as
+ * its {@link Link}s</p>
+ * <p>Reading the topology does not allocate any object, so it is meant to be used
+ * by every algorithm traversing the network. Link specific state (like pheromone
+ * traces) can be kept in arrays indexed by edge</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public class Topology {
+    /** Sensors of the topology, sorted by index */
+    protected Sensor[] sensors;
+    /** First edge of each sensor. The edges of the last sensor end at offsets[numSensors] */
+    protected int[] offsets;
+    /** Index of the destination sensor of each edge */
+    protected int[] targets;
+    /** Length (distance between both ends) of each edge */
+    protected double[] lengths;
+    /** Link corresponding to each edge */
+    protected Link[] links;
+    /** Shortest paths tree rooted at each sensor, if already computed over this topology */
+    final AtomicReferenceArray<SoftReference<ShortestPathEngine>> shortestPathTrees;
+
+    /**
+     * Class Topology constructor. It builds the topology of a network whose sensors
+     * have already been assigned their indexes
+     * @param sensors Sensors of the network, sorted by index
+     */
+    Topology(Sensor[] sensors) {
+        this(sensors, null);
+    }
+
+    /**
+     * Class Topology constructor
+     * @param sensors Sensors of the topology, sorted by index
+     * @param indexes Index of each sensor, or null if they are given by {@link Sensor#get_index()}
+     */
+    private Topology(Sensor[] sensors, HashMap<Sensor,Integer> indexes) {
+        this.sensors = sensors;
+        offsets = new int[sensors.length+1];
+        shortestPathTrees = new AtomicReferenceArray<SoftReference<ShortestPathEngine>>(sensors.length);
+
+        int numEdges = 0;
+        for (int i = 0; i < sensors.length; i++) {
+            offsets[i] = numEdges;
+            if (sensors[i].links != null)
+                for (Link link : sensors[i].links)
+                    if (indexOf(link.get_destination(), indexes) >= 0)
+                        numEdges++;
+        }
+        offsets[sensors.length] = numEdges;
+
+        targets = new int[numEdges];
+        lengths = new double[numEdges];
+        links = new Link[numEdges];
+        int e = 0;
+        for (int i = 0; i < sensors.length; i++)
+            if (sensors[i].links != null)
+                for (Link link : sensors[i].links) {
+                    int target = indexOf(link.get_destination(), indexes);
+                    if (target >= 0) {
+                        targets[e] = target;
+                        lengths[e] = sensors[i].distance(link.get_destination());
+                        this.links[e] = link;
+                        e++;
+                    }
+                }
+    }
+
+    /**
+     * Stamps every link with its edge index in this topology
+     */
+    void stampLinks() {
+        for (int e = 0; e < links.length; e++)
+            links[e].edge = e;
+    }
+
+    /**
+     * This method builds the topology of the sensors reachable from a given one
+     * following their links. It is used for sensors not belonging to any network;
+     * the given sensor gets the index 0 and no sensor or link is modified, so
+     * {@link #indexOf(Sensor)} cannot be used over the returned topology
+     * @param source Sensor whose reachable sensors are to be included in the topology
+     * @return The topology of the sensors reachable from the given one
+     */
+    public static Topology fromLinks(Sensor source) {
+        HashMap<Sensor,Integer> indexes = new HashMap<Sensor,Integer>();
+        ArrayList<Sensor> reachedSensors = new ArrayList<Sensor>();
+        indexes.put(source, 0);
+        reachedSensors.add(source);
+        for (int i = 0; i < reachedSensors.size(); i++) {
+            Sensor sensor = reachedSensors.get(i);
+            if (sensor.links != null)
+                for (Link link : sensor.links)
+                    if (!indexes.containsKey(link.get_destination())) {
+                        indexes.put(link.get_destination(), reachedSensors.size());
+                        reachedSensors.add(link.get_destination());
+                    }
+        }
+
+        return new Topology(reachedSensors.toArray(new Sensor[reachedSensors.size()]), indexes);
+    }
+
+    /**
+     * Returns the index of a sensor in this topology
+     * @param sensor Sensor whose index is requested
+     * @param indexes Index of each sensor, or null if they are given by {@link Sensor#get_index()}
+     * @return The index of the given sensor, or -1 if it does not belong to this topology
+     */
+    private int indexOf(Sensor sensor, HashMap<Sensor,Integer> indexes) {
+        if (indexes != null) {
+            Integer index = indexes.get(sensor);
+            return (index == null) ? -1 : index;
+        }
+        return indexOf(sensor);
+    }
+
+    /**
+     * This method returns the index of a sensor in this topology
+     * @param sensor Sensor whose index is requested
+     * @return The index of the given sensor, or -1 if it does not belong to this topology
+     */
+    public int indexOf(Sensor sensor) {
+        int index = sensor.index;
+        if ((index >= 0) && (index < sensors.length) && (sensors[index] == sensor))
+            return index;
+        return -1;
+    }
+
+    /**
+     * This method returns the edge linking two sensors
+     * @param source Index of the source sensor
+     * @param target Index of the destination sensor
+     * @return The index of the edge from the source to the destination sensor, or -1 if they are not linked
+     */
+    public int findEdge(int source, int target) {
+        for (int e = offsets[source]; e < offsets[source+1]; e++)
+            if (targets[e] == target)
+                return e;
+        return -1;
+    }
+
+    /**
+     * This method returns the edge linking two sensors
+     * @param source Source sensor
+     * @param target Destination sensor
+     * @return The index of the edge from the source to the destination sensor, or -1 if they are not linked
+     */
+    public int findEdge(Sensor source, Sensor target) {
+        int sourceIndex = indexOf(source);
+        int targetIndex = indexOf(target);
+        if ((sourceIndex < 0) || (targetIndex < 0))
+            return -1;
+        return findEdge(sourceIndex, targetIndex);
+    }
+
+    /**
+     * This method returns the number of sensors of this topology
+     * @return The number of sensors of this topology
+     */
+    public int get_numSensors() { return sensors.length; }
+
+    /**
+     * This method returns the number of edges (links) of this topology
+     * @return The number of edges (links) of this topology
+     */
+    public int get_numEdges() { return targets.length; }
+
+    /**
+     * This method returns the sensor with a given index
+     * @param index Index of the requested sensor
+     * @return The sensor with the given index
+     */
+    public Sensor get_sensor(int index) { return sensors[index]; }
+
+    /**
+     * This method returns the first outgoing edge of a sensor
+     * @param index Index of the sensor
+     * @return The first outgoing edge of the given sensor
+     */
+    public int get_firstEdge(int index) { return offsets[index]; }
+
+    /**
+     * This method returns the edge following the last outgoing edge of a sensor
+     * @param index Index of the sensor
+     * @return The edge following the last outgoing edge of the given sensor
+     */
+    public int get_endEdge(int index) { return offsets[index+1]; }
+
+    /**
+     * This method returns the number of neighbors of a sensor
+     * @param index Index of the sensor
+     * @return The number of neighbors of the given sensor
+     */
+    public int get_degree(int index) { return offsets[index+1]-offsets[index]; }
+
+    /**
+     * This method returns the index of the destination sensor of an edge
+     * @param edge Index of the edge
+     * @return The index of the destination sensor of the given edge
+     */
+    public int get_target(int edge) { return targets[edge]; }
+
+    /**
+     * This method returns the destination sensor of an edge
+     * @param edge Index of the edge
+     * @return The destination sensor of the given edge
+     */
+    public Sensor get_targetSensor(int edge) { return sensors[targets[edge]]; }
+
+    /**
+     * This method returns the length of an edge, i.e., the distance between both of its ends
+     * @param edge Index of the edge
+     * @return The length of the given edge
+     */
+    public double get_length(int edge) { return lengths[edge]; }
+
+    /**
+     * This method returns the link corresponding to an edge
+     * @param edge Index of the edge
+     * @return The link corresponding to the given edge
+     */
+    public Link get_link(int edge) { return links[edge]; }
+
+    /**
+     * This method indicates whether a link was part of this topology, and with which edge index
+     * @param link Link to look for
+     * @return The index of the edge corresponding to the given link in this topology, or -1 if it is not part of it
+     */
+    public int edgeOf(Link link) {
+        int edge = link.edge;
+        if ((edge >= 0) && (edge < links.length) && (links[edge] == link))
+            return edge;
+        return -1;
+    }
+}
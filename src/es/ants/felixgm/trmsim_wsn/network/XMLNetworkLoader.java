@@ -0,0 +1,181 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package es.ants.felixgm.trmsim_wsn.network;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * <p>This class loads a network from a XML file following
+ * <a href="Network.html#xmlFileStructure">this structure</a>, possibly compressed
+ * with gzip (<code>.xml.gz</code>)</p>
+ * <p>The file is read in a single streaming pass, so it is never held in memory as
+ * a whole. Sensors are created as soon as their elements are found, while their
+ * links are resolved once the file has been read (see {@link NetworkFileLoader})</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+final class XMLNetworkLoader extends NetworkFileLoader {
+    /**
+     * Creates a new loader filling the given network, whose collections of
+     * clients, servers, sensors and services have to be already created and empty
+     * @param network Network to load
+     */
+    private XMLNetworkLoader(Network network) {
+        super(network);
+    }
+
+    /**
+     * This method reads a XML file and fills the given network with the sensors,
+     * services and links it describes. Sensors are created through
+     * {@link Network#newSensor(int, double, double)}, so the specific subclass of
+     * every model is obtained
+     * @param network Network to load, whose collections have to be already created and empty
+     * @param xmlFilePath Path of the XML file, ending either with <code>.xml</code> or <code>.xml.gz</code>
+     * @throws Exception If the XML file given does not have the appropriate structure, or if
+     * a sensor links to an undefined sensor, or if a sensor links to itself
+     */
+    static void load(Network network, String xmlFilePath) throws Exception {
+        if (!isXMLFile(xmlFilePath))
+            throw new Exception("Only XML files are accepted");
+
+        InputStream in = new BufferedInputStream(new FileInputStream(xmlFilePath), 1 << 16);
+        try {
+            if (xmlFilePath.endsWith(".gz"))
+                in = new GZIPInputStream(in, 1 << 16);
+            new XMLNetworkLoader(network).read(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Checks whether a given path names a (possibly compressed) XML file
+     * @param filePath Path to check
+     * @return true if the path ends with <code>.xml</code> or <code>.xml.gz</code>, false otherwise
+     */
+    static boolean isXMLFile(String filePath) {
+        return filePath.endsWith(".xml") || filePath.endsWith(".xml.gz");
+    }
+
+    /**
+     * Streams the XML document, creating every sensor and recording its links
+     * @param in Stream to read the XML document from
+     * @throws Exception If the XML document does not have the appropriate structure
+     */
+    private void read(InputStream in) throws Exception {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        XMLStreamReader reader = factory.createXMLStreamReader(in);
+        try {
+            // depth 1 is the root element, depth 2 every sensor and depth 3 its links and services
+            int depth = 0;
+            int id = 0;
+            Sensor server = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                    continue;
+                } else if (event != XMLStreamConstants.START_ELEMENT)
+                    continue;
+
+                depth++;
+                String tag = reader.getLocalName();
+                if (depth == 2) {
+                    id = Integer.parseInt(getAttribute(reader, "id", tag));
+                    double x = Double.parseDouble(getAttribute(reader, "x", tag));
+                    double y = Double.parseDouble(getAttribute(reader, "y", tag));
+                    Sensor sensor = network.newSensor(id, x, y);
+                    network.sensors.add(sensor);
+                    if (tag.equals("client")) {
+                        network.clients.add(sensor);
+                        server = null;
+                    } else if (tag.equals("server")) {
+                        network.servers.add(sensor);
+                        server = sensor;
+                    } else
+                        throw new Exception("Unexpected tag found '"+tag+"' while looking for servers");
+                } else if (depth == 3) {
+                    if (tag.equals("server") || tag.equals("client")) {
+                        int linkedId = Integer.parseInt(getAttribute(reader, "id", tag));
+                        if (id == linkedId)
+                            throw new Exception((server == null ? "Client " : "Server ")+id+" has a link to itself");
+                        addLink(id, linkedId);
+                    } else if ((server != null) && tag.equals("service")) {
+                        double goodness = Double.parseDouble(getAttribute(reader, "goodness", tag));
+                        Service service = new Service(getAttribute(reader, "id", tag));
+                        addService(service);
+                        server.addService(service, goodness);
+                    } else if (server == null)
+                        throw new Exception("Unexpected tag found '"+tag+"' while looking for client "+id+" neighbors");
+                    else
+                        throw new Exception("Unexpected tag found '"+tag+"' while looking for server "+id+" neighbors and services");
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        resolveLinks();
+    }
+
+    /**
+     * Retrieves the value of a mandatory attribute of the current element
+     * @param reader Reader positioned at the start of an element
+     * @param name Name of the attribute
+     * @param tag Name of the element, for error reporting
+     * @return The value of the attribute
+     * @throws Exception If the element does not have such attribute
+     */
+    private static String getAttribute(XMLStreamReader reader, String name, String tag) throws Exception {
+        String value = reader.getAttributeValue(null, name);
+        if (value == null)
+            throw new Exception("Attribute '"+name+"' not found in tag '"+tag+"'");
+        return value;
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+
+package es.ants.felixgm.trmsim_wsn.network.generator;
+
+import java.util.Random;
+
+/**
+ * <p>This class places sensors around a number of hot spots, randomly located
+ * over the square area. Every sensor belongs to a randomly chosen hot spot, and
+ * its distance to it follows a gaussian distribution</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public class ClusteredPlacement extends PlacementModel {
+    /** Number of hot spots */
+    protected int numClusters;
+    /** Standard deviation of the position of every sensor around its hot spot, as a fraction of the area side */
+    protected double deviation;
+    /** X coordinate of every hot spot */
+    protected double[] xCenters;
+    /** Y coordinate of every hot spot */
+    protected double[] yCenters;
+
+    /**
+     * Class ClusteredPlacement constructor
+     * @param numClusters Number of hot spots
+     * @param deviation Standard deviation of the position of every sensor around its hot spot,
+     * as a fraction of the area side
+     */
+    public ClusteredPlacement(int numClusters, double deviation) {
+        this.numClusters = Math.max(1, numClusters);
+        this.deviation = deviation;
+    }
+
+    @Override
+    public void prepare(int numSensors, double size, Random random) {
+        super.prepare(numSensors, size, random);
+        xCenters = new double[numClusters];
+        yCenters = new double[numClusters];
+        for (int c = 0; c < numClusters; c++) {
+            xCenters[c] = random.nextDouble()*size;
+            yCenters[c] = random.nextDouble()*size;
+        }
+    }
+
+    @Override
+    public void place(int index, Random random, double[] xPositions, double[] yPositions) {
+        int c = random.nextInt(numClusters);
+        xPositions[index] = clamp(xCenters[c] + random.nextGaussian()*deviation*size);
+        yPositions[index] = clamp(yCenters[c] + random.nextGaussian()*deviation*size);
+    }
+
+    /**
+     * Returns the number of hot spots
+     * @return The number of hot spots
+     */
+    public int get_numClusters() { return numClusters; }
+
+    /**
+     * Returns the standard deviation of the position of every sensor around its hot spot
+     * @return The standard deviation of the position of every sensor around its hot spot, as a fraction of the area side
+     */
+    public double get_deviation() { return deviation; }
+}
@@ -0,0 +1,193 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+
+package es.ants.felixgm.trmsim_wsn.network.generator;
+
+import es.ants.felixgm.trmsim_wsn.network.Service;
+
+/**
+ * <p>This class models a generated network in a compact form: positions, roles and
+ * offered services are kept in primitive arrays indexed by sensor, and links in a
+ * compressed sparse row adjacency structure, so no {@link es.ants.felixgm.trmsim_wsn.network.Sensor Sensor}
+ * nor {@link es.ants.felixgm.trmsim_wsn.network.Link Link} object is created.
+ * The neighbors of the sensor with index <code>i</code> are the sensors
+ * <code>get_neighbor(e)</code>, being <code>get_firstNeighbor(i) &lt;= e &lt; get_endNeighbor(i)</code>,
+ * sorted by index. Links are always symmetric</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public class CompactNetwork {
+    /** Number of sensors of the network */
+    protected int numSensors;
+    /** X coordinate of each sensor */
+    protected double[] xPositions;
+    /** Y coordinate of each sensor */
+    protected double[] yPositions;
+    /** Indicates whether each sensor is a client (true) or a server (false) */
+    protected boolean[] clients;
+    /** Services which may be offered by any sensor */
+    protected Service[] services;
+    /** Goodness of each sensor offering each service (sensor*numServices+service): 0 if not offered, 1 if bad and 2 if good */
+    protected byte[] offeredServices;
+    /** First neighbor of each sensor. The neighbors of the last sensor end at offsets[numSensors] */
+    protected int[] offsets;
+    /** Index of each neighbor of each sensor */
+    protected int[] neighbors;
+
+    /**
+     * Class CompactNetwork constructor
+     * @param numSensors Number of sensors of the network
+     * @param xPositions X coordinate of each sensor
+     * @param yPositions Y coordinate of each sensor
+     * @param clients Indicates whether each sensor is a client (true) or a server (false)
+     * @param services Services which may be offered by any sensor
+     * @param offeredServices Goodness of each sensor offering each service: 0 if not offered, 1 if bad and 2 if good
+     * @param offsets First neighbor of each sensor, and end of the neighbors of the last one
+     * @param neighbors Index of each neighbor of each sensor
+     */
+    public CompactNetwork(int numSensors, double[] xPositions, double[] yPositions, boolean[] clients,
+            Service[] services, byte[] offeredServices, int[] offsets, int[] neighbors) {
+        this.numSensors = numSensors;
+        this.xPositions = xPositions;
+        this.yPositions = yPositions;
+        this.clients = clients;
+        this.services = services;
+        this.offeredServices = offeredServices;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+    }
+
+    /**
+     * Returns the number of sensors of the network
+     * @return The number of sensors of the network
+     */
+    public int get_numSensors() { return numSensors; }
+
+    /**
+     * Returns the number of (directed) links of the network
+     * @return The number of (directed) links of the network
+     */
+    public int get_numLinks() { return offsets[numSensors]; }
+
+    /**
+     * Returns the X coordinate of a sensor
+     * @param sensor Index of the sensor
+     * @return The X coordinate of the sensor
+     */
+    public double get_x(int sensor) { return xPositions[sensor]; }
+
+    /**
+     * Returns the Y coordinate of a sensor
+     * @param sensor Index of the sensor
+     * @return The Y coordinate of the sensor
+     */
+    public double get_y(int sensor) { return yPositions[sensor]; }
+
+    /**
+     * Indicates whether a sensor is a client or a server
+     * @param sensor Index of the sensor
+     * @return true if the sensor is a client, false if it is a server
+     */
+    public boolean isClient(int sensor) { return clients[sensor]; }
+
+    /**
+     * Returns the number of services which may be offered by any sensor
+     * @return The number of services which may be offered by any sensor
+     */
+    public int get_numServices() { return services.length; }
+
+    /**
+     * Returns one of the services which may be offered by any sensor
+     * @param service Index of the service
+     * @return The service with the given index
+     */
+    public Service get_service(int service) { return services[service]; }
+
+    /**
+     * Indicates whether a sensor offers a service
+     * @param sensor Index of the sensor
+     * @param service Index of the service
+     * @return true if the sensor offers the service, false otherwise
+     */
+    public boolean offersService(int sensor, int service) {
+        return offeredServices[sensor*services.length+service] != 0;
+    }
+
+    /**
+     * Returns the goodness of a sensor offering a service
+     * @param sensor Index of the sensor
+     * @param service Index of the service
+     * @return 1.0 if the sensor offers the service properly, 0.0 otherwise
+     */
+    public double get_goodness(int sensor, int service) {
+        return (offeredServices[sensor*services.length+service] == 2) ? 1.0 : 0.0;
+    }
+
+    /**
+     * Returns the first neighbor position of a sensor
+     * @param sensor Index of the sensor
+     * @return The position of the first neighbor of the sensor
+     */
+    public int get_firstNeighbor(int sensor) { return offsets[sensor]; }
+
+    /**
+     * Returns the position following the last neighbor of a sensor
+     * @param sensor Index of the sensor
+     * @return The position following the last neighbor of the sensor
+     */
+    public int get_endNeighbor(int sensor) { return offsets[sensor+1]; }
+
+    /**
+     * Returns the number of neighbors of a sensor
+     * @param sensor Index of the sensor
+     * @return The number of neighbors of the sensor
+     */
+    public int get_degree(int sensor) { return offsets[sensor+1]-offsets[sensor]; }
+
+    /**
+     * Returns the index of the neighbor at a given position
+     * @param position Position of the neighbor, between get_firstNeighbor(i) and get_endNeighbor(i) for a sensor i
+     * @return The index of the neighbor at the given position
+     */
+    public int get_neighbor(int position) { return neighbors[position]; }
+}
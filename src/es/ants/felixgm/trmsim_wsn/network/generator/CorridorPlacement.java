@@ -0,0 +1,107 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+
+package es.ants.felixgm.trmsim_wsn.network.generator;
+
+import java.util.Random;
+
+/**
+ * <p>This class places sensors along a number of roads crossing the square area,
+ * like vehicles and road side units in a vehicular network. Roads are alternately
+ * horizontal and vertical, at random positions, and every sensor lies on a randomly
+ * chosen road, at a random point of its length and width</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public class CorridorPlacement extends PlacementModel {
+    /** Number of roads */
+    protected int numRoads;
+    /** Width of every road, as a fraction of the area side */
+    protected double roadWidth;
+    /** Position of the axis of every road: its Y coordinate if horizontal or its X coordinate if vertical */
+    protected double[] roadPositions;
+
+    /**
+     * Class CorridorPlacement constructor
+     * @param numRoads Number of roads
+     * @param roadWidth Width of every road, as a fraction of the area side
+     */
+    public CorridorPlacement(int numRoads, double roadWidth) {
+        this.numRoads = Math.max(1, numRoads);
+        this.roadWidth = roadWidth;
+    }
+
+    @Override
+    public void prepare(int numSensors, double size, Random random) {
+        super.prepare(numSensors, size, random);
+        roadPositions = new double[numRoads];
+        for (int r = 0; r < numRoads; r++)
+            roadPositions[r] = random.nextDouble()*size;
+    }
+
+    @Override
+    public void place(int index, Random random, double[] xPositions, double[] yPositions) {
+        int r = random.nextInt(numRoads);
+        double alongRoad = random.nextDouble()*size;
+        double acrossRoad = clamp(roadPositions[r] + (random.nextDouble()-0.5)*roadWidth*size);
+        if (r%2 == 0) { // Horizontal road
+            xPositions[index] = alongRoad;
+            yPositions[index] = acrossRoad;
+        } else { // Vertical road
+            xPositions[index] = acrossRoad;
+            yPositions[index] = alongRoad;
+        }
+    }
+
+    /**
+     * Returns the number of roads
+     * @return The number of roads
+     */
+    public int get_numRoads() { return numRoads; }
+
+    /**
+     * Returns the width of every road
+     * @return The width of every road, as a fraction of the area side
+     */
+    public double get_roadWidth() { return roadWidth; }
+}
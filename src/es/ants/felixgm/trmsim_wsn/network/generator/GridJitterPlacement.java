@@ -0,0 +1,87 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+
+package es.ants.felixgm.trmsim_wsn.network.generator;
+
+import java.util.Random;
+
+/**
+ * <p>This class places sensors over a regular grid covering the square area,
+ * one per cell, randomly displaced from the center of their cell</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public class GridJitterPlacement extends PlacementModel {
+    /** Maximum displacement of every sensor from the center of its cell, as a fraction of the cell side */
+    protected double jitter;
+    /** Number of columns (and rows) of the grid */
+    protected int numColumns;
+
+    /**
+     * Class GridJitterPlacement constructor
+     * @param jitter Maximum displacement of every sensor from the center of its cell,
+     * as a fraction of the cell side (0 places every sensor at the center of its cell)
+     */
+    public GridJitterPlacement(double jitter) {
+        this.jitter = jitter;
+    }
+
+    @Override
+    public void prepare(int numSensors, double size, Random random) {
+        super.prepare(numSensors, size, random);
+        numColumns = Math.max(1, (int)Math.ceil(Math.sqrt(numSensors)));
+    }
+
+    @Override
+    public void place(int index, Random random, double[] xPositions, double[] yPositions) {
+        double cellSide = size/numColumns;
+        xPositions[index] = clamp((index%numColumns + 0.5 + jitter*(random.nextDouble()-0.5))*cellSide);
+        yPositions[index] = clamp((index/numColumns + 0.5 + jitter*(random.nextDouble()-0.5))*cellSide);
+    }
+
+    /**
+     * Returns the maximum displacement of every sensor from the center of its cell
+     * @return The maximum displacement of every sensor from the center of its cell, as a fraction of the cell side
+     */
+    public double get_jitter() { return jitter; }
+}
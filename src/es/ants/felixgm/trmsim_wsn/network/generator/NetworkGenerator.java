@@ -0,0 +1,390 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+
+package es.ants.felixgm.trmsim_wsn.network.generator;
+
+import es.ants.felixgm.trmsim_wsn.network.RandomStreams;
+import es.ants.felixgm.trmsim_wsn.network.Service;
+import es.ants.felixgm.trmsim_wsn.network.SpatialGrid;
+import es.ants.felixgm.trmsim_wsn.network.SplitMixRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>This class generates random networks in parallel, straight into a
+ * {@link CompactNetwork}. Sensors are split into chunks of {@link #chunkSize}
+ * sensors, processed by Fork/Join tasks. Every chunk uses its own random number
+ * stream, derived from the seed of the generator and the chunk number, so the
+ * network generated only depends on the seed, not on the number of threads</p>
+ * <p>Sensors are placed following a {@link PlacementModel} (uniformly at random
+ * by default) over a square area. Every sensor acts as a client with the given
+ * probability; otherwise it is a server offering every service with its
+ * probability, properly with its probability of goodness. Two sensors are
+ * linked if they are closer than the wireless range, found through a {@link SpatialGrid}</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public class NetworkGenerator {
+    /** Number of sensors processed by every task */
+    public static final int chunkSize = 4096;
+    /** Pool of threads shared by every generator */
+    private static ForkJoinPool pool = null;
+
+    /** Number of sensors of the generated networks */
+    protected int numSensors;
+    /** Probability of a sensor to act as a client requesting services */
+    protected double probClients;
+    /** Maximum wireless range of every sensor, as a fraction of the diagonal of the area */
+    protected double rangeFactor;
+    /** Probability of offering each service */
+    protected double[] probServices;
+    /** Probability of offering each service properly */
+    protected double[] probGoodness;
+    /** Services which may be offered by any sensor */
+    protected Service[] services;
+    /** Model followed to place the sensors */
+    protected PlacementModel placement;
+    /** Side of the square area where sensors are placed */
+    protected double size;
+    /** Seed of the random number streams */
+    protected long seed;
+
+    /**
+     * Class NetworkGenerator constructor. Sensors are placed uniformly at random over
+     * a 100x100 area, like in any other random network, with a random seed
+     * @param numSensors Number of sensors of the generated networks
+     * @param probClients Probability of a sensor to act as a client requesting services
+     * @param rangeFactor Maximum wireless range of every sensor. It determines the neighborhood of every sensor
+     * @param probServices A collection of probabilities of offering a certain service, one per service
+     * @param probGoodness A collection of goodnesses about offering a certain service, one per service
+     * @param services All the services which may be offered by the generated networks
+     */
+    public NetworkGenerator(
+            int numSensors,
+            double probClients,
+            double rangeFactor,
+            Collection<Double> probServices,
+            Collection<Double> probGoodness,
+            Collection<Service> services) {
+        this.numSensors = numSensors;
+        this.probClients = probClients;
+        this.rangeFactor = rangeFactor;
+        this.probServices = toArray(probServices);
+        this.probGoodness = toArray(probGoodness);
+        this.services = services.toArray(new Service[services.size()]);
+        placement = new UniformPlacement();
+        size = 100.0;
+        seed = RandomStreams.nextLong();
+    }
+
+    /**
+     * Class NetworkGenerator copy constructor
+     * @param generator Generator to be copied
+     */
+    public NetworkGenerator(NetworkGenerator generator) {
+        numSensors = generator.numSensors;
+        probClients = generator.probClients;
+        rangeFactor = generator.rangeFactor;
+        probServices = generator.probServices;
+        probGoodness = generator.probGoodness;
+        services = generator.services;
+        placement = generator.placement;
+        size = generator.size;
+        seed = generator.seed;
+    }
+
+    /**
+     * This method generates a new network. If no sensor turns out to be a client,
+     * an additional client sensor is added, as in any other random network. The seed
+     * is then replaced by a new one derived from it
+     * @return The new network, in compact form
+     */
+    public synchronized CompactNetwork generate() {
+        Generation generation = new Generation();
+        int numChunks = (numSensors+chunkSize-1)/chunkSize;
+
+        placement.prepare(numSensors, size, new SplitMixRandom(seed));
+        get_pool().invoke(new ChunkTask(generation, Generation.PLACE, 0, numChunks));
+
+        boolean anyClient = false;
+        for (int i = 0; (i < numSensors) && !anyClient; i++)
+            anyClient = generation.clients[i];
+        generation.numSensors = numSensors;
+        if (!anyClient) {
+            placement.place(numSensors, new SplitMixRandom(streamSeed(seed, numChunks)), generation.xPositions, generation.yPositions);
+            generation.clients[numSensors] = true;
+            generation.numSensors++;
+        }
+        numChunks = (generation.numSensors+chunkSize-1)/chunkSize;
+
+        // Links are found in two passes: the first one counts the neighbors of every sensor
+        generation.grid = new SpatialGrid(generation.xPositions, generation.yPositions, generation.numSensors, generation.rangeThreshold);
+        generation.offsets = new int[generation.numSensors+1];
+        get_pool().invoke(new ChunkTask(generation, Generation.COUNT_LINKS, 0, numChunks));
+        for (int i = 0; i < generation.numSensors; i++)
+            generation.offsets[i+1] += generation.offsets[i];
+        generation.neighbors = new int[generation.offsets[generation.numSensors]];
+        get_pool().invoke(new ChunkTask(generation, Generation.FIND_LINKS, 0, numChunks));
+
+        // The next network generated will be a different one
+        seed = new SplitMixRandom(seed).nextLong();
+
+        return new CompactNetwork(generation.numSensors, generation.xPositions, generation.yPositions, generation.clients,
+                services, generation.offeredServices, generation.offsets, generation.neighbors);
+    }
+
+    /**
+     * <p>This class keeps the state of a network being generated</p>
+     */
+    private class Generation {
+        /** Phase placing the sensors and choosing their roles and services */
+        static final int PLACE = 0;
+        /** Phase counting the neighbors of every sensor */
+        static final int COUNT_LINKS = 1;
+        /** Phase finding the neighbors of every sensor */
+        static final int FIND_LINKS = 2;
+
+        int numSensors;
+        double rangeThreshold = rangeFactor*Math.sqrt(2.0)*size;
+        double[] xPositions = new double[NetworkGenerator.this.numSensors+1];
+        double[] yPositions = new double[NetworkGenerator.this.numSensors+1];
+        boolean[] clients = new boolean[NetworkGenerator.this.numSensors+1];
+        byte[] offeredServices = new byte[(NetworkGenerator.this.numSensors+1)*services.length];
+        SpatialGrid grid;
+        int[] offsets;
+        int[] neighbors;
+
+        /**
+         * Processes a chunk of sensors in a given phase
+         * @param phase Phase of the generation
+         * @param chunk Number of the chunk to be processed
+         */
+        void process(int phase, int chunk) {
+            int first = chunk*chunkSize;
+            int end = Math.min(first+chunkSize, (phase == PLACE) ? NetworkGenerator.this.numSensors : numSensors);
+            switch (phase) {
+                case PLACE:
+                    Random random = new SplitMixRandom(streamSeed(seed, chunk));
+                    for (int i = first; i < end; i++) {
+                        placement.place(i, random, xPositions, yPositions);
+                        clients[i] = (random.nextDouble() <= probClients);
+                        if (!clients[i])
+                            for (int s = 0; s < services.length; s++)
+                                if (random.nextDouble() <= probServices[s])
+                                    offeredServices[i*services.length+s] = (byte)((random.nextDouble() <= probGoodness[s]) ? 2 : 1);
+                    }
+                    break;
+                case COUNT_LINKS:
+                    for (int i = first; i < end; i++)
+                        offsets[i+1] = grid.findPositionsInRange(i, rangeThreshold, null, 0);
+                    break;
+                case FIND_LINKS:
+                    for (int i = first; i < end; i++) {
+                        grid.findPositionsInRange(i, rangeThreshold, neighbors, offsets[i]);
+                        Arrays.sort(neighbors, offsets[i], offsets[i+1]);
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * <p>This class processes a range of chunks of sensors, splitting it in halves
+     * until a single chunk is left</p>
+     */
+    private static class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Generation generation;
+        private final int phase;
+        private final int firstChunk;
+        private final int endChunk;
+
+        ChunkTask(Generation generation, int phase, int firstChunk, int endChunk) {
+            this.generation = generation;
+            this.phase = phase;
+            this.firstChunk = firstChunk;
+            this.endChunk = endChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (endChunk-firstChunk <= 1) {
+                if (endChunk > firstChunk)
+                    generation.process(phase, firstChunk);
+            } else {
+                int middleChunk = (firstChunk+endChunk) >>> 1;
+                invokeAll(new ChunkTask(generation, phase, firstChunk, middleChunk),
+                        new ChunkTask(generation, phase, middleChunk, endChunk));
+            }
+        }
+    }
+
+    /**
+     * Returns the seed of a given random number stream, mixing the seed of the
+     * generator and the stream number with the SplitMix64 function
+     * @param seed Seed of the generator
+     * @param stream Number of the stream
+     * @return The seed of the given random number stream
+     */
+    protected static long streamSeed(long seed, long stream) {
+        return SplitMixRandom.streamSeed(seed, stream);
+    }
+
+    /**
+     * Returns the pool of threads shared by every generator
+     * @return The pool of threads shared by every generator
+     */
+    private static synchronized ForkJoinPool get_pool() {
+        if (pool == null)
+            pool = new ForkJoinPool();
+        return pool;
+    }
+
+    /**
+     * Converts a collection of probabilities into an array
+     * @param probabilities Collection of probabilities
+     * @return Array containing the given probabilities
+     */
+    private static double[] toArray(Collection<Double> probabilities) {
+        double[] array = new double[probabilities.size()];
+        int i = 0;
+        for (Double probability : probabilities)
+            array[i++] = probability.doubleValue();
+        return array;
+    }
+
+    /**
+     * Returns the number of sensors of the generated networks
+     * @return The number of sensors of the generated networks
+     */
+    public int get_numSensors() { return numSensors; }
+
+    /**
+     * Returns the probability of a sensor to act as a client requesting services
+     * @return The probability of a sensor to act as a client requesting services
+     */
+    public double get_probClients() { return probClients; }
+
+    /**
+     * Sets the probability of a sensor to act as a client requesting services
+     * @param probClients The new probability of a sensor to act as a client requesting services
+     */
+    public void set_probClients(double probClients) { this.probClients = probClients; }
+
+    /**
+     * Returns the maximum wireless range of every sensor
+     * @return The maximum wireless range of every sensor, as a fraction of the diagonal of the area
+     */
+    public double get_rangeFactor() { return rangeFactor; }
+
+    /**
+     * Returns the probabilities of offering each service
+     * @return The probabilities of offering each service
+     */
+    public Collection<Double> get_probServices() { return toCollection(probServices); }
+
+    /**
+     * Returns the probabilities of offering each service properly
+     * @return The probabilities of offering each service properly
+     */
+    public Collection<Double> get_probGoodness() { return toCollection(probGoodness); }
+
+    /**
+     * Returns the services which may be offered by the generated networks
+     * @return The services which may be offered by the generated networks
+     */
+    public Collection<Service> get_services() { return new ArrayList<Service>(Arrays.asList(services)); }
+
+    /**
+     * Returns the model followed to place the sensors
+     * @return The model followed to place the sensors
+     */
+    public PlacementModel get_placement() { return placement; }
+
+    /**
+     * Sets the model followed to place the sensors
+     * @param placement The new model followed to place the sensors
+     */
+    public void set_placement(PlacementModel placement) { this.placement = placement; }
+
+    /**
+     * Returns the side of the square area where sensors are placed
+     * @return The side of the square area where sensors are placed
+     */
+    public double get_size() { return size; }
+
+    /**
+     * Sets the side of the square area where sensors are placed
+     * @param size The new side of the square area where sensors are placed
+     */
+    public void set_size(double size) { this.size = size; }
+
+    /**
+     * Returns the seed of the random number streams
+     * @return The seed of the random number streams
+     */
+    public long get_seed() { return seed; }
+
+    /**
+     * Sets the seed of the random number streams. Generators with the same seed
+     * and parameters generate the same sequence of networks
+     * @param seed The new seed of the random number streams
+     */
+    public void set_seed(long seed) { this.seed = seed; }
+
+    /**
+     * Converts an array of probabilities into a collection
+     * @param probabilities Array of probabilities
+     * @return Collection containing the given probabilities
+     */
+    private static Collection<Double> toCollection(double[] probabilities) {
+        Collection<Double> collection = new ArrayList<Double>(probabilities.length);
+        for (double probability : probabilities)
+            collection.add(probability);
+        return collection;
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+
+package es.ants.felixgm.trmsim_wsn.network.generator;
+
+import java.util.Random;
+
+/**
+ * <p>This class models the way sensors are placed over a square area when a
+ * network is generated. Sensors are placed in parallel, so every sensor is
+ * placed independently of the others, using the random number stream of the
+ * task placing it. Any state shared by every sensor (like the centers of the
+ * hot spots) is chosen beforehand by {@link #prepare(int, double, Random)}</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public abstract class PlacementModel {
+    /** Number of sensors to be placed */
+    protected int numSensors;
+    /** Side of the square area where sensors are placed */
+    protected double size;
+
+    /**
+     * This method prepares this model before placing a given number of sensors.
+     * Subclasses having any state shared by every sensor should redefine it
+     * @param numSensors Number of sensors to be placed
+     * @param size Side of the square area where sensors are placed
+     * @param random Random number generator used to choose any shared state
+     */
+    public void prepare(int numSensors, double size, Random random) {
+        this.numSensors = numSensors;
+        this.size = size;
+    }
+
+    /**
+     * This method places a sensor, storing its coordinates
+     * @param index Index of the sensor to be placed
+     * @param random Random number stream of the task placing the sensor
+     * @param xPositions Array where the X coordinate of the sensor is stored
+     * @param yPositions Array where the Y coordinate of the sensor is stored
+     */
+    public abstract void place(int index, Random random, double[] xPositions, double[] yPositions);
+
+    /**
+     * Returns a given coordinate clamped to the square area where sensors are placed
+     * @param coordinate Coordinate to be clamped
+     * @return The given coordinate clamped to the square area where sensors are placed
+     */
+    protected double clamp(double coordinate) {
+        return Math.max(0.0, Math.min(size, coordinate));
+    }
+}
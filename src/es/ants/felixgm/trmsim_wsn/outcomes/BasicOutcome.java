@@ -56,6 +56,10 @@ public class BasicOutcome extends Outcome {
     protected double avgSatisfaction;
     /** Average length of all the paths found */
     protected double avgPathLength;
+    /** Standard deviation of the satisfaction of the client with the received service */
+    protected double stdDevSatisfaction;
+    /** Standard deviation of the length of all the paths found */
+    protected double stdDevPathLength;
 
     /**
      * Class BasicOutcome constructor
@@ -116,6 +120,11 @@ public class BasicOutcome extends Outcome {
         return new BasicOutcome(aggregatedSatisfaction,_avgSatisfaction, _avgPathLength);
     }
 
+    @Override
+    protected Aggregation createAggregation() {
+        return new Aggregation();
+    }
+
     /**
      * This method returns the average satisfaction of the client with the received service
      * @return The average satisfaction of the client with the received service
@@ -128,6 +137,18 @@ public class BasicOutcome extends Outcome {
      */
     public double get_avgPathLength() { return avgPathLength; }
 
+    /**
+     * This method returns the standard deviation of the satisfaction of the client with the received service
+     * @return The standard deviation of the satisfaction of the client with the received service
+     */
+    public double get_stdDevSatisfaction() { return stdDevSatisfaction; }
+
+    /**
+     * This method returns the standard deviation of the length of all the paths found
+     * @return The standard deviation of the length of all the paths found
+     */
+    public double get_stdDevPathLength() { return stdDevPathLength; }
+
     @Override
     public String toString() {
         String s = super.toString()+"\r\n";
@@ -142,4 +163,104 @@ public class BasicOutcome extends Outcome {
     protected String getOutcomesFileLine() {
         return super.getOutcomesFileLine()+"\t"+avgSatisfaction+"\t"+avgPathLength;
     }
+
+    /**
+     * <p>This class models the aggregation of a set of basic outcomes. It keeps the running
+     * sums of the satisfaction and path length of the added outcomes, as well as their
+     * variances, computed through Welford's method. Just like {@link BasicOutcome#aggregate(Collection)},
+     * paths of length 0 are not taken into account for the average path length, and the
+     * satisfaction of the first outcome is only taken when it is the only one</p>
+     */
+    protected static class Aggregation extends Outcome.Aggregation {
+        /** Number of outcomes added */
+        protected int numOutcomes = 0;
+        /** Satisfaction of the first outcome added */
+        private Satisfaction firstSatisfaction = null;
+        /** Aggregated satisfaction of the rest of outcomes added */
+        private Satisfaction aggregatedSatisfaction = null;
+        /** Sum of the satisfaction of the outcomes added */
+        private double sumSatisfaction = 0.0;
+        /** Running mean of the satisfaction of the outcomes added */
+        private double meanSatisfaction = 0.0;
+        /** Running sum of the squared deviations of the satisfaction of the outcomes added */
+        private double m2Satisfaction = 0.0;
+        /** Number of outcomes added with a path of length greater than 0 */
+        private int numBenevolentPaths = 0;
+        /** Sum of the path length of the outcomes added */
+        private double sumPathLength = 0.0;
+        /** Running mean of the length of the paths greater than 0 */
+        private double meanPathLength = 0.0;
+        /** Running sum of the squared deviations of the length of the paths greater than 0 */
+        private double m2PathLength = 0.0;
+
+        @Override
+        protected void add(Outcome outcome) {
+            BasicOutcome basicOutcome = (BasicOutcome)outcome;
+
+            numOutcomes++;
+            if (firstSatisfaction == null)
+                firstSatisfaction = outcome.get_satisfaction();
+            else if (aggregatedSatisfaction == null)
+                aggregatedSatisfaction = outcome.get_satisfaction();
+            else
+                aggregatedSatisfaction = aggregatedSatisfaction.aggregate(outcome.get_satisfaction());
+
+            double satisfaction = basicOutcome.get_avgSatisfaction();
+            sumSatisfaction += satisfaction;
+            double delta = satisfaction-meanSatisfaction;
+            meanSatisfaction += delta/numOutcomes;
+            m2Satisfaction += delta*(satisfaction-meanSatisfaction);
+
+            double pathLength = basicOutcome.get_avgPathLength();
+            sumPathLength += pathLength;
+            if (pathLength != 0.0) {
+                numBenevolentPaths++;
+                delta = pathLength-meanPathLength;
+                meanPathLength += delta/numBenevolentPaths;
+                m2PathLength += delta*(pathLength-meanPathLength);
+            }
+        }
+
+        @Override
+        protected Outcome get_outcome() {
+            if (numOutcomes == 0)
+                return null;
+            return withDeviations(new BasicOutcome(get_satisfaction(), get_avgSatisfaction(), get_avgPathLength()));
+        }
+
+        /**
+         * This method returns the aggregated satisfaction of the outcomes added so far
+         * @return The aggregated satisfaction of the outcomes added so far
+         */
+        protected Satisfaction get_satisfaction() {
+            return (aggregatedSatisfaction != null) ? aggregatedSatisfaction : firstSatisfaction;
+        }
+
+        /**
+         * This method returns the average satisfaction of the outcomes added so far
+         * @return The average satisfaction of the outcomes added so far
+         */
+        protected double get_avgSatisfaction() {
+            return sumSatisfaction/numOutcomes;
+        }
+
+        /**
+         * This method returns the average length of the paths greater than 0 added so far
+         * @return The average length of the paths greater than 0 added so far
+         */
+        protected double get_avgPathLength() {
+            return (numBenevolentPaths > 0) ? sumPathLength/numBenevolentPaths : sumPathLength;
+        }
+
+        /**
+         * This method sets the standard deviations of the outcomes added so far into the given outcome
+         * @param outcome Aggregated outcome
+         * @return The given outcome
+         */
+        protected BasicOutcome withDeviations(BasicOutcome outcome) {
+            outcome.stdDevSatisfaction = (numOutcomes > 1) ? Math.sqrt(m2Satisfaction/(numOutcomes-1)) : 0.0;
+            outcome.stdDevPathLength = (numBenevolentPaths > 1) ? Math.sqrt(m2PathLength/(numBenevolentPaths-1)) : 0.0;
+            return outcome;
+        }
+    }
 }
\ No newline at end of file
@@ -41,11 +41,10 @@
 
 package es.ants.felixgm.trmsim_wsn.outcomes;
 
+import es.ants.felixgm.trmsim_wsn.network.EnergyLedger;
 import es.ants.felixgm.trmsim_wsn.network.Network;
 import es.ants.felixgm.trmsim_wsn.network.Service;
 import es.ants.felixgm.trmsim_wsn.satisfaction.Satisfaction;
-import es.ants.felixgm.trmsim_wsn.search.IsPreTrustedPeerSearchCondition;
-import es.ants.felixgm.trmsim_wsn.search.IsServerSearchCondition;
 import java.util.Collection;
 
 /**
@@ -92,10 +91,11 @@ public class EigenTrustEnergyConsumptionOutcome extends EnergyConsumptionOutcome
 
     @Override
     public void setEnergyConsumption(Network network, Service requiredService, int numExecutions) {
-        preTrustedPeerEnergyConsumption = network.get_sensorsTransmittedDistance(new IsPreTrustedPeerSearchCondition(),requiredService)/(double)numExecutions;
-        maliciousServerEnergyConsumption = network.get_sensorsTransmittedDistance(new IsServerSearchCondition(requiredService,IsServerSearchCondition.MALICIOUS_SERVER),requiredService)/(double)numExecutions;
-        benevolentServerEnergyConsumption = network.get_sensorsTransmittedDistance(new IsServerSearchCondition(requiredService,IsServerSearchCondition.BENEVOLENT_SERVER),requiredService)/(double)numExecutions;
-        relayServerEnergyConsumption = network.get_sensorsTransmittedDistance(new IsServerSearchCondition(new Service("Relay"),IsServerSearchCondition.RELAY_SERVER),new Service("Relay"))/(double)numExecutions;
+        EnergyLedger energyLedger = network.get_energyLedger();
+        preTrustedPeerEnergyConsumption = energyLedger.get_avgTransmittedDistance(EnergyLedger.PRE_TRUSTED_PEER, requiredService)/(double)numExecutions;
+        maliciousServerEnergyConsumption = energyLedger.get_avgTransmittedDistance(EnergyLedger.MALICIOUS_SERVER, requiredService)/(double)numExecutions;
+        benevolentServerEnergyConsumption = energyLedger.get_avgTransmittedDistance(EnergyLedger.BENEVOLENT_SERVER, requiredService)/(double)numExecutions;
+        relayServerEnergyConsumption = energyLedger.get_avgTransmittedDistance(EnergyLedger.RELAY_SERVER, requiredService)/(double)numExecutions;
         avgSensorEnergyConsumption = (preTrustedPeerEnergyConsumption+maliciousServerEnergyConsumption+benevolentServerEnergyConsumption+relayServerEnergyConsumption)/4.0;
     }
 
@@ -119,6 +119,11 @@ public class EigenTrustEnergyConsumptionOutcome extends EnergyConsumptionOutcome
                      ((EnergyConsumptionOutcome)outcome).get_relayServerEnergyConsumption());
     }
 
+    @Override
+    protected Aggregation createAggregation() {
+        return new Aggregation();
+    }
+
     /**
      * This method returns the energy consumption per pre-trusted peer and per each execution of the trust model of this outcome
      * @return The energy consumption per pre-trusted peer and per each execution of the trust model of this outcome
@@ -147,4 +152,32 @@ public class EigenTrustEnergyConsumptionOutcome extends EnergyConsumptionOutcome
                 +"\t"+relayServerEnergyConsumption
                 +"\t"+avgSensorEnergyConsumption;
     }
+
+    /**
+     * <p>This class models the aggregation of a set of EigenTrust outcomes. It keeps,
+     * besides the figures of a {@link EnergyConsumptionOutcome.Aggregation}, the running
+     * sum of the energy consumption of the pre-trusted peers</p>
+     */
+    protected static class Aggregation extends EnergyConsumptionOutcome.Aggregation {
+        /** Sum of the energy consumption per pre-trusted peer of the outcomes added */
+        private double sumPreTrustedPeerEnergyConsumption = 0.0;
+
+        @Override
+        protected void add(Outcome outcome) {
+            super.add(outcome);
+            sumPreTrustedPeerEnergyConsumption += ((EigenTrustEnergyConsumptionOutcome)outcome).get_preTrustedPeerEnergyConsumption();
+        }
+
+        @Override
+        protected Outcome get_outcome() {
+            if (numOutcomes == 0)
+                return null;
+            return withDeviations(new EigenTrustEnergyConsumptionOutcome(get_satisfaction(),
+                    get_avgSatisfaction(), get_avgPathLength(),
+                    sumPreTrustedPeerEnergyConsumption/numOutcomes,
+                    sumMaliciousServerEnergyConsumption/numOutcomes,
+                    sumBenevolentServerEnergyConsumption/numOutcomes,
+                    sumRelayServerEnergyConsumption/numOutcomes));
+        }
+    }
 }
\ No newline at end of file
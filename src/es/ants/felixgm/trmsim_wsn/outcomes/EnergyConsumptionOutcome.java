@@ -41,11 +41,10 @@
 
 package es.ants.felixgm.trmsim_wsn.outcomes;
 
+import es.ants.felixgm.trmsim_wsn.network.EnergyLedger;
 import es.ants.felixgm.trmsim_wsn.network.Network;
 import es.ants.felixgm.trmsim_wsn.network.Service;
 import es.ants.felixgm.trmsim_wsn.satisfaction.Satisfaction;
-import es.ants.felixgm.trmsim_wsn.search.IsClientSearchCondition;
-import es.ants.felixgm.trmsim_wsn.search.IsServerSearchCondition;
 import java.util.Collection;
 
 /**
@@ -111,10 +110,11 @@ public class EnergyConsumptionOutcome extends BasicOutcome {
      * @param numExecutions Number of times the selected trust and reputation model has been executed
      */
     public void setEnergyConsumption(Network network, Service requiredService, int numExecutions) {
-        clientEnergyConsumption = network.get_sensorsTransmittedDistance(new IsClientSearchCondition(),requiredService)/(double)numExecutions;
-        maliciousServerEnergyConsumption = network.get_sensorsTransmittedDistance(new IsServerSearchCondition(requiredService,IsServerSearchCondition.MALICIOUS_SERVER),requiredService)/(double)numExecutions;
-        benevolentServerEnergyConsumption = network.get_sensorsTransmittedDistance(new IsServerSearchCondition(requiredService,IsServerSearchCondition.BENEVOLENT_SERVER),requiredService)/(double)numExecutions;
-        relayServerEnergyConsumption = network.get_sensorsTransmittedDistance(new IsServerSearchCondition(new Service("Relay"),IsServerSearchCondition.RELAY_SERVER),new Service("Relay"))/(double)numExecutions;
+        EnergyLedger energyLedger = network.get_energyLedger();
+        clientEnergyConsumption = energyLedger.get_avgTransmittedDistance(EnergyLedger.CLIENT, requiredService)/(double)numExecutions;
+        maliciousServerEnergyConsumption = energyLedger.get_avgTransmittedDistance(EnergyLedger.MALICIOUS_SERVER, requiredService)/(double)numExecutions;
+        benevolentServerEnergyConsumption = energyLedger.get_avgTransmittedDistance(EnergyLedger.BENEVOLENT_SERVER, requiredService)/(double)numExecutions;
+        relayServerEnergyConsumption = energyLedger.get_avgTransmittedDistance(EnergyLedger.RELAY_SERVER, requiredService)/(double)numExecutions;
         avgSensorEnergyConsumption = (clientEnergyConsumption+maliciousServerEnergyConsumption+benevolentServerEnergyConsumption+relayServerEnergyConsumption)/4.0;
     }
 
@@ -147,6 +147,11 @@ public class EnergyConsumptionOutcome extends BasicOutcome {
                      _relayServerEnergyConsumption);
     }
 
+    @Override
+    protected Aggregation createAggregation() {
+        return new Aggregation();
+    }
+
     /**
      * This method returns the energy consumption per client and per each execution of the trust model of this outcome
      * @return The energy consumption per client and per each execution of the trust model of this outcome
@@ -195,4 +200,42 @@ public class EnergyConsumptionOutcome extends BasicOutcome {
                 +"\t"+relayServerEnergyConsumption
                 +"\t"+avgSensorEnergyConsumption;
     }
+
+    /**
+     * <p>This class models the aggregation of a set of energy consumption outcomes. It keeps,
+     * besides the figures of a {@link BasicOutcome.Aggregation}, the running sums of the energy
+     * consumption of each kind of sensor</p>
+     */
+    protected static class Aggregation extends BasicOutcome.Aggregation {
+        /** Sum of the energy consumption per client of the outcomes added */
+        protected double sumClientEnergyConsumption = 0.0;
+        /** Sum of the energy consumption per malicious server of the outcomes added */
+        protected double sumMaliciousServerEnergyConsumption = 0.0;
+        /** Sum of the energy consumption per benevolent server of the outcomes added */
+        protected double sumBenevolentServerEnergyConsumption = 0.0;
+        /** Sum of the energy consumption per relay server of the outcomes added */
+        protected double sumRelayServerEnergyConsumption = 0.0;
+
+        @Override
+        protected void add(Outcome outcome) {
+            super.add(outcome);
+            EnergyConsumptionOutcome energyConsumptionOutcome = (EnergyConsumptionOutcome)outcome;
+            sumClientEnergyConsumption += energyConsumptionOutcome.get_clientEnergyConsumption();
+            sumMaliciousServerEnergyConsumption += energyConsumptionOutcome.get_maliciousServerEnergyConsumption();
+            sumBenevolentServerEnergyConsumption += energyConsumptionOutcome.get_benevolentServerEnergyConsumption();
+            sumRelayServerEnergyConsumption += energyConsumptionOutcome.get_relayServerEnergyConsumption();
+        }
+
+        @Override
+        protected Outcome get_outcome() {
+            if (numOutcomes == 0)
+                return null;
+            return withDeviations(new EnergyConsumptionOutcome(get_satisfaction(),
+                    get_avgSatisfaction(), get_avgPathLength(),
+                    sumClientEnergyConsumption/numOutcomes,
+                    sumMaliciousServerEnergyConsumption/numOutcomes,
+                    sumBenevolentServerEnergyConsumption/numOutcomes,
+                    sumRelayServerEnergyConsumption/numOutcomes));
+        }
+    }
 }
\ No newline at end of file
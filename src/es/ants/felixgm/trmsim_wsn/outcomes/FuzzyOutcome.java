@@ -137,6 +137,11 @@ public class FuzzyOutcome extends EnergyConsumptionOutcome {
                                 _totalOutcomesNumber);
     }
 
+    @Override
+    protected Aggregation createAggregation() {
+        return new Aggregation();
+    }
+
     /**
      * This method returns the number of clients with each type of satisfaction
      * @return The number of clients with each type of satisfaction
@@ -177,4 +182,52 @@ public class FuzzyOutcome extends EnergyConsumptionOutcome {
             s += "\t"+(((int)(satisfactionLinguisticTermsPercentage.get(satisfactionLinguisticTerm)*1000000))/10000.0);
         return s;
     }
+
+    /**
+     * <p>This class models the aggregation of a set of fuzzy outcomes. It keeps, besides
+     * the figures of a {@link EnergyConsumptionOutcome.Aggregation}, the histogram of the
+     * linguistic terms of the satisfaction of the outcomes added</p>
+     */
+    protected static class Aggregation extends EnergyConsumptionOutcome.Aggregation {
+        /** Number of clients with each type of satisfaction */
+        private HashMap<String,Integer> satisfactionLinguisticTermsCount = new HashMap<String,Integer>();
+        /** Total number of outcomes */
+        private int totalOutcomesNumber = 0;
+
+        @Override
+        protected void add(Outcome outcome) {
+            super.add(outcome);
+            HashMap<String,Integer> satisfactionCount = ((FuzzyOutcome)outcome).getSatisfactionCount();
+            for (String satisfactionLinguisticTerm : satisfactionCount.keySet()) {
+                Integer count = satisfactionLinguisticTermsCount.get(satisfactionLinguisticTerm);
+                satisfactionLinguisticTermsCount.put(satisfactionLinguisticTerm,
+                        ((count == null) ? 0 : count)+satisfactionCount.get(satisfactionLinguisticTerm));
+                totalOutcomesNumber += satisfactionCount.get(satisfactionLinguisticTerm);
+            }
+        }
+
+        @Override
+        protected Outcome get_outcome() {
+            if (numOutcomes == 0)
+                return null;
+
+            HashMap<String,Integer> _satisfactionLinguisticTermsCount = new HashMap<String,Integer>();
+            HashMap<String,Double> _satisfactionLinguisticTermsPercentage = new HashMap<String,Double>();
+            for (String satisfactionLinguisticTerm : satisfactionLinguisticTermsCount.keySet())
+                _satisfactionLinguisticTermsCount.put(satisfactionLinguisticTerm, satisfactionLinguisticTermsCount.get(satisfactionLinguisticTerm));
+            for (String satisfactionLinguisticTerm : _satisfactionLinguisticTermsCount.keySet())
+                _satisfactionLinguisticTermsPercentage.put(satisfactionLinguisticTerm,
+                    _satisfactionLinguisticTermsCount.get(satisfactionLinguisticTerm)/(double)totalOutcomesNumber);
+
+            return withDeviations(new FuzzyOutcome((SatisfactionFuzzy)get_satisfaction(),
+                    get_avgSatisfaction(), get_avgPathLength(),
+                    sumClientEnergyConsumption/numOutcomes,
+                    sumMaliciousServerEnergyConsumption/numOutcomes,
+                    sumBenevolentServerEnergyConsumption/numOutcomes,
+                    sumRelayServerEnergyConsumption/numOutcomes,
+                    _satisfactionLinguisticTermsPercentage,
+                    _satisfactionLinguisticTermsCount,
+                    totalOutcomesNumber));
+        }
+    }
 }
\ No newline at end of file
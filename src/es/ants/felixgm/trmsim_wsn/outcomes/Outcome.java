@@ -45,6 +45,7 @@ import es.ants.felixgm.trmsim_wsn.satisfaction.Satisfaction;
 import es.ants.felixgm.trmsim_wsn.network.Network;
 import es.ants.felixgm.trmsim_wsn.network.Service;
 import java.io.FileWriter;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Vector;
 
@@ -74,6 +75,26 @@ public abstract class Outcome {
      */
     public abstract Outcome aggregate(Collection<Outcome> outcomes);
 
+    /**
+     * This method returns a new aggregation of outcomes of the same type as this one, which
+     * is started with this outcome
+     * @return A new aggregation of outcomes of the same type as this one
+     */
+    protected final Aggregation newAggregation() {
+        Aggregation aggregation = createAggregation();
+        aggregation.add(this);
+        return aggregation;
+    }
+
+    /**
+     * This method creates an empty aggregation of outcomes of the same type as this one.
+     * Subclasses keeping their own running figures override it to return their own aggregation
+     * @return An empty aggregation of outcomes of the same type as this one
+     */
+    protected Aggregation createAggregation() {
+        return new Aggregation();
+    }
+
     /**
      * This method computes the average of all the given outcomes, provided by the
      * clients of the given network and, additionally,
@@ -140,6 +161,14 @@ public abstract class Outcome {
             return "0";
     }
 
+    /**
+     * This method returns the line of the file where to save this outcome, including all its elements
+     * @return The line of the file where to save this outcome, including all its elements
+     */
+    public final String get_outcomesFileLine() {
+        return getOutcomesFileLine();
+    }
+
     /**
      * Writes the output of this outcome toString() method into a given file
      * @param fileName Path of the file where to write this outcome
@@ -178,4 +207,32 @@ public abstract class Outcome {
      * @return The satisfaction of the client with the received service
      */
     public Satisfaction get_satisfaction() { return satisfaction; }
+
+    /**
+     * <p>This class models the aggregation of a set of outcomes, which are added one by one.
+     * Every subclass of {@link Outcome} providing its own aggregation should just keep the
+     * running figures needed to build the aggregated outcome, while this one keeps every
+     * added outcome and aggregates them through {@link Outcome#aggregate(Collection)}</p>
+     * @see OutcomeAccumulator
+     */
+    protected static class Aggregation {
+        /** Outcomes added to this aggregation */
+        private Collection<Outcome> outcomes = new ArrayList<Outcome>();
+
+        /**
+         * This method adds a new outcome to this aggregation
+         * @param outcome Outcome to be added
+         */
+        protected void add(Outcome outcome) {
+            outcomes.add(outcome);
+        }
+
+        /**
+         * This method returns the aggregation of all the outcomes added so far
+         * @return The aggregation of all the outcomes added so far
+         */
+        protected Outcome get_outcome() {
+            return computeOutcomes(outcomes);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package es.ants.felixgm.trmsim_wsn.outcomes;
+
+import es.ants.felixgm.trmsim_wsn.network.Network;
+import es.ants.felixgm.trmsim_wsn.network.Service;
+
+/**
+ * <p>This class aggregates the outcomes of a trust and reputation model as they are
+ * produced, one by one. Unlike {@link Outcome#computeOutcomes(java.util.Collection)},
+ * it does not need to keep every outcome, and the cost of adding an outcome or getting
+ * the aggregation of all the outcomes added so far does not depend on their number</p>
+ * <p>The running figures kept depend on the type of the first outcome added, as given by
+ * its own aggregation, so every outcome added must be of the same type</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+public class OutcomeAccumulator {
+    /** Aggregation of the outcomes added so far */
+    private Outcome.Aggregation aggregation;
+    /** Number of outcomes added so far */
+    private int numOutcomes;
+
+    /**
+     * Class OutcomeAccumulator constructor
+     */
+    public OutcomeAccumulator() {
+        aggregation = null;
+        numOutcomes = 0;
+    }
+
+    /**
+     * This method adds a new outcome to this accumulator
+     * @param outcome Outcome to be added
+     */
+    public void add(Outcome outcome) {
+        if (aggregation == null)
+            aggregation = outcome.newAggregation();
+        else
+            aggregation.add(outcome);
+        numOutcomes++;
+    }
+
+    /**
+     * This method returns the number of outcomes added so far
+     * @return The number of outcomes added so far
+     */
+    public int get_numOutcomes() { return numOutcomes; }
+
+    /**
+     * Returns an outcome with the average and standard deviation of the outcomes
+     * added so far
+     * @return An outcome with the average and standard deviation of the outcomes
+     * added so far, or null if no outcome has been added yet
+     */
+    public Outcome get_outcome() {
+        if (aggregation == null)
+            return null;
+        return aggregation.get_outcome();
+    }
+
+    /**
+     * Returns an outcome with the average and standard deviation of the outcomes added
+     * so far, provided by the clients of the given network and, additionally, the
+     * transmitted distance for each kind of sensor
+     * @param network The network the added outcomes come from
+     * @param requiredService The requested service
+     * @param numExecutions The number of executions of the trust and/or reputation model over the given network
+     * @return The aggregation of the outcomes added so far plus the transmitted distance for each kind
+     * of sensor, or null if no outcome has been added yet
+     */
+    public Outcome get_outcome(Network network, Service requiredService, int numExecutions) {
+        Outcome outcome = get_outcome();
+
+        if ((outcome != null) && (outcome instanceof EnergyConsumptionOutcome))
+            ((EnergyConsumptionOutcome)outcome).setEnergyConsumption(network, requiredService, numExecutions);
+        return outcome;
+    }
+}
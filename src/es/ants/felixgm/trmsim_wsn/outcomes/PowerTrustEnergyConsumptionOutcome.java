@@ -41,12 +41,10 @@
 
 package es.ants.felixgm.trmsim_wsn.outcomes;
 
+import es.ants.felixgm.trmsim_wsn.network.EnergyLedger;
 import es.ants.felixgm.trmsim_wsn.network.Network;
 import es.ants.felixgm.trmsim_wsn.network.Service;
 import es.ants.felixgm.trmsim_wsn.satisfaction.Satisfaction;
-import es.ants.felixgm.trmsim_wsn.search.IsClientSearchCondition;
-import es.ants.felixgm.trmsim_wsn.search.IsPowerNodeSearchCondition;
-import es.ants.felixgm.trmsim_wsn.search.IsServerSearchCondition;
 import java.util.Collection;
 
 /**
@@ -95,11 +93,12 @@ public class PowerTrustEnergyConsumptionOutcome extends EnergyConsumptionOutcome
 
     @Override
     public void setEnergyConsumption(Network network, Service requiredService, int numExecutions) {
-        clientEnergyConsumption = network.get_sensorsTransmittedDistance(new IsClientSearchCondition(),requiredService)/(double)numExecutions;
-        maliciousServerEnergyConsumption = network.get_sensorsTransmittedDistance(new IsServerSearchCondition(requiredService,IsServerSearchCondition.MALICIOUS_SERVER),requiredService)/(double)numExecutions;
-        benevolentServerEnergyConsumption = network.get_sensorsTransmittedDistance(new IsServerSearchCondition(requiredService,IsServerSearchCondition.BENEVOLENT_SERVER),requiredService)/(double)numExecutions;
-        relayServerEnergyConsumption = network.get_sensorsTransmittedDistance(new IsServerSearchCondition(new Service("Relay"),IsServerSearchCondition.RELAY_SERVER),new Service("Relay"))/(double)numExecutions;
-        powerNodeEnergyConsumption = network.get_sensorsTransmittedDistance(new IsPowerNodeSearchCondition(),requiredService)/(double)numExecutions;
+        EnergyLedger energyLedger = network.get_energyLedger();
+        clientEnergyConsumption = energyLedger.get_avgTransmittedDistance(EnergyLedger.CLIENT, requiredService)/(double)numExecutions;
+        maliciousServerEnergyConsumption = energyLedger.get_avgTransmittedDistance(EnergyLedger.MALICIOUS_SERVER, requiredService)/(double)numExecutions;
+        benevolentServerEnergyConsumption = energyLedger.get_avgTransmittedDistance(EnergyLedger.BENEVOLENT_SERVER, requiredService)/(double)numExecutions;
+        relayServerEnergyConsumption = energyLedger.get_avgTransmittedDistance(EnergyLedger.RELAY_SERVER, requiredService)/(double)numExecutions;
+        powerNodeEnergyConsumption = energyLedger.get_avgTransmittedDistance(EnergyLedger.POWER_NODE, requiredService)/(double)numExecutions;
         avgSensorEnergyConsumption = (clientEnergyConsumption+maliciousServerEnergyConsumption+benevolentServerEnergyConsumption+relayServerEnergyConsumption+powerNodeEnergyConsumption)/5.0;
     }
 
@@ -124,6 +123,11 @@ public class PowerTrustEnergyConsumptionOutcome extends EnergyConsumptionOutcome
                      _powerNodeEnergyConsumption);
     }
 
+    @Override
+    protected Aggregation createAggregation() {
+        return new Aggregation();
+    }
+
     /**
      * This method returns the energy consumption per power node and per each execution of the trust model of this outcome
      * @return The energy consumption per power node and per each execution of the trust model of this outcome
@@ -154,4 +158,33 @@ public class PowerTrustEnergyConsumptionOutcome extends EnergyConsumptionOutcome
                 +"\t"+avgSensorEnergyConsumption
                 +"\t"+powerNodeEnergyConsumption;
     }
+
+    /**
+     * <p>This class models the aggregation of a set of PowerTrust outcomes. It keeps,
+     * besides the figures of a {@link EnergyConsumptionOutcome.Aggregation}, the running
+     * sum of the energy consumption of the power nodes</p>
+     */
+    protected static class Aggregation extends EnergyConsumptionOutcome.Aggregation {
+        /** Sum of the energy consumption per power node of the outcomes added */
+        private double sumPowerNodeEnergyConsumption = 0.0;
+
+        @Override
+        protected void add(Outcome outcome) {
+            super.add(outcome);
+            sumPowerNodeEnergyConsumption += ((PowerTrustEnergyConsumptionOutcome)outcome).get_powerNodeEnergyConsumption();
+        }
+
+        @Override
+        protected Outcome get_outcome() {
+            if (numOutcomes == 0)
+                return null;
+            return withDeviations(new PowerTrustEnergyConsumptionOutcome(get_satisfaction(),
+                    get_avgSatisfaction(), get_avgPathLength(),
+                    sumClientEnergyConsumption/numOutcomes,
+                    sumMaliciousServerEnergyConsumption/numOutcomes,
+                    sumBenevolentServerEnergyConsumption/numOutcomes,
+                    sumRelayServerEnergyConsumption/numOutcomes,
+                    sumPowerNodeEnergyConsumption/numOutcomes));
+        }
+    }
 }
\ No newline at end of file
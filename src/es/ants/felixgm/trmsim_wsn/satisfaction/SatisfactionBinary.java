@@ -41,6 +41,8 @@
 
 package es.ants.felixgm.trmsim_wsn.satisfaction;
 
+import es.ants.felixgm.trmsim_wsn.network.RandomStreams;
+
 /**
  * <p>This class models a binary representation of the satisfaction of a client
  * with a received service. This satisfaction can only take two values:
@@ -75,7 +77,7 @@ public class SatisfactionBinary implements Satisfaction {
         if (!(satisfied) && !(((SatisfactionBinary)satisfaction).isSatisfied()))
             return new SatisfactionBinary(satisfied);
 
-        if (Math.random() > 0.5)
+        if (RandomStreams.nextDouble() > 0.5)
             return new SatisfactionBinary(true);
         else
             return new SatisfactionBinary(false);
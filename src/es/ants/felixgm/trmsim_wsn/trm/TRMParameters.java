@@ -41,6 +41,8 @@
 
 package es.ants.felixgm.trmsim_wsn.trm;
 
+import es.ants.felixgm.trmsim_wsn.network.SimulationContext;
+
 import java.util.Properties;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -79,14 +81,23 @@ public abstract class TRMParameters {
     }
     
     /** 
-     * Creates a new instance of TRMParameters from a parameters file
+     * Creates a new instance of TRMParameters from a parameters file. The parameters overridden
+     * by the current {@link SimulationContext} take the place of those read from the file
      * @param parametersFile File containing the parameters of a certain trust and reputation model
-     * @throws java.lang.Exception If any parameter can not be successfully retrieved
+     * @throws java.lang.Exception If any parameter can not be successfully retrieved, or an
+     * overridden parameter is not found in the file
      */
     public TRMParameters(String parametersFile) throws Exception {
         this.parametersFile = parametersFile;
         parameters = new Properties();
         parameters.load(ClassLoader.getSystemClassLoader().getResourceAsStream(parametersFile));
+
+        Properties overrides = SimulationContext.current().get_TRMParametersOverrides();
+        for (String parameterName : overrides.stringPropertyNames()) {
+            if (!parameters.containsKey(parameterName))
+                throw new Exception("Unknown parameter "+parameterName+" in "+parametersFile);
+            parameters.setProperty(parameterName, overrides.getProperty(parameterName));
+        }
     }
     
     /**
@@ -45,6 +45,7 @@ import es.ants.felixgm.trmsim_wsn.outcomes.Outcome;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
 import es.ants.felixgm.trmsim_wsn.network.Network;
 import es.ants.felixgm.trmsim_wsn.network.Service;
+import es.ants.felixgm.trmsim_wsn.network.generator.NetworkGenerator;
 
 import java.util.Collection;
 import java.util.Vector;
@@ -125,6 +126,14 @@ public abstract class TRModel_WSN {
      */
     public abstract Outcome punish(Vector<Sensor> path, Outcome outcome);
 
+    /**
+     * This method is called by the simulation before every round of service requests,
+     * while no client is running. It does nothing unless overridden by models
+     * computing some state shared by all the clients of the round
+     * @param network Network whose clients are about to request their services
+     */
+    public void beginRound(Network network) { }
+
     /**
      * This method generates a new random network specific for this trust and
      * reputation model
@@ -144,6 +153,15 @@ public abstract class TRModel_WSN {
             Collection<Double> probGoodness,
             Collection<Service> services);
 
+    /**
+     * This method generates a new random network specific for this trust and
+     * reputation model by means of a given generator, which determines the number
+     * of sensors, their placement and their roles
+     * @param generator Generator of the new network
+     * @return A new random network specific for this trust and reputation model
+     */
+    public abstract Network generateNetwork(NetworkGenerator generator);
+
     /**
      * This method loads a network from a XML file and creates the specific network
      * corresponding to this trust and reputation model
@@ -43,8 +43,10 @@ package es.ants.felixgm.trmsim_wsn.trm.btrm_wsn;
 
 import java.util.Vector;
 
+import es.ants.felixgm.trmsim_wsn.network.RandomStreams;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
 import es.ants.felixgm.trmsim_wsn.network.Service;
+import es.ants.felixgm.trmsim_wsn.network.Topology;
 
 /**
  * <p>This class models an ant in the ant colony system. It includes the path being built by the ant,
@@ -122,8 +124,11 @@ public class BTRM_Ant {
             averagePheromone = averagePheromone/solution.size();
 
             //We check if currentNode has more not visited neighbors
-            for (Sensor neighbour : currentNode.getNeighbors())
-                    if (!visitedSensors.contains((BTRM_Sensor)neighbour))
+            Topology topology = currentNode.get_topology();
+            int node = currentNode.get_index();
+            currentNode.addNeighborsTransmittedDistance();
+            for (int e = topology.get_firstEdge(node); e < topology.get_endEdge(node); e++)
+                    if (!visitedSensors.contains((BTRM_Sensor)topology.get_targetSensor(e)))
                             return currentNode;
             //Current node has no more non visited neighbors
             //If we've reached a final server, we need to stop
@@ -200,7 +205,7 @@ public class BTRM_Ant {
      */
     public BTRM_Sensor getNextSensor(double alpha, double beta, double q0) {
         BTRM_Sensor nextSensor;
-        if (Math.random() <= q0)
+        if (RandomStreams.nextDouble() <= q0)
             nextSensor = pseudoRandomProportionalRule(alpha, beta);
         else 
             nextSensor = leadingExploration(alpha, beta);
@@ -220,17 +225,22 @@ public class BTRM_Ant {
         Vector<Double> transitionProb = new Vector<Double>();
         Vector<BTRM_Sensor> candidates = new Vector<BTRM_Sensor>();
         double addition = 0.0;
-        for (Sensor neighbour : currentNode.getNeighbors())
+        Topology topology = currentNode.get_topology();
+        int node = currentNode.get_index();
+        currentNode.addNeighborsTransmittedDistance();
+        for (int e = topology.get_firstEdge(node); e < topology.get_endEdge(node); e++) {
+            Sensor neighbour = topology.get_targetSensor(e);
             if (!visitedSensors.contains((BTRM_Sensor)neighbour)) {
-                double probability = Math.pow(currentNode.getPheromone(neighbour), alpha)*
-                                                        Math.pow(currentNode.getHeuristic(neighbour), beta);
+                double probability = Math.pow(currentNode.getPheromone(e), alpha)*
+                                                        Math.pow(currentNode.getHeuristic(e), beta);
                 if (probability > 0) {
                     addition += probability;
                     transitionProb.add(probability);
                     candidates.add((BTRM_Sensor)neighbour);
                 }
             }
-        double aleat = Math.random();
+        }
+        double aleat = RandomStreams.nextDouble();
         double accumulator = 0.0;
         for (int j = 0; j < transitionProb.size(); j++) {
             if ((accumulator <= aleat) && 
@@ -252,15 +262,20 @@ public class BTRM_Ant {
         BTRM_Sensor selectedSensor = null;
         double max = Double.NEGATIVE_INFINITY;
 
-        for (Sensor neighbour : currentNode.getNeighbors())
+        Topology topology = currentNode.get_topology();
+        int node = currentNode.get_index();
+        currentNode.addNeighborsTransmittedDistance();
+        for (int e = topology.get_firstEdge(node); e < topology.get_endEdge(node); e++) {
+            Sensor neighbour = topology.get_targetSensor(e);
             if (!visitedSensors.contains((BTRM_Sensor)neighbour) &&
-                    (Math.pow(currentNode.getPheromone(neighbour), alpha)*
-                     Math.pow(currentNode.getHeuristic(neighbour), beta) > max))
+                    (Math.pow(currentNode.getPheromone(e), alpha)*
+                     Math.pow(currentNode.getHeuristic(e), beta) > max))
             {
-                max = Math.pow(currentNode.getPheromone(neighbour), alpha)*
-                Math.pow(currentNode.getHeuristic(neighbour), beta);
+                max = Math.pow(currentNode.getPheromone(e), alpha)*
+                Math.pow(currentNode.getHeuristic(e), beta);
                 selectedSensor = (BTRM_Sensor)neighbour;
             }
+        }
         return selectedSensor;
     }
 
@@ -42,6 +42,8 @@
 package es.ants.felixgm.trmsim_wsn.trm.btrm_wsn;
 
 import es.ants.felixgm.trmsim_wsn.network.*;
+import es.ants.felixgm.trmsim_wsn.network.generator.NetworkGenerator;
+import es.ants.felixgm.trmsim_wsn.trm.TRModel_WSN;
 import java.util.Collection;
 
 /**
@@ -51,6 +53,13 @@ import java.util.Collection;
  * @since 0.2
  */
 public class BTRM_Network extends Network {
+    /** Pheromone trace of each link of this network, indexed by edge */
+    protected double[] pheromones;
+    /** Heuristic value of each link of this network, indexed by edge */
+    protected double[] heuristics;
+    /** Initial value of pheromone used when the model of the simulation context is not set */
+    protected static final double defaultInitialPheromone = 0.5;
+
     /**
      * This constructor creates a new random BTRM Network using the given parameters
      * @param numSensors Number of sensors composing the network
@@ -71,6 +80,15 @@ public class BTRM_Network extends Network {
         reset();
     }
 
+    /**
+     * This constructor creates a new random BTRM Network by means of a given generator
+     * @param generator Generator of the new network
+     */
+    public BTRM_Network(NetworkGenerator generator) {
+        super(generator);
+        reset();
+    }
+
     /**
      * This method loads a network from a XML file and creates the specific
      * corresponding BTRM Network
@@ -81,16 +99,104 @@ public class BTRM_Network extends Network {
     public BTRM_Network(String xmlFilePath) throws Exception {
         super(xmlFilePath);
         reset();
+        restoreSnapshotState();
     }
 
     @Override
-    public void reset() {
-        BTRM_Sensor.setNumServers(servers.size());
-        BTRM_Link.set_initialPheromone(
-                ((BTRM_WSN_Parameters)BTRM_Sensor.get_TRModel_WSN().get_TRMParameters()).get_initialPheromone());
-        super.reset();
+    protected void topologyBuilt(Topology oldTopology, Topology newTopology) {
+        double[] _pheromones = new double[newTopology.get_numEdges()];
+        double[] _heuristics = new double[newTopology.get_numEdges()];
+        for (int e = 0; e < newTopology.get_numEdges(); e++) {
+            Link link = newTopology.get_link(e);
+            int oldEdge = (oldTopology == null) ? -1 : oldTopology.edgeOf(link);
+            if (oldEdge >= 0) {
+                _pheromones[e] = pheromones[oldEdge];
+                _heuristics[e] = heuristics[oldEdge];
+            } else {
+                _pheromones[e] = pheromoneInitialization();
+                _heuristics[e] = 1.0/newTopology.get_length(e);
+            }
+        }
+        pheromones = _pheromones;
+        heuristics = _heuristics;
+    }
+
+    /**
+     * {@inheritDoc} The pheromone traces and heuristic values of the links are kept
+     */
+    @Override
+    protected double[][] get_snapshotEdgeState() {
+        get_topology();
+        return new double[][] {pheromones, heuristics};
+    }
+
+    @Override
+    protected void set_snapshotEdgeState(double[][] edgeState) {
+        get_topology();
+        System.arraycopy(edgeState[0], 0, pheromones, 0, pheromones.length);
+        if (edgeState.length > 1)
+            System.arraycopy(edgeState[1], 0, heuristics, 0, heuristics.length);
+    }
+
+    /**
+     * Returns the number of servers of this network
+     * @return Number of servers of this network
+     */
+    public int get_numServers() { return servers.size(); }
+
+    /**
+     * Returns the initial value of pheromone of the links of this network, given by
+     * the parameters of the model of the simulation context this network belongs to
+     * @return The initial value of pheromone of the links of this network
+     */
+    public double get_initialPheromone() {
+        TRModel_WSN trmodel_wsn = context.get_TRModel_WSN();
+        if ((trmodel_wsn == null) || !(trmodel_wsn.get_TRMParameters() instanceof BTRM_WSN_Parameters))
+            return defaultInitialPheromone;
+        return ((BTRM_WSN_Parameters)trmodel_wsn.get_TRMParameters()).get_initialPheromone();
+    }
+
+    /**
+     * Computes the initial value of pheromone of a link of this network
+     * @return The initial value of pheromone of a link of this network
+     */
+    protected double pheromoneInitialization() {
+        double initialPheromone = get_initialPheromone();
+        return Math.min(BTRM_Link.MAX_PHEROMONE,
+                Math.max(BTRM_Link.MIN_PHEROMONE,
+                initialPheromone+(2*RandomStreams.nextDouble()-1.0)*initialPheromone*(1.0-initialPheromone)));
     }
 
+    /**
+     * Returns the pheromone trace of a link of this network
+     * @param edge Index of the link in the topology of this network
+     * @return The pheromone trace of the given link
+     */
+    public double get_pheromone(int edge) { return pheromones[edge]; }
+
+    /**
+     * Sets the pheromone trace of a link of this network
+     * @param edge Index of the link in the topology of this network
+     * @param value The new pheromone trace of the given link
+     */
+    public void set_pheromone(int edge, double value) {
+        pheromones[edge] = Math.min(BTRM_Link.MAX_PHEROMONE,Math.max(BTRM_Link.MIN_PHEROMONE,value));
+    }
+
+    /**
+     * Returns the heuristic value of a link of this network
+     * @param edge Index of the link in the topology of this network
+     * @return The heuristic value of the given link
+     */
+    public double get_heuristic(int edge) { return heuristics[edge]; }
+
+    /**
+     * Sets the heuristic value of a link of this network
+     * @param edge Index of the link in the topology of this network
+     * @param value The new heuristic value of the given link
+     */
+    public void set_heuristic(int edge, double value) { heuristics[edge] = value; }
+
     @Override
     public Sensor newSensor(){
         return new BTRM_Sensor();
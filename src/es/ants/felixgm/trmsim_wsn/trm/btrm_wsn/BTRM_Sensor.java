@@ -44,7 +44,7 @@ package es.ants.felixgm.trmsim_wsn.trm.btrm_wsn;
 
 import es.ants.felixgm.trmsim_wsn.network.Link;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
-import java.util.ArrayList;
+import es.ants.felixgm.trmsim_wsn.network.Topology;
 
 /**
  * <p>This class models a Sensor implementing BTRM-WSN</p>
@@ -53,8 +53,6 @@ import java.util.ArrayList;
  * @since 0.2
  */
 public class BTRM_Sensor extends Sensor {
-    /** Number of servers composing the network this sensor belongs to */
-    protected static int _numServers = 0;
 
     /**
      * This constructor creates a new Sensor implementing BTRM-WSN
@@ -74,28 +72,28 @@ public class BTRM_Sensor extends Sensor {
     }
 
     @Override
-    public void addLink(Sensor node) {
-        if (!isNeighbor(node))
-        {
-            if (links == null)
-                links = new ArrayList<Link>();
-
-            BTRM_Link link = new BTRM_Link(this,(BTRM_Sensor)node);
-            links.add(link);
-        }
+    protected Link newLink(Sensor node) {
+        return new BTRM_Link(this,(BTRM_Sensor)node);
     }
 
     /**
      * Returns the number of servers of the network
      * @return Number of servers
      */
-    public int get_numServers() { return _numServers; }
+    public int get_numServers() {
+        return (network == null) ? 0 : ((BTRM_Network)network).get_numServers();
+    }
 
     /**
-     * Sets the number of servers
-     * @param numServers Number of servers
+     * Returns the index of the link connecting to a certain neighbor in the topology of the network
+     * @param sensor One of this sensor's neighbors
+     * @return The index of the link connecting to the given neighbor, or -1 if it is not a neighbor
      */
-    public static void setNumServers(int numServers){ _numServers = numServers; }
+    protected int edgeTo(Sensor sensor) {
+        if (network == null)
+            return -1;
+        return network.get_topology().findEdge(this, sensor);
+    }
 
     /**
      * Gets the pheromone trace with a given neighbor
@@ -103,21 +101,33 @@ public class BTRM_Sensor extends Sensor {
      * @return The pheromone trace with the given neighbor sensor
      */
     synchronized public double getPheromone(Sensor sensor) {
-        if (sensor.isActive())
-            for (Link link : links)
-                if (link.get_destination().equals(sensor)) {
-                    transmittedDistance += this.distance(sensor);
-                    try {
-                        if (collusion && (get_goodness(requiredService) < 0.5) &&
-                                (sensor.get_numServices() > 0)) {
-                            if (sensor.get_goodness(requiredService) < 0.5)
-                                return BTRM_Link.MAX_PHEROMONE;
-                            else
-                                return BTRM_Link.MIN_PHEROMONE;
-                        } else
-                            return ((BTRM_Link)link).get_pheromone();
-                    } catch(Exception ex) {}
-                }
+        int edge = edgeTo(sensor);
+        if (edge < 0)
+            return 0.0;
+        return getPheromone(edge);
+    }
+
+    /**
+     * Gets the pheromone trace of one of the links of this sensor
+     * @param edge Index of the link in the topology of the network
+     * @return The pheromone trace of the given link
+     */
+    synchronized public double getPheromone(int edge) {
+        Topology topology = network.get_topology();
+        Sensor sensor = topology.get_targetSensor(edge);
+        if (sensor.isActive()) {
+            addTransmittedDistance(topology.get_length(edge));
+            try {
+                if (context.isCollusion() && (get_goodness(requiredService) < 0.5) &&
+                        (sensor.get_numServices() > 0)) {
+                    if (sensor.get_goodness(requiredService) < 0.5)
+                        return BTRM_Link.MAX_PHEROMONE;
+                    else
+                        return BTRM_Link.MIN_PHEROMONE;
+                } else
+                    return ((BTRM_Network)network).get_pheromone(edge);
+            } catch(Exception ex) {}
+        }
 
         return 0.0;
     }
@@ -128,12 +138,23 @@ public class BTRM_Sensor extends Sensor {
      * @return The heuristic value with the given neighbor sensor
      */
     synchronized public double getHeuristic(Sensor sensor) {
-        if (sensor.isActive())
-            for (Link link : links)
-                if (link.get_destination().equals(sensor)) {
-                    transmittedDistance += this.distance(sensor);
-                    return ((BTRM_Link)link).get_heuristic();
-                }
+        int edge = edgeTo(sensor);
+        if (edge < 0)
+            return 0.0;
+        return getHeuristic(edge);
+    }
+
+    /**
+     * Gets the heuristic value of one of the links of this sensor
+     * @param edge Index of the link in the topology of the network
+     * @return The heuristic value of the given link
+     */
+    synchronized public double getHeuristic(int edge) {
+        Topology topology = network.get_topology();
+        if (topology.get_targetSensor(edge).isActive()) {
+            addTransmittedDistance(topology.get_length(edge));
+            return ((BTRM_Network)network).get_heuristic(edge);
+        }
 
         return 0.0;
     }
@@ -144,11 +165,19 @@ public class BTRM_Sensor extends Sensor {
      * @param value New pheromone value
      */
     synchronized public void setPheromone(Sensor sensor, double value) {
-        for (Link link : links)
-            if (link.get_destination().equals(sensor)) {
-                transmittedDistance += this.distance(sensor);
-                ((BTRM_Link)link).set_pheromone(value);
-            }
+        int edge = edgeTo(sensor);
+        if (edge >= 0)
+            setPheromone(edge, value);
+    }
+
+    /**
+     * Sets the pheromone trace value of one of the links of this sensor
+     * @param edge Index of the link in the topology of the network
+     * @param value New pheromone value
+     */
+    synchronized public void setPheromone(int edge, double value) {
+        addTransmittedDistance(network.get_topology().get_length(edge));
+        ((BTRM_Network)network).set_pheromone(edge, value);
     }
 
     /**
@@ -157,11 +186,11 @@ public class BTRM_Sensor extends Sensor {
      * @param value New heuristic value
      */
     synchronized public void setHeuristic(Sensor sensor, double value) {
-        for (Link link : links)
-            if (link.get_destination().equals(sensor)) {
-                transmittedDistance += this.distance(sensor);
-                ((BTRM_Link)link).set_heuristic(value);
-            }
+        int edge = edgeTo(sensor);
+        if (edge >= 0) {
+            addTransmittedDistance(network.get_topology().get_length(edge));
+            ((BTRM_Network)network).set_heuristic(edge, value);
+        }
     }
 
     @Override
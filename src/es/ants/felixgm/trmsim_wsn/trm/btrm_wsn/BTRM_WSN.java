@@ -50,9 +50,12 @@ import es.ants.felixgm.trmsim_wsn.trm.GatheredInformation;
 import es.ants.felixgm.trmsim_wsn.outcomes.Outcome;
 import es.ants.felixgm.trmsim_wsn.satisfaction.SatisfactionBinary;
 
+import es.ants.felixgm.trmsim_wsn.network.RandomStreams;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
 import es.ants.felixgm.trmsim_wsn.network.Network;
 import es.ants.felixgm.trmsim_wsn.network.Service;
+import es.ants.felixgm.trmsim_wsn.network.generator.NetworkGenerator;
+import es.ants.felixgm.trmsim_wsn.network.Topology;
 
 import es.ants.felixgm.trmsim_wsn.trm.TRModel_WSN;
 
@@ -168,7 +171,7 @@ public class BTRM_WSN extends TRModel_WSN
 	                    if (nextSensor.offersService(service)) {
                                 double averagePheromone = ants[k].getLastNodePheromone();
                                 if (((averagePheromone > transitionThreshold) &&
-                                        (Math.random() < averagePheromone))) {
+                                        (RandomStreams.nextDouble() < averagePheromone))) {
                                     ants[k].setSolutionFound();
                                     foundSolutions++;
                                 }
@@ -276,13 +279,18 @@ public class BTRM_WSN extends TRModel_WSN
             n1.setPheromone(n2, pheromone);
         }
         BTRM_Sensor maliciousServer = (BTRM_Sensor)path.lastElement();
-        if (((BasicOutcome)outcome).get_avgSatisfaction() < punishmentThreshold)
-            for (Sensor neighbor : maliciousServer.getNeighbors()) {
-                double pheromone = ((BTRM_Sensor)neighbor).getPheromone(maliciousServer);
+        if (((BasicOutcome)outcome).get_avgSatisfaction() < punishmentThreshold) {
+            Topology topology = maliciousServer.get_topology();
+            int node = maliciousServer.get_index();
+            maliciousServer.addNeighborsTransmittedDistance();
+            for (int e = topology.get_firstEdge(node); e < topology.get_endEdge(node); e++) {
+                BTRM_Sensor neighbor = (BTRM_Sensor)topology.get_targetSensor(e);
+                double pheromone = neighbor.getPheromone(maliciousServer);
                 pheromone -= phi;
                 pheromone *= ((BasicOutcome)outcome).get_avgSatisfaction();
-                ((BTRM_Sensor)neighbor).setPheromone(maliciousServer, pheromone);
+                neighbor.setPheromone(maliciousServer, pheromone);
             }
+        }
         return outcome;
     }
 
@@ -297,6 +305,11 @@ public class BTRM_WSN extends TRModel_WSN
         return new BTRM_Network(numSensors,probClients,rangeFactor,probServices,probGoodness,services);
     }
 
+    @Override
+    public Network generateNetwork(NetworkGenerator generator) {
+        return new BTRM_Network(generator);
+    }
+
     @Override
     public Network loadCurrentNetwork(String fileName) throws Exception {
         return new BTRM_Network(fileName);
@@ -51,9 +51,11 @@ import es.ants.felixgm.trmsim_wsn.outcomes.Outcome;
 import es.ants.felixgm.trmsim_wsn.outcomes.EigenTrustEnergyConsumptionOutcome;
 
 import es.ants.felixgm.trmsim_wsn.satisfaction.SatisfactionInterval;
+import es.ants.felixgm.trmsim_wsn.network.RandomStreams;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
 import es.ants.felixgm.trmsim_wsn.network.Network;
 import es.ants.felixgm.trmsim_wsn.network.Service;
+import es.ants.felixgm.trmsim_wsn.network.generator.NetworkGenerator;
 
 import java.util.Collection;
 import java.util.Vector;
@@ -73,11 +75,27 @@ import java.util.Vector;
  *    preTrustedPeersPercentage=0.3
  *    preTrustedPeersWeight=0.25
  *    zeroTrustNodeSelectionProbability=0.2
+ *    centralizedScore=false
+ *    incrementalScore=false
+ *    solver=power
  * </pre>
  * This file can be downloaded 
  * <a href="http://ants.dif.um.es/~felixgm/research/trmsim-wsn/resources/EigenTrustparameters.txt" target=_blank">here</a>.
  * But if any of the parameters can not be successfully extracted from the file, they are set
  * to a default value.
+ * <p>If <code>centralizedScore</code> is true, a single global trust vector is computed
+ * at the beginning of every round from the local trust values of every active sensor,
+ * starting from the one of the previous round, and it is shared by every client,
+ * instead of every client computing and keeping its own one. Local trust values are
+ * then not requested by every client, so their transmission is not charged</p>
+ * <p>If <code>incrementalScore</code> is also true, the shared global trust vector is not
+ * computed again every round, but updated before every selection from the rows of C
+ * of the clients whose transactions changed, pushing the residual this causes into it
+ * while any of its components is greater than <code>epsilon</code>.
+ * It is only computed from scratch when pushing would take longer or the active sensors change</p>
+ * <p>The global trust vector is computed by plain power iteration unless <code>solver</code>
+ * selects an accelerated one, as described in {@link EigenTrust_Parameters}. The number of
+ * times it has been computed and the iterations taken are counted by this model</p>
  * <br></br>
  * For more information regarding EigenTrust algorithm, please check the following reference:
  * <ul>
@@ -96,6 +114,12 @@ public class EigenTrust extends TRModel_WSN {
     protected final double MIN_SATISFACTION = -1.0;
     /** Maximum satisfaction value: {@value} */
     protected final double MAX_SATISFACTION = 1.0;
+    /** Number of times a global trust vector has been computed */
+    private long numSolves = 0;
+    /** Number of iterations taken to compute every global trust vector so far */
+    private long numIterations = 0;
+    /** Number of times the shared global trust vector has been updated incrementally */
+    private long numIncrementalUpdates = 0;
 
     /**
      * Class EigenTrust constructor
@@ -113,7 +137,10 @@ public class EigenTrust extends TRModel_WSN {
 
     @Override
     public synchronized GatheredInformation gatherInformation(Sensor client, Service service) {
-        GatheredInformationEigenTrust gatheredInfo = new GatheredInformationEigenTrust(client.findSensors(new IsServerSearchCondition(service)),EigenTrust_Sensor.getNumSensors());
+        GatheredInformationEigenTrust gatheredInfo = new GatheredInformationEigenTrust(client.findSensors(new IsServerSearchCondition(service)),client.get_network().get_numSensors());
+        if (((EigenTrust_Parameters)trmParameters).isCentralizedScore())
+            return gatheredInfo;
+
         Collection<Vector<Sensor>> pathsToClients = client.findSensors(new IsServerSearchCondition());
 
         for (Vector<Sensor> pathToClient : pathsToClients) {
@@ -130,20 +157,23 @@ public class EigenTrust extends TRModel_WSN {
     }
 
     @Override
-    public synchronized Vector<Sensor> scoreAndRanking(Sensor client, GatheredInformation gi) {
-        double delta = Double.NEGATIVE_INFINITY;
-        double[] newGlobalTrustVector;
+    public Vector<Sensor> scoreAndRanking(Sensor client, GatheredInformation gi) {
         int mostTrustworthyServerId = 0;
 
-        double[][] normalizedLocalTrustValuesMatrix =
-                ((GatheredInformationEigenTrust)gi).get_normalizedLocalTrustValuesMatrix();
-        do {
-            newGlobalTrustVector =
-                    computeNewGlobalTrustVector(normalizedLocalTrustValuesMatrix,
-                                               ((EigenTrust_Sensor)client).get_globalTrustVector());
-            delta = globalTrustVectorsDistance(((EigenTrust_Sensor)client).get_globalTrustVector(),newGlobalTrustVector);
-            ((EigenTrust_Sensor)client).set_globalTrustVector(newGlobalTrustVector);
-        } while (delta >= ((EigenTrust_Parameters)trmParameters).get_epsilon());
+        GatheredInformationEigenTrust gatheredInfo = (GatheredInformationEigenTrust)gi;
+        EigenTrust_Parameters eigenTrust_parameters = (EigenTrust_Parameters)trmParameters;
+        if (eigenTrust_parameters.isCentralizedScore()) {
+            mostTrustworthyServerId = selectServiceProvider(client,
+                    get_sharedGlobalTrustVector((EigenTrust_Network)client.get_network(), client.get_requiredService()));
+            return gatheredInfo.getPathToServer(mostTrustworthyServerId);
+        }
+
+        PowerIteration powerIteration = new PowerIteration(gatheredInfo,
+                ((EigenTrust_Sensor)client).get_preTrustedPeersVector(),
+                eigenTrust_parameters.get_preTrustedPeersWeight(), eigenTrust_parameters.get_solver());
+        ((EigenTrust_Sensor)client).set_globalTrustVector(
+                powerIteration.solve(((EigenTrust_Sensor)client).get_globalTrustVector(), eigenTrust_parameters.get_epsilon()));
+        addSolve(powerIteration.get_iterations());
 
         mostTrustworthyServerId = selectServiceProvider(client,((EigenTrust_Sensor)client).get_globalTrustVector());
         Vector<Sensor> path =
@@ -167,10 +197,132 @@ public class EigenTrust extends TRModel_WSN {
             outcome = new EigenTrustEnergyConsumptionOutcome(new SatisfactionInterval(MIN_SATISFACTION,MAX_SATISFACTION,MAX_SATISFACTION),path.size());
         
         client.addNewTransaction(client, server, outcome);
+        if (((EigenTrust_Parameters)trmParameters).isCentralizedScore() &&
+                ((EigenTrust_Parameters)trmParameters).isIncrementalScore() &&
+                (client.get_network() instanceof EigenTrust_Network) &&
+                (((EigenTrust_Network)client.get_network()).get_incrementalGlobalTrustVector() != null))
+            ((EigenTrust_Network)client.get_network()).get_incrementalGlobalTrustVector().rowChanged(client);
 
         return outcome;
     }
 
+    /**
+     * {@inheritDoc} If scores are centralized, the global trust vector shared by
+     * every client of the network is computed again, unless it is updated incrementally,
+     * in which case it is only computed again if any sensor has been activated or deactivated
+     */
+    @Override
+    public synchronized void beginRound(Network network) {
+        if (((EigenTrust_Parameters)trmParameters).isCentralizedScore() && (network instanceof EigenTrust_Network)) {
+            if (((EigenTrust_Parameters)trmParameters).isIncrementalScore()) {
+                if (((EigenTrust_Network)network).get_incrementalGlobalTrustVector() != null)
+                    ((EigenTrust_Network)network).get_incrementalGlobalTrustVector().checkActiveSensors();
+                return;
+            }
+            Service requiredService = null;
+            for (Sensor client : network.get_clients())
+                if (client.get_requiredService() != null) {
+                    requiredService = client.get_requiredService();
+                    break;
+                }
+            if (requiredService != null)
+                computeSharedGlobalTrustVector((EigenTrust_Network)network, requiredService);
+        }
+    }
+
+    /**
+     * Returns the global trust vector shared by every client of a network, computing it
+     * if it has not been computed yet, or bringing it up to date with the local trust
+     * values changed since it was last updated, if scores are incremental
+     * @param network Network whose global trust vector is returned
+     * @param service Service requested by the clients of the network
+     * @return The global trust vector shared by every client of the network
+     */
+    private synchronized double[] get_sharedGlobalTrustVector(EigenTrust_Network network, Service service) {
+        EigenTrust_Parameters eigenTrust_parameters = (EigenTrust_Parameters)trmParameters;
+        if (eigenTrust_parameters.isIncrementalScore()) {
+            IncrementalGlobalTrustVector incrementalGlobalTrustVector = network.get_incrementalGlobalTrustVector();
+            if ((incrementalGlobalTrustVector == null) || (incrementalGlobalTrustVector.get_service() != service)) {
+                incrementalGlobalTrustVector = new IncrementalGlobalTrustVector(network, service);
+                network.set_incrementalGlobalTrustVector(incrementalGlobalTrustVector);
+            }
+            double[] globalTrustVector = incrementalGlobalTrustVector.update(eigenTrust_parameters);
+            if (globalTrustVector != null) {
+                network.set_sharedGlobalTrustVector(globalTrustVector);
+                if (incrementalGlobalTrustVector.get_iterations() > 0)
+                    addSolve(incrementalGlobalTrustVector.get_iterations());
+                else
+                    numIncrementalUpdates++;
+            }
+        } else if (network.get_sharedGlobalTrustVector() == null)
+            computeSharedGlobalTrustVector(network, service);
+        return network.get_sharedGlobalTrustVector();
+    }
+
+    /**
+     * This method computes the global trust vector shared by every client of a network,
+     * from the local trust values of every active sensor. The iterations start from
+     * the previous shared global trust vector, if any
+     * @param network Network whose global trust vector is computed
+     * @param service Service requested by the clients of the network
+     */
+    private void computeSharedGlobalTrustVector(EigenTrust_Network network, Service service) {
+        GatheredInformationEigenTrust gatheredInfo = new GatheredInformationEigenTrust(network.get_numSensors());
+        for (Sensor server : network.get_servers())
+            if (server.isActive() && server.offersService(service))
+                gatheredInfo.addColumn((EigenTrust_Sensor)server);
+        for (Sensor client : network.get_clients())
+            if (client.isActive())
+                gatheredInfo.addRow((EigenTrust_Sensor)client);
+
+        EigenTrust_Parameters eigenTrust_parameters = (EigenTrust_Parameters)trmParameters;
+        double[] preTrustedPeersVector = network.get_preTrustedPeersVector();
+        double[] globalTrustVector = network.get_sharedGlobalTrustVector();
+        if (globalTrustVector == null)
+            globalTrustVector = network.get_initialGlobalTrustVector(service, eigenTrust_parameters.get_preTrustedPeersPercentage());
+
+        PowerIteration powerIteration = new PowerIteration(gatheredInfo, preTrustedPeersVector,
+                eigenTrust_parameters.get_preTrustedPeersWeight(), eigenTrust_parameters.get_solver());
+        network.set_sharedGlobalTrustVector(powerIteration.solve(globalTrustVector, eigenTrust_parameters.get_epsilon()));
+        addSolve(powerIteration.get_iterations());
+    }
+
+    /**
+     * This method counts a new computation of a global trust vector
+     * @param iterations Number of iterations it took
+     */
+    private synchronized void addSolve(int iterations) {
+        numSolves++;
+        numIterations += iterations;
+    }
+
+    /**
+     * Returns the number of times a global trust vector has been computed by this model
+     * @return The number of times a global trust vector has been computed
+     */
+    public synchronized long get_numSolves() { return numSolves; }
+
+    /**
+     * Returns the number of iterations taken to compute every global trust vector so far
+     * @return The number of iterations taken to compute every global trust vector so far
+     */
+    public synchronized long get_numIterations() { return numIterations; }
+
+    /**
+     * Returns the number of times the shared global trust vector has been updated incrementally,
+     * instead of being computed from scratch
+     * @return The number of times the shared global trust vector has been updated incrementally
+     */
+    public synchronized long get_numIncrementalUpdates() { return numIncrementalUpdates; }
+
+    /**
+     * Returns the average number of iterations taken to compute a global trust vector
+     * @return The average number of iterations per computation, or 0 if none has been computed yet
+     */
+    public synchronized double get_averageIterations() {
+        return (numSolves == 0) ? 0.0 : (double)numIterations/numSolves;
+    }
+
     /**
      * EigenTrust does not implement this method, since it does not apply any specific reward step
      * @param path
@@ -199,7 +351,7 @@ public class EigenTrust extends TRModel_WSN {
     private int selectServiceProvider(Sensor client, double[] globalTrustVector) {
         Vector<Integer> candidates = new Vector<Integer>();
         //Trust-proportional selection
-        if (Math.random() > ((EigenTrust_Parameters)trmParameters).get_zeroTrustNodeSelectionProbability()) {
+        if (RandomStreams.nextDouble() > ((EigenTrust_Parameters)trmParameters).get_zeroTrustNodeSelectionProbability()) {
             Vector<Double> probailities = new Vector<Double>();
             double addition = 0.0;
             for (int i = 0; i < globalTrustVector.length; i++)
@@ -209,13 +361,12 @@ public class EigenTrust extends TRModel_WSN {
                     candidates.add(i);
                 }
 
-            double aleat = Math.random();
+            double aleat = RandomStreams.nextDouble();
             double accumulator = 0.0;
             for (int j = 0; j < probailities.size(); j++) {
                 if ((accumulator <= aleat) &&
                                 (aleat <= (accumulator + probailities.get(j)/addition)) &&
-                                (client.id() != candidates.get(j)+1) &&
-                                (client.findSensors(new IsSensorSearchCondition(candidates.get(j)+1)) != null))
+                                isReachableServiceProvider(client, candidates.get(j)+1))
                         return candidates.get(j)+1;
                 accumulator += probailities.get(j)/addition;
             }
@@ -223,17 +374,17 @@ public class EigenTrust extends TRModel_WSN {
             for (int i = 0; i < globalTrustVector.length; i++)
                 if (globalTrustVector[i] <= Math.pow(10, -6))
                     candidates.add(i);
-            int selectedServiceProvider = (int)(Math.random()*candidates.size());
-            if ((selectedServiceProvider > 0) && (client.id() != candidates.get(selectedServiceProvider) + 1) && (client.findSensors(new IsSensorSearchCondition(candidates.get(selectedServiceProvider)+1)) != null))
+            int selectedServiceProvider = (int)(RandomStreams.nextDouble()*candidates.size());
+            if ((selectedServiceProvider > 0) && isReachableServiceProvider(client, candidates.get(selectedServiceProvider)+1))
                 return candidates.get(selectedServiceProvider) + 1;
-            else if ((candidates.size() > 0) && (client.id() != candidates.get(0) + 1) && (client.findSensors(new IsSensorSearchCondition(candidates.get(0)+1)) != null))
+            else if ((candidates.size() > 0) && isReachableServiceProvider(client, candidates.get(0)+1))
                 return candidates.get(0) + 1;
         }
         //Select the most trustworthy service provider
         double maxTrustValue = Double.NEGATIVE_INFINITY;
         int serviceProvider = 0;
         for (int i = 0; i < globalTrustVector.length; i++)
-            if ((globalTrustVector[i] > maxTrustValue) && (client.id() != i+1) && (client.findSensors(new IsSensorSearchCondition(i+1)) != null)) {
+            if ((globalTrustVector[i] > maxTrustValue) && isReachableServiceProvider(client, i+1)) {
                 maxTrustValue = globalTrustVector[i];
                 serviceProvider = i+1;
             }
@@ -241,49 +392,19 @@ public class EigenTrust extends TRModel_WSN {
     }
 
     /**
-     * This method computes the equation: t^{k+1} = C^T * t^k
-     * @param normalizedLocalTrustValuesMatrix C matrix
-     * @param globalTrustVector t^k vector
-     * @return t^{k+1} = C^T * t^k
+     * This method indicates if a given sensor may act as service provider of a client,
+     * i.e., if it is not the client itself and the client can reach it
+     * @param client Client looking for a service provider
+     * @param serviceProviderId Identifier of the candidate service provider
+     * @return true if the candidate service provider exists, is not the client and it can be reached from it, false otherwise
      */
-    private double[] computeNewGlobalTrustVector(double[][] normalizedLocalTrustValuesMatrix, double[] globalTrustVector) {
-        double[] newGlobalTrustVector = new double[globalTrustVector.length];
-        double[] preTrustedPeersVector = EigenTrust_Sensor.get_preTrustedPeersVector();
-        double preTrustedPeersWeight = ((EigenTrust_Parameters)trmParameters).get_preTrustedPeersWeight();
-        double sum = 0.0;
-
-        for (int l = 0; l < newGlobalTrustVector.length; l++) {
-            newGlobalTrustVector[l] = 0.0;
-
-            for (int j = 0; j < globalTrustVector.length; j++)
-                newGlobalTrustVector[l] += normalizedLocalTrustValuesMatrix[j][l]*globalTrustVector[j];
-            newGlobalTrustVector[l] = (1.0-preTrustedPeersWeight)*newGlobalTrustVector[l] + preTrustedPeersWeight*preTrustedPeersVector[l];
-            sum += newGlobalTrustVector[l];
-        }
-
-        if (sum != 0.0)
-            for (int i = 0; i < globalTrustVector.length; i++)
-                newGlobalTrustVector[i] = newGlobalTrustVector[i]/sum;
-
-        return newGlobalTrustVector;
-    }
-
-    /**
-     * This method computes the difference: ||t^{k+1} - t^k||
-     * @param globalTrustVector1 t^{k+1}
-     * @param globalTrustVector2 t^k
-     * @return ||t^{k+1} - t^k||
-     */
-    private double globalTrustVectorsDistance(double[] globalTrustVector1, double[] globalTrustVector2) {
-        double distance = 0.0;
-
-        for (int i = 0 ; i < globalTrustVector1.length; i++)
-            distance += Math.pow(globalTrustVector1[i]-globalTrustVector2[i], 2);
-
-        if (globalTrustVector1.length != 0)
-            distance = Math.sqrt(distance/globalTrustVector1.length);
-
-        return distance;
+    private boolean isReachableServiceProvider(Sensor client, int serviceProviderId) {
+        if (client.id() == serviceProviderId)
+            return false;
+        Network network = client.get_network();
+        if ((network != null) && (network.getSensor(serviceProviderId) == null))
+            return false;
+        return (client.findSensors(new IsSensorSearchCondition(serviceProviderId)) != null);
     }
 
     @Override
@@ -297,6 +418,16 @@ public class EigenTrust extends TRModel_WSN {
         return new EigenTrust_Network(numSensors,1.0,rangeFactor,probServices,probGoodness,services);
     }
 
+    /**
+     * {@inheritDoc} Every sensor of an EigenTrust network acts as a client
+     */
+    @Override
+    public Network generateNetwork(NetworkGenerator generator) {
+        NetworkGenerator eigenTrustGenerator = new NetworkGenerator(generator);
+        eigenTrustGenerator.set_probClients(1.0);
+        return new EigenTrust_Network(eigenTrustGenerator);
+    }
+
     @Override
     public Network loadCurrentNetwork(String fileName) throws Exception {
         return new EigenTrust_Network(fileName);
@@ -42,14 +42,11 @@
 package es.ants.felixgm.trmsim_wsn.trm.eigentrust;
 
 import es.ants.felixgm.trmsim_wsn.network.*;
-import es.ants.felixgm.trmsim_wsn.search.ISearchCondition;
-import es.ants.felixgm.trmsim_wsn.search.IsPreTrustedPeerSearchCondition;
-import es.ants.felixgm.trmsim_wsn.search.IsServerSearchCondition;
+import es.ants.felixgm.trmsim_wsn.network.generator.NetworkGenerator;
 import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.Vector;
 
 /**
  * <p>This class models a network composed by sensors implementing EigenTrust</p>
@@ -58,6 +55,15 @@ import java.util.Vector;
  * @since 0.2
  */
 public class EigenTrust_Network extends Network {
+    /** Window size for storing transactions outcomes */
+    protected int windowSize;
+    /** Pre-trusted peers vector p */
+    protected double[] preTrustedPeersVector;
+    /** Global trust vector t shared by every client, when scores are centralized, or null if not computed yet */
+    protected double[] sharedGlobalTrustVector;
+    /** Shared global trust vector kept up to date as local trust values change, when scores are incremental, or null if not created yet */
+    protected IncrementalGlobalTrustVector incrementalGlobalTrustVector;
+
     /**
      * This constructor creates a new random EigenTrust Network using the given parameters
      * @param numSensors Number of sensors composing the network
@@ -74,15 +80,24 @@ public class EigenTrust_Network extends Network {
             Collection<Double> probServices,
             Collection<Double> probGoodness,
             Collection<Service> services) {
-        super(numSensors, probClients, rangeFactor, probServices, probGoodness, services);
+        this(new NetworkGenerator(numSensors, probClients, rangeFactor, probServices, probGoodness, services));
+    }
+
+    /**
+     * This constructor creates a new random EigenTrust Network by means of a given generator.
+     * Every sensor acts as a server
+     * @param generator Generator of the new network
+     */
+    public EigenTrust_Network(NetworkGenerator generator) {
+        super(generator);
 
         for (Sensor sensor : sensors) {
             servers.add(sensor);
-            Iterator<Double> itProbServices = probServices.iterator();
-            Iterator<Double> itProbGoodness = probGoodness.iterator();
-            for (Service service : services)
-                if (Math.random() <= itProbServices.next().doubleValue()) {
-                    if (Math.random() <= itProbGoodness.next().doubleValue())
+            Iterator<Double> itProbServices = generator.get_probServices().iterator();
+            Iterator<Double> itProbGoodness = generator.get_probGoodness().iterator();
+            for (Service service : generator.get_services())
+                if (RandomStreams.nextDouble() <= itProbServices.next().doubleValue()) {
+                    if (RandomStreams.nextDouble() <= itProbGoodness.next().doubleValue())
                         sensor.addService(service, 1.0);
                     else
                         sensor.addService(service, 0.0);
@@ -92,14 +107,14 @@ public class EigenTrust_Network extends Network {
                 }
         }
 
-        double preTrustedPeersPercentage = ((EigenTrust_Parameters)EigenTrust_Sensor.get_TRModel_WSN().get_TRMParameters()).get_preTrustedPeersPercentage();
+        double preTrustedPeersPercentage = ((EigenTrust_Parameters)context.get_TRModel_WSN().get_TRMParameters()).get_preTrustedPeersPercentage();
         if (preTrustedPeersPercentage > 0.0) {
             double preTrustedPeersVector[] = new double[get_numSensors()];
             int numPreTrustedPeers = 0;
             for (Sensor sensor : sensors)
                 try {
                     if ((sensor.get_goodness(new Service("My Service")) > 0.5) &&
-                            (Math.random() < preTrustedPeersPercentage)) {
+                            (RandomStreams.nextDouble() < preTrustedPeersPercentage)) {
                         ((EigenTrust_Sensor) sensor).setPreTrustedPeer(true);
                         numPreTrustedPeers++;
                     }
@@ -116,7 +131,7 @@ public class EigenTrust_Network extends Network {
             for (Sensor sensor : sensors)
                 if (((EigenTrust_Sensor) sensor).isPreTrustedPeer())
                     preTrustedPeersVector[sensor.id() - 1] = 1.0 / numPreTrustedPeers;
-            EigenTrust_Sensor.set_preTrustedPeersVector(preTrustedPeersVector);
+            set_preTrustedPeersVector(preTrustedPeersVector);
         }
         reset();
     }
@@ -130,76 +145,172 @@ public class EigenTrust_Network extends Network {
      */
     public EigenTrust_Network(String xmlFilePath) throws Exception {
         super(xmlFilePath);
-        for (Sensor client : clients) {
-            client.addService(new Service("Relay"), 1.0);
-            servers.add(client);
-        }
-        for (Sensor server : servers)
-            if (!clients.contains(server))
-                clients.add(server);
-
-        double preTrustedPeersPercentage = ((EigenTrust_Parameters)EigenTrust_Sensor.get_TRModel_WSN().get_TRMParameters()).get_preTrustedPeersPercentage();
-        if (preTrustedPeersPercentage > 0.0)
-            try {
-                double preTrustedPeersVector[] = new double[get_numSensors()];
-                int numPreTrustedPeers = 0;
-                for (Sensor sensor : sensors)
-                    if((sensor.get_goodness(new Service("My Service")) > 0.5) &&
-                        (Math.random() < preTrustedPeersPercentage)) {
-                        ((EigenTrust_Sensor)sensor).setPreTrustedPeer(true);
-                        numPreTrustedPeers++;
-                    }
-                if (numPreTrustedPeers == 0)
+        if (!isRestoringSnapshot()) {
+            // Sensors loaded as clients and as servers are disjoint, so no membership check is needed
+            Collection<Sensor> loadedServers = new ArrayList<Sensor>(servers);
+            for (Sensor client : clients) {
+                client.addService(new Service("Relay"), 1.0);
+                servers.add(client);
+            }
+            clients.addAll(loadedServers);
+
+            double preTrustedPeersPercentage = ((EigenTrust_Parameters)context.get_TRModel_WSN().get_TRMParameters()).get_preTrustedPeersPercentage();
+            if (preTrustedPeersPercentage > 0.0)
+                try {
+                    double preTrustedPeersVector[] = new double[get_numSensors()];
+                    int numPreTrustedPeers = 0;
                     for (Sensor sensor : sensors)
-                        if(sensor.get_goodness(new Service("My Service")) > 0.5) {
+                        if((sensor.get_goodness(new Service("My Service")) > 0.5) &&
+                            (RandomStreams.nextDouble() < preTrustedPeersPercentage)) {
                             ((EigenTrust_Sensor)sensor).setPreTrustedPeer(true);
                             numPreTrustedPeers++;
-                            break;
                         }
-                for (Sensor sensor : sensors)
-                    if (((EigenTrust_Sensor)sensor).isPreTrustedPeer())
-                        preTrustedPeersVector[sensor.id()-1] = 1.0/numPreTrustedPeers;
-                EigenTrust_Sensor.set_preTrustedPeersVector(preTrustedPeersVector);
-            } catch(Exception ex) {}
+                    if (numPreTrustedPeers == 0)
+                        for (Sensor sensor : sensors)
+                            if(sensor.get_goodness(new Service("My Service")) > 0.5) {
+                                ((EigenTrust_Sensor)sensor).setPreTrustedPeer(true);
+                                numPreTrustedPeers++;
+                                break;
+                            }
+                    for (Sensor sensor : sensors)
+                        if (((EigenTrust_Sensor)sensor).isPreTrustedPeer())
+                            preTrustedPeersVector[sensor.id()-1] = 1.0/numPreTrustedPeers;
+                    set_preTrustedPeersVector(preTrustedPeersVector);
+                } catch(Exception ex) {}
+        }
         reset();
+        restoreSnapshotState();
+    }
+
+    /**
+     * {@inheritDoc} Pre-trusted peers are flagged with 1
+     */
+    @Override
+    protected int get_snapshotFlags(Sensor sensor) {
+        return ((EigenTrust_Sensor)sensor).isPreTrustedPeer() ? 1 : 0;
+    }
+
+    @Override
+    protected void set_snapshotFlags(Sensor sensor, int flags) {
+        ((EigenTrust_Sensor)sensor).setPreTrustedPeer((flags & 1) != 0);
+    }
+
+    @Override
+    protected boolean restoreSnapshotState() throws Exception {
+        if (!super.restoreSnapshotState())
+            return false;
+
+        // The pre-trusted peers vector, and so the initial global trust vectors, depend on the restored pre-trusted peers
+        int numPreTrustedPeers = 0;
+        for (Sensor sensor : sensors)
+            if (((EigenTrust_Sensor)sensor).isPreTrustedPeer())
+                numPreTrustedPeers++;
+        if (numPreTrustedPeers > 0) {
+            double preTrustedPeersVector[] = new double[get_numSensors()];
+            for (Sensor sensor : sensors)
+                if (((EigenTrust_Sensor)sensor).isPreTrustedPeer())
+                    preTrustedPeersVector[sensor.id()-1] = 1.0/numPreTrustedPeers;
+            set_preTrustedPeersVector(preTrustedPeersVector);
+            reset();
+        }
+        return true;
     }
 
     @Override
     public void reset() {
-        EigenTrust_Sensor.setNumSensors(sensors.size());
-        EigenTrust_Sensor.set_windowSize(
-                ((EigenTrust_Parameters)EigenTrust_Sensor.get_TRModel_WSN().get_TRMParameters()).get_windowSize());
+        windowSize = ((EigenTrust_Parameters)context.get_TRModel_WSN().get_TRMParameters()).get_windowSize();
+        sharedGlobalTrustVector = null;
+        incrementalGlobalTrustVector = null;
         super.reset();
     }
 
+    /**
+     * Returns the window size for storing transactions outcomes
+     * @return The window size for storing transactions outcomes
+     */
+    public int get_windowSize() { return windowSize; }
+
+    /**
+     * Returns the pre-trusted peers vector p of this network
+     * @return The pre-trusted peers vector p of this network
+     */
+    public double[] get_preTrustedPeersVector() {
+        if (preTrustedPeersVector == null)
+            preTrustedPeersVector = new double[get_numSensors()];
+        return preTrustedPeersVector;
+    }
+
+    /**
+     * Sets the new pre-trusted peers vector p of this network
+     * @param preTrustedPeersVector New pre-trusted peers vector p
+     */
+    public void set_preTrustedPeersVector(double[] preTrustedPeersVector) {
+        this.preTrustedPeersVector = new double[preTrustedPeersVector.length];
+        for (int i = 0; i < preTrustedPeersVector.length; i++)
+            this.preTrustedPeersVector[i] = preTrustedPeersVector[i];
+    }
+
+    /**
+     * Returns the global trust vector t shared by every client of this network, when scores are centralized.
+     * It must not be modified
+     * @return The global trust vector t shared by every client, or null if not computed yet
+     */
+    public double[] get_sharedGlobalTrustVector() { return sharedGlobalTrustVector; }
+
+    /**
+     * Sets the new global trust vector t shared by every client of this network
+     * @param sharedGlobalTrustVector New global trust vector t, which is not copied
+     */
+    public void set_sharedGlobalTrustVector(double[] sharedGlobalTrustVector) {
+        this.sharedGlobalTrustVector = sharedGlobalTrustVector;
+    }
+
+    /**
+     * Returns the shared global trust vector kept up to date as local trust values change
+     * @return The shared global trust vector kept up to date, or null if not created yet
+     */
+    IncrementalGlobalTrustVector get_incrementalGlobalTrustVector() { return incrementalGlobalTrustVector; }
+
+    /**
+     * Sets the new shared global trust vector kept up to date as local trust values change
+     * @param incrementalGlobalTrustVector New shared global trust vector kept up to date
+     */
+    void set_incrementalGlobalTrustVector(IncrementalGlobalTrustVector incrementalGlobalTrustVector) {
+        this.incrementalGlobalTrustVector = incrementalGlobalTrustVector;
+    }
+
+    /**
+     * Returns the global trust vector the computation of the shared one starts from, when there is no previous one
+     * @param service Service requested by the clients of this network
+     * @param preTrustedPeersPercentage Percentage of pre-trusted peers
+     * @return The pre-trusted peers vector p if there are pre-trusted peers, or else the same global trust value
+     * for every active server offering the given service
+     */
+    double[] get_initialGlobalTrustVector(Service service, double preTrustedPeersPercentage) {
+        if (preTrustedPeersPercentage > 0)
+            return get_preTrustedPeersVector();
+
+        double[] globalTrustVector = new double[get_numSensors()];
+        int numServers = 0;
+        for (Sensor server : servers)
+            if (server.isActive() && server.offersService(service))
+                numServers++;
+        for (Sensor server : servers)
+            if (server.isActive() && server.offersService(service))
+                globalTrustVector[server.id()-1] = 1.0/numServers;
+        return globalTrustVector;
+    }
+
     @Override
     public void writeToXMLFile(String fileName) throws Exception {
         try {
-            if (!fileName.endsWith(".xml"))
-                fileName += ".xml";
-            BufferedWriter out = new BufferedWriter(new FileWriter(fileName));
+            BufferedWriter out = newXMLFileWriter(fileName);
 
             out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
             out.write("<wsn>\n");
-
-            for (Sensor server : servers) {
-                out.write("\t<server id=\""+server.id()
-                +"\" x=\""+(((int)(server.getX()*100))/100.0)
-                +"\" y=\""+(((int)(server.getY()*100))/100.0)
-                +"\">\n");
-                for (Service service : server.get_services())
-                    out.write("\t\t<service id=\""+service.id()+"\" "
-                        +"goodness=\""+server.get_goodness(service)+"\""
-                        +"/>\n");
-                for (Sensor neighbor : server.getNeighbors())
-                    if (neighbor.get_numServices() == 0)
-                        out.write("\t\t<client id=\""+neighbor.id()+"\"/>\n");
-                    else
-                        out.write("\t\t<server id=\""+neighbor.id()+"\"/>\n");
-                out.write("\t</server>\n");
-
-            }
-
+            Topology _topology = get_topology();
+            for (Sensor server : servers)
+                writeXMLSensor(out, _topology, server, "server");
             out.write("</wsn>\n");
             out.flush();
             out.close();
@@ -209,42 +320,19 @@ public class EigenTrust_Network extends Network {
     }
 
     @Override
-    public long get_sensorsTransmittedDistance(ISearchCondition searchCondition, Service requiredService) {
-        long sensorsTransmittedDistance = 0;
-        long numSensors = 0;
-
-        for (Sensor sensor : sensors)
-            if (reachesQualifiedService(sensor,requiredService)) {
-                if (searchCondition instanceof IsPreTrustedPeerSearchCondition) {
-                    if (((EigenTrust_Sensor)sensor).isPreTrustedPeer()) {
-                        sensorsTransmittedDistance += sensor.get_transmittedDistance();
-                        numSensors++;
-                    }
-                } else {
-                    if (searchCondition.sensorAcomplishesCondition(sensor)) {
-                        if (((IsServerSearchCondition)searchCondition).get_serverType() == IsServerSearchCondition.BENEVOLENT_SERVER) {
-                            if (!((EigenTrust_Sensor)sensor).isPreTrustedPeer()) {
-                                sensorsTransmittedDistance += sensor.get_transmittedDistance();
-                                numSensors++;
-                            }
-                        } else {
-                            sensorsTransmittedDistance += sensor.get_transmittedDistance();
-                            numSensors++;
-                        }
-                    }
-                }
-            }
-
-        if (numSensors != 0)
-            return sensorsTransmittedDistance/numSensors;
-
-        return 0;
+    protected int get_energyRoles(Sensor sensor, Service requiredService) {
+        int roles = super.get_energyRoles(sensor, requiredService);
+        if (((EigenTrust_Sensor)sensor).isPreTrustedPeer()) {
+            roles |= EnergyLedger.roleMask(EnergyLedger.PRE_TRUSTED_PEER);
+            roles &= ~EnergyLedger.roleMask(EnergyLedger.BENEVOLENT_SERVER);
+        }
+        return roles;
     }
 
     @Override
     protected boolean reachesQualifiedService(Sensor sensor, Service requiredService) {
-        Collection<Vector<Sensor>> pathsToServers = sensor.findSensors(new IsServerSearchCondition(requiredService,IsServerSearchCondition.BENEVOLENT_SERVER));
-        return ((pathsToServers != null) && (pathsToServers.size() > 0));
+        // Any path of active sensors counts, not only a fully active shortest path
+        return get_reachabilityIndex().reachesBenevolentServer(sensor, requiredService);
     }
 
     @Override
@@ -261,13 +349,17 @@ public class EigenTrust_Network extends Network {
             double prob = ((double)numBenevolentServers/servers.size());
             while (numBenevolentServers > 0)
                 for (Sensor server : servers)
-                    if ((Math.random() < prob) && (server.offersService(service)) && (server.get_goodness(service)< 0.5)) {
+                    if ((RandomStreams.nextDouble() < prob) && (server.offersService(service)) && (server.get_goodness(service)< 0.5)) {
                         server.set_goodness(service,1.0);
                         numBenevolentServers--;
                         if (numBenevolentServers == 0)
                             break;
                     }
         } catch(Exception ex){ ex.printStackTrace(); }
+
+        // The normalized local trust values given by colluding sensors depend on the goodness of the servers
+        if (incrementalGlobalTrustVector != null)
+            incrementalGlobalTrustVector.invalidate();
     }
 
     @Override
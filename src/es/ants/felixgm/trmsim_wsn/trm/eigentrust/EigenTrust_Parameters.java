@@ -55,6 +55,9 @@ import es.ants.felixgm.trmsim_wsn.trm.TRMParameters;
  *    preTrustedPeersPercentage=0.3
  *    preTrustedPeersWeight=0.25
  *    zeroTrustNodeSelectionProbability=0.2
+ *    centralizedScore=false
+ *    incrementalScore=false
+ *    solver=power
  * </pre>
  * This file can be downloaded 
  * <a href="http://ants.dif.um.es/~felixgm/research/trmsim-wsn/resources/EigenTrustparameters.txt" target=_blank">here</a>.
@@ -66,6 +69,12 @@ import es.ants.felixgm.trmsim_wsn.trm.TRMParameters;
  * @since 0.2
  */
 public class EigenTrust_Parameters extends TRMParameters {
+    /** Plain power iteration solver */
+    public static final String POWER_ITERATION = "power";
+    /** Power iteration solver periodically applying Aitken extrapolation */
+    public static final String AITKEN_EXTRAPOLATION = "aitken";
+    /** Power iteration solver accelerated by Anderson mixing */
+    public static final String ANDERSON_ACCELERATION = "anderson";
     /** Default parameters file name */
     public static final String defaultParametersFileName = "trmodels/eigentrust/EigenTrustparameters.txt";
     /** Window size for storing transactions outcomes */
@@ -78,6 +87,12 @@ public class EigenTrust_Parameters extends TRMParameters {
     private double epsilon;
     /** Probability that a node with global trust value 0 is selected as service provider */
     private double zeroTrustNodeSelectionProbability;
+    /** Indicates if a single global trust vector is computed per round and shared by every client (true) or every client computes its own one (false) */
+    private boolean centralizedScore;
+    /** Indicates if the shared global trust vector is updated from the local trust values changed since it was last computed (true) or computed again every round (false) */
+    private boolean incrementalScore;
+    /** Solver computing the global trust vector: {@value #POWER_ITERATION}, {@value #AITKEN_EXTRAPOLATION} or {@value #ANDERSON_ACCELERATION} */
+    private String solver;
        
     /**
      * Creates a new instance of EigenTrust_Parameters setting them to their default values
@@ -94,6 +109,9 @@ public class EigenTrust_Parameters extends TRMParameters {
         preTrustedPeersPercentage = 0.1;
         preTrustedPeersWeight = 0.1;
         zeroTrustNodeSelectionProbability = 0.1;
+        centralizedScore = false;
+        incrementalScore = false;
+        solver = POWER_ITERATION;
     }
     
     /**
@@ -114,6 +132,16 @@ public class EigenTrust_Parameters extends TRMParameters {
         preTrustedPeersPercentage = getDoubleParameter("preTrustedPeersPercentage");
         preTrustedPeersWeight = getDoubleParameter("preTrustedPeersWeight");
         zeroTrustNodeSelectionProbability = getDoubleParameter("zeroTrustNodeSelectionProbability");
+        centralizedScore = getBooleanParameter("centralizedScore");
+        incrementalScore = getBooleanParameter("incrementalScore");
+        solver = getStringParameter("solver");
+        if (solver == null)
+            solver = POWER_ITERATION;
+        else if (!POWER_ITERATION.equals(solver.trim()) && !AITKEN_EXTRAPOLATION.equals(solver.trim()) &&
+                !ANDERSON_ACCELERATION.equals(solver.trim()))
+            throw new Exception("Unknown EigenTrust solver '"+solver+"'");
+        else
+            solver = solver.trim();
     }    
 
      /**
@@ -146,6 +174,27 @@ public class EigenTrust_Parameters extends TRMParameters {
      */
     public double get_zeroTrustNodeSelectionProbability() { return zeroTrustNodeSelectionProbability; }
 
+    /**
+     * Indicates if a single global trust vector is computed per round and shared by every client,
+     * instead of every client computing its own one
+     * @return true if a single global trust vector is shared by every client, false otherwise
+     */
+    public boolean isCentralizedScore() { return centralizedScore; }
+
+    /**
+     * Indicates if the global trust vector shared by every client, when scores are centralized, is
+     * updated from the local trust values changed since it was last computed, instead of being
+     * computed again every round
+     * @return true if the shared global trust vector is updated incrementally, false otherwise
+     */
+    public boolean isIncrementalScore() { return incrementalScore; }
+
+    /**
+     * Returns the solver computing the global trust vector
+     * @return {@value #POWER_ITERATION}, {@value #AITKEN_EXTRAPOLATION} or {@value #ANDERSON_ACCELERATION}
+     */
+    public String get_solver() { return solver; }
+
     /**
      * Sets a new window size parameter value
      * @param windowSize New window size parameter value
@@ -191,6 +240,33 @@ public class EigenTrust_Parameters extends TRMParameters {
         setDoubleParameter("zeroTrustNodeSelectionProbability", zeroTrustNodeSelectionProbability);
     }
 
+    /**
+     * This method sets whether a single global trust vector is computed per round and shared by every client
+     * @param centralizedScore true if a single global trust vector is to be shared by every client, false otherwise
+     */
+    public void set_centralizedScore(boolean centralizedScore) {
+        this.centralizedScore = centralizedScore;
+        setBooleanParameter("centralizedScore", centralizedScore);
+    }
+
+    /**
+     * This method sets whether the shared global trust vector is updated from the local trust values changed since it was last computed
+     * @param incrementalScore true if the shared global trust vector is to be updated incrementally, false otherwise
+     */
+    public void set_incrementalScore(boolean incrementalScore) {
+        this.incrementalScore = incrementalScore;
+        setBooleanParameter("incrementalScore", incrementalScore);
+    }
+
+    /**
+     * This method sets the solver computing the global trust vector
+     * @param solver {@value #POWER_ITERATION}, {@value #AITKEN_EXTRAPOLATION} or {@value #ANDERSON_ACCELERATION}
+     */
+    public void set_solver(String solver) {
+        this.solver = solver;
+        setStringParameter("solver", solver);
+    }
+
     @Override
     public String toString() {
         String s = parametersFileHeader;
@@ -200,6 +276,9 @@ public class EigenTrust_Parameters extends TRMParameters {
         s += "preTrustedPeersWeight="+preTrustedPeersWeight+"\n";
         s += "zeroTrustNodeSelectionProbability="+zeroTrustNodeSelectionProbability+"\n";
         s += "epsilon="+epsilon+"\n";
+        s += "centralizedScore="+centralizedScore+"\n";
+        s += "incrementalScore="+incrementalScore+"\n";
+        s += "solver="+solver+"\n";
 
         return s;
     }
@@ -45,6 +45,7 @@ import es.ants.felixgm.trmsim_wsn.outcomes.Outcome;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
 import es.ants.felixgm.trmsim_wsn.satisfaction.SatisfactionInterval;
 import es.ants.felixgm.trmsim_wsn.trm.peertrust.Transaction;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.Vector;
@@ -56,16 +57,10 @@ import java.util.Vector;
  * @since 0.2
  */
 public class EigenTrust_Sensor extends Sensor {
-    /** Number of sensors composing the network this sensor belongs to */
-    protected static int _numSensors = 0;
-    /** Window size for storing transactions outcomes */
-    protected static int _windowSize;
     /** Collection of Transactions this sensor has had */
     protected Collection<Transaction> transactions;
     /** Vector t */
     protected double[] globalTrustVector;
-    /** Vector p */
-    protected static double[] _preTrustedPeersVector = null;
     /** Collection of severs who this sensor has interacted with */
     protected Collection<EigenTrust_Sensor> interactedServers;
     /** Indicates if this sensor is a pre-trusted peer (true) or not (false) */
@@ -113,7 +108,7 @@ public class EigenTrust_Sensor extends Sensor {
         double normalizedLocalTrustValue = 0.0;
 
         try {
-            if (collusion && offersService(requiredService) && (get_goodness(requiredService) < 0.5) &&
+            if (context.isCollusion() && offersService(requiredService) && (get_goodness(requiredService) < 0.5) &&
                     (server.get_numServices() > 0)) {
                 if (server.get_goodness(requiredService) < 0.5)
                     return 1.0;
@@ -130,13 +125,31 @@ public class EigenTrust_Sensor extends Sensor {
                 if (localTrustValuesSum != 0.0) {
                     return normalizedLocalTrustValue / localTrustValuesSum;
                 } else {
-                    return _preTrustedPeersVector[server.id() - 1];
+                    return get_preTrustedPeersVector()[server.id() - 1];
                 }
             }
         } catch (Exception ex) { ex.printStackTrace(); }
         return 0.0;
     }
 
+    /**
+     * Returns the servers whose normalized local trust value c_{ij} may be greater than zero
+     * @return The servers this sensor has a positive local trust value s_{ij} with, an empty collection if
+     * there is none, so that c_{ij} is p_j, or null if c_{ij} may be greater than zero for any server
+     */
+    synchronized Collection<EigenTrust_Sensor> get_trustedServers() {
+        try {
+            if (context.isCollusion() && offersService(requiredService) && (get_goodness(requiredService) < 0.5))
+                return null;
+        } catch (Exception ex) { return null; }
+
+        Collection<EigenTrust_Sensor> trustedServers = new ArrayList<EigenTrust_Sensor>();
+        for (EigenTrust_Sensor server : interactedServers)
+            if (getLocalTrustValue(server) > 0.0)
+                trustedServers.add(server);
+        return trustedServers;
+    }
+
     /**
      * This method adds a new Transaction to the collection of transactions of this sensor
      * @param client The client who requested the service
@@ -144,7 +157,7 @@ public class EigenTrust_Sensor extends Sensor {
      * @param outcome Outcome of the trnsaction to be added
      */
     public synchronized void addNewTransaction(EigenTrust_Sensor client, EigenTrust_Sensor server, Outcome outcome){
-        if ((transactions.size() != 0) && (transactions.size() >= _windowSize))
+        if ((transactions.size() != 0) && (transactions.size() >= ((EigenTrust_Network)network).get_windowSize()))
             ((LinkedList<Transaction>)transactions).removeLast();
 
         ((LinkedList<Transaction>)transactions).addFirst(new Transaction(client,server,outcome));
@@ -156,12 +169,17 @@ public class EigenTrust_Sensor extends Sensor {
     public void reset() {
         transactions = new LinkedList<Transaction>();
         interactedServers = new LinkedList<EigenTrust_Sensor>();
-        globalTrustVector = new double[_numSensors];
-        if (_preTrustedPeersVector == null)
-            _preTrustedPeersVector = new double[_numSensors];
-        if (((EigenTrust_Parameters)(trmmodelWSN.get_TRMParameters())).get_preTrustedPeersPercentage() > 0) {
+        EigenTrust_Parameters eigenTrust_parameters = (EigenTrust_Parameters)(context.get_TRModel_WSN().get_TRMParameters());
+        if (eigenTrust_parameters.isCentralizedScore()) {
+            // The global trust vector shared by every client is kept by the network
+            globalTrustVector = null;
+            return;
+        }
+        globalTrustVector = new double[network.get_numSensors()];
+        if (eigenTrust_parameters.get_preTrustedPeersPercentage() > 0) {
+            double[] preTrustedPeersVector = get_preTrustedPeersVector();
             for (int i = 0; i < globalTrustVector.length; i++)
-                globalTrustVector[i] = _preTrustedPeersVector[i];
+                globalTrustVector[i] = preTrustedPeersVector[i];
         } else {
             Collection<Vector<Sensor>> pathsToServers = findSensors(new IsServerSearchCondition(requiredService));
             if (pathsToServers != null)
@@ -181,31 +199,15 @@ public class EigenTrust_Sensor extends Sensor {
 
     /**
      * Returns the current global trust vector t_i^k
-     * @return The current global trust vector t_i^k
+     * @return The current global trust vector t_i^k, or null if scores are centralized
      */
     public double[] get_globalTrustVector() { return globalTrustVector; }
 
     /**
-     * Sets the new pre-trusted peers vector p
-     * @param preTrustedPeersVector New pre-trusted peers vector p
-     */
-    public static void set_preTrustedPeersVector(double[] preTrustedPeersVector) {
-        _preTrustedPeersVector = new double[preTrustedPeersVector.length];
-        for (int i = 0; i < preTrustedPeersVector.length; i++) 
-            _preTrustedPeersVector[i] = preTrustedPeersVector[i];
-    }
-
-    /**
-     * Returns the current pre-trusted peers vector p
-     * @return The current pre-trusted peers vector p
+     * Returns the pre-trusted peers vector p of the network this sensor belongs to
+     * @return The pre-trusted peers vector p of the network this sensor belongs to
      */
-    public static double[] get_preTrustedPeersVector() { return _preTrustedPeersVector; }
-
-    /**
-     * Returns the number of sensors composing the network this sensor belongs to
-     * @return The number of sensors composing the network this sensor belongs to
-     */
-    public static int getNumSensors() { return _numSensors; }
+    public double[] get_preTrustedPeersVector() { return ((EigenTrust_Network)network).get_preTrustedPeersVector(); }
 
     /**
      * Indicates if this sensor is a pre-trusted peer (true) or not (false)
@@ -213,21 +215,12 @@ public class EigenTrust_Sensor extends Sensor {
      */
     public boolean isPreTrustedPeer() { return isPreTrustedPeer; }
 
-    /**
-     * Sets the number of sensors composing the network this sensor belongs to
-     * @param numSensors The number of sensors composing the network this sensor belongs to
-     */
-    public static void setNumSensors(int numSensors){ _numSensors = numSensors; }
-
-    /**
-     * Sets the window size for storing transactions outcomes
-     * @param windowSize New window size for storing transactions outcomes
-     */
-    public static void set_windowSize(int windowSize) { _windowSize = windowSize; }
-
     /**
      * Sets this senor as a pre-trusted peer or not
      * @param isPreTrustedPeer true if this sensor is to be a pre-trusted peer, false otherwise
      */
-    public void setPreTrustedPeer(boolean isPreTrustedPeer) { this.isPreTrustedPeer = isPreTrustedPeer; }
+    public void setPreTrustedPeer(boolean isPreTrustedPeer) {
+        this.isPreTrustedPeer = isPreTrustedPeer;
+        rolesChanged();
+    }
 }
\ No newline at end of file
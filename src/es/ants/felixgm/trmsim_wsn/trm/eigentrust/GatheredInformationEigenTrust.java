@@ -43,11 +43,23 @@ package es.ants.felixgm.trmsim_wsn.trm.eigentrust;
 
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
 import es.ants.felixgm.trmsim_wsn.trm.GatheredInformation;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Vector;
 
 /**
  * <p>This class models the information gathered by a Sensor implementing EigenTrust model</p>
+ * <p>The matrix C = (c_{ij}) is kept sparse: only the rows set by
+ * {@link #setNormalizedTrustValue(EigenTrust_Sensor)} are stored, in compressed sparse row
+ * format and holding just their non-zero values. Any other row of C is the
+ * corresponding row of the identity matrix, and so is the diagonal of every row.
+ * Hence memory and time grow with the number of local trust values gathered,
+ * and not with the square of the number of sensors</p>
+ * <p>C^T is built from those rows when first needed, also in compressed sparse
+ * row format and with its diagonal made explicit, so that every component of
+ * C^T * t is computed reading a single contiguous row, independently of the others</p>
  * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a> and Antonio Bern&aacute;rdez
  * @version 0.2
  * @since 0.2
@@ -55,8 +67,28 @@ import java.util.Vector;
 public class GatheredInformationEigenTrust extends GatheredInformation {
     /** Set of paths leading from a certain client to all the reachable clients */
     private Collection<Vector<EigenTrust_Sensor>> pathsToClients;
-    /** Matrix C = (c_{ij}) */
-    private double[][] normalizedLocalTrustValuesMatrix;
+    /** Path leading to each reachable server, indexed by its identifier */
+    private HashMap<Integer,Vector<Sensor>> pathsToServersById;
+    /** Reachable servers whose identifier is a column of C */
+    private ArrayList<EigenTrust_Sensor> columnServers;
+    /** Row (i.e. identifier minus one) of C of each stored row, in the order they were set */
+    private int[] rows = new int[16];
+    /** First value of each stored row. The values of the last one end at rowStarts[numRows] */
+    private int[] rowStarts = new int[17];
+    /** Number of stored rows */
+    private int numRows = 0;
+    /** Column of each stored value */
+    private int[] columns = new int[64];
+    /** Stored values c_{ij} */
+    private double[] values = new double[64];
+    /** Stored rows sorted by row, keeping only the last one set for each row, or null if not sorted yet */
+    private int[] sortedRows;
+    /** First value of each row of C^T. The values of the last one end at transposedStarts[numSensors]. Null if not built yet */
+    private int[] transposedStarts;
+    /** Column of C^T (i.e. row of C) of each value of C^T */
+    private int[] transposedColumns;
+    /** Values of C^T, including its diagonal */
+    private double[] transposedValues;
     /** Number of sensors composing the network */
     private int numSensors;
 
@@ -69,27 +101,112 @@ public class GatheredInformationEigenTrust extends GatheredInformation {
         super(pathsToServers);
         this.numSensors = numSensors;
         pathsToClients = new Vector<Vector<EigenTrust_Sensor>>();
-        normalizedLocalTrustValuesMatrix = new double[numSensors][numSensors];
-        for (int i = 0; i < normalizedLocalTrustValuesMatrix.length; i ++)
-            normalizedLocalTrustValuesMatrix[i][i] = 1.0;
+
+        pathsToServersById = new HashMap<Integer,Vector<Sensor>>();
+        columnServers = new ArrayList<EigenTrust_Sensor>();
+        for (Vector<Sensor> pathToServer : this.pathsToServers) {
+            int serverId = pathToServer.lastElement().id();
+            if (!pathsToServersById.containsKey(serverId)) {
+                pathsToServersById.put(serverId, pathToServer);
+                addColumn((EigenTrust_Sensor)pathToServer.lastElement());
+            }
+        }
+    }
+
+    /**
+     * Class GatheredInformationEigenTrust constructor, with no path to any server nor any
+     * column of C. It is used to build the C matrix of a whole network, through
+     * {@link #addColumn(EigenTrust_Sensor)} and {@link #addRow(EigenTrust_Sensor)}
+     * @param numSensors Number of sensors composing the network
+     */
+    GatheredInformationEigenTrust(int numSensors) {
+        this(new Vector<Vector<Sensor>>(), numSensors);
     }
 
     /**
-     * This method sets the normalized trust value c_{ij}
+     * This method adds a server as a column of C. Rows already set are not updated
+     * @param server Server to be added
+     */
+    void addColumn(EigenTrust_Sensor server) {
+        if ((server.id() >= 1) && (server.id() <= numSensors))
+            columnServers.add(server);
+    }
+
+    /**
+     * This method sets the normalized trust values c_{ij} of the row of a given sensor
      * @param sensor Sensor j
      */
     public void setNormalizedTrustValue(EigenTrust_Sensor sensor) {
-         for (int sensorId = 1; sensorId <= numSensors; sensorId++) 
-             if (sensorId != sensor.id()) {
-                 Vector<Sensor> pathToServer = getPathToServer(sensorId);
-                 if (pathToServer != null) {
-                     normalizedLocalTrustValuesMatrix[sensor.id()-1][sensorId-1] =
-                         sensor.getNormalizedLocalTrustValue((EigenTrust_Sensor)pathToServer.lastElement());
-                     pathToServer.lastElement().addTransmittedDistance((long)sensor.distance(pathToServer.lastElement()));
-                 } else
-                     normalizedLocalTrustValuesMatrix[sensor.id()-1][sensorId-1] = 0.0;
-         }
-     }
+        addRow(sensor, true);
+    }
+
+    /**
+     * This method sets the normalized trust values c_{ij} of the row of a given sensor,
+     * without charging the transmission of those values to any server
+     * @param sensor Sensor j
+     */
+    void addRow(EigenTrust_Sensor sensor) {
+        addRow(sensor, false);
+    }
+
+    /**
+     * This method sets the given normalized trust values c_{ij} as the row of a sensor
+     * @param row Row of the sensor, i.e., its identifier minus one
+     * @param rowColumns Columns of the non-zero values of the row
+     * @param rowValues Non-zero values of the row
+     */
+    void addRow(int row, int[] rowColumns, double[] rowValues) {
+        if (numRows+1 == rows.length) {
+            rows = Arrays.copyOf(rows, rows.length*2);
+            rowStarts = Arrays.copyOf(rowStarts, rowStarts.length*2);
+        }
+        rows[numRows] = row;
+
+        int numValues = rowStarts[numRows];
+        if (numValues+rowColumns.length > columns.length) {
+            columns = Arrays.copyOf(columns, Math.max(columns.length*2, numValues+rowColumns.length));
+            values = Arrays.copyOf(values, columns.length);
+        }
+        System.arraycopy(rowColumns, 0, columns, numValues, rowColumns.length);
+        System.arraycopy(rowValues, 0, values, numValues, rowValues.length);
+        rowStarts[++numRows] = numValues+rowColumns.length;
+        sortedRows = null;
+        transposedStarts = null;
+    }
+
+    /**
+     * This method sets the normalized trust values c_{ij} of the row of a given sensor
+     * @param sensor Sensor j
+     * @param chargeTransmissions Whether every server is charged with the distance to the given sensor
+     */
+    private void addRow(EigenTrust_Sensor sensor, boolean chargeTransmissions) {
+        int row = sensor.id()-1;
+        if (numRows+1 == rows.length) {
+            rows = Arrays.copyOf(rows, rows.length*2);
+            rowStarts = Arrays.copyOf(rowStarts, rowStarts.length*2);
+        }
+        rows[numRows] = row;
+
+        int numValues = rowStarts[numRows];
+        for (EigenTrust_Sensor server : columnServers) {
+            if (server.id() != sensor.id()) {
+                double value = sensor.getNormalizedLocalTrustValue(server);
+                if (chargeTransmissions)
+                    server.addTransmittedDistance((long)sensor.distance(server));
+                if (value != 0.0) {
+                    if (numValues == columns.length) {
+                        columns = Arrays.copyOf(columns, columns.length*2);
+                        values = Arrays.copyOf(values, values.length*2);
+                    }
+                    columns[numValues] = server.id()-1;
+                    values[numValues++] = value;
+                }
+            }
+        }
+        rowStarts[++numRows] = numValues;
+        sortedRows = null;
+        transposedStarts = null;
+    }
 
     /**
      * This method returns the path leading to a given server
@@ -97,13 +214,8 @@ public class GatheredInformationEigenTrust extends GatheredInformation {
      * @return The path leading to a given server
      */
     public Vector<Sensor> getPathToServer(int serverId) {
-        for (Vector<Sensor> pathToServer : pathsToServers) 
-            if (pathToServer.lastElement().id() == serverId)
-                return pathToServer;
-
-        return null;
+        return pathsToServersById.get(serverId);
     }
-
     /**
      * This method establishes the set of paths leading from a certain client to all the reachable clients
      * @param pathsToClients Set of paths leading from a certain client to all the reachable clients
@@ -121,8 +233,110 @@ public class GatheredInformationEigenTrust extends GatheredInformation {
     }
 
     /**
-     * Gets the normalized local trust values matrix, C=(c_{ij})
+     * Returns the stored rows of C sorted by row, keeping only the last one set for each row
+     * @return The indexes of the stored rows, sorted by row
+     */
+    private int[] get_sortedRows() {
+        if (sortedRows == null) {
+            long[] keys = new long[numRows];
+            for (int r = 0; r < numRows; r++)
+                keys[r] = ((long)rows[r] << 32) | r;
+            Arrays.sort(keys);
+
+            int[] _sortedRows = new int[numRows];
+            int numSortedRows = 0;
+            for (int k = 0; k < keys.length; k++)
+                if ((k+1 == keys.length) || ((int)(keys[k+1] >>> 32) != (int)(keys[k] >>> 32)))
+                    _sortedRows[numSortedRows++] = (int)keys[k];
+            sortedRows = Arrays.copyOf(_sortedRows, numSortedRows);
+        }
+        return sortedRows;
+    }
+
+    /**
+     * Builds C^T from the stored rows of C. The values of every row of C^T are sorted
+     * by column, so that C^T * t adds its terms in the same order as the dense product would
+     */
+    private void buildTransposed() {
+        int[] _sortedRows = get_sortedRows();
+        int[] _transposedStarts = new int[numSensors+1];
+        for (int r : _sortedRows)
+            if ((rows[r] >= 0) && (rows[r] < numSensors))
+                for (int k = rowStarts[r]; k < rowStarts[r+1]; k++)
+                    _transposedStarts[columns[k]+1]++;
+        for (int l = 0; l < numSensors; l++)
+            _transposedStarts[l+1] += _transposedStarts[l] + 1;
+
+        int[] next = Arrays.copyOf(_transposedStarts, numSensors);
+        transposedColumns = new int[_transposedStarts[numSensors]];
+        transposedValues = new double[_transposedStarts[numSensors]];
+        int s = 0;
+        for (int j = 0; j < numSensors; j++) {
+            while ((s < _sortedRows.length) && (rows[_sortedRows[s]] < j))
+                s++;
+            if ((s < _sortedRows.length) && (rows[_sortedRows[s]] == j)) {
+                int r = _sortedRows[s];
+                for (int k = rowStarts[r]; k < rowStarts[r+1]; k++) {
+                    transposedColumns[next[columns[k]]] = j;
+                    transposedValues[next[columns[k]]++] = values[k];
+                }
+            }
+            transposedColumns[next[j]] = j;
+            transposedValues[next[j]++] = 1.0;
+        }
+        transposedStarts = _transposedStarts;
+    }
+
+    /**
+     * Returns the first value of each row of C^T, followed by the end of the last one
+     * @return The first value of each row of C^T, followed by the end of the last one
+     */
+    int[] get_transposedStarts() {
+        if (transposedStarts == null)
+            buildTransposed();
+        return transposedStarts;
+    }
+
+    /**
+     * Returns the column of C^T of each of its values
+     * @return The column of C^T of each of its values
+     */
+    int[] get_transposedColumns() {
+        if (transposedStarts == null)
+            buildTransposed();
+        return transposedColumns;
+    }
+
+    /**
+     * Returns the values of C^T, row after row
+     * @return The values of C^T, row after row
+     */
+    double[] get_transposedValues() {
+        if (transposedStarts == null)
+            buildTransposed();
+        return transposedValues;
+    }
+
+    /**
+     * Returns the number of sensors composing the network, i.e., the order of C
+     * @return The number of sensors composing the network
+     */
+    public int get_numSensors() { return numSensors; }
+
+    /**
+     * Gets the normalized local trust values matrix, C=(c_{ij}), as a dense matrix.
+     * Since it takes memory quadratic in the number of sensors, the compressed C^T
+     * should be read instead whenever possible
      * @return The normalized local trust values matrix, C=(c_{ij})
      */
-    public double[][] get_normalizedLocalTrustValuesMatrix() { return normalizedLocalTrustValuesMatrix; }
-}
\ No newline at end of file
+    public double[][] get_normalizedLocalTrustValuesMatrix() {
+        double[][] normalizedLocalTrustValuesMatrix = new double[numSensors][numSensors];
+        for (int i = 0; i < numSensors; i++)
+            normalizedLocalTrustValuesMatrix[i][i] = 1.0;
+        for (int r : get_sortedRows())
+            if ((rows[r] >= 0) && (rows[r] < numSensors))
+                for (int k = rowStarts[r]; k < rowStarts[r+1]; k++)
+                    normalizedLocalTrustValuesMatrix[rows[r]][columns[k]] = values[k];
+        return normalizedLocalTrustValuesMatrix;
+    }
+}
@@ -0,0 +1,428 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package es.ants.felixgm.trmsim_wsn.trm.eigentrust;
+
+import es.ants.felixgm.trmsim_wsn.network.Sensor;
+import es.ants.felixgm.trmsim_wsn.network.Service;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * <p>This class keeps up to date the global trust vector shared by every client of an
+ * {@link EigenTrust_Network}, when scores are centralized, as local trust values change,
+ * instead of computing it again from scratch every round</p>
+ * <p>Once t has been computed by {@link PowerIteration}, it is the solution of
+ * t = (1-a)/l * C^T * t + a/l * p, being a the weight of the pre-trusted peers vector and l the
+ * sum of the components of (1-a) * C^T * t + a * p. When the transactions of a client change,
+ * only its row of C is computed again, and the residual r = (1-a)/l * C^T * t + a/l * p - t
+ * this causes, which is non-zero just at the servers whose values changed, is pushed:
+ * every component of r greater than a tolerance is added to t and spread along the
+ * corresponding row of C, until no component is greater than the tolerance. Thus the
+ * cost of an update depends on how much the local trust values changed, and not on the
+ * size of the network</p>
+ * <p>Since l is kept while C changes, the components of t slowly stop adding up to one.
+ * When they drift too far from it, t is normalized, l is estimated again from it and the
+ * whole r is pushed. t is only computed from scratch whenever the active sensors or the
+ * goodness of the servers change, or pushing the residual since t was last computed from
+ * scratch would have taken more work than computing it again</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a> and Antonio Bern&aacute;rdez
+ * @version 0.5
+ * @since 0.5
+ */
+class IncrementalGlobalTrustVector {
+    /** Maximum difference between the sum of the components of t and one, before estimating l again: {@value} */
+    public static final double maxDrift = 0.01;
+
+    /** Network whose global trust vector is kept */
+    private EigenTrust_Network network;
+    /** Service requested by the clients of the network */
+    private Service service;
+    /** Number of sensors composing the network */
+    private int n;
+    /** Whether t has been computed and is kept up to date */
+    private boolean valid = false;
+    /** Whether every sensor was active when t was computed from scratch, indexed by identifier minus one */
+    private boolean[] active;
+    /** Whether every sensor is a column of C, i.e., an active server offering the service */
+    private boolean[] isColumn;
+    /** Servers being columns of C */
+    private ArrayList<EigenTrust_Sensor> columnServers;
+    /** Columns of C whose pre-trusted peers vector value is greater than zero */
+    private ArrayList<EigenTrust_Sensor> preTrustedServers;
+    /** Columns of the non-zero values of the row of C of every sensor, or null if it is not an active client */
+    private int[][] rowColumns;
+    /** Non-zero values of the row of C of every sensor, or null if it is not an active client */
+    private double[][] rowValues;
+    /** Number of non-zero values of C, apart from its diagonal */
+    private long numValues;
+    /** Whether the row of C of every sensor has changed since t was last updated */
+    private boolean[] changed;
+    /** Rows of C changed since t was last updated */
+    private int[] changedRows;
+    /** Number of rows of C changed since t was last updated */
+    private int numChangedRows;
+    /** Global trust vector t, which is not normalized */
+    private double[] globalTrustVector;
+    /** Sum of the components of t */
+    private double sum;
+    /** Residual r = (1-a)/l * C^T * t + a/l * p - t */
+    private double[] residual;
+    /** Weight a of the pre-trusted peers vector */
+    private double preTrustedPeersWeight;
+    /** (1-a)/l */
+    private double alpha;
+    /** Greatest component of r left without pushing, i.e., epsilon */
+    private double tolerance;
+    /** Components of r to be pushed, as a circular queue */
+    private int[] queue;
+    /** Position of the first component in the queue */
+    private int queueHead;
+    /** Number of components in the queue */
+    private int queueSize;
+    /** Whether every component of r is in the queue */
+    private boolean[] queued;
+    /** Values of C read while pushing since t was last computed from scratch */
+    private long pushWork;
+    /** Values of C which might be read while pushing before computing t from scratch is cheaper */
+    private long maxPushWork;
+    /** Number of iterations taken by the last update, or 0 if t was not computed from scratch */
+    private int iterations;
+
+    /**
+     * Class IncrementalGlobalTrustVector constructor. t is computed from scratch on the first update
+     * @param network Network whose global trust vector is kept
+     * @param service Service requested by the clients of the network
+     */
+    IncrementalGlobalTrustVector(EigenTrust_Network network, Service service) {
+        this.network = network;
+        this.service = service;
+        n = network.get_numSensors();
+        changed = new boolean[n];
+        changedRows = new int[n];
+        queue = new int[n];
+        queued = new boolean[n];
+    }
+
+    /**
+     * Returns the service requested by the clients of the network
+     * @return The service requested by the clients of the network
+     */
+    Service get_service() { return service; }
+
+    /**
+     * Returns the number of iterations taken by the last update
+     * @return The number of iterations taken by the last call to {@link #update(EigenTrust_Parameters)},
+     * or 0 if t was not computed from scratch
+     */
+    int get_iterations() { return iterations; }
+
+    /**
+     * This method notes that the local trust values of a given sensor have changed
+     * @param sensor Sensor whose row of C has changed
+     */
+    void rowChanged(Sensor sensor) {
+        int row = sensor.id()-1;
+        if (valid && (row >= 0) && (row < n) && !changed[row]) {
+            changed[row] = true;
+            changedRows[numChangedRows++] = row;
+        }
+    }
+
+    /**
+     * This method makes t be computed from scratch on the next update
+     */
+    void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * This method makes t be computed from scratch on the next update if any sensor has been
+     * activated or deactivated since it was last computed from scratch
+     */
+    void checkActiveSensors() {
+        if (valid)
+            for (Sensor sensor : network.get_sensors())
+                if ((sensor.id() >= 1) && (sensor.id() <= n) && (sensor.isActive() != active[sensor.id()-1])) {
+                    valid = false;
+                    return;
+                }
+    }
+
+    /**
+     * This method brings t up to date with the local trust values changed since it was last updated
+     * @param eigenTrust_parameters Parameters of the model
+     * @return The new global trust vector t, normalized, or null if it has not changed
+     */
+    double[] update(EigenTrust_Parameters eigenTrust_parameters) {
+        iterations = 0;
+        // Without pre-trusted peers the residual would not fade away while being pushed
+        if (!valid || (eigenTrust_parameters.get_preTrustedPeersWeight() <= 0.0)) {
+            computeFromScratch(eigenTrust_parameters);
+            return get_normalizedGlobalTrustVector();
+        }
+        if (numChangedRows == 0)
+            return null;
+
+        for (int i = 0; i < numChangedRows; i++) {
+            int row = changedRows[i];
+            changed[row] = false;
+            Sensor sensor = network.getSensor(row+1);
+            if ((rowColumns[row] == null) || !(sensor instanceof EigenTrust_Sensor))
+                continue;
+
+            int[] oldColumns = rowColumns[row];
+            for (int k = 0; k < oldColumns.length; k++)
+                residual[oldColumns[k]] -= alpha*globalTrustVector[row]*rowValues[row][k];
+            numValues -= rowColumns[row].length;
+            computeRow((EigenTrust_Sensor)sensor);
+            numValues += rowColumns[row].length;
+            for (int k = 0; k < rowColumns[row].length; k++)
+                residual[rowColumns[row][k]] += alpha*globalTrustVector[row]*rowValues[row][k];
+
+            // The row of a sensor whose global trust value is zero does not change r
+            if (globalTrustVector[row] != 0.0) {
+                // Every component of r changed is pushed at least once, as power iteration always iterates once
+                for (int k = 0; k < oldColumns.length; k++)
+                    enqueue(oldColumns[k]);
+                for (int column : rowColumns[row])
+                    enqueue(column);
+            }
+        }
+        numChangedRows = 0;
+        if (queueSize == 0)
+            return null;
+
+        boolean pushed = push();
+        if (pushed && (Math.abs(sum-1.0) > maxDrift)) {
+            // l is estimated again from the normalized t, and the whole r is pushed
+            computeResidual();
+            pushWork += numValues+n;
+            for (int i = 0; i < n; i++)
+                if (Math.abs(residual[i]) > tolerance)
+                    enqueue(i);
+            pushed = push();
+        }
+        if (!pushed)
+            computeFromScratch(eigenTrust_parameters);
+        return get_normalizedGlobalTrustVector();
+    }
+
+    /**
+     * This method computes t from scratch, from the local trust values of every active sensor.
+     * The iterations start from the current t, if any, even if it is not up to date
+     * @param eigenTrust_parameters Parameters of the model
+     */
+    private void computeFromScratch(EigenTrust_Parameters eigenTrust_parameters) {
+        active = new boolean[n];
+        for (Sensor sensor : network.get_sensors())
+            if ((sensor.id() >= 1) && (sensor.id() <= n))
+                active[sensor.id()-1] = sensor.isActive();
+
+        double[] preTrustedPeersVector = network.get_preTrustedPeersVector();
+        isColumn = new boolean[n];
+        columnServers = new ArrayList<EigenTrust_Sensor>();
+        preTrustedServers = new ArrayList<EigenTrust_Sensor>();
+        for (Sensor server : network.get_servers())
+            if (server.isActive() && server.offersService(service) && (server.id() >= 1) && (server.id() <= n)) {
+                isColumn[server.id()-1] = true;
+                columnServers.add((EigenTrust_Sensor)server);
+                if (preTrustedPeersVector[server.id()-1] > 0.0)
+                    preTrustedServers.add((EigenTrust_Sensor)server);
+            }
+
+        rowColumns = new int[n][];
+        rowValues = new double[n][];
+        numValues = 0;
+        long numReadValues = 0;
+        GatheredInformationEigenTrust gatheredInfo = new GatheredInformationEigenTrust(n);
+        for (Sensor client : network.get_clients())
+            if (client.isActive() && (client.id() >= 1) && (client.id() <= n)) {
+                computeRow((EigenTrust_Sensor)client);
+                numValues += rowColumns[client.id()-1].length;
+                numReadValues += columnServers.size();
+                gatheredInfo.addRow(client.id()-1, rowColumns[client.id()-1], rowValues[client.id()-1]);
+            }
+
+        double[] initialGlobalTrustVector = (globalTrustVector != null) ? get_normalizedGlobalTrustVector() :
+            network.get_initialGlobalTrustVector(service, eigenTrust_parameters.get_preTrustedPeersPercentage());
+        preTrustedPeersWeight = eigenTrust_parameters.get_preTrustedPeersWeight();
+        PowerIteration powerIteration = new PowerIteration(gatheredInfo, preTrustedPeersVector,
+                preTrustedPeersWeight, eigenTrust_parameters.get_solver());
+        globalTrustVector = powerIteration.solve(initialGlobalTrustVector, eigenTrust_parameters.get_epsilon()).clone();
+        iterations = powerIteration.get_iterations();
+
+        residual = new double[n];
+        computeResidual();
+        tolerance = eigenTrust_parameters.get_epsilon();
+        pushWork = 0;
+        maxPushWork = numReadValues + (long)iterations*(numValues+n);
+        Arrays.fill(changed, false);
+        numChangedRows = 0;
+        Arrays.fill(queued, false);
+        queueHead = 0;
+        queueSize = 0;
+        valid = true;
+    }
+
+    /**
+     * This method normalizes t, and computes l and r from it
+     */
+    private void computeResidual() {
+        if (sum != 0.0)
+            for (int i = 0; i < n; i++)
+                globalTrustVector[i] /= sum;
+
+        // r = C^T * t, reading the rows of C
+        Arrays.fill(residual, 0.0);
+        for (int j = 0; j < n; j++)
+            if (globalTrustVector[j] != 0.0) {
+                residual[j] += globalTrustVector[j];
+                if (rowColumns[j] != null)
+                    for (int k = 0; k < rowColumns[j].length; k++)
+                        residual[rowColumns[j][k]] += rowValues[j][k]*globalTrustVector[j];
+            }
+
+        double[] preTrustedPeersVector = network.get_preTrustedPeersVector();
+        double eigenvalue = 0.0;
+        sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            residual[i] = (1.0-preTrustedPeersWeight)*residual[i] + preTrustedPeersWeight*preTrustedPeersVector[i];
+            eigenvalue += residual[i];
+            sum += globalTrustVector[i];
+        }
+        if (sum != 0.0)
+            eigenvalue /= sum;
+        alpha = (eigenvalue == 0.0) ? 0.0 : (1.0-preTrustedPeersWeight)/eigenvalue;
+        for (int i = 0; i < n; i++)
+            residual[i] = ((eigenvalue == 0.0) ? 0.0 : residual[i]/eigenvalue) - globalTrustVector[i];
+    }
+
+    /**
+     * This method computes again the row of C of a given sensor, evaluating only the servers
+     * whose normalized local trust value may be greater than zero
+     * @param sensor Sensor j
+     */
+    private void computeRow(EigenTrust_Sensor sensor) {
+        Collection<EigenTrust_Sensor> candidates = sensor.get_trustedServers();
+        if (candidates == null)
+            candidates = columnServers;
+        else if (candidates.isEmpty())
+            candidates = preTrustedServers;
+
+        int[] columns = new int[candidates.size()];
+        double[] values = new double[candidates.size()];
+        int numRowValues = 0;
+        for (EigenTrust_Sensor server : candidates)
+            if ((server.id() != sensor.id()) && (server.id() >= 1) && (server.id() <= n) && isColumn[server.id()-1]) {
+                double value = sensor.getNormalizedLocalTrustValue(server);
+                if (value != 0.0) {
+                    columns[numRowValues] = server.id()-1;
+                    values[numRowValues++] = value;
+                }
+            }
+        rowColumns[sensor.id()-1] = Arrays.copyOf(columns, numRowValues);
+        rowValues[sensor.id()-1] = Arrays.copyOf(values, numRowValues);
+    }
+
+    /**
+     * This method adds a component of r to the queue of components to be pushed, if it is not in it yet
+     * @param component Component of r
+     */
+    private void enqueue(int component) {
+        if (!queued[component]) {
+            queued[component] = true;
+            queue[(queueHead+queueSize++)%n] = component;
+        }
+    }
+
+    /**
+     * This method pushes every component of r in the queue, and those greater than the
+     * tolerance resulting from it, into t
+     * @return true if r has been pushed, false if it would take more work than computing t from scratch
+     */
+    private boolean push() {
+        while (queueSize > 0) {
+            int component = queue[queueHead];
+            queueHead = (queueHead+1)%n;
+            queueSize--;
+            queued[component] = false;
+
+            double delta = residual[component];
+            globalTrustVector[component] += delta;
+            sum += delta;
+            // The diagonal of C is one
+            residual[component] = alpha*delta;
+            if (Math.abs(residual[component]) > tolerance)
+                enqueue(component);
+            if (rowColumns[component] != null) {
+                for (int k = 0; k < rowColumns[component].length; k++) {
+                    int column = rowColumns[component][k];
+                    residual[column] += alpha*rowValues[component][k]*delta;
+                    if (Math.abs(residual[column]) > tolerance)
+                        enqueue(column);
+                }
+                pushWork += rowColumns[component].length;
+            }
+            if (++pushWork > maxPushWork)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a normalized copy of t, where any negative component is made zero
+     * @return A normalized copy of t
+     */
+    private double[] get_normalizedGlobalTrustVector() {
+        double[] normalizedGlobalTrustVector = new double[n];
+        double normalizedSum = 0.0;
+        for (int i = 0; i < n; i++) {
+            normalizedGlobalTrustVector[i] = Math.max(globalTrustVector[i], 0.0);
+            normalizedSum += normalizedGlobalTrustVector[i];
+        }
+        if (normalizedSum != 0.0)
+            for (int i = 0; i < n; i++)
+                normalizedGlobalTrustVector[i] /= normalizedSum;
+        return normalizedGlobalTrustVector;
+    }
+}
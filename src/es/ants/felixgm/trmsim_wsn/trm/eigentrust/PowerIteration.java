@@ -0,0 +1,491 @@
+/**
+ *  "TRMSim-WSN, Trust and Reputation Models Simulator for Wireless 
+ * Sensor Networks" is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of 
+ * the License, or (at your option) any later version always keeping 
+ * the additional terms specified in this license.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * 
+ * Additional Terms of this License
+ * --------------------------------
+ * 
+ * 1. It is Required the preservation of specified reasonable legal notices
+ *   and author attributions in that material and in the Appropriate Legal
+ *   Notices displayed by works containing it.
+ * 
+ * 2. It is limited the use for publicity purposes of names of licensors or
+ *   authors of the material.
+ * 
+ * 3. It is Required indemnification of licensors and authors of that material
+ *   by anyone who conveys the material (or modified versions of it) with
+ *   contractual assumptions of liability to the recipient, for any liability
+ *   that these contractual assumptions directly impose on those licensors
+ *   and authors.
+ * 
+ * 4. It is Prohibited misrepresentation of the origin of that material, and it is
+ *   required that modified versions of such material be marked in reasonable
+ *   ways as different from the original version.
+ * 
+ * 5. It is Declined to grant rights under trademark law for use of some trade
+ *   names, trademarks, or service marks.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program (lgpl.txt).  If not, see <http://www.gnu.org/licenses/>
+*/
+
+package es.ants.felixgm.trmsim_wsn.trm.eigentrust;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>This class computes the global trust vector of EigenTrust by power iteration,
+ * i.e., repeating t^{k+1} = (1-a) * C^T * t^k + a * p, normalized, until
+ * ||t^{k+1} - t^k|| is lower than epsilon</p>
+ * <p>Every iteration reads C^T row after row, so every component of t^{k+1} is
+ * computed from a single contiguous row, and just two vectors are used, swapping
+ * them after each iteration. Both the weighting with p and the summation of the new
+ * vector are carried out while multiplying, and its normalization along with the
+ * distance to the previous one in a second pass</p>
+ * <p>Networks with at least {@link #parallelThreshold} sensors are split into
+ * blocks of {@link #blockSize} components, processed in parallel by a pool of
+ * threads. Partial sums of every block are added in block order, so the result does
+ * not depend on the number of threads. Smaller networks are processed sequentially,
+ * getting exactly the same result as the dense product</p>
+ * <p>Convergence can be accelerated by means of one of the following solvers,
+ * as defined in {@link EigenTrust_Parameters}:</p>
+ * <ul>
+ *   <li>{@value EigenTrust_Parameters#AITKEN_EXTRAPOLATION}: once the ratio r between
+ *       consecutive distances has settled, which is the modulus of the second eigenvalue,
+ *       the error along its eigenvector is removed by Aitken extrapolation,
+ *       t^k + r/(1-r) * (t^k - t^{k-1})</li>
+ *   <li>{@value EigenTrust_Parameters#ANDERSON_ACCELERATION}: every iteration, the next vector
+ *       is the combination of the last {@link #andersonDepth} ones minimizing their residual
+ *       in the least squares sense</li>
+ * </ul>
+ * <p>Extrapolated vectors are made non-negative and normalized, and convergence is always
+ * checked on plain iterations, so the accuracy reached is the same as with power iteration.
+ * If the iteration following an extrapolation does not get closer to convergence than every
+ * previous one, extrapolations are given up and plain power iteration goes on</p>
+ * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
+ * @version 0.5
+ * @since 0.5
+ */
+class PowerIteration {
+    /** Number of components of the global trust vector computed by every task */
+    public static final int blockSize = 2048;
+    /** Minimum number of sensors to split the iterations among several threads */
+    public static final int parallelThreshold = 16384;
+    /** Maximum relative change of the ratio between consecutive distances to consider it settled, for Aitken extrapolation */
+    public static final double aitkenTolerance = 0.01;
+    /** Number of previous iterations combined by Anderson acceleration */
+    public static final int andersonDepth = 5;
+    /** Pool of threads shared by every power iteration */
+    private static ForkJoinPool pool = null;
+
+    /** First value of each row of C^T */
+    private final int[] transposedStarts;
+    /** Column of C^T of each value */
+    private final int[] transposedColumns;
+    /** Values of C^T */
+    private final double[] transposedValues;
+    /** Pre-trusted peers vector p */
+    private final double[] preTrustedPeersVector;
+    /** Weight of the pre-trusted peers vector, a */
+    private final double preTrustedPeersWeight;
+    /** Number of components of the global trust vector */
+    private final int n;
+    /** Current global trust vector t^k */
+    private double[] current;
+    /** Next global trust vector t^{k+1} */
+    private double[] next;
+    /** Sum of the components of t^{k+1} of every block, before normalizing */
+    private double[] blockSums;
+    /** Squared distance between t^{k+1} and t^k of every block */
+    private double[] blockDistances;
+    /** Number of iterations carried out so far */
+    private int iterations;
+    /** Solver accelerating the iterations, as defined in {@link EigenTrust_Parameters} */
+    private final String solver;
+    /** Distance between the last two plain iterations, used by Aitken extrapolation */
+    private double previousDistance;
+    /** Ratio between the last two distances, used by Aitken extrapolation */
+    private double previousRatio;
+    /** Iteration of the last Aitken extrapolation */
+    private int lastExtrapolation;
+    /** Differences between consecutive residuals G(t)-t, used by Anderson acceleration */
+    private double[][] residualDifferences;
+    /** Differences between consecutive iterations G(t), used by Anderson acceleration */
+    private double[][] iterationDifferences;
+    /** Products between every pair of differences between residuals, used by Anderson acceleration */
+    private double[][] differencesProducts;
+    /** Last residual G(t^k)-t^k, used by Anderson acceleration */
+    private double[] lastResidual;
+    /** Last iteration G(t^k), used by Anderson acceleration */
+    private double[] lastIteration;
+    /** Number of differences kept, used by Anderson acceleration */
+    private int numDifferences;
+    /** Position where the next difference is kept, used by Anderson acceleration */
+    private int nextDifference;
+
+    /**
+     * Class PowerIteration constructor
+     * @param gatheredInfo Gathered information holding the C matrix
+     * @param preTrustedPeersVector Pre-trusted peers vector p
+     * @param preTrustedPeersWeight Weight of the pre-trusted peers vector
+     */
+    PowerIteration(GatheredInformationEigenTrust gatheredInfo, double[] preTrustedPeersVector, double preTrustedPeersWeight) {
+        this(gatheredInfo, preTrustedPeersVector, preTrustedPeersWeight, EigenTrust_Parameters.POWER_ITERATION);
+    }
+
+    /**
+     * Class PowerIteration constructor
+     * @param gatheredInfo Gathered information holding the C matrix
+     * @param preTrustedPeersVector Pre-trusted peers vector p
+     * @param preTrustedPeersWeight Weight of the pre-trusted peers vector
+     * @param solver Solver accelerating the iterations, as defined in {@link EigenTrust_Parameters}.
+     * Plain power iteration is used if it is unknown
+     */
+    PowerIteration(GatheredInformationEigenTrust gatheredInfo, double[] preTrustedPeersVector, double preTrustedPeersWeight, String solver) {
+        this.solver = solver;
+        transposedStarts = gatheredInfo.get_transposedStarts();
+        transposedColumns = gatheredInfo.get_transposedColumns();
+        transposedValues = gatheredInfo.get_transposedValues();
+        this.preTrustedPeersVector = preTrustedPeersVector;
+        this.preTrustedPeersWeight = preTrustedPeersWeight;
+        n = gatheredInfo.get_numSensors();
+        current = new double[n];
+        next = new double[n];
+        if (n >= parallelThreshold) {
+            blockSums = new double[(n+blockSize-1)/blockSize];
+            blockDistances = new double[blockSums.length];
+        }
+    }
+
+    /**
+     * Iterates from a given global trust vector until the distance between two
+     * consecutive vectors is lower than epsilon. At least one iteration is always carried out
+     * @param globalTrustVector Initial global trust vector t^0, which is not modified
+     * @param epsilon Threshold of the distance between two consecutive vectors
+     * @return The last global trust vector computed
+     */
+    double[] solve(double[] globalTrustVector, double epsilon) {
+        System.arraycopy(globalTrustVector, 0, current, 0, n);
+        iterations = 0;
+        numDifferences = 0;
+        nextDifference = 0;
+        previousDistance = 0.0;
+        previousRatio = 0.0;
+        lastExtrapolation = 0;
+        boolean accelerating = EigenTrust_Parameters.AITKEN_EXTRAPOLATION.equals(solver) ||
+                EigenTrust_Parameters.ANDERSON_ACCELERATION.equals(solver);
+        boolean extrapolated = false;
+        double minimumDistance = Double.POSITIVE_INFINITY;
+        double distance = iterate();
+        while (distance >= epsilon) {
+            // Extrapolations which do not get closer to convergence than ever before are given up
+            if (extrapolated && (distance >= minimumDistance))
+                accelerating = false;
+            minimumDistance = Math.min(minimumDistance, distance);
+            if (!accelerating)
+                extrapolated = false;
+            else if (EigenTrust_Parameters.AITKEN_EXTRAPOLATION.equals(solver))
+                extrapolated = extrapolateAitken(distance);
+            else
+                extrapolated = accelerateAnderson();
+            distance = iterate();
+        }
+        return current;
+    }
+
+    /**
+     * Returns the number of iterations carried out by the last call to {@link #solve(double[], double)}
+     * @return The number of iterations carried out
+     */
+    int get_iterations() { return iterations; }
+
+    /**
+     * Computes t^{k+1} from t^k, making it the current global trust vector
+     * @return The distance ||t^{k+1} - t^k||
+     */
+    private double iterate() {
+        double sum = 0.0;
+        double distance = 0.0;
+        if (blockSums == null) {
+            sum = multiply(0, n);
+            distance = normalize(0, n, sum);
+        } else {
+            get_pool().invoke(new BlockTask(this, BlockTask.MULTIPLY, 0, blockSums.length, 0.0));
+            for (double blockSum : blockSums)
+                sum += blockSum;
+            get_pool().invoke(new BlockTask(this, BlockTask.NORMALIZE, 0, blockSums.length, sum));
+            for (double blockDistance : blockDistances)
+                distance += blockDistance;
+        }
+        if (n != 0)
+            distance = Math.sqrt(distance/n);
+
+        double[] previous = current;
+        current = next;
+        next = previous;
+        iterations++;
+        return distance;
+    }
+
+    /**
+     * Replaces t^k by its Aitken extrapolation t^k + r/(1-r) * (t^k - t^{k-1}), where r is the
+     * ratio between the last two distances, once it has settled after at least two plain iterations
+     * @param distance Distance between t^k and t^{k-1}
+     * @return true if t^k has been replaced, false otherwise
+     */
+    private boolean extrapolateAitken(double distance) {
+        double ratio = (previousDistance > 0.0) ? distance/previousDistance : 0.0;
+        boolean settled = (iterations-lastExtrapolation >= 3) && (ratio > 0.0) && (ratio < 1.0) &&
+                (Math.abs(ratio-previousRatio) <= aitkenTolerance*ratio);
+        previousDistance = distance;
+        previousRatio = ratio;
+        if (!settled)
+            return false;
+
+        // After every iteration, next holds t^{k-1}
+        double factor = ratio/(1.0-ratio);
+        for (int l = 0; l < n; l++)
+            next[l] = current[l] + factor*(current[l]-next[l]);
+        if (!makeStochastic(next))
+            return false;
+        double[] extrapolated = next;
+        next = current;
+        current = extrapolated;
+        lastExtrapolation = iterations;
+        return true;
+    }
+
+    /**
+     * Replaces G(t^k), just computed, by the combination of the last iterations minimizing
+     * their residual G(t)-t in the least squares sense, where t^k is held by next
+     * @return true if G(t^k) has been replaced, false otherwise
+     */
+    private boolean accelerateAnderson() {
+        if (residualDifferences == null) {
+            residualDifferences = new double[andersonDepth][n];
+            iterationDifferences = new double[andersonDepth][n];
+            lastResidual = new double[n];
+            lastIteration = new double[n];
+            differencesProducts = new double[andersonDepth][andersonDepth];
+        }
+        // The oldest difference is overwritten by the newest one
+        int slot = nextDifference;
+        for (int l = 0; l < n; l++) {
+            double residual = current[l]-next[l];
+            if (iterations > 1) {
+                residualDifferences[slot][l] = residual-lastResidual[l];
+                iterationDifferences[slot][l] = current[l]-lastIteration[l];
+            }
+            lastResidual[l] = residual;
+            lastIteration[l] = current[l];
+        }
+        if (iterations == 1)
+            return false;
+        nextDifference = (nextDifference+1) % andersonDepth;
+        numDifferences = Math.min(numDifferences+1, andersonDepth);
+
+        // Normal equations of min ||f_k - dF * gamma||. Only the products of the newest difference are computed
+        int m = numDifferences;
+        for (int i = 0; i < m; i++) {
+            double product = 0.0;
+            for (int l = 0; l < n; l++)
+                product += residualDifferences[i][l]*residualDifferences[slot][l];
+            differencesProducts[i][slot] = product;
+            differencesProducts[slot][i] = product;
+        }
+        double[][] system = new double[m][m+1];
+        for (int i = 0; i < m; i++) {
+            System.arraycopy(differencesProducts[i], 0, system[i], 0, m);
+            double product = 0.0;
+            for (int l = 0; l < n; l++)
+                product += residualDifferences[i][l]*lastResidual[l];
+            system[i][m] = product;
+        }
+        double[] gamma = solveLinearSystem(system);
+        if (gamma == null) {
+            // Differences are linearly dependent, so they are discarded
+            numDifferences = 0;
+            nextDifference = 0;
+            return false;
+        }
+
+        for (int l = 0; l < n; l++) {
+            double accelerated = current[l];
+            for (int i = 0; i < m; i++)
+                accelerated -= gamma[i]*iterationDifferences[i][l];
+            next[l] = accelerated;
+        }
+        if (makeStochastic(next)) {
+            double[] accelerated = next;
+            next = current;
+            current = accelerated;
+            return true;
+        }
+        numDifferences = 0;
+        nextDifference = 0;
+        return false;
+    }
+
+    /**
+     * Solves a small linear system by Gaussian elimination with partial pivoting
+     * @param system Augmented matrix of the system, which is overwritten
+     * @return The solution of the system, or null if it is singular
+     */
+    private static double[] solveLinearSystem(double[][] system) {
+        int m = system.length;
+        double scale = 0.0;
+        for (int i = 0; i < m; i++)
+            scale = Math.max(scale, Math.abs(system[i][i]));
+        for (int i = 0; i < m; i++) {
+            int pivot = i;
+            for (int r = i+1; r < m; r++)
+                if (Math.abs(system[r][i]) > Math.abs(system[pivot][i]))
+                    pivot = r;
+            if (Math.abs(system[pivot][i]) <= 1e-12*scale)
+                return null;
+            double[] row = system[pivot];
+            system[pivot] = system[i];
+            system[i] = row;
+            for (int r = i+1; r < m; r++) {
+                double factor = system[r][i]/system[i][i];
+                for (int c = i; c <= m; c++)
+                    system[r][c] -= factor*system[i][c];
+            }
+        }
+        double[] solution = new double[m];
+        for (int i = m-1; i >= 0; i--) {
+            double value = system[i][m];
+            for (int c = i+1; c < m; c++)
+                value -= system[i][c]*solution[c];
+            solution[i] = value/system[i][i];
+        }
+        return solution;
+    }
+
+    /**
+     * Sets the negative components of a vector to zero and normalizes it so that they add up to one
+     * @param vector Vector to be normalized
+     * @return true if the vector could be normalized, false if all its components were zero or negative
+     */
+    private boolean makeStochastic(double[] vector) {
+        double sum = 0.0;
+        for (int l = 0; l < n; l++) {
+            if (!(vector[l] > 0.0))
+                vector[l] = 0.0;
+            sum += vector[l];
+        }
+        if (!(sum > 0.0) || Double.isInfinite(sum))
+            return false;
+        for (int l = 0; l < n; l++)
+            vector[l] = vector[l]/sum;
+        return true;
+    }
+
+    /**
+     * Computes the components of (1-a) * C^T * t^k + a * p within a given range
+     * @param from First component
+     * @param to Component following the last one
+     * @return Sum of the computed components
+     */
+    private double multiply(int from, int to) {
+        double sum = 0.0;
+        for (int l = from; l < to; l++) {
+            double value = 0.0;
+            for (int k = transposedStarts[l]; k < transposedStarts[l+1]; k++)
+                value += transposedValues[k]*current[transposedColumns[k]];
+            value = (1.0-preTrustedPeersWeight)*value + preTrustedPeersWeight*preTrustedPeersVector[l];
+            next[l] = value;
+            sum += value;
+        }
+        return sum;
+    }
+
+    /**
+     * Normalizes the components of t^{k+1} within a given range
+     * @param from First component
+     * @param to Component following the last one
+     * @param sum Sum of all the components of t^{k+1}
+     * @return Squared distance between t^{k+1} and t^k within the given range
+     */
+    private double normalize(int from, int to, double sum) {
+        double distance = 0.0;
+        for (int l = from; l < to; l++) {
+            if (sum != 0.0)
+                next[l] = next[l]/sum;
+            double difference = current[l]-next[l];
+            distance += difference*difference;
+        }
+        return distance;
+    }
+
+    /**
+     * Processes a given block of components
+     * @param phase Either {@link BlockTask#MULTIPLY} or {@link BlockTask#NORMALIZE}
+     * @param block Block number
+     * @param sum Sum of all the components of t^{k+1}, when normalizing
+     */
+    private void process(int phase, int block, double sum) {
+        int from = block*blockSize;
+        int to = Math.min(n, from+blockSize);
+        if (phase == BlockTask.MULTIPLY)
+            blockSums[block] = multiply(from, to);
+        else
+            blockDistances[block] = normalize(from, to, sum);
+    }
+
+    /**
+     * <p>This class processes a range of blocks of components, splitting it in halves
+     * until a single block is left</p>
+     */
+    private static class BlockTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        static final int MULTIPLY = 0;
+        static final int NORMALIZE = 1;
+        private final PowerIteration powerIteration;
+        private final int phase;
+        private final int firstBlock;
+        private final int endBlock;
+        private final double sum;
+
+        BlockTask(PowerIteration powerIteration, int phase, int firstBlock, int endBlock, double sum) {
+            this.powerIteration = powerIteration;
+            this.phase = phase;
+            this.firstBlock = firstBlock;
+            this.endBlock = endBlock;
+            this.sum = sum;
+        }
+
+        @Override
+        protected void compute() {
+            if (endBlock-firstBlock <= 1) {
+                if (endBlock > firstBlock)
+                    powerIteration.process(phase, firstBlock, sum);
+            } else {
+                int middleBlock = (firstBlock+endBlock) >>> 1;
+                invokeAll(new BlockTask(powerIteration, phase, firstBlock, middleBlock, sum),
+                        new BlockTask(powerIteration, phase, middleBlock, endBlock, sum));
+            }
+        }
+    }
+
+    /**
+     * Returns the pool of threads shared by every power iteration
+     * @return The pool of threads shared by every power iteration
+     */
+    private static synchronized ForkJoinPool get_pool() {
+        if (pool == null)
+            pool = new ForkJoinPool();
+        return pool;
+    }
+}
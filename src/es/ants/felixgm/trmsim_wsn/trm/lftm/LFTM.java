@@ -49,8 +49,11 @@ import es.ants.felixgm.trmsim_wsn.outcomes.FuzzyOutcome;
 
 import es.ants.felixgm.trmsim_wsn.outcomes.Outcome;
 import es.ants.felixgm.trmsim_wsn.network.Network;
+import es.ants.felixgm.trmsim_wsn.network.RandomStreams;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
 import es.ants.felixgm.trmsim_wsn.network.Service;
+import es.ants.felixgm.trmsim_wsn.network.generator.NetworkGenerator;
+import es.ants.felixgm.trmsim_wsn.network.Topology;
 import es.ants.felixgm.trmsim_wsn.satisfaction.SatisfactionFuzzy;
 import es.ants.felixgm.trmsim_wsn.trm.GatheredInformation;
 import es.ants.felixgm.trmsim_wsn.trm.TRModel_WSN;
@@ -195,7 +198,7 @@ public class LFTM extends TRModel_WSN {
 	                    if (nextSensor.offersService(service)) {
                                 double averagePheromone = ants[k].getLastNodePheromone();
                                 if (((averagePheromone > transitionThreshold) &&
-                                        (Math.random() < averagePheromone))) {
+                                        (RandomStreams.nextDouble() < averagePheromone))) {
                                     ants[k].setSolutionFound();
                                     foundSolutions++;
                                 }
@@ -269,9 +272,10 @@ public class LFTM extends TRModel_WSN {
     public Outcome reward(Vector<Sensor> path, Outcome outcome) {
         Variable clientSatisfaction = ((SatisfactionFuzzy)((FuzzyOutcome)outcome).get_satisfaction()).getSaitsfaction();
         Variable clientGoodness = ((LFTM_Sensor)path.firstElement()).get_clientGoodness();
-        Variable reward = new Variable("Reward", LFTM_Parameters.get_linguisticTerms(), new DefuzzifierCenterOfGravity(LFTM_Parameters.get_U_MIN(), LFTM_Parameters.get_U_MAX()));
+        LFTM_Parameters lftmParameters = (LFTM_Parameters)trmParameters;
+        Variable reward = new Variable("Reward", lftmParameters.get_linguisticTerms(), new DefuzzifierCenterOfGravity(lftmParameters.get_U_MIN(), lftmParameters.get_U_MAX()));
 
-        FuzzyRuleSet frsPunishmentReward = LFTM_Parameters.getFRSPunishmentReward(clientGoodness,clientSatisfaction,reward);
+        FuzzyRuleSet frsPunishmentReward = lftmParameters.getFRSPunishmentReward(clientGoodness,clientSatisfaction,reward);
         frsPunishmentReward.evaluate();
 
         double rewardValue = reward.getValue(); //This value has to be within the interval [0.5, 1.0]
@@ -297,9 +301,10 @@ public class LFTM extends TRModel_WSN {
     public Outcome punish(Vector<Sensor> path, Outcome outcome) {
         Variable clientSatisfaction = ((SatisfactionFuzzy)((FuzzyOutcome)outcome).get_satisfaction()).getSaitsfaction();
         Variable clientGoodness = ((LFTM_Sensor)path.firstElement()).get_clientGoodness();
-        Variable punishment = new Variable("Punishment", LFTM_Parameters.get_linguisticTerms(), new DefuzzifierCenterOfGravity(LFTM_Parameters.get_U_MIN(), LFTM_Parameters.get_U_MAX()));
+        LFTM_Parameters lftmParameters = (LFTM_Parameters)trmParameters;
+        Variable punishment = new Variable("Punishment", lftmParameters.get_linguisticTerms(), new DefuzzifierCenterOfGravity(lftmParameters.get_U_MIN(), lftmParameters.get_U_MAX()));
 
-        FuzzyRuleSet frsPunishmentReward = LFTM_Parameters.getFRSPunishmentReward(clientGoodness,clientSatisfaction,punishment);
+        FuzzyRuleSet frsPunishmentReward = lftmParameters.getFRSPunishmentReward(clientGoodness,clientSatisfaction,punishment);
         frsPunishmentReward.evaluate();
 
         double punishmentValue = punishment.getValue(); //This value has to be within the interval [0.0, 0.5]
@@ -328,13 +333,18 @@ public class LFTM extends TRModel_WSN {
             n1.setPheromone(n2, pheromone);
         }
         LFTM_Sensor maliciousServer = (LFTM_Sensor)path.lastElement();
-        if (((BasicOutcome)outcome).get_avgSatisfaction() < punishmentThreshold)
-            for (Sensor neighbor : maliciousServer.getNeighbors()) {
-                double pheromone = ((LFTM_Sensor)neighbor).getPheromone(maliciousServer);
+        if (((BasicOutcome)outcome).get_avgSatisfaction() < punishmentThreshold) {
+            Topology topology = maliciousServer.get_topology();
+            int node = maliciousServer.get_index();
+            maliciousServer.addNeighborsTransmittedDistance();
+            for (int e = topology.get_firstEdge(node); e < topology.get_endEdge(node); e++) {
+                LFTM_Sensor neighbor = (LFTM_Sensor)topology.get_targetSensor(e);
+                double pheromone = neighbor.getPheromone(maliciousServer);
                 pheromone -= phi;
                 pheromone *= ((BasicOutcome)outcome).get_avgSatisfaction();
-                ((LFTM_Sensor)neighbor).setPheromone(maliciousServer, pheromone);
+                neighbor.setPheromone(maliciousServer, pheromone);
             }
+        }
         return outcome;
     }
 
@@ -349,6 +359,11 @@ public class LFTM extends TRModel_WSN {
         return new LFTM_Network(numSensors,probClients,rangeFactor,probServices,probGoodness,services);
     }
 
+    @Override
+    public Network generateNetwork(NetworkGenerator generator) {
+        return new LFTM_Network(generator);
+    }
+
     @Override
     public Network loadCurrentNetwork(String fileName) throws Exception {
         return new LFTM_Network(fileName);
@@ -46,8 +46,10 @@ import es.ants.felixgm.trmsim_wsn.network.Link;
 /**
  * <p>This class models a link between two sensors, with a certain trace of pheromone and
  * a certain heuristic value.</p>
+ * <p>Both values are kept by the {@link LFTM_Network} this link belongs to, in arrays
+ * indexed by the edge index of this link in the network topology</p>
  * @author <a href="http://ants.dif.um.es/~felixgm/en" target="_blank">F&eacute;lix G&oacute;mez M&aacute;rmol</a>, <a href="http://webs.um.es/gregorio" target="_blank">Gregorio Mart&iacute;nez P&eacute;rez</a>
- * @version 0.4
+ * @version 0.5
  * @since 0.4
  */
 public class LFTM_Link extends Link {
@@ -55,12 +57,6 @@ public class LFTM_Link extends Link {
     static public final double MAX_PHEROMONE = 1-Math.pow(10, -6);
     /** Minimum value for a pheromone trace: 0.000001 */
     static public final double MIN_PHEROMONE = Math.pow(10, -6);
-    /** Initial value of pheromone */
-    static private double _initialPheromone = 0.5;
-    /** Pheromone trace of this link */
-    protected double pheromone;
-    /** Heuristic value of this link */
-    protected double heuristic;
 
     /**
      * Class LFTM_Link constructor
@@ -69,26 +65,33 @@ public class LFTM_Link extends Link {
      */
     public LFTM_Link(LFTM_Sensor source, LFTM_Sensor destination) {
         super(source, destination);
+    }
 
-        pheromone = pheromoneInitialization();
-        heuristic = 1.0/source.distance(destination);
+    /**
+     * Returns the network this link belongs to
+     * @return The network this link belongs to, or null if its source sensor does not belong to any network
+     */
+    private LFTM_Network get_network() {
+        return (LFTM_Network)source.get_network();
     }
 
     /**
-     * Computes the initial value of pheromone of this link
-     * @return The initial value of pheromone of this link
+     * Returns the index of this link in the current topology of its network
+     * @return The index of this link in the current topology of its network, or -1 if it is not part of it
      */
-    private double pheromoneInitialization() {
-        return Math.min(MAX_PHEROMONE,
-                Math.max(MIN_PHEROMONE,
-                _initialPheromone+(2*Math.random()-1.0)*_initialPheromone*(1.0-_initialPheromone)));
+    private int currentEdge() {
+        if (get_network() == null)
+            return -1;
+        return get_network().get_topology().edgeOf(this);
     }
 
     /**
      * Sets this link to an initial state
      */
     public void reset() {
-        pheromone = pheromoneInitialization();
+        int edge = currentEdge();
+        if (edge >= 0)
+            get_network().set_pheromone(edge, get_network().pheromoneInitialization());
     }
 
     @Override
@@ -98,11 +101,14 @@ public class LFTM_Link extends Link {
     public LFTM_Sensor get_destination() { return (LFTM_Sensor)destination; }
 
     /**
-     * Returns the pheromone trace of this link
-     * @return The pheromone trace of this link
+     * Returns the pheromone trace of this link 
+     * @return The pheromone trace of this link 
      */
     public double get_pheromone() {
-        return pheromone;
+        int edge = currentEdge();
+        if (edge < 0)
+            return 0.0;
+        return get_network().get_pheromone(edge);
     }
 
     /**
@@ -110,7 +116,9 @@ public class LFTM_Link extends Link {
      * @param value The new pheromone trace of this link
      */
     public void set_pheromone(double value) {
-        pheromone = Math.min(MAX_PHEROMONE,Math.max(MIN_PHEROMONE,value));
+        int edge = currentEdge();
+        if (edge >= 0)
+            get_network().set_pheromone(edge, value);
     }
 
     /**
@@ -118,7 +126,10 @@ public class LFTM_Link extends Link {
      * @return The heuristic value of this link
      */
     public double get_heuristic() {
-        return heuristic;
+        int edge = currentEdge();
+        if (edge < 0)
+            return 1.0/source.distance(destination);
+        return get_network().get_heuristic(edge);
     }
 
     /**
@@ -126,12 +137,8 @@ public class LFTM_Link extends Link {
      * @param value The new heuristic value of this link
      */
     public void set_heuristic(double value) {
-        heuristic = value;
+        int edge = currentEdge();
+        if (edge >= 0)
+            get_network().set_heuristic(edge, value);
     }
-
-    /**
-     * Sets the initial value of pheromone of this link
-     * @param initialPheromone The new initial value of pheromone of this link
-     */
-    public static void set_initialPheromone(double initialPheromone) { _initialPheromone = initialPheromone; }
 }
\ No newline at end of file
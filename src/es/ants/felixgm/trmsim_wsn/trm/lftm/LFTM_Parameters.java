@@ -41,7 +41,9 @@
 
 package es.ants.felixgm.trmsim_wsn.trm.lftm;
 
+import es.ants.felixgm.trmsim_wsn.network.SimulationContext;
 import es.ants.felixgm.trmsim_wsn.trm.TRMParameters;
+import es.ants.felixgm.trmsim_wsn.trm.TRModel_WSN;
 import es.ants.felixgm.trmsim_wsn.trm.libs.fuzzylib.DefuzzifierCenterOfGravity;
 import es.ants.felixgm.trmsim_wsn.trm.libs.fuzzylib.FuzzyRule;
 import es.ants.felixgm.trmsim_wsn.trm.libs.fuzzylib.FuzzyRuleSet;
@@ -118,9 +120,12 @@ public class LFTM_Parameters extends TRMParameters {
     private double transitionThreshold;
     private double punishmentThreshold;
 
-    private static double U_MIN;
-    private static double U_MAX;
-    private static Collection<LinguisticTerm> linguisticTerms;
+    private double U_MIN;
+    private double U_MAX;
+    private Collection<LinguisticTerm> linguisticTerms;
+
+    /** Parameters used when the model of the simulation context is not LFTM */
+    private static final LFTM_Parameters defaultParameters = new LFTM_Parameters();
 
     /**
      * Creates a new instance of LFTM_Parameters setting them to their default values
@@ -248,19 +253,39 @@ public class LFTM_Parameters extends TRMParameters {
      * Returns U_MIN parameter value
      * @return U_MIN parameter value
      */
-    public static double get_U_MIN() { return U_MIN; }
+    public double get_U_MIN() { return U_MIN; }
 
     /**
      * Returns U_MAX parameter value
      * @return U_MAX parameter value
      */
-    public static double get_U_MAX() { return U_MAX; }
+    public double get_U_MAX() { return U_MAX; }
 
     /**
      * Returns linguisticTerms parameter value
      * @return linguisticTerms parameter value
      */
-    public static Collection<LinguisticTerm> get_linguisticTerms() { return linguisticTerms; }
+    public Collection<LinguisticTerm> get_linguisticTerms() { return linguisticTerms; }
+
+    /**
+     * Returns the parameters of the model of a given simulation context
+     * @param context Simulation context whose model parameters are returned
+     * @return The parameters of the model of the given simulation context, or the
+     * default ones if that model is not LFTM
+     */
+    public static LFTM_Parameters get_parameters(SimulationContext context) {
+        TRModel_WSN trmodel_wsn = context.get_TRModel_WSN();
+        if ((trmodel_wsn != null) && (trmodel_wsn.get_TRMParameters() instanceof LFTM_Parameters))
+            return (LFTM_Parameters)trmodel_wsn.get_TRMParameters();
+        return defaultParameters;
+    }
+
+    /**
+     * Returns the parameters of the model of the current simulation context
+     * @return The parameters of the model of the current simulation context, or the
+     * default ones if that model is not LFTM
+     */
+    public static LFTM_Parameters get_currentParameters() { return get_parameters(SimulationContext.current()); }
 
 
     /**
@@ -526,7 +551,7 @@ public class LFTM_Parameters extends TRMParameters {
      * This method returns a default set of linguistic terms
      * @return A default set of linguistic terms
      */
-    private static Collection<LinguisticTerm> getDefaultLinguisticTerms() {
+    private Collection<LinguisticTerm> getDefaultLinguisticTerms() {
         if (linguisticTerms == null) {
             linguisticTerms = new Vector<LinguisticTerm>();
             LinguisticTerm veryLow = new LinguisticTerm("Very Low",
@@ -566,7 +591,7 @@ public class LFTM_Parameters extends TRMParameters {
      * @return The set of fuzzy rules corresponding to the comparison of those service
      * attributes which improve when they increase (for example, the price)
      */
-    public static FuzzyRuleSet getFRSServicesAttributesPositive(Variable service1Property,
+    public FuzzyRuleSet getFRSServicesAttributesPositive(Variable service1Property,
             Variable service2Property, Variable servicesPropertiesComparisson) {
         FuzzyRuleSet frsServicesAttributesPositive = new FuzzyRuleSet();
         FuzzyRule fr[][] = new FuzzyRule[5][5];
@@ -605,7 +630,7 @@ public class LFTM_Parameters extends TRMParameters {
      * @return The set of fuzzy rules corresponding to the comparison of those service
      * attributes which improve when they decrease (for example, the price)
      */
-    public static FuzzyRuleSet getFRSServicesAttributesNegative(Variable service1Property,
+    public FuzzyRuleSet getFRSServicesAttributesNegative(Variable service1Property,
             Variable service2Property, Variable servicesPropertiesComparisson) {
 
         FuzzyRuleSet frsServicesAttributesNegative = new FuzzyRuleSet();
@@ -645,7 +670,7 @@ public class LFTM_Parameters extends TRMParameters {
      * the attribute of the service provided by a server, for those service attributes
      * which improve when they increase (for example, the quality)
      */
-    public static FuzzyRuleSet getFRSServerGoodnessPositive(Variable serverGoodness,
+    public FuzzyRuleSet getFRSServerGoodnessPositive(Variable serverGoodness,
             Variable offeredServiceProperty, Variable givenServiceProperty) {
 
         FuzzyRuleSet frsServerGoodnessPositive = new FuzzyRuleSet();
@@ -685,7 +710,7 @@ public class LFTM_Parameters extends TRMParameters {
      * the attribute of the service provided by a server, for those service attributes
      * which improve when they decrease (for example, the price)
      */
-    public static FuzzyRuleSet getFRSServerGoodnessNegative(Variable serverGoodness,
+    public FuzzyRuleSet getFRSServerGoodnessNegative(Variable serverGoodness,
             Variable offeredServiceProperty, Variable givenServiceProperty) {
 
         FuzzyRuleSet frsServerGoodnessNegative = new FuzzyRuleSet();
@@ -724,7 +749,7 @@ public class LFTM_Parameters extends TRMParameters {
      * @return The set of fuzzy rules which determine the satisfaction
      * of a client with the actually received service
      */
-    public static FuzzyRuleSet getFRSClientSatisfaction(Variable clientConformity, Variable servicesComparison,
+    public FuzzyRuleSet getFRSClientSatisfaction(Variable clientConformity, Variable servicesComparison,
             Variable clientSatisfaction) {
 
         FuzzyRuleSet frsSatisfaction = new FuzzyRuleSet();
@@ -764,7 +789,7 @@ public class LFTM_Parameters extends TRMParameters {
      * @return The set of fuzzy rules which will determine the
      * punishment or reward degree to be applied over the selected service provider
      */
-    public static FuzzyRuleSet getFRSPunishmentReward(Variable clientGoodness, Variable clientSatisfaction,
+    public FuzzyRuleSet getFRSPunishmentReward(Variable clientGoodness, Variable clientSatisfaction,
             Variable punishmentReward) {
         FuzzyRuleSet frsPunishment = new FuzzyRuleSet();
         FuzzyRule fr[][] = new FuzzyRule[5][5];
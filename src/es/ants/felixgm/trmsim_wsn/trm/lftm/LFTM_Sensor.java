@@ -43,14 +43,12 @@ package es.ants.felixgm.trmsim_wsn.trm.lftm;
 
 import es.ants.felixgm.trmsim_wsn.network.Link;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
+import es.ants.felixgm.trmsim_wsn.network.Topology;
 import es.ants.felixgm.trmsim_wsn.network.Service;
 import es.ants.felixgm.trmsim_wsn.trm.libs.fuzzylib.DefuzzifierCenterOfGravity;
 import es.ants.felixgm.trmsim_wsn.trm.libs.fuzzylib.FuzzyRuleSet;
 import es.ants.felixgm.trmsim_wsn.trm.libs.fuzzylib.Variable;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.Vector;
 
 /**
@@ -60,8 +58,6 @@ import java.util.Vector;
  * @since 0.4
  */
 public class LFTM_Sensor extends Sensor {
-    /** Number of servers composing the network this sensor belongs to */
-    protected static int _numServers = 0;
     /** Goodness of this sensor related to each provided service */
     protected HashMap<LFTM_Service,Variable> _servicesGoodness;
     /** Client's conformity, used to assess the client satisfaction with a received service */
@@ -83,9 +79,10 @@ public class LFTM_Sensor extends Sensor {
     public LFTM_Sensor () {
         super();
         _servicesGoodness = new HashMap<LFTM_Service,Variable>();
-        clientConformity = new Variable("ClientConformity", LFTM_Parameters.get_linguisticTerms(),new DefuzzifierCenterOfGravity(LFTM_Parameters.get_U_MIN(),LFTM_Parameters.get_U_MAX()));
+        LFTM_Parameters parameters = get_parameters();
+        clientConformity = new Variable("ClientConformity", parameters.get_linguisticTerms(),new DefuzzifierCenterOfGravity(parameters.get_U_MIN(),parameters.get_U_MAX()));
         clientConformity.setValue("Medium");
-        clientGoodness = new Variable("ClientGoodness", LFTM_Parameters.get_linguisticTerms(),new DefuzzifierCenterOfGravity(LFTM_Parameters.get_U_MIN(),LFTM_Parameters.get_U_MAX()));
+        clientGoodness = new Variable("ClientGoodness", parameters.get_linguisticTerms(),new DefuzzifierCenterOfGravity(parameters.get_U_MIN(),parameters.get_U_MAX()));
         clientGoodness.setValue("Medium");
     }
 
@@ -98,9 +95,10 @@ public class LFTM_Sensor extends Sensor {
     public LFTM_Sensor(int id, double x, double y) {
         super(id,x,y);
         _servicesGoodness = new HashMap<LFTM_Service,Variable>();
-        clientConformity = new Variable("ClientConformity", LFTM_Parameters.get_linguisticTerms(),new DefuzzifierCenterOfGravity(LFTM_Parameters.get_U_MIN(),LFTM_Parameters.get_U_MAX()));
+        LFTM_Parameters parameters = get_parameters();
+        clientConformity = new Variable("ClientConformity", parameters.get_linguisticTerms(),new DefuzzifierCenterOfGravity(parameters.get_U_MIN(),parameters.get_U_MAX()));
         clientConformity.setValue("Medium");
-        clientGoodness = new Variable("ClientGoodness", LFTM_Parameters.get_linguisticTerms(),new DefuzzifierCenterOfGravity(LFTM_Parameters.get_U_MIN(),LFTM_Parameters.get_U_MAX()));
+        clientGoodness = new Variable("ClientGoodness", parameters.get_linguisticTerms(),new DefuzzifierCenterOfGravity(parameters.get_U_MIN(),parameters.get_U_MAX()));
         clientGoodness.setValue("Medium");
     }
 
@@ -112,9 +110,10 @@ public class LFTM_Sensor extends Sensor {
      * @return Client's satisfaction with the received service (as a fuzzy set)
      */
     public Variable evaluateSatisfaction(Variable servicesComparison) {
-        Variable clientSatisfaction = new Variable("ClientSatisfaction", LFTM_Parameters.get_linguisticTerms(), new DefuzzifierCenterOfGravity(LFTM_Parameters.get_U_MIN(), LFTM_Parameters.get_U_MAX()));
+        LFTM_Parameters parameters = get_parameters();
+        Variable clientSatisfaction = new Variable("ClientSatisfaction", parameters.get_linguisticTerms(), new DefuzzifierCenterOfGravity(parameters.get_U_MIN(), parameters.get_U_MAX()));
 
-        FuzzyRuleSet frsClientSatisfaction = LFTM_Parameters.getFRSClientSatisfaction(clientConformity,servicesComparison,clientSatisfaction);
+        FuzzyRuleSet frsClientSatisfaction = parameters.getFRSClientSatisfaction(clientConformity,servicesComparison,clientSatisfaction);
         frsClientSatisfaction.evaluate();
 
         return clientSatisfaction;
@@ -141,15 +140,16 @@ public class LFTM_Sensor extends Sensor {
                 serverGoodness = _servicesGoodness.get(lftmService);
             }
 
-        Variable givenServicePrice = new Variable("Price", LFTM_Parameters.get_linguisticTerms(),new DefuzzifierCenterOfGravity(LFTM_Parameters.get_U_MIN(),LFTM_Parameters.get_U_MAX()));
-        Variable givenServiceCost = new Variable("Cost", LFTM_Parameters.get_linguisticTerms(),new DefuzzifierCenterOfGravity(LFTM_Parameters.get_U_MIN(),LFTM_Parameters.get_U_MAX()));
-        Variable givenServiceDelivery = new Variable("Delivery", LFTM_Parameters.get_linguisticTerms(),new DefuzzifierCenterOfGravity(LFTM_Parameters.get_U_MIN(),LFTM_Parameters.get_U_MAX()));
-        Variable givenServiceQuality = new Variable("Quality", LFTM_Parameters.get_linguisticTerms(),new DefuzzifierCenterOfGravity(LFTM_Parameters.get_U_MIN(),LFTM_Parameters.get_U_MAX()));
+        LFTM_Parameters parameters = get_parameters();
+        Variable givenServicePrice = new Variable("Price", parameters.get_linguisticTerms(),new DefuzzifierCenterOfGravity(parameters.get_U_MIN(),parameters.get_U_MAX()));
+        Variable givenServiceCost = new Variable("Cost", parameters.get_linguisticTerms(),new DefuzzifierCenterOfGravity(parameters.get_U_MIN(),parameters.get_U_MAX()));
+        Variable givenServiceDelivery = new Variable("Delivery", parameters.get_linguisticTerms(),new DefuzzifierCenterOfGravity(parameters.get_U_MIN(),parameters.get_U_MAX()));
+        Variable givenServiceQuality = new Variable("Quality", parameters.get_linguisticTerms(),new DefuzzifierCenterOfGravity(parameters.get_U_MIN(),parameters.get_U_MAX()));
 
-        FuzzyRuleSet frsPrize = LFTM_Parameters.getFRSServerGoodnessNegative(serverGoodness,offeredService.get_price(),givenServicePrice);
-        FuzzyRuleSet frsCost = LFTM_Parameters.getFRSServerGoodnessPositive(serverGoodness,offeredService.get_cost(),givenServiceCost);
-        FuzzyRuleSet frsDelivery = LFTM_Parameters.getFRSServerGoodnessNegative(serverGoodness,offeredService.get_delivery(),givenServiceDelivery);
-        FuzzyRuleSet frsQuality = LFTM_Parameters.getFRSServerGoodnessPositive(serverGoodness,offeredService.get_quality(),givenServiceQuality);
+        FuzzyRuleSet frsPrize = parameters.getFRSServerGoodnessNegative(serverGoodness,offeredService.get_price(),givenServicePrice);
+        FuzzyRuleSet frsCost = parameters.getFRSServerGoodnessPositive(serverGoodness,offeredService.get_cost(),givenServiceCost);
+        FuzzyRuleSet frsDelivery = parameters.getFRSServerGoodnessNegative(serverGoodness,offeredService.get_delivery(),givenServiceDelivery);
+        FuzzyRuleSet frsQuality = parameters.getFRSServerGoodnessPositive(serverGoodness,offeredService.get_quality(),givenServiceQuality);
 
         frsPrize.evaluate();
         frsCost.evaluate();
@@ -159,21 +159,14 @@ public class LFTM_Sensor extends Sensor {
         LFTM_Service givenService = new LFTM_Service(offeredService.id(),givenServicePrice,givenServiceCost,givenServiceDelivery,givenServiceQuality);
 
         for (int i = 0; i < path.size()-1; i++)
-            transmittedDistance += path.get(i).distance(path.get(i+1));
+            addTransmittedDistance(path.get(i).distance(path.get(i+1)));
 
         numRequests++;
         if (numRequests == numRequestsThreshold) {
             numRequests = 0;
-            if (dynamic) {
-                activeState = false;
-                Timer timer = new Timer();
-                timer.schedule(new TimerTask(){
-                    public void run() {
-                        activeState = true;
-                    }
-                },100);
-                timer.cancel();
-                timer = null;
+            if (context.isDynamic()) {
+                setActiveState(false);
+                numRequestsTimer = wakeUpAfter(100);
             }
         }
 
@@ -182,8 +175,9 @@ public class LFTM_Sensor extends Sensor {
 
     @Override
     public void addService(Service service, double goodness) {
-        LFTM_Service lftmService = new LFTM_Service(service, LFTM_Parameters.get_linguisticTerms(), "Medium","Medium","Medium","Medium");
-        Variable _goodness = new Variable("Server "+id+"goodness",LFTM_Parameters.get_linguisticTerms(),0.0,1.0);
+        LFTM_Parameters parameters = get_parameters();
+        LFTM_Service lftmService = new LFTM_Service(service, parameters.get_linguisticTerms(), "Medium","Medium","Medium","Medium");
+        Variable _goodness = new Variable("Server "+id+"goodness",parameters.get_linguisticTerms(),0.0,1.0);
         if (goodness == 0.0)
             goodness = Math.pow(10, -6);
         else if (goodness == 1.0)
@@ -191,6 +185,7 @@ public class LFTM_Sensor extends Sensor {
         _goodness.setValue(goodness);
         _servicesGoodness.put(lftmService,_goodness);
         servicesGoodness.put(lftmService,new Double(goodness));
+        rolesChanged();
     }
 
     @Override
@@ -199,6 +194,7 @@ public class LFTM_Sensor extends Sensor {
         _servicesGoodness.remove((LFTM_Service)service);
         if ((requiredService != null) && (requiredService.equals(service)))
             requiredService = null;
+        rolesChanged();
     }
 
     @Override
@@ -225,35 +221,43 @@ public class LFTM_Sensor extends Sensor {
         for (LFTM_Service lftmService : _servicesGoodness.keySet())
             if (lftmService.equals(service))
                 _servicesGoodness.get(lftmService).setValue(goodness);
+        rolesChanged();
     }
 
     @Override
     public void set_requiredService(Service requiredService) {
-        this.requiredService = new LFTM_Service(requiredService,LFTM_Parameters.get_linguisticTerms(),"Medium","Medium","Medium","Medium");
+        this.requiredService = new LFTM_Service(requiredService,get_parameters().get_linguisticTerms(),"Medium","Medium","Medium","Medium");
     }
 
     @Override
-    public void addLink(Sensor node) {
-        if (!isNeighbor(node)) {
-            if (links == null)
-                links = new ArrayList<Link>();
-
-            LFTM_Link link = new LFTM_Link(this,(LFTM_Sensor)node);
-            links.add(link);
-        }
+    protected Link newLink(Sensor node) {
+        return new LFTM_Link(this,(LFTM_Sensor)node);
     }
 
     /**
      * Returns the number of servers of the network
      * @return Number of servers
      */
-    public int get_numServers() { return _numServers; }
+    public int get_numServers() {
+        return (network == null) ? 0 : ((LFTM_Network)network).get_numServers();
+    }
 
     /**
-     * Sets the number of servers
-     * @param numServers Number of servers
+     * Returns the parameters of the model of the simulation context this sensor belongs to
+     * @return The parameters of the model of the simulation context this sensor belongs to
+     */
+    protected LFTM_Parameters get_parameters() { return LFTM_Parameters.get_parameters(context); }
+
+    /**
+     * Returns the index of the link connecting to a certain neighbor in the topology of the network
+     * @param sensor One of this sensor's neighbors
+     * @return The index of the link connecting to the given neighbor, or -1 if it is not a neighbor
      */
-    public static void setNumServers(int numServers){ _numServers = numServers; }
+    protected int edgeTo(Sensor sensor) {
+        if (network == null)
+            return -1;
+        return network.get_topology().findEdge(this, sensor);
+    }
 
     /**
      * Gets the pheromone trace with a given neighbor
@@ -261,21 +265,33 @@ public class LFTM_Sensor extends Sensor {
      * @return The pheromone trace with the given neighbor sensor
      */
     synchronized public double getPheromone(Sensor sensor) {
-        if (sensor.isActive())
-            for (Link link : links)
-                if (link.get_destination().equals(sensor)) {
-                    transmittedDistance += this.distance(sensor);
-                    try {
-                        if (collusion && (get_goodness(requiredService) < 0.5) &&
-                                (sensor.get_numServices() > 0)) {
-                            if (sensor.get_goodness(requiredService) < 0.5)
-                                return LFTM_Link.MAX_PHEROMONE;
-                            else
-                                return LFTM_Link.MIN_PHEROMONE;
-                        } else
-                            return ((LFTM_Link)link).get_pheromone();
-                    } catch(Exception ex) {}
-                }
+        int edge = edgeTo(sensor);
+        if (edge < 0)
+            return 0.0;
+        return getPheromone(edge);
+    }
+
+    /**
+     * Gets the pheromone trace of one of the links of this sensor
+     * @param edge Index of the link in the topology of the network
+     * @return The pheromone trace of the given link
+     */
+    synchronized public double getPheromone(int edge) {
+        Topology topology = network.get_topology();
+        Sensor sensor = topology.get_targetSensor(edge);
+        if (sensor.isActive()) {
+            addTransmittedDistance(topology.get_length(edge));
+            try {
+                if (context.isCollusion() && (get_goodness(requiredService) < 0.5) &&
+                        (sensor.get_numServices() > 0)) {
+                    if (sensor.get_goodness(requiredService) < 0.5)
+                        return LFTM_Link.MAX_PHEROMONE;
+                    else
+                        return LFTM_Link.MIN_PHEROMONE;
+                } else
+                    return ((LFTM_Network)network).get_pheromone(edge);
+            } catch(Exception ex) {}
+        }
 
         return 0.0;
     }
@@ -286,12 +302,23 @@ public class LFTM_Sensor extends Sensor {
      * @return The heuristic value with the given neighbor sensor
      */
     synchronized public double getHeuristic(Sensor sensor) {
-        if (sensor.isActive())
-            for (Link link : links)
-                if (link.get_destination().equals(sensor)) {
-                    transmittedDistance += this.distance(sensor);
-                    return ((LFTM_Link)link).get_heuristic();
-                }
+        int edge = edgeTo(sensor);
+        if (edge < 0)
+            return 0.0;
+        return getHeuristic(edge);
+    }
+
+    /**
+     * Gets the heuristic value of one of the links of this sensor
+     * @param edge Index of the link in the topology of the network
+     * @return The heuristic value of the given link
+     */
+    synchronized public double getHeuristic(int edge) {
+        Topology topology = network.get_topology();
+        if (topology.get_targetSensor(edge).isActive()) {
+            addTransmittedDistance(topology.get_length(edge));
+            return ((LFTM_Network)network).get_heuristic(edge);
+        }
 
         return 0.0;
     }
@@ -302,11 +329,19 @@ public class LFTM_Sensor extends Sensor {
      * @param value New pheromone value
      */
     synchronized public void setPheromone(Sensor sensor, double value) {
-        for (Link link : links)
-            if (link.get_destination().equals(sensor)) {
-                transmittedDistance += this.distance(sensor);
-                ((LFTM_Link)link).set_pheromone(value);
-            }
+        int edge = edgeTo(sensor);
+        if (edge >= 0)
+            setPheromone(edge, value);
+    }
+
+    /**
+     * Sets the pheromone trace value of one of the links of this sensor
+     * @param edge Index of the link in the topology of the network
+     * @param value New pheromone value
+     */
+    synchronized public void setPheromone(int edge, double value) {
+        addTransmittedDistance(network.get_topology().get_length(edge));
+        ((LFTM_Network)network).set_pheromone(edge, value);
     }
 
     /**
@@ -315,11 +350,11 @@ public class LFTM_Sensor extends Sensor {
      * @param value New heuristic value
      */
     synchronized public void setHeuristic(Sensor sensor, double value) {
-        for (Link link : links)
-            if (link.get_destination().equals(sensor)) {
-                transmittedDistance += this.distance(sensor);
-                ((LFTM_Link)link).set_heuristic(value);
-            }
+        int edge = edgeTo(sensor);
+        if (edge >= 0) {
+            addTransmittedDistance(network.get_topology().get_length(edge));
+            ((LFTM_Network)network).set_heuristic(edge, value);
+        }
     }
 
     /**
@@ -61,10 +61,12 @@ import java.util.Collection;
  */
 public class LFTM_Service extends Service {
 
+    /** Parameters of the model of the simulation context this service was created in */
+    protected final LFTM_Parameters parameters = LFTM_Parameters.get_currentParameters();
     /** Universe MIN. Minimum value for the fuzzy sets used in this class */
-    protected final double U_MIN = LFTM_Parameters.get_U_MIN();
+    protected final double U_MIN = parameters.get_U_MIN();
     /** Universe MAX. Maximum value for the fuzzy sets used in this class */
-    protected final double U_MAX = LFTM_Parameters.get_U_MAX();
+    protected final double U_MAX = parameters.get_U_MAX();
 
     /** Service's price fuzzy set */
     protected Variable price;
@@ -152,13 +154,13 @@ public class LFTM_Service extends Service {
      * @return A fuzzy set representing the comparison between this service and the given one
      */
     public Variable compareTo(LFTM_Service service, double prizeWeight, double costWeight, double deliveryWeight, double qualityWeight) {
-        Variable priceComp = new Variable("PriceComp", LFTM_Parameters.get_linguisticTerms(), new DefuzzifierCenterOfGravity(U_MIN, U_MAX));
-        Variable costComp = new Variable("CostComp",LFTM_Parameters.get_linguisticTerms(), new DefuzzifierCenterOfGravity(U_MIN, U_MAX));
-        Variable deliveryComp = new Variable("DeliveryComp",LFTM_Parameters.get_linguisticTerms(), new DefuzzifierCenterOfGravity(U_MIN, U_MAX));
-        Variable qualityComp = new Variable("QualityComp",LFTM_Parameters.get_linguisticTerms(), new DefuzzifierCenterOfGravity(U_MIN, U_MAX));
+        Variable priceComp = new Variable("PriceComp", parameters.get_linguisticTerms(), new DefuzzifierCenterOfGravity(U_MIN, U_MAX));
+        Variable costComp = new Variable("CostComp",parameters.get_linguisticTerms(), new DefuzzifierCenterOfGravity(U_MIN, U_MAX));
+        Variable deliveryComp = new Variable("DeliveryComp",parameters.get_linguisticTerms(), new DefuzzifierCenterOfGravity(U_MIN, U_MAX));
+        Variable qualityComp = new Variable("QualityComp",parameters.get_linguisticTerms(), new DefuzzifierCenterOfGravity(U_MIN, U_MAX));
 
         if (frsPrice == null)
-            frsPrice = LFTM_Parameters.getFRSServicesAttributesNegative(price,service.get_price(),priceComp);
+            frsPrice = parameters.getFRSServicesAttributesNegative(price,service.get_price(),priceComp);
         else {
             priceComp.setDefuzzifier(new DefuzzifierCenterOfGravity(U_MIN, U_MAX));
             for (FuzzyRule fuzzyRule : frsPrice.getFuzzyRules())
@@ -166,7 +168,7 @@ public class LFTM_Service extends Service {
         }
 
         if (frsCost == null)
-            frsCost = LFTM_Parameters.getFRSServicesAttributesPositive(cost,service.get_cost(),costComp);
+            frsCost = parameters.getFRSServicesAttributesPositive(cost,service.get_cost(),costComp);
         else {
             costComp.setDefuzzifier(new DefuzzifierCenterOfGravity(U_MIN, U_MAX));
             for (FuzzyRule fuzzyRule : frsCost.getFuzzyRules())
@@ -174,7 +176,7 @@ public class LFTM_Service extends Service {
         }
         
         if (frsDelivery == null)
-            frsDelivery = LFTM_Parameters.getFRSServicesAttributesNegative(delivery,service.get_delivery(),deliveryComp);
+            frsDelivery = parameters.getFRSServicesAttributesNegative(delivery,service.get_delivery(),deliveryComp);
         else {
             deliveryComp.setDefuzzifier(new DefuzzifierCenterOfGravity(U_MIN, U_MAX));
             for (FuzzyRule fuzzyRule : frsDelivery.getFuzzyRules())
@@ -182,7 +184,7 @@ public class LFTM_Service extends Service {
         }
         
         if (frsQuality == null)
-            frsQuality = LFTM_Parameters.getFRSServicesAttributesPositive(quality,service.get_quality(),qualityComp);
+            frsQuality = parameters.getFRSServicesAttributesPositive(quality,service.get_quality(),qualityComp);
         else {
             qualityComp.setDefuzzifier(new DefuzzifierCenterOfGravity(U_MIN, U_MAX));
             for (FuzzyRule fuzzyRule : frsQuality.getFuzzyRules())
@@ -41,6 +41,7 @@
 
 package es.ants.felixgm.trmsim_wsn.trm.libs.fuzzylib;
 
+import es.ants.felixgm.trmsim_wsn.network.RandomStreams;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Vector;
@@ -190,7 +191,7 @@ public class Variable {
 
     private int getLinguisticTermIndex(double linguisticTermProbability[]) {
         int index = 0;
-        double r = Math.random();
+        double r = RandomStreams.nextDouble();
         double accumulator = 0.0;
 
         for (int i = 0; i < linguisticTermProbability.length; i++) {
@@ -48,9 +48,11 @@ import java.util.Vector;
 
 import es.ants.felixgm.trmsim_wsn.outcomes.Outcome;
 import es.ants.felixgm.trmsim_wsn.satisfaction.SatisfactionInterval;
+import es.ants.felixgm.trmsim_wsn.network.RandomStreams;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
 import es.ants.felixgm.trmsim_wsn.network.Network;
 import es.ants.felixgm.trmsim_wsn.network.Service;
+import es.ants.felixgm.trmsim_wsn.network.generator.NetworkGenerator;
 
 import es.ants.felixgm.trmsim_wsn.trm.TRModel_WSN;
 import java.util.Collection;
@@ -198,9 +200,9 @@ public class PeerTrust extends TRModel_WSN {
                 if (PeerTrust_Sensor.collusion()) {
                     try {
                         if (server.get_goodness(client.get_requiredService()) < 0.5)
-                            satisfaction = MAX_SATISFACTION-Math.random()*((MAX_SATISFACTION-MIN_SATISFACTION)/2);
+                            satisfaction = MAX_SATISFACTION-RandomStreams.nextDouble()*((MAX_SATISFACTION-MIN_SATISFACTION)/2);
                         else
-                            satisfaction = MIN_SATISFACTION+Math.random()*((MAX_SATISFACTION-MIN_SATISFACTION)/2);
+                            satisfaction = MIN_SATISFACTION+RandomStreams.nextDouble()*((MAX_SATISFACTION-MIN_SATISFACTION)/2);
                     } catch (Exception ex) {
                         ex.printStackTrace();
                     }
@@ -312,6 +314,11 @@ public class PeerTrust extends TRModel_WSN {
         return new PeerTrust_Network(numSensors,probClients,rangeFactor,probServices,probGoodness,services);
     }
 
+    @Override
+    public Network generateNetwork(NetworkGenerator generator) {
+        return new PeerTrust_Network(generator);
+    }
+
     @Override
     public Network loadCurrentNetwork(String fileName) throws Exception {
         return new PeerTrust_Network(fileName);
@@ -42,6 +42,7 @@
 package es.ants.felixgm.trmsim_wsn.trm.peertrust;
 
 import es.ants.felixgm.trmsim_wsn.network.Network;
+import es.ants.felixgm.trmsim_wsn.network.generator.NetworkGenerator;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
 import es.ants.felixgm.trmsim_wsn.network.Service;
 import java.util.Collection;
@@ -53,6 +54,9 @@ import java.util.Collection;
  * @since 0.2
  */
 public class PeerTrust_Network extends Network {
+    /** Window size for storing transactions outcomes */
+    protected int windowSize;
+
     /**
      * This constructor creates a new random PeerTrust Network using the given parameters
      * @param numSensors Number of sensors composing the network
@@ -73,6 +77,15 @@ public class PeerTrust_Network extends Network {
         reset();
     }
 
+    /**
+     * This constructor creates a new random PeerTrust Network by means of a given generator
+     * @param generator Generator of the new network
+     */
+    public PeerTrust_Network(NetworkGenerator generator) {
+        super(generator);
+        reset();
+    }
+
     /**
      * This method loads a network from a XML file and creates the specific
      * corresponding PeerTrust Network
@@ -83,15 +96,21 @@ public class PeerTrust_Network extends Network {
     public PeerTrust_Network(String xmlFilePath) throws Exception {
         super(xmlFilePath);
         reset();
+        restoreSnapshotState();
     }
 
     @Override
     public void reset() {
-        PeerTrust_Sensor.set_windowSize(
-                ((PeerTrust_Parameters)PeerTrust_Sensor.get_TRModel_WSN().get_TRMParameters()).get_windowSize());
+        windowSize = ((PeerTrust_Parameters)context.get_TRModel_WSN().get_TRMParameters()).get_windowSize();
         super.reset();
     }
 
+    /**
+     * Returns the window size for storing transactions outcomes
+     * @return The window size for storing transactions outcomes
+     */
+    public int get_windowSize() { return windowSize; }
+
     @Override
     public Sensor newSensor(){
         return new PeerTrust_Sensor();
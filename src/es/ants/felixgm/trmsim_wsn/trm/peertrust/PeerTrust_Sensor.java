@@ -45,6 +45,7 @@ package es.ants.felixgm.trmsim_wsn.trm.peertrust;
 import es.ants.felixgm.trmsim_wsn.outcomes.Outcome;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
 import es.ants.felixgm.trmsim_wsn.network.Service;
+import es.ants.felixgm.trmsim_wsn.network.SimulationContext;
 import java.util.Collection;
 import java.util.LinkedList;
 
@@ -55,8 +56,6 @@ import java.util.LinkedList;
  * @since 0.2
  */
 public class PeerTrust_Sensor extends Sensor {
-    /** Window size for storing transactions outcomes */
-    protected static int _windowSize;
     /** Collection of Transactions this sensor has had */
     protected Collection<Transaction> transactions;
 
@@ -86,7 +85,7 @@ public class PeerTrust_Sensor extends Sensor {
      * @param outcome Outcome of the trnsaction to be added
      */
     public synchronized void addNewTransaction(PeerTrust_Sensor client, PeerTrust_Sensor server, Outcome outcome){
-        if ((transactions.size() != 0) && (transactions.size() >= _windowSize))
+        if ((transactions.size() != 0) && (transactions.size() >= ((PeerTrust_Network)network).get_windowSize()))
             ((LinkedList<Transaction>)transactions).removeLast();
 
         ((LinkedList<Transaction>)transactions).addFirst(new Transaction(client, server,outcome));
@@ -114,20 +113,14 @@ public class PeerTrust_Sensor extends Sensor {
     }
 
     /**
-     * Indicates if ther is a collusion or not
+     * Indicates if ther is a collusion or not in the current simulation context
      * @return true, if there is a collusion, false otherwise
      */
-    public static boolean collusion() { return collusion; }
+    public static boolean collusion() { return SimulationContext.current().isCollusion(); }
 
     /**
      * Returns the service requested by the client
      * @return The service requested by the client
      */
     public Service get_requiredService() { return requiredService; }
-
-    /**
-     * Sets the window size for storing transactions outcomes
-     * @param windowSize New window size for storing transactions outcomes
-     */
-    public static void set_windowSize(int windowSize) { _windowSize = windowSize; }
 }
\ No newline at end of file
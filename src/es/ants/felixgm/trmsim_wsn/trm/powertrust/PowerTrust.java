@@ -45,6 +45,7 @@ import es.ants.felixgm.trmsim_wsn.outcomes.Outcome;
 import es.ants.felixgm.trmsim_wsn.network.Network;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
 import es.ants.felixgm.trmsim_wsn.network.Service;
+import es.ants.felixgm.trmsim_wsn.network.generator.NetworkGenerator;
 import es.ants.felixgm.trmsim_wsn.outcomes.PowerTrustEnergyConsumptionOutcome;
 import es.ants.felixgm.trmsim_wsn.satisfaction.SatisfactionBinary;
 import es.ants.felixgm.trmsim_wsn.search.IsServerSearchCondition;
@@ -165,6 +166,11 @@ public class PowerTrust extends TRModel_WSN {
         return new PowerTrust_Network(numSensors,probClients,rangeFactor,probServices,probGoodness,services);
     }
 
+    @Override
+    public Network generateNetwork(NetworkGenerator generator) {
+        return new PowerTrust_Network(generator);
+    }
+
     @Override
     public Network loadCurrentNetwork(String fileName) throws Exception {
         return new PowerTrust_Network(fileName);
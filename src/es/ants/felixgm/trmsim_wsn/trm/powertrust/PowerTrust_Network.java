@@ -41,13 +41,12 @@
 
 package es.ants.felixgm.trmsim_wsn.trm.powertrust;
 
+import es.ants.felixgm.trmsim_wsn.network.EnergyLedger;
 import es.ants.felixgm.trmsim_wsn.network.Network;
+import es.ants.felixgm.trmsim_wsn.network.generator.NetworkGenerator;
+import es.ants.felixgm.trmsim_wsn.network.RandomStreams;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
 import es.ants.felixgm.trmsim_wsn.network.Service;
-import es.ants.felixgm.trmsim_wsn.search.ISearchCondition;
-import es.ants.felixgm.trmsim_wsn.search.IsClientSearchCondition;
-import es.ants.felixgm.trmsim_wsn.search.IsPowerNodeSearchCondition;
-import es.ants.felixgm.trmsim_wsn.search.IsServerSearchCondition;
 import java.util.Collection;
 import java.util.List;
 
@@ -78,6 +77,15 @@ public class PowerTrust_Network extends Network {
         reset();
     }
 
+    /**
+     * This constructor creates a new random PowerTrust Network by means of a given generator
+     * @param generator Generator of the new network
+     */
+    public PowerTrust_Network(NetworkGenerator generator) {
+        super(generator);
+        reset();
+    }
+
     /**
      * This method loads a network from a XML file and creates the specific
      * corresponding PowerTrust Network
@@ -88,18 +96,31 @@ public class PowerTrust_Network extends Network {
     public PowerTrust_Network(String xmlFilePath) throws Exception {
         super(xmlFilePath);
         reset();
+        restoreSnapshotState();
+    }
+
+    /**
+     * {@inheritDoc} Power nodes are flagged with 1
+     */
+    @Override
+    protected int get_snapshotFlags(Sensor sensor) {
+        return ((PowerTrust_Sensor)sensor).isPowerNode() ? 1 : 0;
+    }
+
+    @Override
+    protected void set_snapshotFlags(Sensor sensor, int flags) {
+        ((PowerTrust_Sensor)sensor).setPowerNode((flags & 1) != 0);
     }
 
     @Override
     public void reset() {
-        PowerTrust_Sensor.setNumSensors(sensors.size());
         super.reset();
-        int m = (int)(sensors.size()*((PowerTrust_Parameters)PowerTrust_Sensor.get_TRModel_WSN().get_TRMParameters()).get_powerNodesPercentage());
-        if ((((PowerTrust_Parameters)PowerTrust_Sensor.get_TRModel_WSN().get_TRMParameters()).get_powerNodesPercentage() > 0) && (m == 0))
+        int m = (int)(sensors.size()*((PowerTrust_Parameters)context.get_TRModel_WSN().get_TRMParameters()).get_powerNodesPercentage());
+        if ((((PowerTrust_Parameters)context.get_TRModel_WSN().get_TRMParameters()).get_powerNodesPercentage() > 0) && (m == 0))
             m = 1;
 
         while (m > 0) {
-            int selectedServer = (int)(Math.random()*servers.size());
+            int selectedServer = (int)(RandomStreams.nextDouble()*servers.size());
             if (!((PowerTrust_Sensor)(((List<Sensor>)servers).get(selectedServer))).isPowerNode()) {
                 ((PowerTrust_Sensor)(((List<Sensor>)servers).get(selectedServer))).setPowerNode(true);
                 m--;
@@ -121,7 +142,7 @@ public class PowerTrust_Network extends Network {
             double prob = ((double)numBenevolentServers/servers.size());
             while (numBenevolentServers > 0)
                 for (Sensor server : servers)
-                    if ((Math.random() < prob) && (server.offersService(service)) && (server.get_goodness(service)< 0.5)) {
+                    if ((RandomStreams.nextDouble() < prob) && (server.offersService(service)) && (server.get_goodness(service)< 0.5)) {
                         server.set_goodness(service,1.0);
                         numBenevolentServers--;
                         if (numBenevolentServers == 0)
@@ -141,40 +162,12 @@ public class PowerTrust_Network extends Network {
     }
 
     @Override
-    public long get_sensorsTransmittedDistance(ISearchCondition searchCondition, Service requiredService) {
-        long sensorsTransmittedDistance = 0;
-        long numSensors = 0;
-
-        for (Sensor sensor : sensors)
-            if (reachesQualifiedService(sensor,requiredService)) {
-                if (searchCondition instanceof IsClientSearchCondition) {
-                    if (searchCondition.sensorAcomplishesCondition(sensor)) {
-                        sensorsTransmittedDistance += sensor.get_transmittedDistance();
-                        numSensors++;
-                    }
-                } else if (searchCondition instanceof IsPowerNodeSearchCondition) {
-                    if (((PowerTrust_Sensor)sensor).isPowerNode()) {
-                        sensorsTransmittedDistance += sensor.get_transmittedDistance();
-                        numSensors++;
-                    }
-                } else {
-                    if (searchCondition.sensorAcomplishesCondition(sensor)) {
-                        if (((IsServerSearchCondition)searchCondition).get_serverType() == IsServerSearchCondition.BENEVOLENT_SERVER) {
-                            if (!((PowerTrust_Sensor)sensor).isPowerNode()) {
-                                sensorsTransmittedDistance += sensor.get_transmittedDistance();
-                                numSensors++;
-                            }
-                        } else {
-                            sensorsTransmittedDistance += sensor.get_transmittedDistance();
-                            numSensors++;
-                        }
-                    }
-                }
-            }
-
-        if (numSensors != 0)
-            return sensorsTransmittedDistance/numSensors;
-
-        return 0;
+    protected int get_energyRoles(Sensor sensor, Service requiredService) {
+        int roles = super.get_energyRoles(sensor, requiredService);
+        if (((PowerTrust_Sensor)sensor).isPowerNode()) {
+            roles |= EnergyLedger.roleMask(EnergyLedger.POWER_NODE);
+            roles &= ~EnergyLedger.roleMask(EnergyLedger.BENEVOLENT_SERVER);
+        }
+        return roles;
     }
 }
\ No newline at end of file
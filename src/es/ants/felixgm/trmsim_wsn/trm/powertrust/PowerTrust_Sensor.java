@@ -57,8 +57,6 @@ import java.util.Vector;
  * @since 0.3
  */
 public class PowerTrust_Sensor extends Sensor implements Comparable<PowerTrust_Sensor>{
-    /** Number of sensors composing the network this sensor belongs to */
-    protected static int _numSensors = 0;
     /** Score v_i */
     protected double globalReputationScore;
     /** Vector r_i */
@@ -90,9 +88,10 @@ public class PowerTrust_Sensor extends Sensor implements Comparable<PowerTrust_S
     @Override
     public void reset() {
         transactions = new LinkedList<Transaction>();
-        globalReputationScore = 1.0/_numSensors;
-        normalizedLocalTrustVector = new double[_numSensors];
-        mostRecentFeedbackScoreVector = new double[_numSensors];
+        int numSensors = get_numSensors();
+        globalReputationScore = 1.0/numSensors;
+        normalizedLocalTrustVector = new double[numSensors];
+        mostRecentFeedbackScoreVector = new double[numSensors];
         isPowerNode = false;
     }
 
@@ -102,9 +101,9 @@ public class PowerTrust_Sensor extends Sensor implements Comparable<PowerTrust_S
      * @return r_{ij}
      */
     public double getNormalizedLocalTrustScore(PowerTrust_Sensor server) {
-        this.transmittedDistance += this.distance(server);
+        addTransmittedDistance(this.distance(server));
         try {
-            if (collusion) {
+            if (context.isCollusion()) {
                 if (server.get_goodness(requiredService) < 0.5)
                     return 1.0;
                 else
@@ -122,7 +121,7 @@ public class PowerTrust_Sensor extends Sensor implements Comparable<PowerTrust_S
      */
     public synchronized double computeGlobalReputation() {
         if (transactions.size() > 0) {
-            double epsilon = ((PowerTrust_Parameters)trmmodelWSN.get_TRMParameters()).get_epsilon();
+            double epsilon = ((PowerTrust_Parameters)context.get_TRModel_WSN().get_TRMParameters()).get_epsilon();
             double pre = globalReputationScore;
             do {
                 pre = globalReputationScore;
@@ -131,8 +130,8 @@ public class PowerTrust_Sensor extends Sensor implements Comparable<PowerTrust_S
                     PowerTrust_Sensor client = (PowerTrust_Sensor)transaction.getClient();
                     sum += client.get_globalReputationScore()*client.getNormalizedLocalTrustScore(this);
                 }
-                double alpha = ((PowerTrust_Parameters)trmmodelWSN.get_TRMParameters()).get_powerNodesWeight();
-                int m = (int)(_numSensors*((PowerTrust_Parameters)trmmodelWSN.get_TRMParameters()).get_powerNodesPercentage());
+                double alpha = ((PowerTrust_Parameters)context.get_TRModel_WSN().get_TRMParameters()).get_powerNodesWeight();
+                int m = (int)(get_numSensors()*((PowerTrust_Parameters)context.get_TRModel_WSN().get_TRMParameters()).get_powerNodesPercentage());
                 if (isPowerNode)
                     globalReputationScore = (1.0 - alpha)*sum + m/alpha;
                 else
@@ -167,8 +166,8 @@ public class PowerTrust_Sensor extends Sensor implements Comparable<PowerTrust_S
      */
     @Override
     public Outcome get_outcome() {
-        int numPowerNodes = (int)(_numSensors*((PowerTrust_Parameters)PowerTrust_Sensor.get_TRModel_WSN().get_TRMParameters()).get_powerNodesPercentage());
-        if ((((PowerTrust_Parameters)PowerTrust_Sensor.get_TRModel_WSN().get_TRMParameters()).get_powerNodesPercentage() > 0) && (numPowerNodes == 0))
+        int numPowerNodes = (int)(get_numSensors()*((PowerTrust_Parameters)context.get_TRModel_WSN().get_TRMParameters()).get_powerNodesPercentage());
+        if ((((PowerTrust_Parameters)context.get_TRModel_WSN().get_TRMParameters()).get_powerNodesPercentage() > 0) && (numPowerNodes == 0))
             numPowerNodes = 1;
         
         Collection<Vector<Sensor>> pathsToServers = this.findSensors(new IsServerSearchCondition(requiredService));
@@ -207,17 +206,14 @@ public class PowerTrust_Sensor extends Sensor implements Comparable<PowerTrust_S
             return 0;
     }
 
-    /**
-     * Sets the number of sensors composing the network this sensor belongs to
-     * @param numSensors The number of sensors composing the network this sensor belongs to
-     */
-    public static void setNumSensors(int numSensors){ _numSensors = numSensors; }
-
     /**
      * Sets this senor as a power node or not
      * @param isPowerNode true if this sensor is to be a power node, false otherwise
      */
-    public void setPowerNode(boolean isPowerNode){ this.isPowerNode = isPowerNode; }
+    public void setPowerNode(boolean isPowerNode){
+        this.isPowerNode = isPowerNode;
+        rolesChanged();
+    }
 
     /**
      * Indicates if this sensor is a power node (true) or not (false)
@@ -229,7 +225,7 @@ public class PowerTrust_Sensor extends Sensor implements Comparable<PowerTrust_S
      * Returns the number of sensors composing the network this sensor belongs to
      * @return The number of sensors composing the network this sensor belongs to
      */
-    public static int getNumSensors() { return _numSensors; }
+    public int get_numSensors() { return (network == null) ? 0 : network.get_numSensors(); }
 
     /**
      * Returns the current global reputation score v_i^t
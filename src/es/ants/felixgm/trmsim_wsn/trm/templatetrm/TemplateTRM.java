@@ -45,6 +45,7 @@ import es.ants.felixgm.trmsim_wsn.outcomes.Outcome;
 import es.ants.felixgm.trmsim_wsn.network.Network;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
 import es.ants.felixgm.trmsim_wsn.network.Service;
+import es.ants.felixgm.trmsim_wsn.network.generator.NetworkGenerator;
 import es.ants.felixgm.trmsim_wsn.trm.GatheredInformation;
 import es.ants.felixgm.trmsim_wsn.trm.TRModel_WSN;
 import java.util.Collection;
@@ -124,6 +125,11 @@ public class TemplateTRM  extends TRModel_WSN {
         return new TemplateTRM_Network(numSensors,probClients,rangeFactor,probServices,probGoodness,services);
     }
 
+    @Override
+    public Network generateNetwork(NetworkGenerator generator) {
+        return new TemplateTRM_Network(generator);
+    }
+
     @Override
     public Network loadCurrentNetwork(String fileName) throws Exception {
         return new TemplateTRM_Network(fileName);
@@ -42,6 +42,7 @@
 package es.ants.felixgm.trmsim_wsn.trm.templatetrm;
 
 import es.ants.felixgm.trmsim_wsn.network.Network;
+import es.ants.felixgm.trmsim_wsn.network.generator.NetworkGenerator;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
 import es.ants.felixgm.trmsim_wsn.network.Service;
 import java.util.Collection;
@@ -73,6 +74,15 @@ public class TemplateTRM_Network extends Network {
         reset();
     }
 
+    /**
+     * This constructor creates a new random TemplateTRM Network by means of a given generator
+     * @param generator Generator of the new network
+     */
+    public TemplateTRM_Network(NetworkGenerator generator) {
+        super(generator);
+        reset();
+    }
+
     /**
      * This method loads a network from a XML file and creates the specific
      * corresponding TemplateTRM Network
@@ -83,6 +93,7 @@ public class TemplateTRM_Network extends Network {
     public TemplateTRM_Network(String xmlFilePath) throws Exception {
         super(xmlFilePath);
         reset();
+        restoreSnapshotState();
     }
 
     @Override
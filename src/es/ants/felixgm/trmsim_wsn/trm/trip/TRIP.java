@@ -42,8 +42,10 @@
 package es.ants.felixgm.trmsim_wsn.trm.trip;
 
 import es.ants.felixgm.trmsim_wsn.network.Network;
+import es.ants.felixgm.trmsim_wsn.network.RandomStreams;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
 import es.ants.felixgm.trmsim_wsn.network.Service;
+import es.ants.felixgm.trmsim_wsn.network.generator.NetworkGenerator;
 import es.ants.felixgm.trmsim_wsn.outcomes.EnergyConsumptionOutcome;
 import es.ants.felixgm.trmsim_wsn.outcomes.Outcome;
 import es.ants.felixgm.trmsim_wsn.satisfaction.SatisfactionInterval;
@@ -199,7 +201,7 @@ public class TRIP extends TRModel_WSN {
                     selectedNeighbors.add(neighbor);
                 else if (trustLevel.getTermName().equalsIgnoreCase("+/- Trust")) {
                     //muMLT-muNT-sigmaNT is the probability of accepting messages of nodes placed in "+/- Trust" trust level
-                    if (Math.random() < (muMLT-muNT-sigmaNT))
+                    if (RandomStreams.nextDouble() < (muMLT-muNT-sigmaNT))
                         selectedNeighbors.add(neighbor);
                 }
 
@@ -274,6 +276,11 @@ public class TRIP extends TRModel_WSN {
         return new TRIP_Network(numSensors,probClients,rangeFactor,probServices,probGoodness,services);
     }
 
+    @Override
+    public Network generateNetwork(NetworkGenerator generator) {
+        return new TRIP_Network(generator);
+    }
+
     @Override
     public Network loadCurrentNetwork(String xmlFilePath) throws Exception {
         return new TRIP_Network(xmlFilePath);
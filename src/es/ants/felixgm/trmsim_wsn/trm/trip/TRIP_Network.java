@@ -42,8 +42,12 @@
 package es.ants.felixgm.trmsim_wsn.trm.trip;
 
 import es.ants.felixgm.trmsim_wsn.network.Network;
+import es.ants.felixgm.trmsim_wsn.network.RandomStreams;
 import es.ants.felixgm.trmsim_wsn.network.Sensor;
 import es.ants.felixgm.trmsim_wsn.network.Service;
+import es.ants.felixgm.trmsim_wsn.network.SpatialGrid;
+import es.ants.felixgm.trmsim_wsn.network.generator.NetworkGenerator;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -71,17 +75,26 @@ public class TRIP_Network extends Network {
             Collection<Double> probServices,
             Collection<Double> probGoodness,
             Collection<Service> services) {
-        super(numSensors, probClients, rangeFactor, probServices, probGoodness, services);
+        this(new NetworkGenerator(numSensors, probClients, rangeFactor, probServices, probGoodness, services));
+    }
+
+    /**
+     * This constructor creates a new random TRIP Network by means of a given generator.
+     * Every sensor acts both as a client and as a server
+     * @param generator Generator of the new network
+     */
+    public TRIP_Network(NetworkGenerator generator) {
+        super(generator);
         servers.removeAll(servers);
         clients.removeAll(clients);
         for (Sensor sensor : sensors) {
             servers.add(sensor);
             clients.add(sensor);
-            Iterator<Double> itProbServices = probServices.iterator();
-            Iterator<Double> itProbGoodness = probGoodness.iterator();
-            for (Service service : services)
-                if (Math.random() <= itProbServices.next().doubleValue()) {
-                    if (Math.random() <= itProbGoodness.next().doubleValue())
+            Iterator<Double> itProbServices = generator.get_probServices().iterator();
+            Iterator<Double> itProbGoodness = generator.get_probGoodness().iterator();
+            for (Service service : generator.get_services())
+                if (RandomStreams.nextDouble() <= itProbServices.next().doubleValue()) {
+                    if (RandomStreams.nextDouble() <= itProbGoodness.next().doubleValue())
                         sensor.addService(service, 1.0);
                     else
                         sensor.addService(service, 0.0);
@@ -91,7 +104,7 @@ public class TRIP_Network extends Network {
                 }
         }
         reset();
-        setNewNeighbors(rangeFactor);
+        setNewNeighbors(generator.get_rangeFactor());
     }
 
     /**
@@ -103,14 +116,39 @@ public class TRIP_Network extends Network {
      */
     public TRIP_Network(String xmlFilePath) throws Exception {
         super(xmlFilePath);
-        for (Sensor client : clients) {
-            client.addService(new Service("Relay"), 1.0);
-            servers.add(client);
+        if (!isRestoringSnapshot()) {
+            // Sensors loaded as clients and as servers are disjoint, so no membership check is needed
+            Collection<Sensor> loadedServers = new ArrayList<Sensor>(servers);
+            for (Sensor client : clients) {
+                client.addService(new Service("Relay"), 1.0);
+                servers.add(client);
+            }
+            clients.addAll(loadedServers);
         }
-        for (Sensor server : servers)
-            if (!clients.contains(server))
-                clients.add(server);
         reset();
+        restoreSnapshotState();
+    }
+
+    /**
+     * {@inheritDoc} RSUs are flagged with 1
+     */
+    @Override
+    protected int get_snapshotFlags(Sensor sensor) {
+        return ((TRIP_Sensor)sensor).isRSU() ? 1 : 0;
+    }
+
+    @Override
+    protected void set_snapshotFlags(Sensor sensor, int flags) {
+        ((TRIP_Sensor)sensor).setRSU((flags & 1) != 0);
+    }
+
+    @Override
+    protected boolean restoreSnapshotState() throws Exception {
+        if (!super.restoreSnapshotState())
+            return false;
+        // RSUs reach farther, so the link candidates depend on the restored RSUs
+        invalidateLinkCandidates();
+        return true;
     }
 
     @Override
@@ -120,12 +158,13 @@ public class TRIP_Network extends Network {
             if (((TRIP_Sensor)sensor).isRSU())
                 return;
         
-        int numRSUs = (int)(sensors.size()*((TRIP_Parameters)TRIP_Sensor.get_TRModel_WSN().get_TRMParameters()).get_rsuPercentage());
-        if ((((TRIP_Parameters)TRIP_Sensor.get_TRModel_WSN().get_TRMParameters()).get_rsuPercentage() > 0) && (numRSUs == 0))
+        int numRSUs = (int)(sensors.size()*((TRIP_Parameters)context.get_TRModel_WSN().get_TRMParameters()).get_rsuPercentage());
+        if ((((TRIP_Parameters)context.get_TRModel_WSN().get_TRMParameters()).get_rsuPercentage() > 0) && (numRSUs == 0))
             numRSUs = 1;
 
+        invalidateLinkCandidates();
         while (numRSUs > 0) {
-            int selectedServer = (int)(Math.random()*servers.size());
+            int selectedServer = (int)(RandomStreams.nextDouble()*servers.size());
             if (!((TRIP_Sensor)(((List<Sensor>)servers).get(selectedServer))).isRSU()) {
                 ((TRIP_Sensor)(((List<Sensor>)servers).get(selectedServer))).setRSU(true);
                 numRSUs--;
@@ -133,25 +172,58 @@ public class TRIP_Network extends Network {
         }
     }
 
+    /**
+     * RSUs have twice the wireless range of any other sensor, so the link distance
+     * between a RSU and any other sensor is half their actual distance
+     * @param sensor1 First sensor
+     * @param sensor2 Second sensor
+     * @return The link distance between both sensors
+     */
     @Override
-    public void setNewNeighbors(double newRange) {
-        double rangeThreshold = newRange*Math.sqrt(2.0)*maxDistance;
-        double rsuRangeThreshold = 2.0*rangeThreshold;
+    protected double linkDistance(Sensor sensor1, Sensor sensor2) {
+        if (((TRIP_Sensor)sensor1).isRSU() || ((TRIP_Sensor)sensor2).isRSU())
+            return sensor1.distance(sensor2)/2.0;
+        return sensor1.distance(sensor2);
+    }
 
-        for (Sensor sensor : sensors) {
-            sensor.removeAllNeighbors();
-            for (Sensor sensor2 : sensors) {
-                if (((TRIP_Sensor)sensor).isRSU() || ((TRIP_Sensor)sensor2).isRSU()) {
-                    if ((!sensor.equals(sensor2)) && (sensor.distance(sensor2) < rsuRangeThreshold)) {
-                        sensor.addLink(sensor2);
-                        sensor2.addLink(sensor);
-                    }
-                } else {
-                    if ((!sensor.equals(sensor2)) && (sensor.distance(sensor2) < rangeThreshold)) {
-                        sensor.addLink(sensor2);
-                        sensor2.addLink(sensor);
-                    }
-                }
+    @Override
+    protected NeighborSearch newNeighborSearch(Sensor[] _sensors, double rangeThreshold) {
+        return new TRIP_NeighborSearch(_sensors, rangeThreshold);
+    }
+
+    /**
+     * <p>This class finds the neighbors of a sensor of a TRIP network. RSUs reach
+     * twice as far, so they are also kept in a grid of their own</p>
+     */
+    protected static class TRIP_NeighborSearch extends NeighborSearch {
+        /** Grid containing only the RSUs of the network, with cells twice as large */
+        protected SpatialGrid rsuGrid;
+
+        /**
+         * Class TRIP_NeighborSearch constructor
+         * @param sensors Sensors of the network
+         * @param rangeThreshold Link distance (exclusive) below which sensors are found
+         */
+        protected TRIP_NeighborSearch(Sensor[] sensors, double rangeThreshold) {
+            super(sensors, rangeThreshold);
+            Collection<Sensor> rsus = new ArrayList<Sensor>();
+            for (Sensor sensor : sensors)
+                if (((TRIP_Sensor)sensor).isRSU())
+                    rsus.add(sensor);
+            rsuGrid = new SpatialGrid(rsus, 2.0*rangeThreshold);
+        }
+
+        @Override
+        protected void findNeighbors(Sensor sensor, Collection<Sensor> found) {
+            if (((TRIP_Sensor)sensor).isRSU())
+                grid.findSensorsInRange(sensor, 2.0*rangeThreshold, found);
+            else {
+                grid.findSensorsInRange(sensor, rangeThreshold, found);
+                Collection<Sensor> rsus = new ArrayList<Sensor>();
+                rsuGrid.findSensorsInRange(sensor, 2.0*rangeThreshold, rsus);
+                for (Sensor rsu : rsus)
+                    if (!(sensor.distance(rsu) < rangeThreshold))
+                        found.add(rsu);
             }
         }
     }